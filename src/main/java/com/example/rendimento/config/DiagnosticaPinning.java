@@ -0,0 +1,72 @@
+package com.example.rendimento.config;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+/**
+ * Diagnostica dei thread virtuali bloccati sul thread portatore (pinning), ad esempio per
+ * un'attesa di I/O dentro un blocco {@code synchronized} o in codice nativo: finché dura,
+ * il thread portatore non può eseguire altri thread virtuali.
+ * <p>
+ * Ascolta in streaming l'evento JFR {@code jdk.VirtualThreadPinned} e registra nel log
+ * i blocchi oltre la soglia con lo stack che li ha causati. Attiva solo con
+ * {@code rendimento.thread-virtuali.diagnostica-pinning=true}.
+ */
+@Component
+@ConditionalOnProperty(name = "rendimento.thread-virtuali.diagnostica-pinning", havingValue = "true")
+public class DiagnosticaPinning {
+
+    private static final Logger log = LoggerFactory.getLogger(DiagnosticaPinning.class);
+
+    private static final String EVENTO = "jdk.VirtualThreadPinned";
+    private static final int FRAME_NEL_LOG = 12;
+
+    private final Duration soglia;
+    private RecordingStream stream;
+
+    public DiagnosticaPinning(@Value("${rendimento.thread-virtuali.soglia-pinning-ms:20}") long sogliaMillis) {
+        this.soglia = Duration.ofMillis(sogliaMillis);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void avvia() {
+        stream = new RecordingStream();
+        stream.enable(EVENTO).withThreshold(soglia).withStackTrace();
+        stream.onEvent(EVENTO, this::registra);
+        stream.startAsync();
+        log.info("Diagnostica del pinning dei thread virtuali attiva (soglia {} ms)", soglia.toMillis());
+    }
+
+    private void registra(RecordedEvent evento) {
+        String thread = evento.getThread() != null ? evento.getThread().getJavaName() : "?";
+        List<RecordedFrame> frame = evento.getStackTrace() != null ? evento.getStackTrace().getFrames() : List.of();
+        log.warn("Thread virtuale {} bloccato sul thread portatore per {} ms:\n{}",
+                thread, evento.getDuration().toMillis(),
+                frame.stream()
+                        .limit(FRAME_NEL_LOG)
+                        .map(f -> "\tat " + f.getMethod().getType().getName() + "." + f.getMethod().getName()
+                                + ":" + f.getLineNumber())
+                        .collect(Collectors.joining("\n")));
+    }
+
+    @PreDestroy
+    public void chiudi() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+}
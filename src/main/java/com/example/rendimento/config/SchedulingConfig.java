@@ -0,0 +1,13 @@
+package com.example.rendimento.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Configurazione per l'abilitazione dei job schedulati (@Scheduled),
+ * ad esempio la manutenzione delle partizioni della tabella trends.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
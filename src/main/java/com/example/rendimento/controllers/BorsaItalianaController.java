@@ -3,9 +3,11 @@ package com.example.rendimento.controllers;
 import java.math.BigDecimal;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Supplier;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -17,7 +19,9 @@ import org.springframework.web.bind.annotation.RestController;
 import com.example.rendimento.dto.PaginatedResponseDTO;
 import com.example.rendimento.dto.TitoloDTO;
 import com.example.rendimento.enums.TipoTitolo;
+import com.example.rendimento.exception.ServizioEsternoNonDisponibileException;
 import com.example.rendimento.service.BorsaItalianaService;
+import com.example.rendimento.service.UltimiDatiNotiService;
 import com.example.rendimento.service.factory.BorsaItalianaServiceFactory;
 
 @RestController
@@ -27,10 +31,13 @@ public class BorsaItalianaController {
     private static final Logger log = LoggerFactory.getLogger(BorsaItalianaController.class);
     
     private final BorsaItalianaServiceFactory borsaItalianaServiceFactory;
+    private final UltimiDatiNotiService ultimiDatiNotiService;
 
     // Dependency injection tramite costruttore
-    public BorsaItalianaController(BorsaItalianaServiceFactory borsaItalianaServiceFactory) {
+    public BorsaItalianaController(BorsaItalianaServiceFactory borsaItalianaServiceFactory,
+                                   UltimiDatiNotiService ultimiDatiNotiService) {
         this.borsaItalianaServiceFactory = borsaItalianaServiceFactory;
+        this.ultimiDatiNotiService = ultimiDatiNotiService;
     }
 
     /**
@@ -40,11 +47,11 @@ public class BorsaItalianaController {
      * @return corso ufficiale
      */
     @GetMapping("/corso/btp/{isin}")
-    public BigDecimal getCorsoBtp(@PathVariable String isin) {
+    public ResponseEntity<BigDecimal> getCorsoBtp(@PathVariable String isin) {
         log.info("Ricevuta richiesta GET /api/borsa-italiana/corso/btp/{} con ISIN: {}", "isin", isin);
         BorsaItalianaService service = borsaItalianaServiceFactory.getBorsaItalianaService(TipoTitolo.BTP);
-        BigDecimal result = service.getCorsoByIsin(isin);
-        log.info("Risposta per GET /api/borsa-italiana/corso/btp/{}: {}", isin, result);
+        ResponseEntity<BigDecimal> result = corsoConRipiego(isin, () -> service.getCorsoByIsin(isin));
+        log.info("Risposta per GET /api/borsa-italiana/corso/btp/{}: {}", isin, result.getBody());
         return result;
     }
     
@@ -55,11 +62,11 @@ public class BorsaItalianaController {
      * @return corso ufficiale
      */
     @GetMapping("/corso/bot/{isin}")
-    public BigDecimal getCorsoBot(@PathVariable String isin) {
+    public ResponseEntity<BigDecimal> getCorsoBot(@PathVariable String isin) {
         log.info("Ricevuta richiesta GET /api/borsa-italiana/corso/bot/{} con ISIN: {}", "isin", isin);
         BorsaItalianaService service = borsaItalianaServiceFactory.getBorsaItalianaService(TipoTitolo.BOT);
-        BigDecimal result = service.getCorsoByIsin(isin);
-        log.info("Risposta per GET /api/borsa-italiana/corso/bot/{}: {}", isin, result);
+        ResponseEntity<BigDecimal> result = corsoConRipiego(isin, () -> service.getCorsoByIsin(isin));
+        log.info("Risposta per GET /api/borsa-italiana/corso/bot/{}: {}", isin, result.getBody());
         return result;
     }
     
@@ -71,12 +78,12 @@ public class BorsaItalianaController {
      * @return corso ufficiale
      */
     @GetMapping("/corso/{tipo}/{isin}")
-    public BigDecimal getCorso(@PathVariable String tipo, @PathVariable String isin) {
+    public ResponseEntity<BigDecimal> getCorso(@PathVariable String tipo, @PathVariable String isin) {
         log.info("Ricevuta richiesta GET /api/borsa-italiana/corso/{}/{} con tipo: {}, ISIN: {}", "tipo", "isin", tipo, isin);
         TipoTitolo tipoTitolo = TipoTitolo.valueOf(tipo.toUpperCase());
         BorsaItalianaService service = borsaItalianaServiceFactory.getBorsaItalianaService(tipoTitolo);
-        BigDecimal result = service.getCorsoByIsin(isin);
-        log.info("Risposta per GET /api/borsa-italiana/corso/{}/{}: {}", tipo, isin, result);
+        ResponseEntity<BigDecimal> result = corsoConRipiego(isin, () -> service.getCorsoByIsin(isin));
+        log.info("Risposta per GET /api/borsa-italiana/corso/{}/{}: {}", tipo, isin, result.getBody());
         return result;
     }
     
@@ -88,22 +95,28 @@ public class BorsaItalianaController {
      * @return oggetto TitoloDTO contenente tutte le informazioni del titolo
      */
     @GetMapping("/{tipo}/{isin}")
-    public TitoloDTO getTitoloInfo(@PathVariable String tipo, @PathVariable String isin) {
+    public ResponseEntity<TitoloDTO> getTitoloInfo(@PathVariable String tipo, @PathVariable String isin) {
         log.info("Ricevuta richiesta GET /api/borsa-italiana/{}/{} con tipo: {}, ISIN: {}", "tipo", "isin", tipo, isin);
         TipoTitolo tipoTitolo = TipoTitolo.valueOf(tipo.toUpperCase());
         BorsaItalianaService service = borsaItalianaServiceFactory.getBorsaItalianaService(tipoTitolo);
+        if (tipoTitolo != TipoTitolo.BTP && tipoTitolo != TipoTitolo.BOT) {
+            throw new IllegalArgumentException("Tipo titolo non supportato: " + tipoTitolo);
+        }
         
         TitoloDTO result;
-        if (tipoTitolo == TipoTitolo.BTP) {
-            result = service.getTitoloByIsin(isin);
-        } else if (tipoTitolo == TipoTitolo.BOT) {
-            result = service.getTitoloBotByIsin(isin);
-        } else {
-            throw new IllegalArgumentException("Tipo titolo non supportato: " + tipoTitolo);
+        try {
+            result = tipoTitolo == TipoTitolo.BTP ? service.getTitoloByIsin(isin) : service.getTitoloBotByIsin(isin);
+        } catch (ServizioEsternoNonDisponibileException e) {
+            // Borsa Italiana non disponibile: si rispondono i dati già salvati, segnalati come non aggiornati
+            TitoloDTO salvato = ultimiDatiNotiService.ultimoTitolo(isin).orElseThrow(() -> e);
+            log.warn("Borsa Italiana non disponibile per {}, restituiti i dati salvati: {}", isin, e.getMessage());
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.WARNING, "110 - \"Dati salvati, Borsa Italiana non disponibile\"")
+                    .body(salvato);
         }
         
         log.info("Risposta per GET /api/borsa-italiana/{}/{}: {}", tipo, isin, result);
-        return result;
+        return ResponseEntity.ok(result);
     }
     
     /**
@@ -202,4 +215,25 @@ public class BorsaItalianaController {
                     .body(new PaginatedResponseDTO<>(Collections.emptyList(), page, size, 0));
         }
     }
+
+    /**
+     * Restituisce il corso da Borsa Italiana o, se il servizio non è disponibile, l'ultimo prezzo
+     * salvato con l'intestazione Warning 110 (risposta non aggiornata) e la sua data.
+     */
+    private ResponseEntity<BigDecimal> corsoConRipiego(String isin, Supplier<BigDecimal> corso) {
+        try {
+            return ResponseEntity.ok(corso.get());
+        } catch (ServizioEsternoNonDisponibileException e) {
+            return ultimiDatiNotiService.ultimoCorso(isin)
+                    .map(prezzo -> {
+                        log.warn("Borsa Italiana non disponibile per {}, restituito il prezzo del {}: {}",
+                                isin, prezzo.getData(), e.getMessage());
+                        return ResponseEntity.ok()
+                                .header(HttpHeaders.WARNING, "110 - \"Prezzo del " + prezzo.getData()
+                                        + ", Borsa Italiana non disponibile\"")
+                                .body(prezzo.getPrezzo());
+                    })
+                    .orElseThrow(() -> e);
+        }
+    }
 }
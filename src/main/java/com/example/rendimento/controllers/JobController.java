@@ -0,0 +1,60 @@
+package com.example.rendimento.controllers;
+
+import com.example.rendimento.dto.JobDTO;
+import com.example.rendimento.dto.UtenteResponseDTO;
+import com.example.rendimento.service.JobService;
+import com.example.rendimento.service.UtenteService;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+
+/**
+ * Controller REST per seguire i job in background dell'utente corrente.
+ */
+@RestController
+@RequestMapping("/api/jobs")
+public class JobController {
+
+    private final JobService jobService;
+    private final UtenteService utenteService;
+
+    public JobController(JobService jobService, UtenteService utenteService) {
+        this.jobService = jobService;
+        this.utenteService = utenteService;
+    }
+
+    /**
+     * Restituisce i job dell'utente corrente, dal più recente (senza i risultati).
+     */
+    @GetMapping
+    public ResponseEntity<List<JobDTO>> getJobUtente() {
+        return ResponseEntity.ok(jobService.getJobUtente(getUtenteCorrenteId()));
+    }
+
+    /**
+     * Restituisce stato e avanzamento di un job; a job completato contiene anche il risultato.
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<JobDTO> getJob(@PathVariable("id") String id) {
+        return ResponseEntity.ok(jobService.getJob(id, getUtenteCorrenteId()));
+    }
+
+    /**
+     * Stream (Server-Sent Events) dell'avanzamento di un job, chiuso al termine del job.
+     */
+    @GetMapping(value = "/{id}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@PathVariable("id") String id) {
+        return jobService.iscrivi(id, getUtenteCorrenteId());
+    }
+
+    private Integer getUtenteCorrenteId() {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        return utenteService.findByUsername(username)
+                .map(UtenteResponseDTO::getIdUtente)
+                .orElseThrow(() -> new IllegalStateException("Utente non autenticato"));
+    }
+}
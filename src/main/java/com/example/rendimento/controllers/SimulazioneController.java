@@ -1,19 +1,18 @@
 package com.example.rendimento.controllers;
 
 import java.math.BigDecimal;
+import java.net.URI;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -26,24 +25,26 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
-import com.example.rendimento.dto.ElaborazioneRisultatoDTO;
+import com.example.rendimento.dto.JobDTO;
 import com.example.rendimento.dto.RisultatoRendimentoAdvancedDTO;
 import com.example.rendimento.dto.RisultatoSimulazioneDTO;
 import com.example.rendimento.dto.SimulazioneDTO;
 import com.example.rendimento.dto.TitoloDTO;
 import com.example.rendimento.dto.TrendRendimentiDTO;
-import com.example.rendimento.dto.TrendRendimentiDTO.TitoloRendimentoDTO;
 import com.example.rendimento.dto.UtenteResponseDTO;
 import com.example.rendimento.enums.TipoTitolo;
+import com.example.rendimento.exception.JobInEsecuzioneException;
 import com.example.rendimento.model.Titolo;
 import com.example.rendimento.repository.TitoloRepository;
-import com.example.rendimento.service.BorsaItalianaService;
-import com.example.rendimento.service.PrezzoStoricoService;
+import com.example.rendimento.service.AvanzamentoJob;
+import com.example.rendimento.service.CalcoloRendimentiService;
+import com.example.rendimento.service.JobService;
+import com.example.rendimento.service.RecuperoDatiService;
 import com.example.rendimento.service.SimulazioneService;
-import com.example.rendimento.service.TrendService;
+import com.example.rendimento.service.TrendRendimentiService;
 import com.example.rendimento.service.UtenteService;
-import com.example.rendimento.service.factory.BorsaItalianaServiceFactory;
 import com.example.rendimento.utility.ErrorResponseUtils;
 
 import jakarta.persistence.EntityNotFoundException;
@@ -59,10 +60,11 @@ public class SimulazioneController {
 
     private final SimulazioneService simulazioneService;
     private final TitoloRepository titoloRepository;
-    private final BorsaItalianaServiceFactory borsaItalianaServiceFactory;
     private final UtenteService utenteService;
-    private final TrendService trendService;
-    private final PrezzoStoricoService prezzoStoricoService;
+    private final RecuperoDatiService recuperoDatiService;
+    private final TrendRendimentiService trendRendimentiService;
+    private final CalcoloRendimentiService calcoloRendimentiService;
+    private final JobService jobService;
 
     /**
      * Costruttore con parametri per l'iniezione delle dipendenze.
@@ -71,14 +73,16 @@ public class SimulazioneController {
      */
     @Autowired
     public SimulazioneController(SimulazioneService simulazioneService, TitoloRepository titoloRepository,
-            BorsaItalianaServiceFactory borsaItalianaServiceFactory, UtenteService utenteService,
-            TrendService trendService, PrezzoStoricoService prezzoStoricoService) {
+            UtenteService utenteService, RecuperoDatiService recuperoDatiService,
+            TrendRendimentiService trendRendimentiService, CalcoloRendimentiService calcoloRendimentiService,
+            JobService jobService) {
         this.simulazioneService = simulazioneService;
         this.titoloRepository = titoloRepository;
-        this.borsaItalianaServiceFactory = borsaItalianaServiceFactory;
         this.utenteService = utenteService;
-        this.trendService = trendService;
-        this.prezzoStoricoService = prezzoStoricoService;
+        this.recuperoDatiService = recuperoDatiService;
+        this.trendRendimentiService = trendRendimentiService;
+        this.calcoloRendimentiService = calcoloRendimentiService;
+        this.jobService = jobService;
     }
 
     /**
@@ -348,11 +352,14 @@ public class SimulazioneController {
      * Endpoint per calcolare il rendimento di tutti i titoli con scadenza futura.
      * Per ogni titolo viene calcolato il rendimento con un importo fisso di 10.000
      * euro.
+     * Il calcolo richiede lo scraping del prezzo di ogni titolo ed è eseguito come job
+     * in background: la risposta (202 Accepted) contiene il job, da seguire su /api/jobs/{id},
+     * che a job completato restituisce le simulazioni salvate.
      *
-     * @return lista di simulazioni calcolate e salvate
+     * @return il job accodato
      */
     @PostMapping("/calcola-rendimenti-tutti-titoli")
-    public ResponseEntity<List<SimulazioneDTO>> calcolaRendimentiTuttiTitoli() {
+    public ResponseEntity<JobDTO> calcolaRendimentiTuttiTitoli() {
         log.info("Ricevuta richiesta POST /api/simulazioni/calcola-rendimenti-tutti-titoli");
 
         // Ottieni l'utente corrente
@@ -364,50 +371,13 @@ public class SimulazioneController {
                 .map(UtenteResponseDTO::getIdUtente)
                 .orElseThrow(() -> new IllegalStateException("Utente non autenticato"));
 
-        // Recupera tutti i titoli con data di scadenza futura che appartengono
-        // all'utente corrente
-        List<Titolo> titoliValidi = titoloRepository.findByDataScadenzaAfterAndUtente_IdUtente(LocalDate.now(),
-                utenteId);
-        log.info("Trovati {} titoli con scadenza futura per l'utente ID: {}", titoliValidi.size(), utenteId);
-
-        List<SimulazioneDTO> simulazioniSalvate = new ArrayList<>();
-
-        // Per ogni titolo, calcola e salva una simulazione
-        for (Titolo titolo : titoliValidi) {
-            try {
-                // Ottieni il prezzo attuale del titolo
-                BigDecimal prezzoAcquisto = getPrezzoAcquistoPerTitolo(titolo);
-                LocalDate oggi = LocalDate.now();
-                if (prezzoAcquisto == null) {
-                    continue; // Salta questo titolo e passa al prossimo
-                }
-
-                // Elabora la simulazione e ottieni il risultato dettagliato
-                com.example.rendimento.dto.ElaborazioneRisultatoDTO risultatoElaborazione = simulazioneService
-                        .elaboraSimulazionePerTitolo(titolo, prezzoAcquisto, oggi);
-                if (risultatoElaborazione == null || risultatoElaborazione.getSimulazione() == null) {
-                    continue; // Salta questo titolo se l'elaborazione ha fallito
-                }
-
-                // Salva il trend per il titolo utilizzando il rendimento senza costi
-                trendService.salvaOAggiornaTrendPerTitolo(
-                        titolo,
-                        prezzoAcquisto,
-                        risultatoElaborazione.getRisultatoDettagliato().getRendimentoSenzaCosti(),
-                        null);
-                log.info("Trend salvato per il titolo ID: {}, ISIN: {}",
-                        titolo.getIdTitolo(), titolo.getCodiceIsin());
-
-                simulazioniSalvate.add(risultatoElaborazione.getSimulazione());
-            } catch (Exception e) {
-                log.error("Errore nel calcolo della simulazione per il titolo ID: {}, ISIN: {}, Errore: {}",
-                        titolo.getIdTitolo(), titolo.getCodiceIsin(), e.getMessage());
-            }
-        }
+        JobDTO job = jobService.avvia(JobService.TIPO_CALCOLO_RENDIMENTI, utenteId,
+                avanzamento -> calcoloRendimentiService.calcolaRendimentiTitoliUtente(utenteId, avanzamento));
 
-        log.info("Risposta per POST /api/simulazioni/calcola-rendimenti-tutti-titoli: {} simulazioni aggiornate/create",
-                simulazioniSalvate.size());
-        return ResponseEntity.ok(simulazioniSalvate);
+        log.info("Risposta per POST /api/simulazioni/calcola-rendimenti-tutti-titoli: job {}", job.getId());
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/jobs/" + job.getId()))
+                .body(job);
     }
 
     /**
@@ -476,7 +446,7 @@ public class SimulazioneController {
      * @return i dati di trend dei rendimenti
      */
     @GetMapping("/trends/{periodo}")
-    public ResponseEntity<TrendRendimentiDTO> getTrendRendimenti(@PathVariable String periodo) {
+    public ResponseEntity<TrendRendimentiDTO> getTrendRendimenti(@PathVariable String periodo, WebRequest request) {
         log.info("Ricevuta richiesta GET /api/simulazioni/trends/{} con periodo: {}", "periodo", periodo);
 
         // Ottieni l'utente corrente
@@ -488,188 +458,23 @@ public class SimulazioneController {
                 .map(UtenteResponseDTO::getIdUtente)
                 .orElseThrow(() -> new IllegalStateException("Utente non autenticato"));
 
-        // Recupera tutti i titoli con data di scadenza futura che appartengono
-        // all'utente corrente
-        List<Titolo> titoliValidi = titoloRepository.findByDataScadenzaAfterAndUtente_IdUtente(LocalDate.now(),
-                utenteId);
-        log.info("Trovati {} titoli con scadenza futura per l'utente ID: {}", titoliValidi.size(), utenteId);
-
-        // Filtra i titoli in base al periodo di scadenza specificato
-        List<Titolo> titoliFiltrati = filtraTitoliPerPeriodo(titoliValidi, periodo);
-        log.info("Filtrati {} titoli per il periodo: {}", titoliFiltrati.size(), periodo);
-
-        // Ordina i titoli per data di scadenza crescente
-        titoliFiltrati.sort(Comparator.comparing(Titolo::getDataScadenza));
-        log.info("Titoli ordinati per data di scadenza crescente");
-
-        // Recupera le simulazioni più recenti per i titoli filtrati
-        List<SimulazioneDTO> simulazioni = new ArrayList<>();
-        for (Titolo titolo : titoliFiltrati) {
-            try {
-                SimulazioneDTO simulazione = simulazioneService.getLatestSimulazioneByTitoloId(titolo.getIdTitolo());
-                simulazioni.add(simulazione);
-            } catch (EntityNotFoundException e) {
-                // Se non esiste una simulazione per il titolo, lo ignoriamo
-                log.warn("Nessuna simulazione trovata per il titolo ID: {}", titolo.getIdTitolo());
-            }
-        }
-
-        // Calcola i rendimenti per ogni titolo
-        List<TitoloRendimentoDTO> titoliRendimento = new ArrayList<>();
-        List<BigDecimal> rendimentiBolloAnnuale = new ArrayList<>();
-
-        for (SimulazioneDTO simulazione : simulazioni) {
-            try {
-                // Recupera il titolo associato
-                Titolo titolo = titoloRepository.findById(simulazione.getIdTitolo())
-                        .orElseThrow(() -> new EntityNotFoundException(
-                                "Titolo non trovato con ID: " + simulazione.getIdTitolo()));
-
-                // Calcola i rendimenti dettagliati
-                RisultatoRendimentoAdvancedDTO risultato = simulazioneService.calcolaRendimentoAdvanced(
-                        titolo,
-                        simulazione.getPrezzoAcquisto(),
-                        simulazione.getNominale() != null ? simulazione.getNominale() : new BigDecimal("10000"),
-                        simulazione.getDataAcquisto());
-
-                // Crea un oggetto TitoloRendimentoDTO con i dati del titolo e i rendimenti
-                // calcolati
-                TitoloRendimentoDTO titoloRendimento = new TitoloRendimentoDTO(
-                        titolo.getIdTitolo(),
-                        titolo.getNome(),
-                        titolo.getCodiceIsin(),
-                        risultato.getRendimentoConCommissioniEBolloMensile(),
-                        risultato.getRendimentoConCommissioniEBolloAnnuale());
-
-                titoliRendimento.add(titoloRendimento);
-                rendimentiBolloAnnuale.add(risultato.getRendimentoConCommissioniEBolloAnnuale());
-            } catch (Exception e) {
-                log.error("Errore nel calcolo dei rendimenti per il titolo ID: {}, Errore: {}",
-                        simulazione.getIdTitolo(), e.getMessage());
-            }
-        }
-
-        // Calcola i rendimenti minimi, medi e massimi
-        BigDecimal rendimentoMinimo = BigDecimal.ZERO;
-        BigDecimal rendimentoMedio = BigDecimal.ZERO;
-        BigDecimal rendimentoMassimo = BigDecimal.ZERO;
-
-        if (!rendimentiBolloAnnuale.isEmpty()) {
-            rendimentoMinimo = rendimentiBolloAnnuale.stream()
-                    .min(Comparator.naturalOrder())
-                    .orElse(BigDecimal.ZERO);
-
-            rendimentoMassimo = rendimentiBolloAnnuale.stream()
-                    .max(Comparator.naturalOrder())
-                    .orElse(BigDecimal.ZERO);
-
-            rendimentoMedio = rendimentiBolloAnnuale.stream()
-                    .reduce(BigDecimal.ZERO, BigDecimal::add)
-                    .divide(new BigDecimal(rendimentiBolloAnnuale.size()), 4, BigDecimal.ROUND_HALF_UP);
-        }
-
-        // Crea l'oggetto TrendRendimentiDTO con i dati calcolati
-        TrendRendimentiDTO trendRendimenti = new TrendRendimentiDTO(
-                rendimentoMinimo,
-                rendimentoMedio,
-                rendimentoMassimo,
-                titoliRendimento);
+        // Il riepilogo è ricalcolato solo quando cambiano i titoli o le simulazioni dell'utente
+        TrendRendimentiDTO trendRendimenti = trendRendimentiService.getTrendRendimenti(utenteId, periodo);
 
-        log.info("Risposta per GET /api/simulazioni/trends/{}: {} titoli con rendimenti", periodo,
-                titoliRendimento.size());
-        return ResponseEntity.ok(trendRendimenti);
-    }
-
-    /**
-     * Ottiene il prezzo di acquisto per un titolo utilizzando il servizio
-     * appropriato.
-     * 
-     * @param titolo il titolo per cui ottenere il prezzo
-     * @return il prezzo di acquisto o null se non disponibile
-     */
-    private BigDecimal getPrezzoAcquistoPerTitolo(Titolo titolo) {
-        try {
-            // Ottieni il servizio appropriato in base al tipo di titolo
-            BorsaItalianaService borsaItalianaService = borsaItalianaServiceFactory
-                    .getBorsaItalianaService(titolo.getTipoTitolo());
-
-            // Ottieni direttamente il corso (prezzo) del titolo
-            BigDecimal prezzoAcquisto = borsaItalianaService.getCorsoByIsin(titolo.getCodiceIsin());
-
-            if (prezzoAcquisto != null) {
-                log.info("Prezzo attuale ottenuto per il titolo {}: {}", titolo.getCodiceIsin(), prezzoAcquisto);
-                return prezzoAcquisto;
-            } else {
-                log.warn("Prezzo non disponibile per il titolo {}, simulazione saltata", titolo.getCodiceIsin());
-                return null;
-            }
-        } catch (Exception e) {
-            log.error("Errore nel recupero del prezzo per il titolo {}: {}", titolo.getCodiceIsin(), e.getMessage());
+        // Se il client ha già la versione corrente risponde 304 senza corpo
+        String etag = "\"" + trendRendimenti.getVersione() + "\"";
+        if (request.checkNotModified(etag)) {
+            log.info("Risposta per GET /api/simulazioni/trends/{}: versione {} non modificata", periodo,
+                    trendRendimenti.getVersione());
             return null;
         }
-    }
 
-    /**
-     * Metodo privato per elaborare i prezzi storici di un titolo e salvare i trend.
-     * Questo metodo contiene la logica comune utilizzata da recuperaDati e
-     * recuperaDatiPerTitolo.
-     * 
-     * @param titolo il titolo per cui elaborare i prezzi storici
-     * @param giorno il giorno della settimana per cui recuperare i prezzi
-     * @return lista di simulazioni elaborate con i prezzi storici
-     * @throws Exception se si verifica un errore durante l'elaborazione
-     */
-    private List<SimulazioneDTO> elaboraPrezziStoriciETrend(Titolo titolo, String giorno) throws Exception {
-        List<SimulazioneDTO> simulazioniSalvate = new ArrayList<>();
-
-        // Estrai i prezzi storici degli ultimi 3 mesi per il giorno specificato
-        DayOfWeek giornoSettimana = DayOfWeek.valueOf(giorno);
-        List<Map<String, Object>> prezziMap;
-        try {
-            prezziMap = prezzoStoricoService.estraiPrezziUltimi3MesiMap(titolo, giornoSettimana);
-            log.info("Recuperati {} prezzi storici per il titolo {}", prezziMap.size(), titolo.getCodiceIsin());
-        } catch (Exception e) {
-            log.error("Errore nel recupero dei prezzi storici per il titolo ID: {}, ISIN: {}, Errore: {}",
-                    titolo.getIdTitolo(), titolo.getCodiceIsin(), e.getMessage());
-            throw new Exception("Errore nel recupero dei prezzi storici: " + e.getMessage(), e);
-        }
-
-        // Per ogni prezzo storico, elabora una simulazione
-        for (Map<String, Object> mappa : prezziMap) {
-            LocalDate data = (LocalDate) mappa.get("data");
-            BigDecimal prezzo = (BigDecimal) mappa.get("prezzo");
-
-            try {
-                // Elabora la simulazione e ottieni il risultato dettagliato
-                ElaborazioneRisultatoDTO risultatoElaborazione = simulazioneService
-                        .elaboraSimulazionePerTitolo(titolo, prezzo, data);
-
-                if (risultatoElaborazione == null || risultatoElaborazione.getSimulazione() == null) {
-                    log.warn("Elaborazione fallita per il titolo ID: {}, ISIN: {}, Data: {}",
-                            titolo.getIdTitolo(), titolo.getCodiceIsin(), data);
-                    continue; // Salta questo prezzo se l'elaborazione ha fallito
-                }
-
-                // Salva il trend per il titolo utilizzando il rendimento senza costi
-                trendService.salvaOAggiornaTrendPerTitolo(
-                        titolo,
-                        prezzo,
-                        risultatoElaborazione.getRisultatoDettagliato().getRendimentoSenzaCosti(),
-                        data);
-                log.info("Trend salvato per il titolo ID: {}, ISIN: {}, Data: {}, Prezzo: {}, Rendimento: {}",
-                        titolo.getIdTitolo(), titolo.getCodiceIsin(), data, prezzo,
-                        risultatoElaborazione.getRisultatoDettagliato().getRendimentoSenzaCosti());
-
-                simulazioniSalvate.add(risultatoElaborazione.getSimulazione());
-            } catch (Exception e) {
-                log.error(
-                        "Errore nell'elaborazione della simulazione per il titolo ID: {}, ISIN: {}, Data: {}, Errore: {}",
-                        titolo.getIdTitolo(), titolo.getCodiceIsin(), data, e.getMessage());
-                throw new Exception("Errore nell'elaborazione della simulazione per la data " + data + ": " + e.getMessage(), e);
-            }
-        }
-
-        return simulazioniSalvate;
+        log.info("Risposta per GET /api/simulazioni/trends/{}: {} titoli con rendimenti", periodo,
+                trendRendimenti.getTitoli().size());
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .eTag(etag)
+                .body(trendRendimenti);
     }
 
     /**
@@ -688,30 +493,17 @@ public class SimulazioneController {
         log.info("Ricevuta richiesta GET /api/simulazioni/recupera-dati con giorno: {}", giorno);
 
         try {
-            // Recupera tutti i titoli BTP con data di scadenza futura di tutti gli utenti
-            List<Titolo> titoliValidi = titoloRepository.findByDataScadenzaAfter(LocalDate.now())
-                    .stream()
-                    .filter(t -> t.getTipoTitolo() == TipoTitolo.BTP)
-                    .collect(Collectors.toList());
-
-            log.info("Trovati {} titoli BTP con scadenza futura per tutti gli utenti", titoliValidi.size());
-
-            List<SimulazioneDTO> simulazioniSalvate = new ArrayList<>();
-
-            // Per ogni titolo BTP, recupera i prezzi storici ed elabora simulazioni
-            for (Titolo titolo : titoliValidi) {
-                try {
-                    simulazioniSalvate.addAll(elaboraPrezziStoriciETrend(titolo, giorno));
-                } catch (Exception e) {
-                    log.error("Errore nell'elaborazione dei prezzi storici per il titolo ID: {}, ISIN: {}, Errore: {}",
-                            titolo.getIdTitolo(), titolo.getCodiceIsin(), e.getMessage());
-                    // Continua con il prossimo titolo
-                }
-            }
-
-            log.info("Risposta per GET /api/simulazioni/recupera-dati: {} simulazioni elaborate",
-                    simulazioniSalvate.size());
+            // Recupero, calcolo e salvataggio procedono in parallelo sui titoli; i titoli in errore sono saltati.
+            // Con più istanze attive il recupero è eseguito da un solo nodo: sugli altri risponde 409
+            ErroriRecupero errori = new ErroriRecupero();
+            List<SimulazioneDTO> simulazioniSalvate = recuperoDatiService.recuperaDatiBtp(
+                    DayOfWeek.valueOf(giorno), errori);
+
+            log.info("Risposta per GET /api/simulazioni/recupera-dati: {} simulazioni elaborate, {} titoli in errore",
+                    simulazioniSalvate.size(), errori.size());
             return ResponseEntity.ok(simulazioniSalvate);
+        } catch (JobInEsecuzioneException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Errore imprevisto nel recupero dei dati: {}", e.getMessage());
             return ErrorResponseUtils.createInternalServerErrorResponse(
@@ -762,7 +554,14 @@ public class SimulazioneController {
             }
 
             // Elabora i prezzi storici e salva i trend per il titolo specificato
-            List<SimulazioneDTO> simulazioniSalvate = elaboraPrezziStoriciETrend(titolo, giorno);
+            ErroriRecupero errori = new ErroriRecupero();
+            List<SimulazioneDTO> simulazioniSalvate = recuperoDatiService.recuperaDati(
+                    List.of(titolo), DayOfWeek.valueOf(giorno), errori);
+            if (errori.size() > 0 && simulazioniSalvate.isEmpty()) {
+                return ErrorResponseUtils.createInternalServerErrorResponse(
+                    "Si è verificato un errore durante l'elaborazione della richiesta: " + errori.getPrimo()
+                );
+            }
 
             log.info("Risposta per GET /api/simulazioni/recupera-dati/{}: {} simulazioni elaborate",
                     idTitolo, simulazioniSalvate.size());
@@ -782,54 +581,30 @@ public class SimulazioneController {
     }
 
     /**
-     * Filtra i titoli in base al periodo di scadenza specificato.
-     * 
-     * @param titoli  la lista di titoli da filtrare
-     * @param periodo il periodo di scadenza (trimestrali, semestrali, annuali,
-     *                triennali, tutti)
-     * @return la lista di titoli filtrati
+     * Raccoglie gli errori per titolo del recupero dati eseguito all'interno della richiesta.
      */
-    private List<Titolo> filtraTitoliPerPeriodo(List<Titolo> titoli, String periodo) {
-        if (periodo.equals("tutti")) {
-            return titoli;
+    private static final class ErroriRecupero implements AvanzamentoJob {
+        private final List<String> errori = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void setTotale(int totale) {
+        }
+
+        @Override
+        public void completato(String chiave) {
         }
 
-        LocalDate oggi = LocalDate.now();
-        LocalDate dataMinima;
-        LocalDate dataMassima;
-
-        switch (periodo) {
-            case "trimestrali":
-                // Titoli in scadenza tra 2 e 3 mesi
-                dataMinima = oggi.plusMonths(2);
-                dataMassima = oggi.plusMonths(3);
-                break;
-            case "semestrali":
-                // Titoli in scadenza tra 5 e 6 mesi
-                dataMinima = oggi.plusMonths(5);
-                dataMassima = oggi.plusMonths(6);
-                break;
-            case "annuali":
-                // Titoli in scadenza tra 11 e 12 mesi
-                dataMinima = oggi.plusMonths(11);
-                dataMassima = oggi.plusMonths(12);
-                break;
-            case "triennali":
-                // Titoli in scadenza tra 30 e 36 mesi (2 anni e mezzo - 3 anni)
-                dataMinima = oggi.plusMonths(30);
-                dataMassima = oggi.plusMonths(36);
-                break;
-            default:
-                return titoli;
+        @Override
+        public void fallito(String chiave, String messaggio) {
+            errori.add(messaggio);
         }
 
-        return titoli.stream()
-                .filter(titolo -> {
-                    LocalDate dataScadenza = titolo.getDataScadenza();
-                    return dataScadenza != null &&
-                            dataScadenza.isAfter(dataMinima.minusDays(1)) &&
-                            dataScadenza.isBefore(dataMassima.plusDays(1));
-                })
-                .collect(Collectors.toList());
+        private int size() {
+            return errori.size();
+        }
+
+        private String getPrimo() {
+            return errori.get(0);
+        }
     }
 }
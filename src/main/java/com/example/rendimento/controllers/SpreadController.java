@@ -0,0 +1,114 @@
+package com.example.rendimento.controllers;
+
+import com.example.rendimento.dto.SpreadCoppiaDTO;
+import com.example.rendimento.dto.SpreadSerieDTO;
+import com.example.rendimento.dto.UtenteResponseDTO;
+import com.example.rendimento.enums.RisoluzioneTrend;
+import com.example.rendimento.service.SpreadService;
+import com.example.rendimento.service.UtenteService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Controller per gli spread di rendimento tra titoli e tra i segmenti BTP e BOT.
+ * Se la risoluzione non è indicata è scelta in modo da non superare maxPunti punti.
+ */
+@RestController
+@RequestMapping("/api/spread")
+public class SpreadController {
+
+    private final SpreadService spreadService;
+    private final UtenteService utenteService;
+
+    public SpreadController(SpreadService spreadService, UtenteService utenteService) {
+        this.spreadService = spreadService;
+        this.utenteService = utenteService;
+    }
+
+    /**
+     * Restituisce lo spread tra due titoli (isin1 - isin2).
+     * Parametri facoltativi: dataInizio, dataFine (default ultimo anno), risoluzione, maxPunti
+     */
+    @GetMapping
+    public ResponseEntity<SpreadSerieDTO> getSpread(
+            @RequestParam(name = "isin1") String isin1,
+
+            @RequestParam(name = "isin2") String isin2,
+
+            @RequestParam(name = "dataInizio", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInizio,
+
+            @RequestParam(name = "dataFine", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFine,
+
+            @RequestParam(name = "risoluzione", required = false) RisoluzioneTrend risoluzione,
+
+            @RequestParam(name = "maxPunti", defaultValue = "366") int maxPunti
+    ) {
+        LocalDate inizio = dataInizio != null ? dataInizio : LocalDate.now().minusYears(1);
+        LocalDate fine = dataFine != null ? dataFine : LocalDate.now();
+        return ResponseEntity.ok(spreadService.getSpread(isin1, isin2, inizio, fine,
+                risoluzione(risoluzione, inizio, fine, maxPunti)));
+    }
+
+    /**
+     * Restituisce lo spread tra il rendimento medio dei BTP e quello dei BOT.
+     * Parametri facoltativi: dataInizio, dataFine (default ultimo anno), risoluzione, maxPunti
+     */
+    @GetMapping("/segmenti")
+    public ResponseEntity<SpreadSerieDTO> getSpreadSegmenti(
+            @RequestParam(name = "dataInizio", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInizio,
+
+            @RequestParam(name = "dataFine", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFine,
+
+            @RequestParam(name = "risoluzione", required = false) RisoluzioneTrend risoluzione,
+
+            @RequestParam(name = "maxPunti", defaultValue = "366") int maxPunti
+    ) {
+        LocalDate inizio = dataInizio != null ? dataInizio : LocalDate.now().minusYears(1);
+        LocalDate fine = dataFine != null ? dataFine : LocalDate.now();
+        return ResponseEntity.ok(spreadService.getSpreadSegmenti(inizio, fine,
+                risoluzione(risoluzione, inizio, fine, maxPunti)));
+    }
+
+    /**
+     * Restituisce le statistiche dello spread per ogni coppia di titoli dell'utente corrente.
+     * Parametri facoltativi: dataInizio, dataFine (default ultimo anno)
+     */
+    @GetMapping("/titoli")
+    public ResponseEntity<List<SpreadCoppiaDTO>> getSpreadTitoli(
+            @RequestParam(name = "dataInizio", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInizio,
+
+            @RequestParam(name = "dataFine", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFine
+    ) {
+        // Ottieni l'utente corrente
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        Integer utenteId = utenteService.findByUsername(authentication.getName())
+                .map(UtenteResponseDTO::getIdUtente)
+                .orElseThrow(() -> new IllegalStateException("Utente non autenticato"));
+
+        LocalDate inizio = dataInizio != null ? dataInizio : LocalDate.now().minusYears(1);
+        LocalDate fine = dataFine != null ? dataFine : LocalDate.now();
+        return ResponseEntity.ok(spreadService.getSpreadTitoliUtente(utenteId, inizio, fine));
+    }
+
+    private static RisoluzioneTrend risoluzione(RisoluzioneTrend richiesta, LocalDate inizio, LocalDate fine, int maxPunti) {
+        if (richiesta != null) {
+            return richiesta;
+        }
+        if (maxPunti < 1) {
+            throw new IllegalArgumentException("Il numero massimo di punti deve essere almeno 1");
+        }
+        return RisoluzioneTrend.perIntervallo(inizio, fine, maxPunti);
+    }
+}
@@ -1,7 +1,6 @@
 package com.example.rendimento.controllers;
 
 import java.time.LocalDate;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -24,9 +23,12 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.example.rendimento.constants.AppMessages;
+import com.example.rendimento.dto.ImportazioneTitoliDTO;
 import com.example.rendimento.dto.TitoloImportDTO;
 import com.example.rendimento.dto.TitoloDTO;
 import com.example.rendimento.dto.UtenteResponseDTO;
+import com.example.rendimento.exception.ServizioEsternoNonDisponibileException;
+import com.example.rendimento.service.ImportazioneTitoliService;
 import com.example.rendimento.service.TitoloService;
 import com.example.rendimento.service.UtenteService;
 
@@ -45,6 +47,9 @@ public class TitoloController {
     @Autowired
     private UtenteService utenteService;
     
+    @Autowired
+    private ImportazioneTitoliService importazioneTitoliService;
+    
     /**
      * Recupera tutti i titoli dell'utente corrente.
      * 
@@ -242,13 +247,9 @@ public class TitoloController {
                             .body(Collections.singletonMap("error", "Non sei autorizzato a modificare questo titolo"));
                     }
                     
-                    // Importa il titolo da Borsa Italiana (questo aggiornerà i dati)
+                    // Importa il titolo da Borsa Italiana (questo aggiornerà i dati e lo salverà per l'utente corrente)
                     TitoloDTO updatedTitolo = titoloService.importaTitoloDaBorsaItaliana(codiceIsin, tipoTitolo);
                     
-                    // Assicurati che il titolo sia associato all'utente corrente
-                    updatedTitolo.setUtenteId(utenteId);
-                    updatedTitolo = titoloService.saveTitolo(updatedTitolo);
-                    
                     // Restituisci una risposta di successo con il titolo aggiornato e un messaggio
                     Map<String, Object> response = new LinkedHashMap<>();
                     response.put("titolo", updatedTitolo);
@@ -258,13 +259,9 @@ public class TitoloController {
                     return ResponseEntity.ok(response);
                 }
                 
-                // Se non esiste, importa e crea un nuovo titolo
+                // Se non esiste, importa e crea un nuovo titolo (salvato per l'utente corrente)
                 TitoloDTO savedTitolo = titoloService.importaTitoloDaBorsaItaliana(codiceIsin, tipoTitolo);
                 
-                // Assicurati che il titolo sia associato all'utente corrente
-                savedTitolo.setUtenteId(utenteId);
-                savedTitolo = titoloService.saveTitolo(savedTitolo);
-                
                 log.info("Risposta per POST /api/titolo/importa (creazione): {}", savedTitolo);
                 return ResponseEntity.status(HttpStatus.CREATED).body(savedTitolo);
                 
@@ -272,6 +269,10 @@ public class TitoloController {
                 log.error("Errore nella richiesta POST /api/titolo/importa: {}", e.getMessage());
                 Map<String, String> errorResponse = Collections.singletonMap("error", e.getMessage());
                 return ResponseEntity.badRequest().body(errorResponse);
+            } catch (ServizioEsternoNonDisponibileException e) {
+                log.warn("Borsa Italiana non disponibile per POST /api/titolo/importa: {}", e.getMessage());
+                Map<String, String> errorResponse = Collections.singletonMap("error", e.getMessage());
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(errorResponse);
             } catch (Exception e) {
                 log.error("Errore interno nella richiesta POST /api/titolo/importa: {}", e.getMessage());
                 Map<String, String> errorResponse = Collections.singletonMap("error", "Errore durante l'importazione del titolo");
@@ -335,10 +336,11 @@ public class TitoloController {
         }
         
         /**
-         * Importa più titoli contemporaneamente da Borsa Italiana.
+         * Importa più titoli contemporaneamente da Borsa Italiana: gli ISIN ripetuti sono importati
+         * una volta sola, le pagine scaricate in parallelo e i titoli salvati in un'unica transazione.
          * 
          * @param titoliImport lista di DTO contenenti codice ISIN e tipo titolo
-         * @return lista dei titoli importati e salvati
+         * @return i titoli importati e salvati, gli errori e l'esito di ogni ISIN
          */
         @PostMapping("/importa-multipli")
         public ResponseEntity<?> importaTitoliMultipli(@RequestBody List<TitoloImportDTO> titoliImport) {
@@ -354,65 +356,10 @@ public class TitoloController {
                         .map(UtenteResponseDTO::getIdUtente)
                         .orElseThrow(() -> new IllegalStateException("Utente non autenticato"));
                 
-                List<TitoloDTO> titoliSalvati = new ArrayList<>();
-                List<String> errori = new ArrayList<>();
-                
-                // Importa ogni titolo nella lista
-                for (TitoloImportDTO titoloImport : titoliImport) {
-                    try {
-                        String codiceIsin = titoloImport.getCodiceIsin();
-                        String tipoTitolo = titoloImport.getTipoTitolo();
-                        
-                        log.info("Importazione titolo con ISIN: {}, tipo: {}", codiceIsin, tipoTitolo);
-                        
-                        // Verifica se esiste già un titolo con lo stesso codice ISIN
-                        if (titoloService.existsByCodiceIsin(codiceIsin)) {
-                            // Recupera il titolo esistente
-                            TitoloDTO esistente = titoloService.findByCodiceIsin(codiceIsin);
-                            
-                            // Verifica che il titolo appartenga all'utente corrente
-                            if (!utenteId.equals(esistente.getUtenteId())) {
-                                errori.add("Non sei autorizzato a modificare il titolo con ISIN: " + codiceIsin);
-                                continue;
-                            }
-                            
-                            // Importa il titolo da Borsa Italiana (questo aggiornerà i dati)
-                            TitoloDTO updatedTitolo = titoloService.importaTitoloDaBorsaItaliana(codiceIsin, tipoTitolo);
-                            
-                            // Assicurati che il titolo sia associato all'utente corrente
-                            updatedTitolo.setUtenteId(utenteId);
-                            updatedTitolo = titoloService.saveTitolo(updatedTitolo);
-                            
-                            titoliSalvati.add(updatedTitolo);
-                        } else {
-                            // Se non esiste, importa e crea un nuovo titolo
-                            TitoloDTO savedTitolo = titoloService.importaTitoloDaBorsaItaliana(codiceIsin, tipoTitolo);
-                            
-                            // Assicurati che il titolo sia associato all'utente corrente
-                            savedTitolo.setUtenteId(utenteId);
-                            savedTitolo = titoloService.saveTitolo(savedTitolo);
-                            
-                            titoliSalvati.add(savedTitolo);
-                        }
-                    } catch (Exception e) {
-                        log.error("Errore nell'importazione del titolo con ISIN: {}: {}", 
-                                titoloImport.getCodiceIsin(), e.getMessage());
-                        errori.add("Errore nell'importazione del titolo con ISIN: " + 
-                                titoloImport.getCodiceIsin() + ": " + e.getMessage());
-                    }
-                }
-                
-                // Prepara la risposta
-                Map<String, Object> response = new LinkedHashMap<>();
-                response.put("titoli", titoliSalvati);
-                response.put("totale", titoliSalvati.size());
-                
-                if (!errori.isEmpty()) {
-                    response.put("errori", errori);
-                }
+                ImportazioneTitoliDTO response = importazioneTitoliService.importaTitoli(titoliImport, utenteId);
                 
                 log.info("Risposta per POST /api/titolo/importa-multipli: {} titoli importati, {} errori", 
-                        titoliSalvati.size(), errori.size());
+                        response.getTotale(), response.getErrori().size());
                 
                 return ResponseEntity.ok(response);
                 
@@ -1,11 +1,27 @@
 package com.example.rendimento.controllers;
 
+import com.example.rendimento.dto.CurvaRendimentiDTO;
+import com.example.rendimento.dto.ImportazioneTrendDTO;
+import com.example.rendimento.dto.ResiduoCurvaDTO;
 import com.example.rendimento.dto.TrendAggregatoDTO;
+import com.example.rendimento.dto.TrendPuntoDTO;
+import com.example.rendimento.dto.TrendStatisticheDTO;
+import com.example.rendimento.service.CurvaRendimentiService;
+import com.example.rendimento.service.TrendArchivioService;
 import com.example.rendimento.service.TrendQueryService;
+import com.example.rendimento.service.TrendStreamService;
+import com.example.rendimento.service.store.FormatoTrendColonnare;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -14,14 +30,36 @@ import java.util.List;
 public class TrendController {
 
     private final TrendQueryService trendService;
+    private final CurvaRendimentiService curvaRendimentiService;
+    private final TrendStreamService trendStreamService;
+    private final TrendArchivioService trendArchivioService;
 
-    public TrendController(TrendQueryService trendService) {
+    public TrendController(TrendQueryService trendService, CurvaRendimentiService curvaRendimentiService,
+                           TrendStreamService trendStreamService, TrendArchivioService trendArchivioService) {
         this.trendService = trendService;
+        this.curvaRendimentiService = curvaRendimentiService;
+        this.trendStreamService = trendStreamService;
+        this.trendArchivioService = trendArchivioService;
+    }
+
+    /**
+     * Stream (Server-Sent Events) degli snapshot e degli aggregati salvati.
+     * Alla riconnessione il browser invia l'header Last-Event-ID e riceve solo gli eventi persi;
+     * in alternativa l'ultimo evento ricevuto si può indicare con il parametro ultimoEvento.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(
+            @RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId,
+
+            @RequestParam(name = "ultimoEvento", required = false) Long ultimoEvento
+    ) {
+        return trendStreamService.iscrivi(lastEventId != null ? lastEventId : ultimoEvento);
     }
 
     /**
      * Restituisce i trend aggregati dei tassi di interesse.
-     * Parametri facoltativi: dataInizio, dataFine, keyword
+     * Parametri facoltativi: dataInizio, dataFine, keyword, maxPunti
+     * (la risoluzione giornaliera, settimanale o mensile è scelta in modo da non superare maxPunti per bucket)
      */
     @GetMapping("/aggregati")
     public ResponseEntity<List<TrendAggregatoDTO>> getTrendAggregati(
@@ -31,7 +69,9 @@ public class TrendController {
             @RequestParam(name = "dataFine", required = false)
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFine,
 
-            @RequestParam(name = "keyword", required = false) String keyword
+            @RequestParam(name = "keyword", required = false) String keyword,
+
+            @RequestParam(name = "maxPunti", defaultValue = "366") int maxPunti
     ) {
         // Se le date non sono specificate, si possono usare dei default (es. ultimi 30 giorni)
         if (dataInizio == null) {
@@ -41,16 +81,144 @@ public class TrendController {
             dataFine = LocalDate.now();
         }
 
-        // Chiama il servizio per ottenere i trend aggregati
-        List<TrendAggregatoDTO> trendList = trendService.getTrendAggregati(dataInizio, dataFine);
+        // Chiama il servizio per ottenere i trend aggregati: l'eventuale keyword (etichetta bucket)
+        // viene applicata direttamente dalla query, la risoluzione dipende dall'intervallo e da maxPunti
+        List<TrendAggregatoDTO> trendList = trendService.getTrendAggregati(dataInizio, dataFine, keyword, maxPunti);
+
+        return ResponseEntity.ok(trendList);
+    }
 
-        // Se è presente una keyword, filtriamo lato controller (esempio: ISIN o etichetta bucket)
-        if (keyword != null && !keyword.isBlank()) {
-            trendList = trendList.stream()
-                    .filter(t -> t.getBucket().toLowerCase().contains(keyword.toLowerCase()))
-                    .toList();
+    /**
+     * Restituisce la serie storica di rendimento e prezzo di un titolo.
+     * Parametri facoltativi: dataInizio, dataFine (default ultimo anno)
+     */
+    @GetMapping("/storico/{isin}")
+    public ResponseEntity<List<TrendPuntoDTO>> getStoricoIsin(
+            @PathVariable("isin") String isin,
+
+            @RequestParam(name = "dataInizio", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInizio,
+
+            @RequestParam(name = "dataFine", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFine
+    ) {
+        if (dataInizio == null) {
+            dataInizio = LocalDate.now().minusYears(1);
+        }
+        if (dataFine == null) {
+            dataFine = LocalDate.now();
         }
 
-        return ResponseEntity.ok(trendList);
+        return ResponseEntity.ok(trendService.getStoricoIsin(isin, dataInizio, dataFine));
+    }
+
+    /**
+     * Restituisce le statistiche mobili di tutti i titoli non scaduti, ordinate per z-score decrescente.
+     * Parametro facoltativo: zScoreMinimo
+     */
+    @GetMapping("/statistiche")
+    public ResponseEntity<List<TrendStatisticheDTO>> getStatistiche(
+            @RequestParam(name = "zScoreMinimo", required = false) Double zScoreMinimo
+    ) {
+        return ResponseEntity.ok(trendService.getStatistiche(zScoreMinimo));
+    }
+
+    /**
+     * Restituisce le statistiche mobili di un titolo.
+     */
+    @GetMapping("/statistiche/{isin}")
+    public ResponseEntity<TrendStatisticheDTO> getStatisticheIsin(@PathVariable("isin") String isin) {
+        return ResponseEntity.ok(trendService.getStatisticheIsin(isin));
+    }
+
+    /**
+     * Restituisce la curva dei rendimenti del giorno con i rendimenti interpolati.
+     * Parametri facoltativi: data (default oggi), scadenze in anni (default griglia da 3 mesi a 30 anni)
+     */
+    @GetMapping("/curva")
+    public ResponseEntity<CurvaRendimentiDTO> getCurva(
+            @RequestParam(name = "data", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate data,
+
+            @RequestParam(name = "scadenze", required = false) List<Double> scadenze
+    ) {
+        if (data == null) {
+            data = LocalDate.now();
+        }
+        return ResponseEntity.ok(curvaRendimentiService.getCurva(data, scadenze));
+    }
+
+    /**
+     * Restituisce lo scostamento dalla curva del giorno di ogni titolo (residuo positivo = titolo economico).
+     * Parametro facoltativo: data (default oggi)
+     */
+    @GetMapping("/curva/residui")
+    public ResponseEntity<List<ResiduoCurvaDTO>> getResiduiCurva(
+            @RequestParam(name = "data", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate data
+    ) {
+        if (data == null) {
+            data = LocalDate.now();
+        }
+        return ResponseEntity.ok(curvaRendimentiService.getResidui(data));
+    }
+
+    /**
+     * Restituisce i parametri delle curve giornaliere dell'intervallo.
+     * Parametri facoltativi: dataInizio, dataFine (default ultimo anno)
+     */
+    @GetMapping("/curve")
+    public ResponseEntity<List<CurvaRendimentiDTO>> getCurve(
+            @RequestParam(name = "dataInizio", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInizio,
+
+            @RequestParam(name = "dataFine", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFine
+    ) {
+        if (dataInizio == null) {
+            dataInizio = LocalDate.now().minusYears(1);
+        }
+        if (dataFine == null) {
+            dataFine = LocalDate.now();
+        }
+        return ResponseEntity.ok(curvaRendimentiService.getCurve(dataInizio, dataFine));
+    }
+
+    /**
+     * Esporta gli snapshot dell'intervallo nel formato binario a colonne, scritto in streaming.
+     * Parametri facoltativi: dataInizio, dataFine (default tutto lo storico fino a oggi), compresso (default true)
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> esporta(
+            @RequestParam(name = "dataInizio", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInizio,
+
+            @RequestParam(name = "dataFine", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFine,
+
+            @RequestParam(name = "compresso", defaultValue = "true") boolean compresso
+    ) {
+        LocalDate inizio = dataInizio != null ? dataInizio : LocalDate.EPOCH;
+        LocalDate fine = dataFine != null ? dataFine : LocalDate.now();
+        if (inizio.isAfter(fine)) {
+            throw new IllegalArgumentException("La data di inizio deve precedere la data di fine");
+        }
+
+        String nomeFile = "trend_" + (dataInizio != null ? inizio : "inizio") + "_" + fine + FormatoTrendColonnare.ESTENSIONE;
+        StreamingResponseBody corpo = out -> trendArchivioService.esporta(inizio, fine, compresso, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(FormatoTrendColonnare.CONTENT_TYPE))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(nomeFile).build().toString())
+                .body(corpo);
+    }
+
+    /**
+     * Importa un archivio nel formato binario a colonne inviato come corpo della richiesta:
+     * gli snapshot già presenti per ISIN e data vengono sovrascritti.
+     */
+    @PostMapping(value = "/import", consumes = {FormatoTrendColonnare.CONTENT_TYPE, MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<ImportazioneTrendDTO> importa(InputStream corpo) throws IOException {
+        return ResponseEntity.ok(trendArchivioService.importa(corpo));
     }
 }
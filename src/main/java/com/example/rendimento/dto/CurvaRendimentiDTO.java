@@ -0,0 +1,46 @@
+package com.example.rendimento.dto;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * DTO per rappresentare la curva dei rendimenti di un giorno adattata con il modello
+ * di Nelson-Siegel: parametri, qualità dell'adattamento e rendimenti interpolati
+ * per le scadenze richieste (anni alla scadenza → rendimento).
+ */
+public class CurvaRendimentiDTO {
+
+    private LocalDate dataSnapshot;
+    private double beta0;
+    private double beta1;
+    private double beta2;
+    private double tau;
+    private int numeroTitoli;
+    private double erroreQuadraticoMedio;
+    private Map<Double, Double> rendimentiInterpolati;
+
+    // getter e setter
+    public LocalDate getDataSnapshot() { return dataSnapshot; }
+    public void setDataSnapshot(LocalDate dataSnapshot) { this.dataSnapshot = dataSnapshot; }
+
+    public double getBeta0() { return beta0; }
+    public void setBeta0(double beta0) { this.beta0 = beta0; }
+
+    public double getBeta1() { return beta1; }
+    public void setBeta1(double beta1) { this.beta1 = beta1; }
+
+    public double getBeta2() { return beta2; }
+    public void setBeta2(double beta2) { this.beta2 = beta2; }
+
+    public double getTau() { return tau; }
+    public void setTau(double tau) { this.tau = tau; }
+
+    public int getNumeroTitoli() { return numeroTitoli; }
+    public void setNumeroTitoli(int numeroTitoli) { this.numeroTitoli = numeroTitoli; }
+
+    public double getErroreQuadraticoMedio() { return erroreQuadraticoMedio; }
+    public void setErroreQuadraticoMedio(double erroreQuadraticoMedio) { this.erroreQuadraticoMedio = erroreQuadraticoMedio; }
+
+    public Map<Double, Double> getRendimentiInterpolati() { return rendimentiInterpolati; }
+    public void setRendimentiInterpolati(Map<Double, Double> rendimentiInterpolati) { this.rendimentiInterpolati = rendimentiInterpolati; }
+}
@@ -0,0 +1,55 @@
+package com.example.rendimento.dto;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+import com.example.rendimento.enums.StatoJob;
+
+/**
+ * DTO per rappresentare l'esecuzione di un job ripristinabile: avanzamento registrato nei checkpoint
+ * e, per un'esecuzione ripresa, gli elementi già completati da saltare.
+ */
+public class EsecuzioneJobDTO {
+
+    private String nome;
+    private StatoJob stato;
+    private LocalDateTime avviataIl;
+    private LocalDateTime terminataIl;
+    private int totale;
+    private int completati;
+    private int falliti;
+    private String ultimaChiave;
+    private boolean ripresa;
+    private Set<String> chiaviCompletate;
+
+    // getter e setter
+    public String getNome() { return nome; }
+    public void setNome(String nome) { this.nome = nome; }
+
+    public StatoJob getStato() { return stato; }
+    public void setStato(StatoJob stato) { this.stato = stato; }
+
+    public LocalDateTime getAvviataIl() { return avviataIl; }
+    public void setAvviataIl(LocalDateTime avviataIl) { this.avviataIl = avviataIl; }
+
+    public LocalDateTime getTerminataIl() { return terminataIl; }
+    public void setTerminataIl(LocalDateTime terminataIl) { this.terminataIl = terminataIl; }
+
+    public int getTotale() { return totale; }
+    public void setTotale(int totale) { this.totale = totale; }
+
+    public int getCompletati() { return completati; }
+    public void setCompletati(int completati) { this.completati = completati; }
+
+    public int getFalliti() { return falliti; }
+    public void setFalliti(int falliti) { this.falliti = falliti; }
+
+    public String getUltimaChiave() { return ultimaChiave; }
+    public void setUltimaChiave(String ultimaChiave) { this.ultimaChiave = ultimaChiave; }
+
+    public boolean isRipresa() { return ripresa; }
+    public void setRipresa(boolean ripresa) { this.ripresa = ripresa; }
+
+    public Set<String> getChiaviCompletate() { return chiaviCompletate; }
+    public void setChiaviCompletate(Set<String> chiaviCompletate) { this.chiaviCompletate = chiaviCompletate; }
+}
@@ -0,0 +1,37 @@
+package com.example.rendimento.dto;
+
+import com.example.rendimento.enums.EsitoImportazione;
+
+/**
+ * DTO con l'esito dell'importazione di un singolo ISIN: il titolo salvato oppure il motivo dell'errore.
+ */
+public class EsitoImportazioneTitoloDTO {
+
+    private String codiceIsin;
+    private EsitoImportazione esito;
+    private String messaggio;
+    private TitoloDTO titolo;
+
+    public EsitoImportazioneTitoloDTO() {
+    }
+
+    public EsitoImportazioneTitoloDTO(String codiceIsin, EsitoImportazione esito, String messaggio, TitoloDTO titolo) {
+        this.codiceIsin = codiceIsin;
+        this.esito = esito;
+        this.messaggio = messaggio;
+        this.titolo = titolo;
+    }
+
+    // getter e setter
+    public String getCodiceIsin() { return codiceIsin; }
+    public void setCodiceIsin(String codiceIsin) { this.codiceIsin = codiceIsin; }
+
+    public EsitoImportazione getEsito() { return esito; }
+    public void setEsito(EsitoImportazione esito) { this.esito = esito; }
+
+    public String getMessaggio() { return messaggio; }
+    public void setMessaggio(String messaggio) { this.messaggio = messaggio; }
+
+    public TitoloDTO getTitolo() { return titolo; }
+    public void setTitolo(TitoloDTO titolo) { this.titolo = titolo; }
+}
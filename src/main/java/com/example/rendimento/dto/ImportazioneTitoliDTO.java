@@ -0,0 +1,33 @@
+package com.example.rendimento.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO con l'esito dell'importazione di più titoli da Borsa Italiana: i titoli salvati,
+ * i messaggi di errore e l'esito di ogni ISIN richiesto.
+ */
+public class ImportazioneTitoliDTO {
+
+    private List<TitoloDTO> titoli = new ArrayList<>();
+    private int totale;
+    private List<String> errori = new ArrayList<>();
+    private List<EsitoImportazioneTitoloDTO> esiti = new ArrayList<>();
+    private long durataMillis;
+
+    // getter e setter
+    public List<TitoloDTO> getTitoli() { return titoli; }
+    public void setTitoli(List<TitoloDTO> titoli) { this.titoli = titoli; }
+
+    public int getTotale() { return totale; }
+    public void setTotale(int totale) { this.totale = totale; }
+
+    public List<String> getErrori() { return errori; }
+    public void setErrori(List<String> errori) { this.errori = errori; }
+
+    public List<EsitoImportazioneTitoloDTO> getEsiti() { return esiti; }
+    public void setEsiti(List<EsitoImportazioneTitoloDTO> esiti) { this.esiti = esiti; }
+
+    public long getDurataMillis() { return durataMillis; }
+    public void setDurataMillis(long durataMillis) { this.durataMillis = durataMillis; }
+}
@@ -0,0 +1,40 @@
+package com.example.rendimento.dto;
+
+import java.time.LocalDate;
+
+/**
+ * DTO con l'esito dell'importazione di un archivio di trend:
+ * righe lette, snapshot inseriti e aggiornati e intervallo di date coperto.
+ */
+public class ImportazioneTrendDTO {
+
+    private long righeLette;
+    private long inserite;
+    private long aggiornate;
+    private int numeroIsin;
+    private LocalDate dataInizio;
+    private LocalDate dataFine;
+    private long durataMillis;
+
+    // getter e setter
+    public long getRigheLette() { return righeLette; }
+    public void setRigheLette(long righeLette) { this.righeLette = righeLette; }
+
+    public long getInserite() { return inserite; }
+    public void setInserite(long inserite) { this.inserite = inserite; }
+
+    public long getAggiornate() { return aggiornate; }
+    public void setAggiornate(long aggiornate) { this.aggiornate = aggiornate; }
+
+    public int getNumeroIsin() { return numeroIsin; }
+    public void setNumeroIsin(int numeroIsin) { this.numeroIsin = numeroIsin; }
+
+    public LocalDate getDataInizio() { return dataInizio; }
+    public void setDataInizio(LocalDate dataInizio) { this.dataInizio = dataInizio; }
+
+    public LocalDate getDataFine() { return dataFine; }
+    public void setDataFine(LocalDate dataFine) { this.dataFine = dataFine; }
+
+    public long getDurataMillis() { return durataMillis; }
+    public void setDurataMillis(long durataMillis) { this.durataMillis = durataMillis; }
+}
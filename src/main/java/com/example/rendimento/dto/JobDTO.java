@@ -0,0 +1,86 @@
+package com.example.rendimento.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.example.rendimento.enums.StatoJob;
+
+/**
+ * DTO per rappresentare lo stato di un job eseguito in background: avanzamento
+ * (elementi completati e falliti sul totale), errori per elemento e, a job completato, il risultato.
+ */
+public class JobDTO {
+
+    private String id;
+    private String tipo;
+    private StatoJob stato;
+    private int totale;
+    private int completati;
+    private int falliti;
+    private List<ErroreJobDTO> errori;
+    private String messaggio;
+    private LocalDateTime dataCreazione;
+    private LocalDateTime dataInizio;
+    private LocalDateTime dataFine;
+    private Object risultato;
+
+    // getter e setter
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getTipo() { return tipo; }
+    public void setTipo(String tipo) { this.tipo = tipo; }
+
+    public StatoJob getStato() { return stato; }
+    public void setStato(StatoJob stato) { this.stato = stato; }
+
+    public int getTotale() { return totale; }
+    public void setTotale(int totale) { this.totale = totale; }
+
+    public int getCompletati() { return completati; }
+    public void setCompletati(int completati) { this.completati = completati; }
+
+    public int getFalliti() { return falliti; }
+    public void setFalliti(int falliti) { this.falliti = falliti; }
+
+    public List<ErroreJobDTO> getErrori() { return errori; }
+    public void setErrori(List<ErroreJobDTO> errori) { this.errori = errori; }
+
+    public String getMessaggio() { return messaggio; }
+    public void setMessaggio(String messaggio) { this.messaggio = messaggio; }
+
+    public LocalDateTime getDataCreazione() { return dataCreazione; }
+    public void setDataCreazione(LocalDateTime dataCreazione) { this.dataCreazione = dataCreazione; }
+
+    public LocalDateTime getDataInizio() { return dataInizio; }
+    public void setDataInizio(LocalDateTime dataInizio) { this.dataInizio = dataInizio; }
+
+    public LocalDateTime getDataFine() { return dataFine; }
+    public void setDataFine(LocalDateTime dataFine) { this.dataFine = dataFine; }
+
+    public Object getRisultato() { return risultato; }
+    public void setRisultato(Object risultato) { this.risultato = risultato; }
+
+    /**
+     * DTO interno con l'errore di un singolo elemento del job (es. l'ISIN di un titolo).
+     */
+    public static class ErroreJobDTO {
+
+        private String chiave;
+        private String messaggio;
+
+        public ErroreJobDTO() {
+        }
+
+        public ErroreJobDTO(String chiave, String messaggio) {
+            this.chiave = chiave;
+            this.messaggio = messaggio;
+        }
+
+        public String getChiave() { return chiave; }
+        public void setChiave(String chiave) { this.chiave = chiave; }
+
+        public String getMessaggio() { return messaggio; }
+        public void setMessaggio(String messaggio) { this.messaggio = messaggio; }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.rendimento.dto;
+
+/**
+ * DTO per rappresentare lo scostamento del rendimento di un titolo dalla curva del giorno.
+ * Un residuo positivo indica un titolo che rende più della curva (economico),
+ * un residuo negativo un titolo che rende meno (caro).
+ */
+public class ResiduoCurvaDTO {
+
+    private String isin;
+    private double anniAllaScadenza;
+    private double rendimento;
+    private double rendimentoCurva;
+    private double residuo;
+
+    public ResiduoCurvaDTO() {
+    }
+
+    public ResiduoCurvaDTO(String isin, double anniAllaScadenza, double rendimento, double rendimentoCurva) {
+        this.isin = isin;
+        this.anniAllaScadenza = anniAllaScadenza;
+        this.rendimento = rendimento;
+        this.rendimentoCurva = rendimentoCurva;
+        this.residuo = rendimento - rendimentoCurva;
+    }
+
+    // getter e setter
+    public String getIsin() { return isin; }
+    public void setIsin(String isin) { this.isin = isin; }
+
+    public double getAnniAllaScadenza() { return anniAllaScadenza; }
+    public void setAnniAllaScadenza(double anniAllaScadenza) { this.anniAllaScadenza = anniAllaScadenza; }
+
+    public double getRendimento() { return rendimento; }
+    public void setRendimento(double rendimento) { this.rendimento = rendimento; }
+
+    public double getRendimentoCurva() { return rendimentoCurva; }
+    public void setRendimentoCurva(double rendimentoCurva) { this.rendimentoCurva = rendimentoCurva; }
+
+    public double getResiduo() { return residuo; }
+    public void setResiduo(double residuo) { this.residuo = residuo; }
+}
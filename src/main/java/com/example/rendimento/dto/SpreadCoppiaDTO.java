@@ -0,0 +1,52 @@
+package com.example.rendimento.dto;
+
+import java.time.LocalDate;
+
+/**
+ * DTO per rappresentare le statistiche dello spread tra due titoli in un intervallo:
+ * ultimo valore, media, minimo e massimo dei giorni in cui entrambi hanno uno snapshot.
+ */
+public class SpreadCoppiaDTO {
+
+    private String isinPrimo;
+    private String nomePrimo;
+    private String isinSecondo;
+    private String nomeSecondo;
+    private int numeroPunti;
+    private LocalDate dataUltimo;
+    private Double spreadUltimo;
+    private Double spreadMedio;
+    private Double spreadMinimo;
+    private Double spreadMassimo;
+
+    // getter e setter
+    public String getIsinPrimo() { return isinPrimo; }
+    public void setIsinPrimo(String isinPrimo) { this.isinPrimo = isinPrimo; }
+
+    public String getNomePrimo() { return nomePrimo; }
+    public void setNomePrimo(String nomePrimo) { this.nomePrimo = nomePrimo; }
+
+    public String getIsinSecondo() { return isinSecondo; }
+    public void setIsinSecondo(String isinSecondo) { this.isinSecondo = isinSecondo; }
+
+    public String getNomeSecondo() { return nomeSecondo; }
+    public void setNomeSecondo(String nomeSecondo) { this.nomeSecondo = nomeSecondo; }
+
+    public int getNumeroPunti() { return numeroPunti; }
+    public void setNumeroPunti(int numeroPunti) { this.numeroPunti = numeroPunti; }
+
+    public LocalDate getDataUltimo() { return dataUltimo; }
+    public void setDataUltimo(LocalDate dataUltimo) { this.dataUltimo = dataUltimo; }
+
+    public Double getSpreadUltimo() { return spreadUltimo; }
+    public void setSpreadUltimo(Double spreadUltimo) { this.spreadUltimo = spreadUltimo; }
+
+    public Double getSpreadMedio() { return spreadMedio; }
+    public void setSpreadMedio(Double spreadMedio) { this.spreadMedio = spreadMedio; }
+
+    public Double getSpreadMinimo() { return spreadMinimo; }
+    public void setSpreadMinimo(Double spreadMinimo) { this.spreadMinimo = spreadMinimo; }
+
+    public Double getSpreadMassimo() { return spreadMassimo; }
+    public void setSpreadMassimo(Double spreadMassimo) { this.spreadMassimo = spreadMassimo; }
+}
@@ -0,0 +1,38 @@
+package com.example.rendimento.dto;
+
+import java.time.LocalDate;
+
+/**
+ * DTO per rappresentare un punto di una serie di spread: i rendimenti delle due gambe
+ * e la loro differenza (primo - secondo), medie del periodo se la risoluzione non è giornaliera.
+ */
+public class SpreadPuntoDTO {
+
+    private LocalDate data;
+    private double rendimentoPrimo;
+    private double rendimentoSecondo;
+    private double spread;
+
+    public SpreadPuntoDTO() {
+    }
+
+    public SpreadPuntoDTO(LocalDate data, double rendimentoPrimo, double rendimentoSecondo, double spread) {
+        this.data = data;
+        this.rendimentoPrimo = rendimentoPrimo;
+        this.rendimentoSecondo = rendimentoSecondo;
+        this.spread = spread;
+    }
+
+    // getter e setter
+    public LocalDate getData() { return data; }
+    public void setData(LocalDate data) { this.data = data; }
+
+    public double getRendimentoPrimo() { return rendimentoPrimo; }
+    public void setRendimentoPrimo(double rendimentoPrimo) { this.rendimentoPrimo = rendimentoPrimo; }
+
+    public double getRendimentoSecondo() { return rendimentoSecondo; }
+    public void setRendimentoSecondo(double rendimentoSecondo) { this.rendimentoSecondo = rendimentoSecondo; }
+
+    public double getSpread() { return spread; }
+    public void setSpread(double spread) { this.spread = spread; }
+}
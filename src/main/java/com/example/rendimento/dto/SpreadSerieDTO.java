@@ -0,0 +1,38 @@
+package com.example.rendimento.dto;
+
+import java.util.List;
+
+/**
+ * DTO per rappresentare la serie storica dello spread tra due gambe
+ * (due ISIN oppure i segmenti BTP e BOT) alla risoluzione indicata.
+ */
+public class SpreadSerieDTO {
+
+    private String primo;
+    private String secondo;
+    private String risoluzione;
+    private List<SpreadPuntoDTO> punti;
+
+    public SpreadSerieDTO() {
+    }
+
+    public SpreadSerieDTO(String primo, String secondo, String risoluzione, List<SpreadPuntoDTO> punti) {
+        this.primo = primo;
+        this.secondo = secondo;
+        this.risoluzione = risoluzione;
+        this.punti = punti;
+    }
+
+    // getter e setter
+    public String getPrimo() { return primo; }
+    public void setPrimo(String primo) { this.primo = primo; }
+
+    public String getSecondo() { return secondo; }
+    public void setSecondo(String secondo) { this.secondo = secondo; }
+
+    public String getRisoluzione() { return risoluzione; }
+    public void setRisoluzione(String risoluzione) { this.risoluzione = risoluzione; }
+
+    public List<SpreadPuntoDTO> getPunti() { return punti; }
+    public void setPunti(List<SpreadPuntoDTO> punti) { this.punti = punti; }
+}
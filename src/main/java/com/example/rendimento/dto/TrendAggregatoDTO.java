@@ -2,19 +2,28 @@ package com.example.rendimento.dto;
 
 import java.time.LocalDate;
 
+import com.example.rendimento.utility.IstogrammaRendimenti;
+
 public class TrendAggregatoDTO {
 
     private LocalDate dataSnapshot;
+    private String risoluzione;
     private String bucket;
     private double rendimentoMedio;
     private double rendimentoMinimo;
     private double rendimentoMassimo;
     private int numeroTitoli;
+    private Double rendimentoP10;
+    private Double rendimentoP50;
+    private Double rendimentoP90;
 
     // getter e setter
     public LocalDate getDataSnapshot() { return dataSnapshot; }
     public void setDataSnapshot(LocalDate dataSnapshot) { this.dataSnapshot = dataSnapshot; }
 
+    public String getRisoluzione() { return risoluzione; }
+    public void setRisoluzione(String risoluzione) { this.risoluzione = risoluzione; }
+
     public String getBucket() { return bucket; }
     public void setBucket(String bucket) { this.bucket = bucket; }
 
@@ -29,4 +38,23 @@ public class TrendAggregatoDTO {
 
     public int getNumeroTitoli() { return numeroTitoli; }
     public void setNumeroTitoli(int numeroTitoli) { this.numeroTitoli = numeroTitoli; }
+
+    public Double getRendimentoP10() { return rendimentoP10; }
+    public void setRendimentoP10(Double rendimentoP10) { this.rendimentoP10 = rendimentoP10; }
+
+    public Double getRendimentoP50() { return rendimentoP50; }
+    public void setRendimentoP50(Double rendimentoP50) { this.rendimentoP50 = rendimentoP50; }
+
+    public Double getRendimentoP90() { return rendimentoP90; }
+    public void setRendimentoP90(Double rendimentoP90) { this.rendimentoP90 = rendimentoP90; }
+
+    /**
+     * Imposta i percentili 10, 50 e 90 a partire dall'istogramma dei rendimenti
+     * (restano null se l'istogramma è vuoto).
+     */
+    public void impostaPercentili(IstogrammaRendimenti istogramma) {
+        this.rendimentoP10 = istogramma.percentile(0.10);
+        this.rendimentoP50 = istogramma.percentile(0.50);
+        this.rendimentoP90 = istogramma.percentile(0.90);
+    }
 }
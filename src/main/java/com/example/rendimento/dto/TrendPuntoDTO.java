@@ -0,0 +1,32 @@
+package com.example.rendimento.dto;
+
+import java.time.LocalDate;
+
+/**
+ * DTO per rappresentare un punto della serie storica dei trend di un titolo (ISIN).
+ */
+public class TrendPuntoDTO {
+
+    private LocalDate dataSnapshot;
+    private double rendimento;
+    private double prezzo;
+
+    public TrendPuntoDTO() {
+    }
+
+    public TrendPuntoDTO(LocalDate dataSnapshot, double rendimento, double prezzo) {
+        this.dataSnapshot = dataSnapshot;
+        this.rendimento = rendimento;
+        this.prezzo = prezzo;
+    }
+
+    // getter e setter
+    public LocalDate getDataSnapshot() { return dataSnapshot; }
+    public void setDataSnapshot(LocalDate dataSnapshot) { this.dataSnapshot = dataSnapshot; }
+
+    public double getRendimento() { return rendimento; }
+    public void setRendimento(double rendimento) { this.rendimento = rendimento; }
+
+    public double getPrezzo() { return prezzo; }
+    public void setPrezzo(double prezzo) { this.prezzo = prezzo; }
+}
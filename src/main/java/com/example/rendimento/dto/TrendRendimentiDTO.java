@@ -14,6 +14,7 @@ public class TrendRendimentiDTO {
     private BigDecimal rendimentoMedio;
     private BigDecimal rendimentoMassimo;
     private List<TitoloRendimentoDTO> titoli;
+    private String versione;
     
     /**
      * Costruttore predefinito.
@@ -71,6 +72,18 @@ public class TrendRendimentiDTO {
         this.titoli = titoli;
     }
     
+    /**
+     * Versione del riepilogo: cambia quando cambiano i titoli o le simulazioni dell'utente
+     * o il giorno di calcolo, ed è usata come ETag della risposta.
+     */
+    public String getVersione() {
+        return versione;
+    }
+    
+    public void setVersione(String versione) {
+        this.versione = versione;
+    }
+    
     /**
      * DTO interno per rappresentare un titolo con i suoi rendimenti.
      */
@@ -0,0 +1,49 @@
+package com.example.rendimento.dto;
+
+import java.time.LocalDate;
+
+/**
+ * DTO per rappresentare uno snapshot giornaliero di un titolo appena salvato,
+ * inviato ai client in ascolto sullo stream dei trend.
+ */
+public class TrendSnapshotDTO {
+
+    private String isin;
+    private LocalDate dataSnapshot;
+    private LocalDate dataScadenza;
+    private String bucket;
+    private double rendimento;
+    private double prezzo;
+
+    public TrendSnapshotDTO() {
+    }
+
+    public TrendSnapshotDTO(String isin, LocalDate dataSnapshot, LocalDate dataScadenza, String bucket,
+                            double rendimento, double prezzo) {
+        this.isin = isin;
+        this.dataSnapshot = dataSnapshot;
+        this.dataScadenza = dataScadenza;
+        this.bucket = bucket;
+        this.rendimento = rendimento;
+        this.prezzo = prezzo;
+    }
+
+    // getter e setter
+    public String getIsin() { return isin; }
+    public void setIsin(String isin) { this.isin = isin; }
+
+    public LocalDate getDataSnapshot() { return dataSnapshot; }
+    public void setDataSnapshot(LocalDate dataSnapshot) { this.dataSnapshot = dataSnapshot; }
+
+    public LocalDate getDataScadenza() { return dataScadenza; }
+    public void setDataScadenza(LocalDate dataScadenza) { this.dataScadenza = dataScadenza; }
+
+    public String getBucket() { return bucket; }
+    public void setBucket(String bucket) { this.bucket = bucket; }
+
+    public double getRendimento() { return rendimento; }
+    public void setRendimento(double rendimento) { this.rendimento = rendimento; }
+
+    public double getPrezzo() { return prezzo; }
+    public void setPrezzo(double prezzo) { this.prezzo = prezzo; }
+}
@@ -0,0 +1,49 @@
+package com.example.rendimento.dto;
+
+import java.time.LocalDate;
+
+/**
+ * DTO per rappresentare le statistiche mobili del rendimento di un titolo (ISIN):
+ * media semplice ed esponenziale, deviazione standard e z-score dell'ultimo rendimento
+ * rispetto alla finestra degli ultimi N snapshot.
+ */
+public class TrendStatisticheDTO {
+
+    private String isin;
+    private LocalDate dataUltimo;
+    private double rendimentoUltimo;
+    private int finestra;
+    private int numeroPunti;
+    private double mediaMobile;
+    private double mediaEsponenziale;
+    private Double deviazioneStandard;
+    private Double zScore;
+
+    // getter e setter
+    public String getIsin() { return isin; }
+    public void setIsin(String isin) { this.isin = isin; }
+
+    public LocalDate getDataUltimo() { return dataUltimo; }
+    public void setDataUltimo(LocalDate dataUltimo) { this.dataUltimo = dataUltimo; }
+
+    public double getRendimentoUltimo() { return rendimentoUltimo; }
+    public void setRendimentoUltimo(double rendimentoUltimo) { this.rendimentoUltimo = rendimentoUltimo; }
+
+    public int getFinestra() { return finestra; }
+    public void setFinestra(int finestra) { this.finestra = finestra; }
+
+    public int getNumeroPunti() { return numeroPunti; }
+    public void setNumeroPunti(int numeroPunti) { this.numeroPunti = numeroPunti; }
+
+    public double getMediaMobile() { return mediaMobile; }
+    public void setMediaMobile(double mediaMobile) { this.mediaMobile = mediaMobile; }
+
+    public double getMediaEsponenziale() { return mediaEsponenziale; }
+    public void setMediaEsponenziale(double mediaEsponenziale) { this.mediaEsponenziale = mediaEsponenziale; }
+
+    public Double getDeviazioneStandard() { return deviazioneStandard; }
+    public void setDeviazioneStandard(Double deviazioneStandard) { this.deviazioneStandard = deviazioneStandard; }
+
+    public Double getZScore() { return zScore; }
+    public void setZScore(Double zScore) { this.zScore = zScore; }
+}
@@ -0,0 +1,18 @@
+package com.example.rendimento.enums;
+
+/**
+ * Enumerazione per l'esito dell'importazione di un singolo titolo da Borsa Italiana.
+ */
+public enum EsitoImportazione {
+    CREATO,
+    AGGIORNATO,
+    NON_AUTORIZZATO,
+    ERRORE;
+
+    /**
+     * Indica se il titolo è stato salvato.
+     */
+    public boolean isSalvato() {
+        return this == CREATO || this == AGGIORNATO;
+    }
+}
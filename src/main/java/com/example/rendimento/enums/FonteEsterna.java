@@ -0,0 +1,35 @@
+package com.example.rendimento.enums;
+
+/**
+ * Enumerazione dei servizi esterni da cui si leggono i dati dei titoli. Ogni fonte ha un proprio
+ * esecutore con limiti configurati in {@code rendimento.fonti.<chiave>}; le fonti dello stesso host
+ * condividono limitatore di richieste e interruttore di circuito, configurati in
+ * {@code rendimento.host.<host>}.
+ */
+public enum FonteEsterna {
+    BORSA_ITALIANA_BTP("borsa-italiana-btp", "borsa-italiana"),
+    BORSA_ITALIANA_BOT("borsa-italiana-bot", "borsa-italiana"),
+    INVESTING("investing", "investing");
+
+    private final String chiave;
+    private final String host;
+
+    FonteEsterna(String chiave, String host) {
+        this.chiave = chiave;
+        this.host = host;
+    }
+
+    /**
+     * Restituisce la chiave della fonte nella configurazione e nei nomi dei thread.
+     */
+    public String getChiave() {
+        return chiave;
+    }
+
+    /**
+     * Restituisce la chiave dell'host della fonte (www.borsaitaliana.it, it.investing.com).
+     */
+    public String getHost() {
+        return host;
+    }
+}
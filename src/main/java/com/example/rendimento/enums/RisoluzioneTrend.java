@@ -0,0 +1,92 @@
+package com.example.rendimento.enums;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Enumerazione per le risoluzioni temporali degli aggregati dei trend.
+ * Ogni periodo è identificato dal suo primo giorno (il lunedì per le settimane,
+ * il primo del mese per i mesi).
+ */
+public enum RisoluzioneTrend {
+    GIORNALIERA("giornaliera"),
+    SETTIMANALE("settimanale"),
+    MENSILE("mensile");
+
+    private final String label;
+
+    RisoluzioneTrend(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Restituisce il primo giorno del periodo che contiene la data indicata.
+     */
+    public LocalDate inizioPeriodo(LocalDate data) {
+        switch (this) {
+            case SETTIMANALE:
+                return data.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MENSILE:
+                return data.withDayOfMonth(1);
+            default:
+                return data;
+        }
+    }
+
+    /**
+     * Restituisce l'ultimo giorno del periodo che contiene la data indicata.
+     */
+    public LocalDate finePeriodo(LocalDate data) {
+        switch (this) {
+            case SETTIMANALE:
+                return data.with(TemporalAdjusters.nextOrSame(DayOfWeek.SUNDAY));
+            case MENSILE:
+                return data.with(TemporalAdjusters.lastDayOfMonth());
+            default:
+                return data;
+        }
+    }
+
+    /**
+     * Restituisce il numero di periodi, per ogni bucket, necessari a coprire l'intervallo.
+     */
+    public long numeroPeriodi(LocalDate dataInizio, LocalDate dataFine) {
+        if (dataFine.isBefore(dataInizio)) {
+            return 0;
+        }
+        LocalDate primo = inizioPeriodo(dataInizio);
+        LocalDate ultimo = inizioPeriodo(dataFine);
+        switch (this) {
+            case SETTIMANALE:
+                return ChronoUnit.WEEKS.between(primo, ultimo) + 1;
+            case MENSILE:
+                return ChronoUnit.MONTHS.between(primo, ultimo) + 1;
+            default:
+                return ChronoUnit.DAYS.between(primo, ultimo) + 1;
+        }
+    }
+
+    /**
+     * Sceglie la risoluzione più fine che rappresenta l'intervallo con al più maxPunti
+     * punti per bucket; se nessuna è sufficiente restituisce quella mensile.
+     *
+     * @param dataInizio la data di inizio dell'intervallo
+     * @param dataFine la data di fine dell'intervallo
+     * @param maxPunti il numero massimo di punti per bucket
+     * @return la risoluzione da utilizzare
+     */
+    public static RisoluzioneTrend perIntervallo(LocalDate dataInizio, LocalDate dataFine, int maxPunti) {
+        for (RisoluzioneTrend risoluzione : values()) {
+            if (risoluzione.numeroPeriodi(dataInizio, dataFine) <= maxPunti) {
+                return risoluzione;
+            }
+        }
+        return MENSILE;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.rendimento.enums;
+
+/**
+ * Enumerazione per gli stati di un job eseguito in background.
+ */
+public enum StatoJob {
+    IN_CODA,
+    IN_ESECUZIONE,
+    COMPLETATO,
+    FALLITO;
+
+    /**
+     * Indica se il job è terminato, con successo o meno.
+     */
+    public boolean isTerminato() {
+        return this == COMPLETATO || this == FALLITO;
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.rendimento.enums;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
 
 public enum TrendBucket {
 
@@ -23,7 +25,10 @@ public enum TrendBucket {
     }
 
     public boolean matches(BigDecimal anniAllaScadenza) {
-        double years = anniAllaScadenza.doubleValue();
+        return matches(anniAllaScadenza.doubleValue());
+    }
+
+    public boolean matches(double years) {
         if (maxYears == null) {
             return years >= minYears;
         }
@@ -33,4 +38,69 @@ public enum TrendBucket {
     public String getLabel() {
         return label;
     }
+
+    public Double getMinYears() {
+        return minYears;
+    }
+
+    public Double getMaxYears() {
+        return maxYears;
+    }
+
+    /**
+     * Restituisce il bucket corrispondente agli anni alla scadenza indicati.
+     * Gli intervalli non sono contigui: per le scadenze che cadono tra due bucket restituisce null.
+     *
+     * @param anniAllaScadenza gli anni residui alla scadenza
+     * @return il bucket corrispondente, o null se nessun intervallo corrisponde
+     */
+    public static TrendBucket daAnni(BigDecimal anniAllaScadenza) {
+        return daAnni(anniAllaScadenza.doubleValue());
+    }
+
+    /**
+     * Variante di {@link #daAnni(BigDecimal)} per valori primitivi.
+     *
+     * @param anniAllaScadenza gli anni residui alla scadenza
+     * @return il bucket corrispondente, o null se nessun intervallo corrisponde
+     */
+    public static TrendBucket daAnni(double anniAllaScadenza) {
+        for (TrendBucket bucket : values()) {
+            if (bucket.matches(anniAllaScadenza)) {
+                return bucket;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Restituisce il bucket con l'etichetta indicata.
+     *
+     * @param label l'etichetta del bucket (es. "12M")
+     * @return il bucket corrispondente, o null se l'etichetta non è valida
+     */
+    public static TrendBucket daLabel(String label) {
+        for (TrendBucket bucket : values()) {
+            if (bucket.label.equals(label)) {
+                return bucket;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Restituisce i bucket la cui etichetta contiene la keyword indicata (senza distinzione tra maiuscole e minuscole).
+     *
+     * @param keyword la keyword da cercare; se vuota restituisce tutti i bucket
+     * @return l'elenco dei bucket corrispondenti
+     */
+    public static List<TrendBucket> perKeyword(String keyword) {
+        if (keyword == null || keyword.isBlank()) {
+            return List.of(values());
+        }
+        String chiave = keyword.toLowerCase();
+        return Arrays.stream(values())
+                .filter(b -> b.label.toLowerCase().contains(chiave))
+                .toList();
+    }
 }
@@ -0,0 +1,34 @@
+package com.example.rendimento.event;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Evento pubblicato quando cambiano i titoli o le simulazioni di uno o più utenti.
+ * Chi mantiene dati derivati dal portafoglio di un utente (es. il riepilogo dei trend
+ * dei rendimenti) lo usa per invalidarli.
+ */
+public class PortafoglioModificatoEvent {
+
+    private final Set<Integer> utenti;
+
+    public PortafoglioModificatoEvent(Collection<Integer> utenti) {
+        this.utenti = Set.copyOf(utenti);
+    }
+
+    public static PortafoglioModificatoEvent perUtente(Integer utenteId) {
+        return new PortafoglioModificatoEvent(Set.of(utenteId));
+    }
+
+    /**
+     * Gli ID degli utenti il cui portafoglio è cambiato.
+     */
+    public Set<Integer> getUtenti() {
+        return utenti;
+    }
+
+    @Override
+    public String toString() {
+        return "PortafoglioModificatoEvent{utenti=" + utenti + '}';
+    }
+}
@@ -10,6 +10,7 @@ import org.springframework.web.context.request.WebRequest;
 import java.time.LocalDateTime;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Handler globale per le eccezioni dell'applicazione.
@@ -40,6 +41,28 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(body, HttpStatus.CONFLICT);
     }
     
+    /**
+     * Gestisce le eccezioni di tipo JobInEsecuzioneException.
+     * Queste eccezioni si verificano quando lo stesso job è già in esecuzione su un altro nodo.
+     *
+     * @param ex l'eccezione catturata
+     * @param request la richiesta web
+     * @return una risposta con stato 409 Conflict e dettagli sull'errore
+     */
+    @ExceptionHandler(JobInEsecuzioneException.class)
+    public ResponseEntity<Object> handleJobInEsecuzioneException(
+            JobInEsecuzioneException ex, WebRequest request) {
+        
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("status", HttpStatus.CONFLICT.value());
+        body.put("error", "Job Già In Esecuzione");
+        body.put("message", ex.getMessage());
+        body.put("path", request.getDescription(false).replace("uri=", ""));
+        
+        return new ResponseEntity<>(body, HttpStatus.CONFLICT);
+    }
+    
     /**
      * Gestisce le eccezioni di tipo EntityNotFoundException.
      * Queste eccezioni si verificano quando un'entità richiesta non viene trovata.
@@ -84,6 +107,51 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
     }
     
+    /**
+     * Gestisce le eccezioni di tipo RejectedExecutionException.
+     * Queste eccezioni si verificano quando la coda dei job in background è piena.
+     *
+     * @param ex l'eccezione catturata
+     * @param request la richiesta web
+     * @return una risposta con stato 503 Service Unavailable e dettagli sull'errore
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Object> handleRejectedExecutionException(
+            RejectedExecutionException ex, WebRequest request) {
+        
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("status", HttpStatus.SERVICE_UNAVAILABLE.value());
+        body.put("error", "Servizio Non Disponibile");
+        body.put("message", "Troppe elaborazioni in corso, riprovare più tardi.");
+        body.put("path", request.getDescription(false).replace("uri=", ""));
+        
+        return new ResponseEntity<>(body, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+    
+    /**
+     * Gestisce le eccezioni di tipo ServizioEsternoNonDisponibileException.
+     * Queste eccezioni si verificano quando Borsa Italiana o Investing non rispondono in tempo
+     * o hanno già troppe richieste in corso.
+     *
+     * @param ex l'eccezione catturata
+     * @param request la richiesta web
+     * @return una risposta con stato 503 Service Unavailable e dettagli sull'errore
+     */
+    @ExceptionHandler(ServizioEsternoNonDisponibileException.class)
+    public ResponseEntity<Object> handleServizioEsternoNonDisponibileException(
+            ServizioEsternoNonDisponibileException ex, WebRequest request) {
+        
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("status", HttpStatus.SERVICE_UNAVAILABLE.value());
+        body.put("error", "Servizio Esterno Non Disponibile");
+        body.put("message", ex.getMessage());
+        body.put("path", request.getDescription(false).replace("uri=", ""));
+        
+        return new ResponseEntity<>(body, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+    
     /**
      * Gestisce tutte le altre eccezioni non gestite specificamente.
      *
@@ -0,0 +1,18 @@
+package com.example.rendimento.exception;
+
+/**
+ * Eccezione lanciata quando un job non può partire perché è già in esecuzione su un altro nodo.
+ */
+public class JobInEsecuzioneException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Costruttore con messaggio di errore.
+     *
+     * @param message il messaggio di errore
+     */
+    public JobInEsecuzioneException(String message) {
+        super(message);
+    }
+}
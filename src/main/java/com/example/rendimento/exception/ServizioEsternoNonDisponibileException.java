@@ -0,0 +1,30 @@
+package com.example.rendimento.exception;
+
+import com.example.rendimento.enums.FonteEsterna;
+
+/**
+ * Eccezione lanciata quando un servizio esterno (Borsa Italiana, Investing) non risponde entro
+ * la scadenza prevista o ha già troppe richieste in corso.
+ */
+public class ServizioEsternoNonDisponibileException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final FonteEsterna fonte;
+
+    /**
+     * Costruttore con fonte, messaggio di errore e causa.
+     *
+     * @param fonte il servizio esterno non disponibile
+     * @param message il messaggio di errore
+     * @param cause la causa dell'eccezione
+     */
+    public ServizioEsternoNonDisponibileException(FonteEsterna fonte, String message, Throwable cause) {
+        super(message, cause);
+        this.fonte = fonte;
+    }
+
+    public FonteEsterna getFonte() {
+        return fonte;
+    }
+}
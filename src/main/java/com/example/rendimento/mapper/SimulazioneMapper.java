@@ -3,11 +3,17 @@ package com.example.rendimento.mapper;
 import com.example.rendimento.dto.SimulazioneDTO;
 import com.example.rendimento.dto.TitoloDTO;
 import com.example.rendimento.model.Simulazione;
+import com.example.rendimento.model.Titolo;
 import com.example.rendimento.repository.TitoloRepository;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Mapper per la conversione tra entità Simulazione e DTO SimulazioneDTO.
  */
@@ -97,14 +103,105 @@ public class SimulazioneMapper {
             return null;
         }
 
-        Simulazione simulazione = new Simulazione();
-        simulazione.setIdSimulazione(dto.getIdSimulazione());
+        Simulazione simulazione = copiaCampi(dto);
         
         if (dto.getIdTitolo() != null) {
             simulazione.setTitolo(titoloRepository.findById(dto.getIdTitolo())
                 .orElseThrow(() -> new EntityNotFoundException("Titolo non trovato con ID: " + dto.getIdTitolo())));
         }
-        
+
+        return simulazione;
+    }
+
+    /**
+     * Converte un DTO SimulazioneDTO in un'entità Simulazione usando un titolo già caricato dal chiamante,
+     * senza interrogare il database.
+     * Se il titolo fornito è null o non corrisponde all'idTitolo del DTO, viene usato un riferimento lazy
+     * (proxy) al titolo indicato nel DTO: l'esistenza del titolo viene verificata dal vincolo di chiave esterna
+     * al momento del flush.
+     *
+     * @param dto il DTO da convertire
+     * @param titolo il titolo già caricato da associare alla simulazione
+     * @return l'entità corrispondente
+     */
+    public Simulazione toEntity(SimulazioneDTO dto, Titolo titolo) {
+        if (dto == null) {
+            return null;
+        }
+
+        Simulazione simulazione = copiaCampi(dto);
+        simulazione.setTitolo(risolviTitolo(dto.getIdTitolo(), titolo, null));
+
+        return simulazione;
+    }
+
+    /**
+     * Converte una lista di DTO SimulazioneDTO in entità Simulazione.
+     * I titoli vengono risolti come riferimenti lazy (proxy), uno per ogni idTitolo distinto,
+     * senza eseguire una SELECT per ogni simulazione.
+     *
+     * @param dtos la lista di DTO da convertire
+     * @return la lista di entità corrispondenti
+     */
+    public List<Simulazione> toEntityList(List<SimulazioneDTO> dtos) {
+        if (dtos == null) {
+            return new ArrayList<>();
+        }
+
+        Map<Integer, Titolo> riferimenti = new HashMap<>();
+        List<Simulazione> simulazioni = new ArrayList<>(dtos.size());
+        for (SimulazioneDTO dto : dtos) {
+            if (dto == null) {
+                continue;
+            }
+            Simulazione simulazione = copiaCampi(dto);
+            simulazione.setTitolo(risolviTitolo(dto.getIdTitolo(), null, riferimenti));
+            simulazioni.add(simulazione);
+        }
+        return simulazioni;
+    }
+
+    /**
+     * Converte una lista di entità Simulazione in una lista di DTO SimulazioneDTO.
+     *
+     * @param simulazioni la lista di entità da convertire
+     * @return la lista di DTO corrispondenti
+     */
+    public List<SimulazioneDTO> toDTOList(List<Simulazione> simulazioni) {
+        if (simulazioni == null) {
+            return new ArrayList<>();
+        }
+
+        List<SimulazioneDTO> dtos = new ArrayList<>(simulazioni.size());
+        for (Simulazione simulazione : simulazioni) {
+            dtos.add(toDTO(simulazione));
+        }
+        return dtos;
+    }
+
+    /**
+     * Restituisce il titolo da associare alla simulazione: quello già caricato se corrisponde all'ID,
+     * altrimenti un riferimento lazy ottenuto dal repository (eventualmente memorizzato nella mappa fornita).
+     */
+    private Titolo risolviTitolo(Integer idTitolo, Titolo titoloCaricato, Map<Integer, Titolo> riferimenti) {
+        if (titoloCaricato != null && (idTitolo == null || idTitolo.equals(titoloCaricato.getIdTitolo()))) {
+            return titoloCaricato;
+        }
+        if (idTitolo == null) {
+            return null;
+        }
+        if (riferimenti != null) {
+            return riferimenti.computeIfAbsent(idTitolo, titoloRepository::getReferenceById);
+        }
+        return titoloRepository.getReferenceById(idTitolo);
+    }
+
+    /**
+     * Copia i campi scalari del DTO in una nuova entità Simulazione (il titolo non viene impostato).
+     */
+    private Simulazione copiaCampi(SimulazioneDTO dto) {
+        Simulazione simulazione = new Simulazione();
+        simulazione.setIdSimulazione(dto.getIdSimulazione());
         simulazione.setDataAcquisto(dto.getDataAcquisto());
         simulazione.setPrezzoAcquisto(dto.getPrezzoAcquisto());
         simulazione.setRendimentoLordo(dto.getRendimentoLordo());
@@ -0,0 +1,45 @@
+package com.example.rendimento.mapper;
+
+import com.example.rendimento.dto.TrendAggregatoDTO;
+import com.example.rendimento.model.TrendAggregatoEntity;
+import com.example.rendimento.utility.IstogrammaRendimenti;
+import org.springframework.stereotype.Component;
+
+/**
+ * Classe di utilità per la conversione tra l'entità TrendAggregatoEntity e il DTO TrendAggregatoDTO.
+ */
+@Component
+public class TrendAggregatoMapper {
+
+    /**
+     * Converte un'entità TrendAggregatoEntity in un DTO TrendAggregatoDTO.
+     * I valori mancanti sono riportati come zero, i percentili sono calcolati dall'istogramma.
+     *
+     * @param entity l'entità da convertire
+     * @return il DTO risultante, o null se l'entità è null
+     */
+    public TrendAggregatoDTO toDto(TrendAggregatoEntity entity) {
+        if (entity == null) {
+            return null;
+        }
+
+        TrendAggregatoDTO dto = new TrendAggregatoDTO();
+        dto.setDataSnapshot(entity.getDataSnapshot());
+        dto.setRisoluzione(entity.getRisoluzione().getLabel());
+        dto.setBucket(entity.getBucket().getLabel());
+
+        dto.setRendimentoMedio(
+                entity.getRendimentoMedio() != null ? entity.getRendimentoMedio().doubleValue() : 0.0);
+        dto.setRendimentoMinimo(
+                entity.getRendimentoMinimo() != null ? entity.getRendimentoMinimo().doubleValue() : 0.0);
+        dto.setRendimentoMassimo(
+                entity.getRendimentoMassimo() != null ? entity.getRendimentoMassimo().doubleValue() : 0.0);
+
+        dto.setNumeroTitoli(
+                entity.getNumeroTitoli() != null ? entity.getNumeroTitoli() : 0);
+
+        dto.impostaPercentili(IstogrammaRendimenti.deserializza(entity.getIstogramma()));
+
+        return dto;
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.rendimento.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+import com.example.rendimento.enums.StatoJob;
+
+/**
+ * Classe entità JPA che rappresenta la tabella job_checkpoint nel database.
+ * Registra l'esito di un elemento (unità di lavoro, es. un ISIN) di un job: l'elemento appartiene
+ * all'esecuzione corrente se è stato aggiornato dopo il suo inizio (vedi {@link JobEsecuzioneEntity}).
+ */
+@Entity
+@Table(
+    name = "job_checkpoint",
+    uniqueConstraints = {
+        @UniqueConstraint(name = "uk_job_checkpoint_nome_chiave", columnNames = {"nome", "chiave"})
+    }
+)
+public class JobCheckpointEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * Nome del job (es. recupera-dati:MONDAY)
+     */
+    @Column(name = "nome", length = 150, nullable = false)
+    private String nome;
+
+    /**
+     * Elemento elaborato (es. l'ISIN)
+     */
+    @Column(name = "chiave", length = 50, nullable = false)
+    private String chiave;
+
+    /**
+     * Esito dell'elemento: COMPLETATO o FALLITO
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "stato", length = 20, nullable = false)
+    private StatoJob stato;
+
+    @Column(name = "messaggio", length = 500)
+    private String messaggio;
+
+    @Column(name = "aggiornato_il", nullable = false)
+    private LocalDateTime aggiornatoIl;
+
+    // ===============================
+    // Getter & Setter
+    // ===============================
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getNome() {
+        return nome;
+    }
+
+    public void setNome(String nome) {
+        this.nome = nome;
+    }
+
+    public String getChiave() {
+        return chiave;
+    }
+
+    public void setChiave(String chiave) {
+        this.chiave = chiave;
+    }
+
+    public StatoJob getStato() {
+        return stato;
+    }
+
+    public void setStato(StatoJob stato) {
+        this.stato = stato;
+    }
+
+    public String getMessaggio() {
+        return messaggio;
+    }
+
+    public void setMessaggio(String messaggio) {
+        this.messaggio = messaggio;
+    }
+
+    public LocalDateTime getAggiornatoIl() {
+        return aggiornatoIl;
+    }
+
+    public void setAggiornatoIl(LocalDateTime aggiornatoIl) {
+        this.aggiornatoIl = aggiornatoIl;
+    }
+}
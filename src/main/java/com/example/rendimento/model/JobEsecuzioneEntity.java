@@ -0,0 +1,131 @@
+package com.example.rendimento.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+import com.example.rendimento.enums.StatoJob;
+
+/**
+ * Classe entità JPA che rappresenta la tabella job_esecuzione nel database.
+ * Contiene l'esecuzione corrente (o l'ultima) di ogni job batch ripristinabile: se l'esecuzione
+ * si interrompe, il job riavviato la riprende saltando gli elementi già completati
+ * (vedi {@link JobCheckpointEntity}).
+ */
+@Entity
+@Table(name = "job_esecuzione")
+public class JobEsecuzioneEntity {
+
+    /**
+     * Nome del job (es. recupera-dati:MONDAY)
+     */
+    @Id
+    @Column(name = "nome", length = 150)
+    private String nome;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "stato", length = 20, nullable = false)
+    private StatoJob stato;
+
+    /**
+     * Inizio dell'esecuzione: i checkpoint precedenti appartengono a esecuzioni passate
+     */
+    @Column(name = "avviata_il", nullable = false)
+    private LocalDateTime avviataIl;
+
+    @Column(name = "aggiornata_il", nullable = false)
+    private LocalDateTime aggiornataIl;
+
+    @Column(name = "terminata_il")
+    private LocalDateTime terminataIl;
+
+    @Column(name = "totale", nullable = false)
+    private int totale;
+
+    @Column(name = "completati", nullable = false)
+    private int completati;
+
+    @Column(name = "falliti", nullable = false)
+    private int falliti;
+
+    /**
+     * Ultimo elemento completato (es. l'ISIN)
+     */
+    @Column(name = "ultima_chiave", length = 50)
+    private String ultimaChiave;
+
+    // ===============================
+    // Getter & Setter
+    // ===============================
+
+    public String getNome() {
+        return nome;
+    }
+
+    public void setNome(String nome) {
+        this.nome = nome;
+    }
+
+    public StatoJob getStato() {
+        return stato;
+    }
+
+    public void setStato(StatoJob stato) {
+        this.stato = stato;
+    }
+
+    public LocalDateTime getAvviataIl() {
+        return avviataIl;
+    }
+
+    public void setAvviataIl(LocalDateTime avviataIl) {
+        this.avviataIl = avviataIl;
+    }
+
+    public LocalDateTime getAggiornataIl() {
+        return aggiornataIl;
+    }
+
+    public void setAggiornataIl(LocalDateTime aggiornataIl) {
+        this.aggiornataIl = aggiornataIl;
+    }
+
+    public LocalDateTime getTerminataIl() {
+        return terminataIl;
+    }
+
+    public void setTerminataIl(LocalDateTime terminataIl) {
+        this.terminataIl = terminataIl;
+    }
+
+    public int getTotale() {
+        return totale;
+    }
+
+    public void setTotale(int totale) {
+        this.totale = totale;
+    }
+
+    public int getCompletati() {
+        return completati;
+    }
+
+    public void setCompletati(int completati) {
+        this.completati = completati;
+    }
+
+    public int getFalliti() {
+        return falliti;
+    }
+
+    public void setFalliti(int falliti) {
+        this.falliti = falliti;
+    }
+
+    public String getUltimaChiave() {
+        return ultimaChiave;
+    }
+
+    public void setUltimaChiave(String ultimaChiave) {
+        this.ultimaChiave = ultimaChiave;
+    }
+}
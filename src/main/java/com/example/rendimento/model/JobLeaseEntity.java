@@ -0,0 +1,91 @@
+package com.example.rendimento.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Classe entità JPA che rappresenta la tabella job_lease nel database.
+ * Ogni riga è il lease (concessione a tempo) di un job o di una sua partizione: il nodo
+ * che lo detiene è l'unico a eseguirlo finché il lease non scade o viene rilasciato.
+ * Il lease è rinnovato periodicamente dal nodo, quindi un nodo che si arresta lo perde
+ * alla scadenza senza interventi manuali.
+ */
+@Entity
+@Table(name = "job_lease")
+public class JobLeaseEntity {
+
+    /**
+     * Nome del job o della partizione (es. recupera-dati:MONDAY#3)
+     */
+    @Id
+    @Column(name = "nome", length = 150)
+    private String nome;
+
+    /**
+     * Identificativo del nodo che detiene o ha detenuto il lease
+     */
+    @Column(name = "nodo", length = 100, nullable = false)
+    private String nodo;
+
+    /**
+     * Istante in cui il lease è stato acquisito (inizio dell'esecuzione)
+     */
+    @Column(name = "acquisito_il", nullable = false)
+    private LocalDateTime acquisitoIl;
+
+    /**
+     * Istante oltre il quale il lease, se non rinnovato, può essere acquisito da un altro nodo
+     */
+    @Column(name = "scadenza", nullable = false)
+    private LocalDateTime scadenza;
+
+    /**
+     * Istante di completamento del lavoro, per le partizioni già elaborate
+     */
+    @Column(name = "completato_il")
+    private LocalDateTime completatoIl;
+
+    // ===============================
+    // Getter & Setter
+    // ===============================
+
+    public String getNome() {
+        return nome;
+    }
+
+    public void setNome(String nome) {
+        this.nome = nome;
+    }
+
+    public String getNodo() {
+        return nodo;
+    }
+
+    public void setNodo(String nodo) {
+        this.nodo = nodo;
+    }
+
+    public LocalDateTime getAcquisitoIl() {
+        return acquisitoIl;
+    }
+
+    public void setAcquisitoIl(LocalDateTime acquisitoIl) {
+        this.acquisitoIl = acquisitoIl;
+    }
+
+    public LocalDateTime getScadenza() {
+        return scadenza;
+    }
+
+    public void setScadenza(LocalDateTime scadenza) {
+        this.scadenza = scadenza;
+    }
+
+    public LocalDateTime getCompletatoIl() {
+        return completatoIl;
+    }
+
+    public void setCompletatoIl(LocalDateTime completatoIl) {
+        this.completatoIl = completatoIl;
+    }
+}
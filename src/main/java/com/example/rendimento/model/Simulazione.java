@@ -7,11 +7,19 @@ import java.time.LocalDate;
 /**
  * Classe entità JPA che rappresenta la tabella Simulazione nel database.
  * Implementa il controllo ottimistico della concorrenza tramite il campo version.
+ * L'entity graph {@code Simulazione.conTitolo} carica il titolo nella stessa query
+ * (l'utente del titolo resta un proxy, ma il suo ID è letto dalla chiave esterna).
  */
 @Entity
 @Table(name = "simulazione")
+@NamedEntityGraph(name = Simulazione.GRAPH_CON_TITOLO, attributeNodes = @NamedAttributeNode("titolo"))
 public class Simulazione {
 
+    /**
+     * Nome dell'entity graph che carica la simulazione insieme al titolo.
+     */
+    public static final String GRAPH_CON_TITOLO = "Simulazione.conTitolo";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "id_simulazione")
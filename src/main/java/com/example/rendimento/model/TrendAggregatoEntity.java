@@ -0,0 +1,174 @@
+package com.example.rendimento.model;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import org.hibernate.annotations.ColumnDefault;
+
+import com.example.rendimento.enums.RisoluzioneTrend;
+import com.example.rendimento.enums.TrendBucket;
+
+/**
+ * Classe entità JPA che rappresenta la tabella trend_aggregati nel database.
+ * Contiene le statistiche pre-aggregate dei rendimenti per periodo e bucket di scadenza,
+ * aggiornate ad ogni scrittura di uno snapshot nella tabella trends. Oltre agli aggregati
+ * giornalieri contiene i rollup settimanali e mensili, identificati dal primo giorno del periodo.
+ */
+@Entity
+@Table(
+    name = "trend_aggregati",
+    uniqueConstraints = {
+        @UniqueConstraint(name = "uk_trend_aggregati_risoluzione_data_bucket",
+                columnNames = {"risoluzione", "data_snapshot", "bucket"})
+    }
+)
+public class TrendAggregatoEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * Risoluzione dell'aggregato (giornaliera, settimanale o mensile)
+     */
+    @Enumerated(EnumType.STRING)
+    @ColumnDefault("'GIORNALIERA'")
+    @Column(name = "risoluzione", length = 20, nullable = false)
+    private RisoluzioneTrend risoluzione = RisoluzioneTrend.GIORNALIERA;
+
+    /**
+     * Data dello snapshot aggregato (primo giorno del periodo per i rollup)
+     */
+    @Column(name = "data_snapshot", nullable = false)
+    private LocalDate dataSnapshot;
+
+    /**
+     * Bucket di scadenza (es. DODICI_MESI)
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "bucket", length = 30, nullable = false)
+    private TrendBucket bucket;
+
+    @Column(name = "rendimento_medio", precision = 10, scale = 6, nullable = false)
+    private BigDecimal rendimentoMedio;
+
+    @Column(name = "rendimento_minimo", precision = 10, scale = 6, nullable = false)
+    private BigDecimal rendimentoMinimo;
+
+    @Column(name = "rendimento_massimo", precision = 10, scale = 6, nullable = false)
+    private BigDecimal rendimentoMassimo;
+
+    @Column(name = "numero_titoli", nullable = false)
+    private Integer numeroTitoli;
+
+    /**
+     * Istogramma dei rendimenti a classi di un punto base, serializzato
+     * (vedi {@link com.example.rendimento.utility.IstogrammaRendimenti})
+     */
+    @Column(name = "istogramma", columnDefinition = "TEXT")
+    private String istogramma;
+
+    /**
+     * Campo per il controllo ottimistico della concorrenza.
+     * Viene incrementato automaticamente ad ogni aggiornamento dell'entità.
+     */
+    @Version
+    @Column(name = "version")
+    private Long version;
+
+    // ===============================
+    // Getter & Setter
+    // ===============================
+
+    public Long getId() {
+        return id;
+    }
+
+    public RisoluzioneTrend getRisoluzione() {
+        return risoluzione;
+    }
+
+    public void setRisoluzione(RisoluzioneTrend risoluzione) {
+        this.risoluzione = risoluzione;
+    }
+
+    public LocalDate getDataSnapshot() {
+        return dataSnapshot;
+    }
+
+    public void setDataSnapshot(LocalDate dataSnapshot) {
+        this.dataSnapshot = dataSnapshot;
+    }
+
+    public TrendBucket getBucket() {
+        return bucket;
+    }
+
+    public void setBucket(TrendBucket bucket) {
+        this.bucket = bucket;
+    }
+
+    public BigDecimal getRendimentoMedio() {
+        return rendimentoMedio;
+    }
+
+    public void setRendimentoMedio(BigDecimal rendimentoMedio) {
+        this.rendimentoMedio = rendimentoMedio;
+    }
+
+    public BigDecimal getRendimentoMinimo() {
+        return rendimentoMinimo;
+    }
+
+    public void setRendimentoMinimo(BigDecimal rendimentoMinimo) {
+        this.rendimentoMinimo = rendimentoMinimo;
+    }
+
+    public BigDecimal getRendimentoMassimo() {
+        return rendimentoMassimo;
+    }
+
+    public void setRendimentoMassimo(BigDecimal rendimentoMassimo) {
+        this.rendimentoMassimo = rendimentoMassimo;
+    }
+
+    public Integer getNumeroTitoli() {
+        return numeroTitoli;
+    }
+
+    public void setNumeroTitoli(Integer numeroTitoli) {
+        this.numeroTitoli = numeroTitoli;
+    }
+
+    public String getIstogramma() {
+        return istogramma;
+    }
+
+    public void setIstogramma(String istogramma) {
+        this.istogramma = istogramma;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    @Override
+    public String toString() {
+        return "TrendAggregatoEntity{" +
+                "id=" + id +
+                ", risoluzione=" + risoluzione +
+                ", dataSnapshot=" + dataSnapshot +
+                ", bucket=" + bucket +
+                ", rendimentoMedio=" + rendimentoMedio +
+                ", rendimentoMinimo=" + rendimentoMinimo +
+                ", rendimentoMassimo=" + rendimentoMassimo +
+                ", numeroTitoli=" + numeroTitoli +
+                ", version=" + version +
+                '}';
+    }
+}
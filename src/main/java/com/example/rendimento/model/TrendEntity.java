@@ -7,12 +7,14 @@ import java.time.LocalDate;
 /**
  * Classe entità JPA che rappresenta la tabella trends nel database.
  * Implementa il controllo ottimistico della concorrenza tramite il campo version.
+ * Su PostgreSQL la tabella è partizionata per mese su data_snapshot (vedi V7__partition_trends_by_month.sql):
+ * il vincolo univoco ha lo stesso nome usato nella migrazione, così Hibernate non tenta di ricrearlo.
  */
 @Entity
 @Table(
     name = "trends",
     uniqueConstraints = {
-        @UniqueConstraint(columnNames = {"isin", "data_snapshot"})
+        @UniqueConstraint(name = "uk_trends_isin_data_snapshot", columnNames = {"isin", "data_snapshot"})
     }
 )
 public class TrendEntity {
@@ -0,0 +1,32 @@
+package com.example.rendimento.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.example.rendimento.enums.StatoJob;
+import com.example.rendimento.model.JobCheckpointEntity;
+
+@Repository
+public interface JobCheckpointRepository extends JpaRepository<JobCheckpointEntity, Long> {
+
+    Optional<JobCheckpointEntity> findByNomeAndChiave(String nome, String chiave);
+
+    /**
+     * Restituisce le chiavi di un job con l'esito indicato, registrate dall'istante indicato in poi.
+     */
+    @Query("SELECT c.chiave FROM JobCheckpointEntity c WHERE c.nome = :nome AND c.stato = :stato " +
+           "AND c.aggiornatoIl >= :dal")
+    List<String> findChiaviByNomeAndStatoDal(@Param("nome") String nome, @Param("stato") StatoJob stato,
+                                             @Param("dal") LocalDateTime dal);
+
+    @Query("SELECT COUNT(c) FROM JobCheckpointEntity c WHERE c.nome = :nome AND c.stato = :stato " +
+           "AND c.aggiornatoIl >= :dal")
+    long countByNomeAndStatoDal(@Param("nome") String nome, @Param("stato") StatoJob stato,
+                                @Param("dal") LocalDateTime dal);
+}
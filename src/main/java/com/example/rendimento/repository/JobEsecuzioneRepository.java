@@ -0,0 +1,39 @@
+package com.example.rendimento.repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.example.rendimento.enums.StatoJob;
+import com.example.rendimento.model.JobEsecuzioneEntity;
+
+@Repository
+public interface JobEsecuzioneRepository extends JpaRepository<JobEsecuzioneEntity, String> {
+
+    /**
+     * Crea l'esecuzione se non esiste. Con due nodi in concorrenza uno dei due inserimenti
+     * fallisce per la chiave primaria duplicata.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO job_esecuzione (nome, stato, avviata_il, aggiornata_il, totale, completati, falliti) " +
+                   "VALUES (:nome, 'IN_ESECUZIONE', :ora, :ora, :totale, 0, 0)", nativeQuery = true)
+    int inserisci(@Param("nome") String nome, @Param("ora") LocalDateTime ora, @Param("totale") int totale);
+
+    /**
+     * Avvia una nuova esecuzione al posto di quella terminata (completata o fallita) o avviata
+     * prima del limite di ripresa: si riprende solo un'esecuzione rimasta in corso.
+     *
+     * @return 1 se è stata avviata una nuova esecuzione, 0 se quella esistente va ripresa
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE JobEsecuzioneEntity e SET e.stato = :inEsecuzione, e.avviataIl = :ora, e.aggiornataIl = :ora, " +
+           "e.terminataIl = NULL, e.totale = :totale, e.completati = 0, e.falliti = 0, e.ultimaChiave = NULL " +
+           "WHERE e.nome = :nome AND (e.stato <> :inEsecuzione OR e.avviataIl < :limiteRipresa)")
+    int riavvia(@Param("nome") String nome, @Param("ora") LocalDateTime ora, @Param("totale") int totale,
+                @Param("limiteRipresa") LocalDateTime limiteRipresa,
+                @Param("inEsecuzione") StatoJob inEsecuzione);
+}
@@ -0,0 +1,60 @@
+package com.example.rendimento.repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.example.rendimento.model.JobLeaseEntity;
+
+/**
+ * Repository dei lease dei job. Acquisizione, rinnovo e rilascio sono singole istruzioni
+ * condizionali: l'esito dipende solo dal numero di righe modificate, senza lock di sessione
+ * (che non sopravvivono a un connection pooler in modalità transazione come PgBouncer).
+ */
+@Repository
+public interface JobLeaseRepository extends JpaRepository<JobLeaseEntity, String> {
+
+    /**
+     * Crea il lease se non esiste. Con due nodi in concorrenza uno dei due inserimenti
+     * fallisce per la chiave primaria duplicata.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO job_lease (nome, nodo, acquisito_il, scadenza, completato_il) " +
+                   "VALUES (:nome, :nodo, :ora, :scadenza, NULL)", nativeQuery = true)
+    int inserisci(@Param("nome") String nome, @Param("nodo") String nodo,
+                  @Param("ora") LocalDateTime ora, @Param("scadenza") LocalDateTime scadenza);
+
+    /**
+     * Acquisisce un lease esistente se è scaduto e non risulta completato dopo l'istante indicato.
+     *
+     * @return 1 se il lease è stato acquisito, 0 altrimenti
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE JobLeaseEntity l SET l.nodo = :nodo, l.acquisitoIl = :ora, l.scadenza = :scadenza, " +
+           "l.completatoIl = NULL WHERE l.nome = :nome AND l.scadenza < :ora " +
+           "AND (l.completatoIl IS NULL OR l.completatoIl < :completatoPrima)")
+    int acquisisci(@Param("nome") String nome, @Param("nodo") String nodo, @Param("ora") LocalDateTime ora,
+                   @Param("scadenza") LocalDateTime scadenza, @Param("completatoPrima") LocalDateTime completatoPrima);
+
+    /**
+     * Prolunga il lease, solo se è ancora del nodo indicato.
+     *
+     * @return 1 se il lease è stato rinnovato, 0 se nel frattempo è passato a un altro nodo
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE JobLeaseEntity l SET l.scadenza = :scadenza WHERE l.nome = :nome AND l.nodo = :nodo")
+    int rinnova(@Param("nome") String nome, @Param("nodo") String nodo, @Param("scadenza") LocalDateTime scadenza);
+
+    /**
+     * Rilascia il lease del nodo, registrando l'eventuale completamento del lavoro.
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE JobLeaseEntity l SET l.scadenza = :ora, l.completatoIl = :completatoIl " +
+           "WHERE l.nome = :nome AND l.nodo = :nodo")
+    int rilascia(@Param("nome") String nome, @Param("nodo") String nodo, @Param("ora") LocalDateTime ora,
+                 @Param("completatoIl") LocalDateTime completatoIl);
+}
@@ -2,8 +2,11 @@ package com.example.rendimento.repository;
 
 import com.example.rendimento.model.Simulazione;
 import com.example.rendimento.model.Titolo;
+import com.example.rendimento.repository.projection.UltimoPrezzoTitoloProjection;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -11,14 +14,27 @@ import org.springframework.stereotype.Repository;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Repository per l'entità Simulazione.
  * Fornisce metodi per operazioni CRUD e query personalizzate sulla tabella simulazione.
+ * Le query che restituiscono liste destinate al mapping in DTO usano l'entity graph
+ * {@link Simulazione#GRAPH_CON_TITOLO}, così il titolo viene caricato con una sola query
+ * invece che con un lazy load per ogni riga.
  */
 @Repository
 public interface SimulazioneRepository extends JpaRepository<Simulazione, Integer> {
     
+    /**
+     * Recupera tutte le simulazioni caricando il titolo associato nella stessa query.
+     * 
+     * @return lista di tutte le simulazioni
+     */
+    @Override
+    @EntityGraph(Simulazione.GRAPH_CON_TITOLO)
+    List<Simulazione> findAll();
+    
     /**
      * Trova tutte le simulazioni associate a un titolo specifico.
      * 
@@ -33,6 +49,7 @@ public interface SimulazioneRepository extends JpaRepository<Simulazione, Intege
      * @param idTitolo l'ID del titolo per cui cercare le simulazioni
      * @return lista di simulazioni associate al titolo
      */
+    @EntityGraph(Simulazione.GRAPH_CON_TITOLO)
     List<Simulazione> findByTitolo_IdTitolo(Integer idTitolo);
     
     /**
@@ -67,6 +84,7 @@ public interface SimulazioneRepository extends JpaRepository<Simulazione, Intege
      * @param pageable oggetto per la paginazione e l'ordinamento
      * @return lista di simulazioni ordinate per data di acquisto
      */
+    @EntityGraph(Simulazione.GRAPH_CON_TITOLO)
     @Query("SELECT s FROM Simulazione s WHERE s.titolo.idTitolo = :titoloId ORDER BY s.dataAcquisto DESC")
     List<Simulazione> findByTitoloIdOrderByDataAcquistoDesc(@Param("titoloId") Integer titoloId, Pageable pageable);
     
@@ -86,15 +104,62 @@ public interface SimulazioneRepository extends JpaRepository<Simulazione, Intege
      * @param utenteId l'ID dell'utente
      * @return lista di simulazioni associate ai titoli dell'utente
      */
+    @EntityGraph(Simulazione.GRAPH_CON_TITOLO)
     @Query("SELECT s FROM Simulazione s JOIN s.titolo t WHERE t.utente.idUtente = :utenteId")
     List<Simulazione> findByUtenteId(@Param("utenteId") Integer utenteId);
     
+    /**
+     * Trova tutte le simulazioni associate ai titoli di un utente specifico,
+     * ordinate per data di scadenza del titolo crescente e poi per data di acquisto.
+     * 
+     * @param utenteId l'ID dell'utente
+     * @return lista di simulazioni associate ai titoli dell'utente, ordinate per data di scadenza crescente
+     */
+    @EntityGraph(Simulazione.GRAPH_CON_TITOLO)
+    @Query("SELECT s FROM Simulazione s JOIN s.titolo t WHERE t.utente.idUtente = :utenteId " +
+           "ORDER BY t.dataScadenza ASC, s.dataAcquisto ASC")
+    List<Simulazione> findByUtenteIdOrderByScadenzaAsc(@Param("utenteId") Integer utenteId);
+    
+    /**
+     * Trova la simulazione più recente per ogni titolo in un'unica query.
+     * 
+     * @return lista delle simulazioni più recenti per ogni titolo
+     */
+    @EntityGraph(Simulazione.GRAPH_CON_TITOLO)
+    @Query("SELECT s FROM Simulazione s WHERE " +
+           "s.dataAcquisto = (SELECT MAX(s2.dataAcquisto) FROM Simulazione s2 WHERE s2.titolo.idTitolo = s.titolo.idTitolo)")
+    List<Simulazione> findLatestForEachTitolo();
+    
+    /**
+     * Restituisce il prezzo dell'ultima simulazione per ogni titolo di un utente,
+     * selezionando solo le colonne necessarie.
+     * 
+     * @param utenteId l'ID dell'utente
+     * @return lista di proiezioni (idTitolo, prezzoAcquisto, dataAcquisto)
+     */
+    @Query("SELECT t.idTitolo AS idTitolo, s.prezzoAcquisto AS prezzoAcquisto, s.dataAcquisto AS dataAcquisto " +
+           "FROM Simulazione s JOIN s.titolo t WHERE t.utente.idUtente = :utenteId AND " +
+           "s.dataAcquisto = (SELECT MAX(s2.dataAcquisto) FROM Simulazione s2 WHERE s2.titolo.idTitolo = t.idTitolo)")
+    List<UltimoPrezzoTitoloProjection> findUltimiPrezziByUtenteId(@Param("utenteId") Integer utenteId);
+    
+    /**
+     * Restituisce il prezzo dell'ultima simulazione per ogni titolo,
+     * selezionando solo le colonne necessarie.
+     * 
+     * @return lista di proiezioni (idTitolo, prezzoAcquisto, dataAcquisto)
+     */
+    @Query("SELECT t.idTitolo AS idTitolo, s.prezzoAcquisto AS prezzoAcquisto, s.dataAcquisto AS dataAcquisto " +
+           "FROM Simulazione s JOIN s.titolo t WHERE " +
+           "s.dataAcquisto = (SELECT MAX(s2.dataAcquisto) FROM Simulazione s2 WHERE s2.titolo.idTitolo = t.idTitolo)")
+    List<UltimoPrezzoTitoloProjection> findUltimiPrezzi();
+    
     /**
      * Trova le simulazioni più recenti per ogni titolo di un utente specifico.
      * 
      * @param utenteId l'ID dell'utente
      * @return lista delle simulazioni più recenti per ogni titolo dell'utente
      */
+    @EntityGraph(Simulazione.GRAPH_CON_TITOLO)
     @Query("SELECT s FROM Simulazione s JOIN s.titolo t WHERE t.utente.idUtente = :utenteId AND " +
            "s.dataAcquisto = (SELECT MAX(s2.dataAcquisto) FROM Simulazione s2 WHERE s2.titolo.idTitolo = t.idTitolo)")
     List<Simulazione> findLatestByUtenteId(@Param("utenteId") Integer utenteId);
@@ -107,6 +172,7 @@ public interface SimulazioneRepository extends JpaRepository<Simulazione, Intege
      * @param dataOdierna la data odierna
      * @return lista delle simulazioni più recenti per ogni titolo non scaduto dell'utente
      */
+    @EntityGraph(Simulazione.GRAPH_CON_TITOLO)
     @Query("SELECT s FROM Simulazione s JOIN s.titolo t WHERE t.utente.idUtente = :utenteId AND " +
            "t.dataScadenza >= :dataOdierna AND " +
            "s.dataAcquisto = (SELECT MAX(s2.dataAcquisto) FROM Simulazione s2 WHERE s2.titolo.idTitolo = t.idTitolo)")
@@ -121,6 +187,7 @@ public interface SimulazioneRepository extends JpaRepository<Simulazione, Intege
      * @param dataOdierna la data odierna
      * @return lista delle simulazioni più recenti per ogni titolo non scaduto dell'utente, ordinate per data di scadenza crescente
      */
+    @EntityGraph(Simulazione.GRAPH_CON_TITOLO)
     @Query("SELECT s FROM Simulazione s JOIN s.titolo t WHERE t.utente.idUtente = :utenteId AND " +
            "t.dataScadenza >= :dataOdierna AND " +
            "s.dataAcquisto = (SELECT MAX(s2.dataAcquisto) FROM Simulazione s2 WHERE s2.titolo.idTitolo = t.idTitolo) " +
@@ -128,10 +195,23 @@ public interface SimulazioneRepository extends JpaRepository<Simulazione, Intege
     List<Simulazione> findLatestByUtenteIdAndNotExpiredOrderByScadenzaAsc(@Param("utenteId") Integer utenteId, @Param("dataOdierna") LocalDate dataOdierna);
     
     /**
-     * Elimina tutte le simulazioni associate a un titolo specifico tramite il suo ID.
-     * Questo metodo è più efficiente rispetto a recuperare prima le simulazioni e poi eliminarle.
+     * Restituisce l'ID dell'utente proprietario del titolo di una simulazione, senza caricare le entità.
+     * 
+     * @param idSimulazione l'ID della simulazione
+     * @return l'ID dell'utente, se la simulazione esiste
+     */
+    @Query("SELECT t.utente.idUtente FROM Simulazione s JOIN s.titolo t WHERE s.idSimulazione = :idSimulazione")
+    Optional<Integer> findUtenteIdByIdSimulazione(@Param("idSimulazione") Integer idSimulazione);
+    
+    /**
+     * Elimina tutte le simulazioni associate a un titolo specifico tramite il suo ID
+     * con un'unica istruzione DELETE, senza caricare le entità in memoria.
+     * Il contesto di persistenza viene sincronizzato prima e svuotato dopo l'esecuzione.
      * 
      * @param idTitolo l'ID del titolo per cui eliminare le simulazioni
+     * @return il numero di simulazioni eliminate
      */
-    void deleteByTitolo_IdTitolo(Integer idTitolo);
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Simulazione s WHERE s.titolo.idTitolo = :idTitolo")
+    int deleteAllByTitoloId(@Param("idTitolo") Integer idTitolo);
 }
@@ -1,9 +1,14 @@
 package com.example.rendimento.repository;
 
 import com.example.rendimento.model.Titolo;
+import com.example.rendimento.repository.projection.IsinTipoProjection;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.time.LocalDate;
+import java.util.Optional;
 
 /**
  * Repository per l'entità Titolo.
@@ -27,6 +32,59 @@ public interface TitoloRepository extends JpaRepository<Titolo, Integer> {
      * @return true se esiste, false altrimenti
      */
     boolean existsByCodiceIsin(String codiceIsin);
+
+    /**
+     * Trova i titoli con i codici ISIN specificati, con una sola query.
+     *
+     * @param codiciIsin i codici ISIN da cercare
+     * @return i titoli trovati
+     */
+    java.util.List<Titolo> findByCodiceIsinIn(java.util.Collection<String> codiciIsin);
+
+    /**
+     * Trova il primo titolo salvato con il codice ISIN specificato (lo stesso ISIN può
+     * appartenere a più utenti).
+     *
+     * @param codiceIsin il codice ISIN del titolo da cercare
+     * @return il titolo, se esiste
+     */
+    Optional<Titolo> findFirstByCodiceIsinOrderByIdTitoloAsc(String codiceIsin);
+    
+    /**
+     * Restituisce solo il codice ISIN di un titolo, senza caricare l'entità.
+     * 
+     * @param idTitolo l'ID del titolo
+     * @return il codice ISIN, se il titolo esiste
+     */
+    @Query("SELECT t.codiceIsin FROM Titolo t WHERE t.idTitolo = :idTitolo")
+    Optional<String> findCodiceIsinByIdTitolo(@Param("idTitolo") Integer idTitolo);
+    
+    /**
+     * Restituisce gli ID degli utenti proprietari dei titoli indicati, senza caricare le entità.
+     * 
+     * @param idTitoli gli ID dei titoli
+     * @return gli ID distinti degli utenti
+     */
+    @Query("SELECT DISTINCT t.utente.idUtente FROM Titolo t WHERE t.idTitolo IN :idTitoli")
+    java.util.List<Integer> findUtenteIdByIdTitoloIn(@Param("idTitoli") java.util.Collection<Integer> idTitoli);
+    
+    /**
+     * Restituisce il tipo (BTP o BOT) di ogni codice ISIN presente, senza caricare le entità.
+     * 
+     * @return una riga per ogni coppia distinta di ISIN e tipo
+     */
+    @Query("SELECT DISTINCT t.codiceIsin AS codiceIsin, t.tipoTitolo AS tipoTitolo FROM Titolo t")
+    java.util.List<IsinTipoProjection> findIsinETipo();
+    
+    /**
+     * Elimina un titolo per ID con un'unica istruzione DELETE, senza caricare l'entità.
+     * 
+     * @param idTitolo l'ID del titolo da eliminare
+     * @return il numero di righe eliminate (0 o 1)
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Titolo t WHERE t.idTitolo = :idTitolo")
+    int deleteByIdTitolo(@Param("idTitolo") Integer idTitolo);
     
     /**
      * Trova titoli per nome (ricerca parziale, case-insensitive).
@@ -0,0 +1,69 @@
+package com.example.rendimento.repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.example.rendimento.enums.RisoluzioneTrend;
+import com.example.rendimento.enums.TrendBucket;
+import com.example.rendimento.model.TrendAggregatoEntity;
+
+@Repository
+public interface TrendAggregatoRepository extends JpaRepository<TrendAggregatoEntity, Long> {
+
+    /**
+     * Trova l'aggregato di un periodo per un bucket e una risoluzione specifici.
+     */
+    Optional<TrendAggregatoEntity> findByRisoluzioneAndDataSnapshotAndBucket(
+            RisoluzioneTrend risoluzione, LocalDate dataSnapshot, TrendBucket bucket);
+
+    /**
+     * Trova l'aggregato giornaliero di un giorno per un bucket specifico.
+     */
+    default Optional<TrendAggregatoEntity> findByDataSnapshotAndBucket(LocalDate dataSnapshot, TrendBucket bucket) {
+        return findByRisoluzioneAndDataSnapshotAndBucket(RisoluzioneTrend.GIORNALIERA, dataSnapshot, bucket);
+    }
+
+    /**
+     * Trova gli aggregati di una risoluzione e di un bucket in un intervallo di date.
+     */
+    List<TrendAggregatoEntity> findByRisoluzioneAndBucketAndDataSnapshotBetween(
+            RisoluzioneTrend risoluzione, TrendBucket bucket, LocalDate dataInizio, LocalDate dataFine);
+
+    /**
+     * Trova tutti gli aggregati di una risoluzione in un intervallo di date, ordinati per data crescente.
+     */
+    List<TrendAggregatoEntity> findByRisoluzioneAndDataSnapshotBetweenOrderByDataSnapshotAsc(
+            RisoluzioneTrend risoluzione, LocalDate dataInizio, LocalDate dataFine);
+
+    /**
+     * Trova gli aggregati di una risoluzione in un intervallo di date limitati ai bucket indicati,
+     * ordinati per data crescente.
+     */
+    List<TrendAggregatoEntity> findByRisoluzioneAndDataSnapshotBetweenAndBucketInOrderByDataSnapshotAsc(
+            RisoluzioneTrend risoluzione, LocalDate dataInizio, LocalDate dataFine, Collection<TrendBucket> buckets);
+
+    /**
+     * Verifica se esiste almeno un aggregato della risoluzione indicata.
+     */
+    boolean existsByRisoluzione(RisoluzioneTrend risoluzione);
+
+    /**
+     * Cancella tutti gli aggregati di una risoluzione in un intervallo di date con un'unica istruzione DELETE.
+     *
+     * @return il numero di aggregati eliminati
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM TrendAggregatoEntity a WHERE a.risoluzione = :risoluzione " +
+           "AND a.dataSnapshot BETWEEN :dataInizio AND :dataFine")
+    int deleteAllByRisoluzioneAndDataSnapshotBetween(@Param("risoluzione") RisoluzioneTrend risoluzione,
+                                                     @Param("dataInizio") LocalDate dataInizio,
+                                                     @Param("dataFine") LocalDate dataFine);
+}
@@ -1,18 +1,25 @@
 package com.example.rendimento.repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
+
 import com.example.rendimento.model.TrendEntity;
-import com.example.rendimento.repository.projection.TrendAggregatoProjection;
+import com.example.rendimento.repository.projection.TrendPuntoProjection;
 
 @Repository
-public interface TrendRepository extends JpaRepository<TrendEntity, Long> {
+public interface TrendRepository extends JpaRepository<TrendEntity, Long>, TrendRepositoryCustom {
 
     /**
      * Trova tutti gli snapshot di un determinato titolo (ISIN)
@@ -25,6 +32,11 @@ public interface TrendRepository extends JpaRepository<TrendEntity, Long> {
      */
     List<TrendEntity> findByDataSnapshot(LocalDate dataSnapshot);
 
+    /**
+     * Trova tutti gli snapshot di un intervallo di date.
+     */
+    List<TrendEntity> findByDataSnapshotBetween(LocalDate startDate, LocalDate endDate);
+
     /**
      * Trova tutti gli snapshot di un titolo in un intervallo di date.
      */
@@ -34,10 +46,60 @@ public interface TrendRepository extends JpaRepository<TrendEntity, Long> {
             LocalDate endDate);
 
     /**
-     * Cancella tutti gli snapshot precedenti a una certa data
-     * (utile per pulizia o aggiornamenti).
+     * Restituisce tutti gli snapshot con le sole colonne necessarie allo store in memoria,
+     * ordinati per ISIN e data.
      */
-    void deleteByDataSnapshotBefore(LocalDate date);
+    @Query("SELECT t.isin AS isin, t.dataSnapshot AS dataSnapshot, t.dataScadenza AS dataScadenza, " +
+           "t.rendimentoAnnuo AS rendimentoAnnuo, t.prezzo AS prezzo " +
+           "FROM TrendEntity t ORDER BY t.isin, t.dataSnapshot")
+    List<TrendPuntoProjection> findAllPunti();
+
+    /**
+     * Restituisce gli snapshot di più titoli in un intervallo di date con un'unica query,
+     * ordinati per ISIN e data.
+     */
+    @Query("SELECT t.isin AS isin, t.dataSnapshot AS dataSnapshot, t.dataScadenza AS dataScadenza, " +
+           "t.rendimentoAnnuo AS rendimentoAnnuo, t.prezzo AS prezzo " +
+           "FROM TrendEntity t WHERE t.isin IN :isin AND t.dataSnapshot BETWEEN :dataInizio AND :dataFine " +
+           "ORDER BY t.isin, t.dataSnapshot")
+    List<TrendPuntoProjection> findPuntiByIsinInAndDataSnapshotBetween(
+            @Param("isin") Collection<String> isin,
+            @Param("dataInizio") LocalDate dataInizio,
+            @Param("dataFine") LocalDate dataFine);
+
+    /**
+     * Scorre gli snapshot di un intervallo di date ordinati per ISIN e data, leggendoli dal database
+     * a blocchi: da usare in una transazione e chiudere al termine.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT t.isin AS isin, t.dataSnapshot AS dataSnapshot, t.dataScadenza AS dataScadenza, " +
+           "t.rendimentoAnnuo AS rendimentoAnnuo, t.prezzo AS prezzo " +
+           "FROM TrendEntity t WHERE t.dataSnapshot BETWEEN :dataInizio AND :dataFine " +
+           "ORDER BY t.isin, t.dataSnapshot")
+    Stream<TrendPuntoProjection> streamPuntiByDataSnapshotBetween(
+            @Param("dataInizio") LocalDate dataInizio,
+            @Param("dataFine") LocalDate dataFine);
+
+    /**
+     * Restituisce la data del primo snapshot presente (null se la tabella è vuota).
+     */
+    @Query("SELECT MIN(t.dataSnapshot) FROM TrendEntity t")
+    LocalDate findMinDataSnapshot();
+
+    /**
+     * Restituisce la data dell'ultimo snapshot presente (null se la tabella è vuota).
+     */
+    @Query("SELECT MAX(t.dataSnapshot) FROM TrendEntity t")
+    LocalDate findMaxDataSnapshot();
+
+    /**
+     * Cancella tutti gli snapshot di un titolo (ISIN) con un'unica istruzione DELETE.
+     *
+     * @return il numero di snapshot eliminati
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM TrendEntity t WHERE t.isin = :isin")
+    int deleteAllByIsin(@Param("isin") String isin);
     
     /**
      * Trova un trend specifico per ISIN e data snapshot.
@@ -45,21 +107,10 @@ public interface TrendRepository extends JpaRepository<TrendEntity, Long> {
      */
     java.util.Optional<TrendEntity> findByIsinAndDataSnapshot(String isin, LocalDate dataSnapshot);
 
-  @Query("""
-        SELECT
-            t.dataSnapshot as dataSnapshot,
-            t.anniAllaScadenza as anniAllaScadenza,
-            AVG(t.rendimentoAnnuo) as rendimentoMedio,
-            MIN(t.rendimentoAnnuo) as rendimentoMinimo,
-            MAX(t.rendimentoAnnuo) as rendimentoMassimo,
-            COUNT(t) as numeroTitoli
-        FROM TrendEntity t
-        WHERE t.dataSnapshot BETWEEN :dataInizio AND :dataFine
-        GROUP BY t.dataSnapshot, t.anniAllaScadenza
-    """)
-    List<TrendAggregatoProjection> findTrendAggregati(
-        @Param("dataInizio") LocalDate dataInizio,
-        @Param("dataFine") LocalDate dataFine
-    );
+    /**
+     * Trova il trend più recente di un ISIN, usato come ultimo prezzo noto quando la fonte esterna
+     * non è raggiungibile.
+     */
+    java.util.Optional<TrendEntity> findFirstByIsinOrderByDataSnapshotDesc(String isin);
 
 }
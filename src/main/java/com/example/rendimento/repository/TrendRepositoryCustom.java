@@ -0,0 +1,28 @@
+package com.example.rendimento.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import com.example.rendimento.enums.TrendBucket;
+import com.example.rendimento.model.TrendAggregatoEntity;
+
+/**
+ * Query personalizzate sulla tabella trends non esprimibili come query derivate.
+ */
+public interface TrendRepositoryCustom {
+
+    /**
+     * Calcola le statistiche dei rendimenti raggruppate per (giorno, bucket) direttamente nel database.
+     * Il bucket è assegnato con una CASE costruita dagli intervalli di {@link TrendBucket}:
+     * il database restituisce esattamente una riga per giorno e bucket, e gli snapshot
+     * con scadenze che non ricadono in alcun bucket sono esclusi.
+     * Ogni aggregato contiene anche l'istogramma dei rendimenti a classi di un punto base,
+     * calcolato dal database con un raggruppamento aggiuntivo per classe.
+     *
+     * @param dataInizio la data di inizio dell'intervallo (inclusa)
+     * @param dataFine la data di fine dell'intervallo (inclusa)
+     * @param bucket il bucket da calcolare, o null per tutti i bucket
+     * @return gli aggregati calcolati (entità non ancora salvate)
+     */
+    List<TrendAggregatoEntity> calcolaAggregatiPerBucket(LocalDate dataInizio, LocalDate dataFine, TrendBucket bucket);
+}
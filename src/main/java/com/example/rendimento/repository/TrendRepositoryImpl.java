@@ -0,0 +1,127 @@
+package com.example.rendimento.repository;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.example.rendimento.enums.TrendBucket;
+import com.example.rendimento.model.TrendAggregatoEntity;
+import com.example.rendimento.utility.IstogrammaRendimenti;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+/**
+ * Implementazione delle query personalizzate di {@link TrendRepository}.
+ */
+public class TrendRepositoryImpl implements TrendRepositoryCustom {
+
+    /**
+     * Espressione CASE che assegna il bucket agli anni alla scadenza.
+     * I limiti sono costanti dell'enum e vengono scritti come letterali: usare parametri
+     * impedirebbe al database di riconoscere la stessa espressione nella SELECT e nella GROUP BY.
+     */
+    private static final String CASE_BUCKET = costruisciCaseBucket();
+
+    /**
+     * Classe dell'istogramma (punti base) di un rendimento, scritta come letterale per lo stesso motivo.
+     */
+    private static final String CLASSE_RENDIMENTO = "ROUND(t.rendimentoAnnuo * "
+            + Math.round(1 / IstogrammaRendimenti.PUNTO_BASE) + ", 0)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<TrendAggregatoEntity> calcolaAggregatiPerBucket(LocalDate dataInizio, LocalDate dataFine, TrendBucket bucket) {
+        String filtroBucket = bucket != null
+                ? " AND " + condizione(bucket)
+                : " AND " + CASE_BUCKET + " IS NOT NULL";
+
+        String jpql = "SELECT t.dataSnapshot, " + CASE_BUCKET + ", "
+                + "AVG(t.rendimentoAnnuo), MIN(t.rendimentoAnnuo), MAX(t.rendimentoAnnuo), COUNT(t) "
+                + "FROM TrendEntity t "
+                + "WHERE t.dataSnapshot BETWEEN :dataInizio AND :dataFine" + filtroBucket + " "
+                + "GROUP BY t.dataSnapshot, " + CASE_BUCKET + " "
+                + "ORDER BY t.dataSnapshot";
+
+        TypedQuery<Object[]> query = entityManager.createQuery(jpql, Object[].class);
+        query.setParameter("dataInizio", dataInizio);
+        query.setParameter("dataFine", dataFine);
+
+        Map<String, IstogrammaRendimenti> istogrammi = calcolaIstogrammi(dataInizio, dataFine, filtroBucket);
+
+        List<TrendAggregatoEntity> aggregati = new ArrayList<>();
+        for (Object[] riga : query.getResultList()) {
+            TrendAggregatoEntity aggregato = new TrendAggregatoEntity();
+            aggregato.setDataSnapshot((LocalDate) riga[0]);
+            aggregato.setBucket(TrendBucket.valueOf((String) riga[1]));
+            aggregato.setRendimentoMedio(toBigDecimal(riga[2]));
+            aggregato.setRendimentoMinimo(toBigDecimal(riga[3]));
+            aggregato.setRendimentoMassimo(toBigDecimal(riga[4]));
+            aggregato.setNumeroTitoli(((Number) riga[5]).intValue());
+            IstogrammaRendimenti istogramma = istogrammi.get(chiave(aggregato.getDataSnapshot(), (String) riga[1]));
+            aggregato.setIstogramma(istogramma != null ? istogramma.serializza() : null);
+            aggregati.add(aggregato);
+        }
+        return aggregati;
+    }
+
+    /**
+     * Conta gli snapshot per (giorno, bucket, classe di rendimento): il database restituisce
+     * una riga per ogni classe osservata, non una per snapshot.
+     */
+    private Map<String, IstogrammaRendimenti> calcolaIstogrammi(LocalDate dataInizio, LocalDate dataFine, String filtroBucket) {
+        String jpql = "SELECT t.dataSnapshot, " + CASE_BUCKET + ", " + CLASSE_RENDIMENTO + ", COUNT(t) "
+                + "FROM TrendEntity t "
+                + "WHERE t.dataSnapshot BETWEEN :dataInizio AND :dataFine" + filtroBucket + " "
+                + "GROUP BY t.dataSnapshot, " + CASE_BUCKET + ", " + CLASSE_RENDIMENTO;
+
+        TypedQuery<Object[]> query = entityManager.createQuery(jpql, Object[].class);
+        query.setParameter("dataInizio", dataInizio);
+        query.setParameter("dataFine", dataFine);
+
+        Map<String, IstogrammaRendimenti> istogrammi = new HashMap<>();
+        for (Object[] riga : query.getResultList()) {
+            if (riga[2] == null) {
+                continue;
+            }
+            istogrammi.computeIfAbsent(chiave((LocalDate) riga[0], (String) riga[1]), k -> new IstogrammaRendimenti())
+                    .aggiungiClasse(((Number) riga[2]).intValue(), ((Number) riga[3]).longValue());
+        }
+        return istogrammi;
+    }
+
+    private static String chiave(LocalDate dataSnapshot, String bucket) {
+        return dataSnapshot + "|" + bucket;
+    }
+
+    private static String costruisciCaseBucket() {
+        StringBuilder sb = new StringBuilder("(CASE");
+        for (TrendBucket bucket : TrendBucket.values()) {
+            sb.append(" WHEN ").append(condizione(bucket)).append(" THEN '").append(bucket.name()).append("'");
+        }
+        return sb.append(" ELSE NULL END)").toString();
+    }
+
+    private static String condizione(TrendBucket bucket) {
+        String condizione = "t.anniAllaScadenza >= " + BigDecimal.valueOf(bucket.getMinYears()).toPlainString();
+        if (bucket.getMaxYears() != null) {
+            condizione += " AND t.anniAllaScadenza < " + BigDecimal.valueOf(bucket.getMaxYears()).toPlainString();
+        }
+        return "(" + condizione + ")";
+    }
+
+    private static BigDecimal toBigDecimal(Object valore) {
+        if (valore == null) {
+            return null;
+        }
+        BigDecimal numero = valore instanceof BigDecimal bd ? bd : new BigDecimal(valore.toString());
+        return numero.setScale(6, RoundingMode.HALF_UP);
+    }
+}
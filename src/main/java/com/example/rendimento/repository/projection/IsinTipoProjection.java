@@ -0,0 +1,11 @@
+package com.example.rendimento.repository.projection;
+
+import com.example.rendimento.enums.TipoTitolo;
+
+/**
+ * Proiezione con il codice ISIN e il tipo di un titolo.
+ */
+public interface IsinTipoProjection {
+    String getCodiceIsin();
+    TipoTitolo getTipoTitolo();
+}
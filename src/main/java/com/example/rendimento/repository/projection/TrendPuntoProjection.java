@@ -0,0 +1,15 @@
+package com.example.rendimento.repository.projection;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Proiezione con le sole colonne dei trend necessarie a popolare lo store in memoria.
+ */
+public interface TrendPuntoProjection {
+    String getIsin();
+    LocalDate getDataSnapshot();
+    LocalDate getDataScadenza();
+    BigDecimal getRendimentoAnnuo();
+    BigDecimal getPrezzo();
+}
@@ -0,0 +1,14 @@
+package com.example.rendimento.repository.projection;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Proiezione con il prezzo dell'ultima simulazione di un titolo.
+ * Contiene solo le colonne necessarie a valorizzare il corso nelle liste dei titoli.
+ */
+public interface UltimoPrezzoTitoloProjection {
+    Integer getIdTitolo();
+    BigDecimal getPrezzoAcquisto();
+    LocalDate getDataAcquisto();
+}
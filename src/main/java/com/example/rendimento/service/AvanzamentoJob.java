@@ -0,0 +1,27 @@
+package com.example.rendimento.service;
+
+/**
+ * Avanzamento di un job in esecuzione, aggiornato dal lavoro man mano che elabora i suoi elementi.
+ */
+public interface AvanzamentoJob {
+
+    /**
+     * Imposta il numero di elementi da elaborare.
+     */
+    void setTotale(int totale);
+
+    /**
+     * Registra un elemento elaborato con successo.
+     *
+     * @param chiave l'identificativo dell'elemento (es. l'ISIN)
+     */
+    void completato(String chiave);
+
+    /**
+     * Registra un elemento non elaborato.
+     *
+     * @param chiave l'identificativo dell'elemento (es. l'ISIN)
+     * @param messaggio il motivo dell'errore
+     */
+    void fallito(String chiave, String messaggio);
+}
@@ -0,0 +1,25 @@
+package com.example.rendimento.service;
+
+import java.util.List;
+
+import com.example.rendimento.dto.SimulazioneDTO;
+
+/**
+ * Servizio per il calcolo massivo dei rendimenti dei titoli di un utente,
+ * eseguito come job in background.
+ */
+public interface CalcoloRendimentiService {
+
+    /**
+     * Per ogni titolo non scaduto dell'utente recupera il prezzo corrente da Borsa Italiana,
+     * calcola e salva la simulazione e salva il trend del giorno.
+     * Un titolo senza prezzo o con errori viene registrato come fallito e non interrompe gli altri.
+     * Con più istanze dell'applicazione il calcolo di un utente è eseguito da un solo nodo alla volta.
+     *
+     * @param utenteId l'ID dell'utente proprietario dei titoli
+     * @param avanzamento l'avanzamento del job, aggiornato per ogni titolo
+     * @return le simulazioni salvate
+     * @throws com.example.rendimento.exception.JobInEsecuzioneException se il calcolo è già in corso su un altro nodo
+     */
+    List<SimulazioneDTO> calcolaRendimentiTitoliUtente(Integer utenteId, AvanzamentoJob avanzamento);
+}
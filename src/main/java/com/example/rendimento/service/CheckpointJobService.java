@@ -0,0 +1,40 @@
+package com.example.rendimento.service;
+
+import com.example.rendimento.dto.EsecuzioneJobDTO;
+
+/**
+ * Servizio per i job batch ripristinabili: l'esito di ogni elemento (es. un ISIN) è salvato
+ * nel database, così un job interrotto e riavviato riprende dagli elementi non ancora completati.
+ * Gli elementi devono essere unità di lavoro idempotenti, che si possono ripetere senza effetti doppi.
+ */
+public interface CheckpointJobService {
+
+    /**
+     * Avvia una nuova esecuzione del job oppure riprende quella rimasta in corso (il nodo che la
+     * eseguiva si è fermato), se avviata entro il periodo di ripresa configurato. Un'esecuzione
+     * conclusa, completata o fallita, non viene ripresa: il job riparte da capo.
+     * <p>
+     * Va chiamato possedendo il lease del job (vedi {@link CoordinatoreJobService#eseguiInEsclusiva}),
+     * così un'esecuzione in corso trovata è davvero interrotta e non ancora attiva su un altro nodo.
+     *
+     * @param nome il nome del job (es. recupera-dati:MONDAY)
+     * @param totale il numero di elementi da elaborare
+     * @return l'esecuzione, con gli elementi già completati se ripresa
+     */
+    EsecuzioneJobDTO avviaORiprendi(String nome, int totale);
+
+    /**
+     * Restituisce un avanzamento che, oltre ad aggiornare quello indicato, registra il checkpoint
+     * di ogni elemento completato o fallito dell'esecuzione.
+     */
+    AvanzamentoJob conCheckpoint(EsecuzioneJobDTO esecuzione, AvanzamentoJob avanzamento);
+
+    /**
+     * Chiude l'esecuzione se tutti gli elementi hanno un esito: completata se non ci sono
+     * elementi falliti, fallita altrimenti. Con elementi ancora da elaborare (ad esempio su
+     * un altro nodo) l'esecuzione resta in corso.
+     *
+     * @return l'esecuzione aggiornata
+     */
+    EsecuzioneJobDTO concludi(EsecuzioneJobDTO esecuzione);
+}
@@ -0,0 +1,35 @@
+package com.example.rendimento.service;
+
+import java.io.IOException;
+
+import com.example.rendimento.enums.FonteEsterna;
+
+/**
+ * Esegue le chiamate ai servizi esterni isolate per fonte: ogni fonte ha un esecutore con un
+ * numero limitato di chiamate contemporanee e in attesa, così un servizio lento rallenta solo
+ * le funzionalità che lo usano e non occupa le risorse delle altre richieste.
+ */
+public interface ChiamateEsterneService {
+
+    /**
+     * Una chiamata a un servizio esterno, che può fallire con un errore di I/O.
+     */
+    @FunctionalInterface
+    interface ChiamataEsterna<T> {
+        T esegui() throws IOException;
+    }
+
+    /**
+     * Esegue la chiamata sull'esecutore della fonte e ne attende il risultato fino alla scadenza
+     * configurata, compresa l'eventuale attesa del proprio turno. Scaduto il tempo la chiamata
+     * viene interrotta.
+     *
+     * @param fonte il servizio esterno chiamato
+     * @param chiamata la chiamata da eseguire
+     * @return il risultato della chiamata
+     * @throws IOException l'errore di I/O della chiamata
+     * @throws com.example.rendimento.exception.ServizioEsternoNonDisponibileException se la fonte ha
+     *         già troppe chiamate in attesa o la chiamata non termina entro la scadenza
+     */
+    <T> T esegui(FonteEsterna fonte, ChiamataEsterna<T> chiamata) throws IOException;
+}
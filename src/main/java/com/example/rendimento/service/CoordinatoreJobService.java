@@ -0,0 +1,45 @@
+package com.example.rendimento.service;
+
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Coordina l'esecuzione dei job batch tra più istanze dell'applicazione tramite la tabella
+ * job_lease, così che lo stesso job non sia eseguito due volte in parallelo su nodi diversi.
+ */
+public interface CoordinatoreJobService {
+
+    /**
+     * Esegue il lavoro se nessun altro nodo sta eseguendo lo stesso job; il lease del job
+     * è mantenuto per tutta la durata del lavoro e rilasciato al termine, anche in caso di errore.
+     *
+     * @param job il nome del job (es. calcolo-rendimenti:5)
+     * @param lavoro il lavoro da eseguire
+     * @return il risultato del lavoro
+     * @throws com.example.rendimento.exception.JobInEsecuzioneException se il job è in esecuzione su un altro nodo
+     */
+    <T> T eseguiInEsclusiva(String job, Supplier<T> lavoro);
+
+    /**
+     * Esegue un job diviso in partizioni. Il nodo elabora una alla volta le partizioni non ancora
+     * prese da altri nodi: se lo stesso job è avviato su più nodi, le partizioni si distribuiscono
+     * tra loro e nessuna viene elaborata due volte nella stessa esecuzione; se è avviato su un
+     * solo nodo, questo le elabora tutte. Un nodo che si unisce a un'esecuzione in corso salta
+     * le partizioni già completate dall'inizio di quell'esecuzione.
+     *
+     * @param job il nome del job (es. recupera-dati:MONDAY)
+     * @param partizioni il numero di partizioni (vedi {@link #partizione(String, int)})
+     * @param lavoro il lavoro di una partizione, dato il suo indice
+     * @return i risultati delle partizioni elaborate da questo nodo
+     */
+    <T> List<T> eseguiPartizionato(String job, int partizioni, IntFunction<T> lavoro);
+
+    /**
+     * Restituisce la partizione di una chiave (es. l'ISIN): la stessa chiave cade sempre nella stessa
+     * partizione, quindi tutte le righe di un ISIN sono scritte da un solo nodo.
+     */
+    static int partizione(String chiave, int partizioni) {
+        return Math.floorMod(chiave.hashCode(), partizioni);
+    }
+}
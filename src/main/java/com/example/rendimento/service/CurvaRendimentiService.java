@@ -0,0 +1,45 @@
+package com.example.rendimento.service;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import com.example.rendimento.dto.CurvaRendimentiDTO;
+import com.example.rendimento.dto.ResiduoCurvaDTO;
+
+/**
+ * Servizio per la costruzione della curva dei rendimenti giornaliera (modello di Nelson-Siegel)
+ * a partire dagli snapshot dei titoli. I parametri adattati sono conservati in cache per giorno
+ * e ricalcolati solo quando i dati del giorno cambiano.
+ */
+public interface CurvaRendimentiService {
+
+    /**
+     * Restituisce la curva del giorno con i rendimenti interpolati per le scadenze indicate.
+     *
+     * @param data il giorno dello snapshot
+     * @param scadenze gli anni alla scadenza da interpolare; se vuota usa la griglia predefinita
+     * @return la curva del giorno
+     * @throws jakarta.persistence.EntityNotFoundException se il giorno non ha abbastanza titoli per la curva
+     */
+    CurvaRendimentiDTO getCurva(LocalDate data, List<Double> scadenze);
+
+    /**
+     * Restituisce lo scostamento dalla curva del giorno di ogni titolo.
+     *
+     * @param data il giorno dello snapshot
+     * @return i residui ordinati dal più economico (residuo più alto) al più caro
+     * @throws jakarta.persistence.EntityNotFoundException se il giorno non ha abbastanza titoli per la curva
+     */
+    List<ResiduoCurvaDTO> getResidui(LocalDate data);
+
+    /**
+     * Restituisce i parametri delle curve dei giorni dell'intervallo, adattate in parallelo.
+     * I giorni senza abbastanza titoli sono omessi.
+     *
+     * @param dataInizio la data di inizio dell'intervallo
+     * @param dataFine la data di fine dell'intervallo
+     * @return una curva per giorno, ordinate per data crescente
+     * @throws IllegalArgumentException se dataInizio è successiva a dataFine
+     */
+    List<CurvaRendimentiDTO> getCurve(LocalDate dataInizio, LocalDate dataFine);
+}
@@ -0,0 +1,27 @@
+package com.example.rendimento.service;
+
+import java.util.List;
+
+import com.example.rendimento.dto.ImportazioneTitoliDTO;
+import com.example.rendimento.dto.TitoloImportDTO;
+
+/**
+ * Servizio per l'importazione di più titoli da Borsa Italiana in un'unica operazione.
+ */
+public interface ImportazioneTitoliService {
+
+    /**
+     * Importa i titoli indicati per l'utente. Gli ISIN ripetuti sono importati una volta sola,
+     * le pagine di Borsa Italiana sono scaricate in parallelo e i titoli sono salvati in un'unica
+     * transazione: quelli già presenti dell'utente sono aggiornati, quelli di altri utenti non
+     * sono modificati.
+     * <p>
+     * Un ISIN non valido, non trovato o di un altro utente non interrompe gli altri: il suo esito
+     * è riportato nella risposta.
+     *
+     * @param titoliImport codice ISIN e tipo dei titoli da importare
+     * @param utenteId l'ID dell'utente proprietario dei titoli
+     * @return i titoli salvati e l'esito di ogni ISIN
+     */
+    ImportazioneTitoliDTO importaTitoli(List<TitoloImportDTO> titoliImport, Integer utenteId);
+}
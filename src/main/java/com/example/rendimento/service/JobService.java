@@ -0,0 +1,60 @@
+package com.example.rendimento.service;
+
+import java.util.List;
+import java.util.function.Function;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.example.rendimento.dto.JobDTO;
+
+/**
+ * Servizio per eseguire in background le elaborazioni lunghe, senza occupare il thread della richiesta.
+ * <p>
+ * L'invio restituisce subito il job; il client ne segue l'avanzamento interrogando
+ * {@link #getJob} o iscrivendosi con {@link #iscrivi}, e legge il risultato a job completato.
+ * I job sono visibili solo all'utente che li ha avviati e sono conservati per un periodo
+ * limitato dopo il termine.
+ */
+public interface JobService {
+
+    /**
+     * Job che calcola e salva le simulazioni di tutti i titoli non scaduti di un utente.
+     */
+    String TIPO_CALCOLO_RENDIMENTI = "calcolo-rendimenti";
+
+    /**
+     * Evento inviato agli iscritti a ogni aggiornamento dell'avanzamento ({@link JobDTO}).
+     */
+    String EVENTO_AVANZAMENTO = "avanzamento";
+
+    /**
+     * Accoda un job. Se l'utente ha già un job dello stesso tipo non terminato, restituisce quello.
+     *
+     * @param tipo il tipo di job
+     * @param utenteId l'utente che avvia il job
+     * @param lavoro il lavoro da eseguire, che riceve l'avanzamento e restituisce il risultato
+     * @return il job accodato
+     * @throws java.util.concurrent.RejectedExecutionException se la coda dei job è piena
+     */
+    JobDTO avvia(String tipo, Integer utenteId, Function<AvanzamentoJob, ?> lavoro);
+
+    /**
+     * Restituisce lo stato di un job dell'utente.
+     *
+     * @throws jakarta.persistence.EntityNotFoundException se il job non esiste o è di un altro utente
+     */
+    JobDTO getJob(String id, Integer utenteId);
+
+    /**
+     * Restituisce i job dell'utente, dal più recente, senza i risultati.
+     */
+    List<JobDTO> getJobUtente(Integer utenteId);
+
+    /**
+     * Iscrive un client agli aggiornamenti di un job dell'utente: riceve subito lo stato corrente,
+     * poi un evento {@value #EVENTO_AVANZAMENTO} a ogni aggiornamento; lo stream si chiude al termine del job.
+     *
+     * @throws jakarta.persistence.EntityNotFoundException se il job non esiste o è di un altro utente
+     */
+    SseEmitter iscrivi(String id, Integer utenteId);
+}
@@ -0,0 +1,41 @@
+package com.example.rendimento.service;
+
+import java.time.DayOfWeek;
+import java.util.List;
+
+import com.example.rendimento.dto.SimulazioneDTO;
+import com.example.rendimento.model.Titolo;
+
+/**
+ * Servizio per il recupero dei prezzi storici dei titoli e il salvataggio delle relative
+ * simulazioni e trend.
+ */
+public interface RecuperoDatiService {
+
+    /**
+     * Per ogni titolo recupera i prezzi storici degli ultimi 3 mesi nel giorno della settimana
+     * indicato e, per ogni prezzo, calcola e salva la simulazione e il trend della data.
+     * <p>
+     * Recupero dei prezzi, calcolo e scrittura procedono in parallelo su titoli diversi:
+     * un titolo senza prezzi storici o con errori viene registrato come fallito e non interrompe gli altri.
+     *
+     * @param titoli i titoli da elaborare
+     * @param giorno il giorno della settimana dei prezzi
+     * @param avanzamento l'avanzamento, aggiornato per ogni titolo terminato (chiave: ISIN)
+     * @return le simulazioni salvate
+     */
+    List<SimulazioneDTO> recuperaDati(List<Titolo> titoli, DayOfWeek giorno, AvanzamentoJob avanzamento);
+
+    /**
+     * Recupera i dati di tutti i BTP non scaduti di tutti gli utenti. Gli ISIN sono divisi in partizioni:
+     * se lo stesso giorno è avviato su più nodi, ogni nodo elabora solo le partizioni non prese dagli altri
+     * (vedi {@link CoordinatoreJobService#eseguiPartizionato}). L'esito di ogni ISIN è salvato come checkpoint:
+     * se un'esecuzione si interrompe, la successiva riprende dagli ISIN non ancora completati
+     * (vedi {@link CheckpointJobService}).
+     *
+     * @param giorno il giorno della settimana dei prezzi
+     * @param avanzamento l'avanzamento, aggiornato per ogni titolo terminato (chiave: ISIN)
+     * @return le simulazioni salvate da questo nodo
+     */
+    List<SimulazioneDTO> recuperaDatiBtp(DayOfWeek giorno, AvanzamentoJob avanzamento);
+}
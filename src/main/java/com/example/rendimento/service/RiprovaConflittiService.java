@@ -0,0 +1,28 @@
+package com.example.rendimento.service;
+
+import java.util.function.Supplier;
+
+/**
+ * Scritture dei job batch con nuovi tentativi sui conflitti di concorrenza ottimistica:
+ * quando un altro job o utente ha modificato o inserito la stessa riga, la scrittura è ripetuta
+ * dopo un'attesa casuale crescente invece di essere scartata.
+ */
+public interface RiprovaConflittiService {
+
+    /**
+     * Esegue la scrittura ripetendola se fallisce per un conflitto di versione
+     * ({@link org.springframework.dao.OptimisticLockingFailureException} o
+     * {@link com.example.rendimento.exception.ConflittoModificaException}) o per una chiave
+     * duplicata, inserita nel frattempo da un'altra scrittura; gli altri errori sono rilanciati subito.
+     * <p>
+     * Ogni tentativo deve essere una transazione completa che rilegge la riga: la scrittura
+     * non va quindi eseguita dentro una transazione del chiamante, dove rileggerebbe la versione
+     * già superata.
+     *
+     * @param operazione il nome dell'operazione, usato nelle metriche (es. recupera-dati)
+     * @param scrittura la scrittura da eseguire
+     * @return il risultato della scrittura
+     * @throws RuntimeException l'ultimo conflitto, se persiste dopo tutti i tentativi
+     */
+    <T> T eseguiConRiprova(String operazione, Supplier<T> scrittura);
+}
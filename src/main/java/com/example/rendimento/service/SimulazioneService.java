@@ -47,6 +47,25 @@ public interface SimulazioneService {
      */
     SimulazioneDTO salvaSimulazione(SimulazioneDTO simulazioneDTO);
     
+    /**
+     * Salva una simulazione nel database associandola a un titolo già caricato dal chiamante,
+     * evitando di rileggere il titolo dal database.
+     * 
+     * @param simulazioneDTO il DTO contenente i dati della simulazione
+     * @param titolo il titolo già caricato a cui si riferisce la simulazione
+     * @return il DTO della simulazione salvata con ID aggiornato
+     */
+    SimulazioneDTO salvaSimulazione(SimulazioneDTO simulazioneDTO, Titolo titolo);
+    
+    /**
+     * Salva più simulazioni in un'unica transazione.
+     * I titoli vengono risolti come riferimenti lazy, senza una SELECT per ogni simulazione.
+     * 
+     * @param simulazioniDTO la lista dei DTO da salvare
+     * @return la lista dei DTO delle simulazioni salvate con ID aggiornato
+     */
+    List<SimulazioneDTO> salvaSimulazioni(List<SimulazioneDTO> simulazioniDTO);
+    
     /**
      * Calcola il rendimento e salva la simulazione in un'unica operazione.
      * Il metodo utilizza calcolaRendimentoAdvanced che calcola sia il bollo mensile che annuale
@@ -178,4 +197,17 @@ public interface SimulazioneService {
      * @return la simulazione aggiornata e salvata
      */
     SimulazioneDTO aggiornaSimulazione(SimulazioneDTO simulazioneEsistente, Titolo titolo, BigDecimal prezzo, BigDecimal importo, LocalDate dataPrezzo);
+
+    /**
+     * Salva la simulazione del titolo per la data del prezzo a partire da un risultato già calcolato
+     * con calcolaRendimentoAdvanced sull'importo fisso di simulazione, senza ripetere il calcolo.
+     * Se nella stessa data esiste già una simulazione viene aggiornata, altrimenti ne viene creata una nuova.
+     *
+     * @param titolo     il titolo della simulazione
+     * @param prezzo     il prezzo usato per il calcolo
+     * @param dataPrezzo la data del prezzo
+     * @param risultato  il risultato di calcolaRendimentoAdvanced
+     * @return la simulazione salvata
+     */
+    SimulazioneDTO salvaSimulazioneCalcolata(Titolo titolo, BigDecimal prezzo, LocalDate dataPrezzo, RisultatoRendimentoAdvancedDTO risultato);
 }
@@ -0,0 +1,55 @@
+package com.example.rendimento.service;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import com.example.rendimento.dto.SpreadCoppiaDTO;
+import com.example.rendimento.dto.SpreadSerieDTO;
+import com.example.rendimento.enums.RisoluzioneTrend;
+
+/**
+ * Servizio per il calcolo degli spread di rendimento tra titoli e tra i segmenti BTP e BOT
+ * a partire dalle serie storiche dei trend. Gli spread sono nella stessa scala dei rendimenti
+ * (0.0025 = 25 punti base).
+ */
+public interface SpreadService {
+
+    /**
+     * Restituisce lo spread tra due titoli (rendimento del primo meno quello del secondo)
+     * nei giorni in cui entrambi hanno uno snapshot.
+     *
+     * @param isinPrimo il codice ISIN del primo titolo
+     * @param isinSecondo il codice ISIN del secondo titolo
+     * @param dataInizio la data di inizio dell'intervallo
+     * @param dataFine la data di fine dell'intervallo
+     * @param risoluzione la risoluzione della serie (i periodi hanno la media dei giorni)
+     * @return la serie dello spread
+     * @throws IllegalArgumentException se le date non sono in ordine o i due ISIN coincidono
+     * @throws jakarta.persistence.EntityNotFoundException se uno dei titoli non ha trend nell'intervallo
+     */
+    SpreadSerieDTO getSpread(String isinPrimo, String isinSecondo, LocalDate dataInizio, LocalDate dataFine,
+                             RisoluzioneTrend risoluzione);
+
+    /**
+     * Restituisce lo spread tra il rendimento medio giornaliero dei BTP e quello dei BOT.
+     *
+     * @param dataInizio la data di inizio dell'intervallo
+     * @param dataFine la data di fine dell'intervallo
+     * @param risoluzione la risoluzione della serie
+     * @return la serie dello spread BTP - BOT
+     * @throws IllegalArgumentException se le date non sono in ordine
+     */
+    SpreadSerieDTO getSpreadSegmenti(LocalDate dataInizio, LocalDate dataFine, RisoluzioneTrend risoluzione);
+
+    /**
+     * Restituisce le statistiche dello spread per ogni coppia di titoli dell'utente.
+     * Le serie dei titoli sono lette una sola volta, senza query per coppia.
+     *
+     * @param utenteId l'ID dell'utente
+     * @param dataInizio la data di inizio dell'intervallo
+     * @param dataFine la data di fine dell'intervallo
+     * @return una riga per coppia, ordinate per ISIN
+     * @throws IllegalArgumentException se le date non sono in ordine
+     */
+    List<SpreadCoppiaDTO> getSpreadTitoliUtente(Integer utenteId, LocalDate dataInizio, LocalDate dataFine);
+}
@@ -37,13 +37,23 @@ public interface TitoloService {
     List<TitoloDTO> getAllTitoli();
     
     /**
-     * Salva un nuovo titolo.
+     * Salva un nuovo titolo, aggiornandone prima i dati da Borsa Italiana.
      * 
      * @param titoloDTO il DTO contenente i dati del titolo
      * @return il DTO del titolo salvato con ID aggiornato
      */
     TitoloDTO saveTitolo(TitoloDTO titoloDTO);
     
+    /**
+     * Salva un nuovo titolo.
+     * 
+     * @param titoloDTO il DTO contenente i dati del titolo
+     * @param aggiornaDaBorsaItaliana false se i dati sono appena stati letti da Borsa Italiana
+     *        e non vanno scaricati di nuovo
+     * @return il DTO del titolo salvato con ID aggiornato
+     */
+    TitoloDTO saveTitolo(TitoloDTO titoloDTO, boolean aggiornaDaBorsaItaliana);
+    
     /**
      * Trova un titolo per codice ISIN.
      * 
@@ -61,9 +71,10 @@ public interface TitoloService {
     boolean existsByCodiceIsin(String codiceIsin);
     
     /**
-     * Elimina un titolo per ID.
+     * Elimina un titolo per ID insieme alle sue simulazioni e ai trend del suo ISIN.
      * 
      * @param id l'ID del titolo da eliminare
+     * @throws jakarta.persistence.EntityNotFoundException se il titolo non esiste
      */
     void deleteTitolo(Integer id);
     
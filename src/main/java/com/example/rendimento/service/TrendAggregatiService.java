@@ -0,0 +1,50 @@
+package com.example.rendimento.service;
+
+import java.time.LocalDate;
+
+import com.example.rendimento.enums.TrendBucket;
+
+/**
+ * Interfaccia per il servizio che mantiene la tabella trend_aggregati,
+ * con le statistiche dei rendimenti pre-aggregate per giorno e bucket di scadenza
+ * e i relativi rollup settimanali e mensili.
+ */
+public interface TrendAggregatiService {
+
+    /**
+     * Segnala la scrittura di uno snapshot di un giorno per un bucket. L'aggregato del giorno e i
+     * rollup settimanale e mensile che lo contengono sono ricalcolati dalla tabella trends una volta
+     * sola, prima del commit della transazione corrente: un blocco di scritture aggiorna ogni
+     * aggregato toccato una volta, qualunque sia il numero di snapshot. Se non ci sono più snapshot
+     * per il giorno e il bucket, l'aggregato viene eliminato.
+     * Da invocare dopo ogni scrittura di uno snapshot; senza una transazione attiva l'aggiornamento
+     * avviene al termine del metodo.
+     * <p>
+     * Due transazioni concorrenti che toccano lo stesso giorno e bucket possono entrambe inserire
+     * l'aggregato o aggiornarne la stessa versione: la seconda fallisce al commit per chiave
+     * duplicata o conflitto di versione e annulla anche gli snapshot. Le scritture dei job passano
+     * quindi da {@link RiprovaConflittiService}, che ripete l'intera transazione.
+     *
+     * @param dataSnapshot il giorno da ricalcolare
+     * @param bucket il bucket di scadenza da ricalcolare
+     */
+    void segnalaModifica(LocalDate dataSnapshot, TrendBucket bucket);
+
+    /**
+     * Ricalcola subito gli aggregati segnalati nella transazione corrente e non ancora aggiornati,
+     * per leggerli prima del commit.
+     */
+    void aggiornaAggregatiInSospeso();
+
+    /**
+     * Ricostruisce tutti gli aggregati giornalieri di un intervallo di date a partire dalla tabella trends,
+     * insieme ai rollup settimanali e mensili dei periodi che intersecano l'intervallo.
+     * I giorni precedenti al trend più vecchio (partizioni eliminate dalla retention) sono esclusi:
+     * i loro aggregati non possono essere ricalcolati e vengono conservati.
+     *
+     * @param dataInizio la data di inizio dell'intervallo (inclusa)
+     * @param dataFine la data di fine dell'intervallo (inclusa)
+     * @return il numero di aggregati giornalieri salvati
+     */
+    int ricostruisciAggregati(LocalDate dataInizio, LocalDate dataFine);
+}
@@ -0,0 +1,40 @@
+package com.example.rendimento.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDate;
+
+import com.example.rendimento.dto.ImportazioneTrendDTO;
+
+/**
+ * Servizio per esportare e importare lo storico dei trend nel formato binario a colonne
+ * (vedi {@link com.example.rendimento.service.store.FormatoTrendColonnare}).
+ */
+public interface TrendArchivioService {
+
+    /**
+     * Scrive gli snapshot dell'intervallo sullo stream indicato, leggendoli dal database
+     * a blocchi senza caricarli tutti in memoria. Lo stream viene chiuso al termine.
+     *
+     * @param dataInizio la data di inizio dell'intervallo (inclusa)
+     * @param dataFine la data di fine dell'intervallo (inclusa)
+     * @param compresso se comprimere il corpo del file con Deflate
+     * @param destinazione lo stream su cui scrivere il file
+     * @return il numero di snapshot esportati
+     * @throws IllegalArgumentException se la data di inizio segue la data di fine
+     */
+    long esporta(LocalDate dataInizio, LocalDate dataFine, boolean compresso, OutputStream destinazione) throws IOException;
+
+    /**
+     * Importa un archivio nella tabella trends con una transazione per blocco: gli snapshot già
+     * presenti per lo stesso ISIN e data sono aggiornati, gli altri inseriti. Dopo il commit di ogni
+     * blocco allinea lo store in memoria e al termine ricostruisce gli aggregati dell'intervallo importato.
+     * Se il file è troncato restano importati i blocchi precedenti: ripetere l'importazione non duplica nulla.
+     *
+     * @param sorgente lo stream del file
+     * @return l'esito dell'importazione
+     * @throws IllegalArgumentException se il file non è un archivio valido o è incompleto
+     */
+    ImportazioneTrendDTO importa(InputStream sorgente) throws IOException;
+}
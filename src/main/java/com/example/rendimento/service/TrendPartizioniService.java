@@ -0,0 +1,47 @@
+package com.example.rendimento.service;
+
+import java.time.YearMonth;
+
+/**
+ * Interfaccia per il servizio che gestisce le partizioni mensili della tabella trends
+ * (creazione anticipata delle partizioni e retention tramite eliminazione di intere partizioni).
+ * Le operazioni sono eseguite solo su PostgreSQL con la tabella già partizionata
+ * (vedi V7__partition_trends_by_month.sql); negli altri casi non hanno effetto.
+ */
+public interface TrendPartizioniService {
+
+    /**
+     * Verifica se la tabella trends è partizionata sul database corrente.
+     *
+     * @return true se il database è PostgreSQL e la tabella trends è partizionata
+     */
+    boolean isPartizionamentoAttivo();
+
+    /**
+     * Crea le partizioni mensili mancanti nell'intervallo indicato (estremi inclusi).
+     * Le righe eventualmente finite nella partizione di default per quei mesi vengono spostate
+     * nella nuova partizione.
+     *
+     * @param meseInizio il primo mese da creare
+     * @param meseFine l'ultimo mese da creare
+     * @return il numero di partizioni create
+     */
+    int creaPartizioniMensili(YearMonth meseInizio, YearMonth meseFine);
+
+    /**
+     * Elimina le partizioni dei mesi precedenti al mese indicato (DROP TABLE dell'intera partizione)
+     * e le righe della partizione di default precedenti allo stesso mese.
+     * Sostituisce la cancellazione riga per riga degli snapshot più vecchi. Gli aggregati e i rollup
+     * dei mesi eliminati restano nella tabella trend_aggregati.
+     *
+     * @param meseLimite il primo mese da conservare
+     * @return il numero di partizioni eliminate
+     */
+    int eliminaPartizioniPrecedenti(YearMonth meseLimite);
+
+    /**
+     * Esegue la manutenzione periodica: crea le partizioni dei prossimi mesi e applica la retention
+     * configurata.
+     */
+    void manutenzionePartizioni();
+}
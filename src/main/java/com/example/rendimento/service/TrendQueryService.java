@@ -4,6 +4,8 @@ import java.time.LocalDate;
 import java.util.List;
 
 import com.example.rendimento.dto.TrendAggregatoDTO;
+import com.example.rendimento.dto.TrendPuntoDTO;
+import com.example.rendimento.dto.TrendStatisticheDTO;
 
 public interface TrendQueryService {
 
@@ -11,4 +13,71 @@ public interface TrendQueryService {
             LocalDate dataInizio,
             LocalDate dataFine
     );
+
+    /**
+     * Restituisce i trend aggregati dell'intervallo limitati ai bucket la cui etichetta
+     * contiene la keyword (il filtro è applicato dalla query sul database).
+     *
+     * @param dataInizio la data di inizio dell'intervallo
+     * @param dataFine la data di fine dell'intervallo
+     * @param keyword la keyword da cercare nell'etichetta del bucket; se vuota non filtra
+     * @return una riga per ogni giorno e bucket corrispondente
+     */
+    List<TrendAggregatoDTO> getTrendAggregati(
+            LocalDate dataInizio,
+            LocalDate dataFine,
+            String keyword
+    );
+
+    /**
+     * Restituisce i trend aggregati dell'intervallo alla risoluzione più fine (giornaliera,
+     * settimanale o mensile) che non supera maxPunti punti per bucket. Ogni punto è
+     * identificato dal primo giorno del suo periodo.
+     *
+     * @param dataInizio la data di inizio dell'intervallo
+     * @param dataFine la data di fine dell'intervallo
+     * @param keyword la keyword da cercare nell'etichetta del bucket; se vuota non filtra
+     * @param maxPunti il numero massimo di punti per bucket (almeno 1)
+     * @return una riga per ogni periodo e bucket corrispondente
+     * @throws IllegalArgumentException se maxPunti è minore di 1
+     */
+    List<TrendAggregatoDTO> getTrendAggregati(
+            LocalDate dataInizio,
+            LocalDate dataFine,
+            String keyword,
+            int maxPunti
+    );
+
+    /**
+     * Restituisce la serie storica di rendimento e prezzo di un titolo nell'intervallo.
+     *
+     * @param isin il codice ISIN del titolo
+     * @param dataInizio la data di inizio dell'intervallo
+     * @param dataFine la data di fine dell'intervallo
+     * @return un punto per ogni snapshot, ordinati per data crescente
+     */
+    List<TrendPuntoDTO> getStoricoIsin(
+            String isin,
+            LocalDate dataInizio,
+            LocalDate dataFine
+    );
+
+    /**
+     * Restituisce le statistiche mobili (media semplice ed esponenziale, deviazione standard,
+     * z-score dell'ultimo rendimento) di tutti i titoli non scaduti, calcolate in memoria.
+     * I titoli con lo z-score più alto rendono più della propria media recente.
+     *
+     * @param zScoreMinimo se valorizzato, limita il risultato ai titoli con z-score almeno pari al valore
+     * @return le statistiche ordinate per z-score decrescente (i titoli senza z-score in fondo)
+     */
+    List<TrendStatisticheDTO> getStatistiche(Double zScoreMinimo);
+
+    /**
+     * Restituisce le statistiche mobili dell'ultimo rendimento di un titolo.
+     *
+     * @param isin il codice ISIN del titolo
+     * @return le statistiche del titolo
+     * @throws jakarta.persistence.EntityNotFoundException se non esistono trend per l'ISIN
+     */
+    TrendStatisticheDTO getStatisticheIsin(String isin);
 }
@@ -0,0 +1,31 @@
+package com.example.rendimento.service;
+
+import com.example.rendimento.dto.TrendRendimentiDTO;
+
+/**
+ * Servizio che mantiene, per ogni utente e periodo di scadenza, il riepilogo dei rendimenti
+ * dei titoli non scaduti (rendimento minimo, medio, massimo e rendimenti per titolo).
+ * <p>
+ * Il riepilogo è calcolato alla prima richiesta e conservato finché non cambiano i titoli o le
+ * simulazioni dell'utente o il giorno: le richieste successive lo restituiscono senza accessi
+ * al database né ricalcoli.
+ */
+public interface TrendRendimentiService {
+
+    /**
+     * Restituisce il riepilogo dei rendimenti dell'utente per il periodo di scadenza.
+     *
+     * @param utenteId l'ID dell'utente
+     * @param periodo il periodo di scadenza (trimestrali, semestrali, annuali, triennali, tutti);
+     *                un valore non riconosciuto equivale a tutti
+     * @return il riepilogo, con la versione da usare come ETag
+     */
+    TrendRendimentiDTO getTrendRendimenti(Integer utenteId, String periodo);
+
+    /**
+     * Invalida i riepiloghi dell'utente: il successivo viene ricalcolato con una nuova versione.
+     *
+     * @param utenteId l'ID dell'utente
+     */
+    void invalidaUtente(Integer utenteId);
+}
@@ -0,0 +1,51 @@
+package com.example.rendimento.service;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Servizio che invia ai client in ascolto (Server-Sent Events) le modifiche ai trend
+ * man mano che vengono salvate, evitando che le pagine ricarichino periodicamente tutti i dati.
+ * <p>
+ * Ogni evento ha un identificativo crescente: un client che si riconnette indicando l'ultimo
+ * identificativo ricevuto riceve solo gli eventi persi. Se questi non sono più disponibili
+ * riceve un evento {@value #EVENTO_RESET} e deve ricaricare i dati completi.
+ */
+public interface TrendStreamService {
+
+    /**
+     * Evento con uno snapshot giornaliero salvato ({@link com.example.rendimento.dto.TrendSnapshotDTO}).
+     */
+    String EVENTO_SNAPSHOT = "snapshot";
+
+    /**
+     * Evento con un aggregato aggiornato ({@link com.example.rendimento.dto.TrendAggregatoDTO}).
+     */
+    String EVENTO_AGGREGATO = "aggregato";
+
+    /**
+     * Evento inviato quando gli eventi persi dal client non sono più disponibili.
+     */
+    String EVENTO_RESET = "reset";
+
+    /**
+     * Registra un nuovo client.
+     *
+     * @param ultimoEventoId l'identificativo dell'ultimo evento ricevuto dal client (null alla prima connessione)
+     * @return l'emitter da restituire al client
+     */
+    SseEmitter iscrivi(Long ultimoEventoId);
+
+    /**
+     * Pubblica un evento quando la transazione corrente va a buon fine
+     * (subito se non c'è una transazione attiva).
+     *
+     * @param tipo il nome dell'evento
+     * @param dati il contenuto dell'evento, serializzato in JSON
+     */
+    void pubblicaDopoCommit(String tipo, Object dati);
+
+    /**
+     * Numero di client collegati.
+     */
+    int numeroIscritti();
+}
@@ -0,0 +1,32 @@
+package com.example.rendimento.service;
+
+import java.util.Optional;
+
+import com.example.rendimento.dto.TitoloDTO;
+import com.example.rendimento.model.PrezzoStorico;
+
+/**
+ * Servizio per gli ultimi dati noti di un titolo già salvati nel database, da restituire al posto
+ * di quelli di Borsa Italiana quando il servizio esterno non è disponibile.
+ * <p>
+ * I dati possono essere vecchi: vanno usati solo per rispondere alle richieste di consultazione
+ * e mai salvati come dati aggiornati.
+ */
+public interface UltimiDatiNotiService {
+
+    /**
+     * Restituisce l'ultimo prezzo noto del titolo, con la sua data.
+     *
+     * @param isin il codice ISIN del titolo
+     * @return l'ultimo prezzo salvato nei trend, se esiste
+     */
+    Optional<PrezzoStorico> ultimoCorso(String isin);
+
+    /**
+     * Restituisce i dati salvati del titolo, con l'ultimo prezzo noto come corso.
+     *
+     * @param isin il codice ISIN del titolo
+     * @return il titolo, se è già stato salvato da un utente
+     */
+    Optional<TitoloDTO> ultimoTitolo(String isin);
+}
@@ -2,6 +2,7 @@ package com.example.rendimento.service.impl;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
@@ -10,12 +11,16 @@ import java.util.Comparator;
 import java.util.List;
 
 import org.jsoup.Jsoup;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.example.rendimento.dto.TitoloDTO;
+import com.example.rendimento.enums.FonteEsterna;
 import com.example.rendimento.enums.PeriodicitaBollo;
 import com.example.rendimento.enums.TipoTitolo;
 import com.example.rendimento.service.BorsaItalianaService;
+import com.example.rendimento.service.ChiamateEsterneService;
+import com.example.rendimento.utility.PagineRecenti;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
@@ -42,10 +47,20 @@ public class BorsaItalianaBotServiceImpl implements BorsaItalianaService {
         DateTimeFormatter.ofPattern("dd-mm-yy")
     };
 
+    private final ChiamateEsterneService chiamateEsterne;
+    private final PagineRecenti pagineRecenti;
+
+    public BorsaItalianaBotServiceImpl(ChiamateEsterneService chiamateEsterne,
+                                       @Value("${rendimento.host.borsa-italiana.pagine-recenti-secondi:30}") long pagineRecentiSecondi) {
+        this.chiamateEsterne = chiamateEsterne;
+        this.pagineRecenti = new PagineRecenti(Duration.ofSeconds(pagineRecentiSecondi), 500);
+    }
+
     @Override
     public BigDecimal getCorsoByIsin(String isin) {
         // Nuovo formato URL: [ISIN]-MOTX.html?lang=it
-        return scrapeCorso(BASE_URL_BOT + isin + "-MOTX.html?lang=it");
+        String url = BASE_URL_BOT + isin + "-MOTX.html?lang=it";
+        return scrapeCorso(scaricaScheda(url, "corso"), url);
     }
     
     @Override
@@ -62,11 +77,11 @@ public class BorsaItalianaBotServiceImpl implements BorsaItalianaService {
     @Override
     public TitoloDTO getTitoloBotByIsin(String isin) {
         String url = BASE_URL_BOT + isin + "-MOTX.html?lang=it";
-        TitoloDTO titolo = scrapeTitolo(url, TipoTitolo.BOT, isin);
+        Document doc = scaricaScheda(url, "titolo");
+        TitoloDTO titolo = scrapeTitolo(doc, TipoTitolo.BOT, isin);
         
-        // Aggiungiamo il corso attuale
-        BigDecimal corso = getCorsoByIsin(isin);
-        titolo.setCorso(corso);
+        // Il corso attuale è nella stessa pagina: nessun secondo scaricamento
+        titolo.setCorso(scrapeCorso(doc, url));
         
         return titolo;
     }
@@ -86,7 +101,7 @@ public class BorsaItalianaBotServiceImpl implements BorsaItalianaService {
                 logger.info("Recupero titoli dalla pagina {}: {}", page, url);
                 
                 // Connessione alla pagina di Borsa Italiana
-                Document doc = Jsoup.connect(url).get();
+                Document doc = scarica(url);
                 
                 // Selezione della tabella dei titoli
                 Elements rows = doc.select("table.m-table tbody tr");
@@ -197,103 +212,110 @@ public class BorsaItalianaBotServiceImpl implements BorsaItalianaService {
         return TipoTitolo.BOT;
     }
     
-    private TitoloDTO scrapeTitolo(String url, TipoTitolo tipoTitolo, String isin) {
-        try {
-            Document doc = Jsoup.connect(url)
-                    .userAgent("Mozilla/5.0")
-                    .timeout(10_000)
-                    .get();
-                    
-            TitoloDTO titolo = new TitoloDTO();
-            titolo.setCodiceIsin(isin);
-            titolo.setTipoTitolo(tipoTitolo);
-            
-            // Estrazione nome
-            Element titleElement = doc.selectFirst("h1.t-text");
+    private TitoloDTO scrapeTitolo(Document doc, TipoTitolo tipoTitolo, String isin) {
+        TitoloDTO titolo = new TitoloDTO();
+        titolo.setCodiceIsin(isin);
+        titolo.setTipoTitolo(tipoTitolo);
+        
+        // Estrazione nome
+        Element titleElement = doc.selectFirst("h1.t-text");
+        if (titleElement != null) {
+            titolo.setNome(titleElement.text());
+        } else {
+            // Fallback: prova a trovare il titolo in un altro elemento
+            titleElement = doc.selectFirst("div.t-title");
             if (titleElement != null) {
                 titolo.setNome(titleElement.text());
             } else {
-                // Fallback: prova a trovare il titolo in un altro elemento
-                titleElement = doc.selectFirst("div.t-title");
-                if (titleElement != null) {
-                    titolo.setNome(titleElement.text());
-                } else {
-                    titolo.setNome("BOT " + isin);
-                }
+                titolo.setNome("BOT " + isin);
             }
-            
-            // Estrazione altre informazioni dalla tabella
-            Elements rows = doc.select("table.m-table tr");
-            for (Element row : rows) {
-                Elements cells = row.select("th, td");
-                if (cells.size() >= 2) {
-                    String label = cells.get(0).text().trim();
-                    String value = cells.get(1).text().trim();
+        }
+        
+        // Estrazione altre informazioni dalla tabella
+        Elements rows = doc.select("table.m-table tr");
+        for (Element row : rows) {
+            Elements cells = row.select("th, td");
+            if (cells.size() >= 2) {
+                String label = cells.get(0).text().trim();
+                String value = cells.get(1).text().trim();
+                
+                if (label.contains("Data Scadenza") || label.contains("Scadenza")) {
+                    boolean dataParsed = false;
                     
-                    if (label.contains("Data Scadenza") || label.contains("Scadenza")) {
-                        boolean dataParsed = false;
-                        
-                        // Prova tutti i formati di data disponibili
-                        for (DateTimeFormatter formatter : DATE_FORMATTERS) {
-                            try {
-                                titolo.setDataScadenza(LocalDate.parse(value, formatter));
-                                dataParsed = true;
-                                break;
-                            } catch (DateTimeParseException e) {
-                                // Continua con il prossimo formato
-                            }
-                        }
-                        
-                        if (!dataParsed) {
-                            // Non impostiamo un valore di default, lasciamo che sia null
-                            logger.warn("Errore nel parsing della data di scadenza: {}", value);
+                    // Prova tutti i formati di data disponibili
+                    for (DateTimeFormatter formatter : DATE_FORMATTERS) {
+                        try {
+                            titolo.setDataScadenza(LocalDate.parse(value, formatter));
+                            dataParsed = true;
+                            break;
+                        } catch (DateTimeParseException e) {
+                            // Continua con il prossimo formato
                         }
-                    // I BOT non hanno un tasso nominale esplicito
                     }
+                    
+                    if (!dataParsed) {
+                        // Non impostiamo un valore di default, lasciamo che sia null
+                        logger.warn("Errore nel parsing della data di scadenza: {}", value);
+                    }
+                // I BOT non hanno un tasso nominale esplicito
                 }
             }
-            
-            // Non impostiamo valori di default, lasciamo che siano null se non trovati
-            
-            // I BOT non hanno cedole, quindi impostiamo un valore null
-            titolo.setPeriodicitaCedole(null);
-            
-            // Impostiamo solo la periodicità del bollo che è un campo obbligatorio per il funzionamento
-            // ma non è presente nella pagina
-            titolo.setPeriodicitaBollo("ANNUALE");
-            
-            return titolo;
-        } catch (IOException e) {
-            throw new RuntimeException("Errore scraping titolo da: " + url, e);
         }
+        
+        // Non impostiamo valori di default, lasciamo che siano null se non trovati
+        
+        // I BOT non hanno cedole, quindi impostiamo un valore null
+        titolo.setPeriodicitaCedole(null);
+        
+        // Impostiamo solo la periodicità del bollo che è un campo obbligatorio per il funzionamento
+        // ma non è presente nella pagina
+        titolo.setPeriodicitaBollo("ANNUALE");
+        
+        return titolo;
     }
 
-    private BigDecimal scrapeCorso(String url) {
-        try {
-            Document doc = Jsoup.connect(url)
-                    .userAgent("Mozilla/5.0")
-                    .timeout(10_000)
-                    .get();
-
-            Elements rows = doc.select("table tr");
+    private BigDecimal scrapeCorso(Document doc, String url) {
+        Elements rows = doc.select("table tr");
 
-            for (Element row : rows) {
-                String rowText = row.text();
+        for (Element row : rows) {
+            String rowText = row.text();
 
-                if (rowText.contains("Prezzo ufficiale")
-                    || rowText.contains("Prezzo Ultimo Contratto")
-                    || rowText.contains("Corso ufficiale")) {
+            if (rowText.contains("Prezzo ufficiale")
+                || rowText.contains("Prezzo Ultimo Contratto")
+                || rowText.contains("Corso ufficiale")) {
 
-                    String valore = row.select("td")
-                            .last()
-                            .text()
-                            .replace(",", ".");
-                    return new BigDecimal(valore);
-                }
+                String valore = row.select("td")
+                        .last()
+                        .text()
+                        .replace(",", ".");
+                return new BigDecimal(valore);
             }
-            throw new IllegalStateException("Corso non trovato nella pagina: " + url);
+        }
+        throw new IllegalStateException("Corso non trovato nella pagina: " + url);
+    }
+
+    /**
+     * Scarica la scheda del titolo, che contiene sia l'anagrafica sia il corso.
+     */
+    private Document scaricaScheda(String url, String contenuto) {
+        try {
+            return scarica(url);
         } catch (IOException e) {
-            throw new RuntimeException("Errore scraping corso da: " + url, e);
+            throw new RuntimeException("Errore scraping " + contenuto + " da: " + url, e);
         }
     }
+
+    /**
+     * Scarica la pagina sull'esecutore dedicato a Borsa Italiana, con la scadenza configurata.
+     * Una pagina scaricata da pochi secondi viene riletta da {@link PagineRecenti}.
+     */
+    private Document scarica(String url) throws IOException {
+        String html = pagineRecenti.scarica(url, () -> chiamateEsterne.esegui(FonteEsterna.BORSA_ITALIANA_BOT,
+                () -> Jsoup.connect(url)
+                        .userAgent("Mozilla/5.0")
+                        .timeout(10_000)
+                        .execute()
+                        .body()));
+        return Jsoup.parse(html, url);
+    }
 }
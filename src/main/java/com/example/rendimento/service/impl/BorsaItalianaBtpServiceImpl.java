@@ -2,6 +2,7 @@ package com.example.rendimento.service.impl;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
@@ -15,12 +16,16 @@ import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.example.rendimento.dto.TitoloDTO;
+import com.example.rendimento.enums.FonteEsterna;
 import com.example.rendimento.enums.PeriodicitaBollo;
 import com.example.rendimento.enums.TipoTitolo;
 import com.example.rendimento.service.BorsaItalianaService;
+import com.example.rendimento.service.ChiamateEsterneService;
+import com.example.rendimento.utility.PagineRecenti;
 
 /**
  * Implementazione del servizio per ottenere il corso e la lista dei BTP.
@@ -42,10 +47,20 @@ public class BorsaItalianaBtpServiceImpl implements BorsaItalianaService {
         DateTimeFormatter.ofPattern("dd-mm-yy")
     };
 
+    private final ChiamateEsterneService chiamateEsterne;
+    private final PagineRecenti pagineRecenti;
+
+    public BorsaItalianaBtpServiceImpl(ChiamateEsterneService chiamateEsterne,
+                                       @Value("${rendimento.host.borsa-italiana.pagine-recenti-secondi:30}") long pagineRecentiSecondi) {
+        this.chiamateEsterne = chiamateEsterne;
+        this.pagineRecenti = new PagineRecenti(Duration.ofSeconds(pagineRecentiSecondi), 500);
+    }
+
     @Override
     public BigDecimal getCorsoByIsin(String isin) {
         // Nuovo formato URL: [ISIN]-MOTX.html?lang=it
-        return scrapeCorso(BASE_URL_BTP + isin + "-MOTX.html?lang=it");
+        String url = BASE_URL_BTP + isin + "-MOTX.html?lang=it";
+        return scrapeCorso(scaricaScheda(url, "corso"), url);
     }
     
     @Override
@@ -56,11 +71,11 @@ public class BorsaItalianaBtpServiceImpl implements BorsaItalianaService {
     @Override
     public TitoloDTO getTitoloByIsin(String isin) {
         String url = BASE_URL_BTP + isin + "-MOTX.html?lang=it";
-        TitoloDTO titolo = scrapeTitolo(url, TipoTitolo.BTP, isin);
+        Document doc = scaricaScheda(url, "titolo");
+        TitoloDTO titolo = scrapeTitolo(doc, TipoTitolo.BTP, isin);
         
-        // Aggiungiamo il corso attuale
-        BigDecimal corso = getCorsoByIsin(isin);
-        titolo.setCorso(corso);
+        // Il corso attuale è nella stessa pagina: nessun secondo scaricamento
+        titolo.setCorso(scrapeCorso(doc, url));
         
         return titolo;
     }
@@ -85,7 +100,7 @@ public class BorsaItalianaBtpServiceImpl implements BorsaItalianaService {
                 logger.info("Recupero titoli dalla pagina {}: {}", page, url);
                 
                 // Connessione alla pagina di Borsa Italiana
-                Document doc = Jsoup.connect(url).get();
+                Document doc = scarica(url);
                 
                 // Selezione della tabella dei titoli
                 Elements rows = doc.select("table.m-table tbody tr");
@@ -201,190 +216,197 @@ public class BorsaItalianaBtpServiceImpl implements BorsaItalianaService {
         return TipoTitolo.BTP;
     }
     
-    private TitoloDTO scrapeTitolo(String url, TipoTitolo tipoTitolo, String isin) {
-        try {
-            Document doc = Jsoup.connect(url)
-                    .userAgent("Mozilla/5.0")
-                    .timeout(10_000)
-                    .get();
-                    
-            TitoloDTO titolo = new TitoloDTO();
-            titolo.setCodiceIsin(isin);
-            titolo.setTipoTitolo(tipoTitolo);
-            
-            // Estrazione nome
-            Element titleElement = doc.selectFirst("h1.t-text");
+    private TitoloDTO scrapeTitolo(Document doc, TipoTitolo tipoTitolo, String isin) {
+        TitoloDTO titolo = new TitoloDTO();
+        titolo.setCodiceIsin(isin);
+        titolo.setTipoTitolo(tipoTitolo);
+        
+        // Estrazione nome
+        Element titleElement = doc.selectFirst("h1.t-text");
+        if (titleElement != null) {
+            titolo.setNome(titleElement.text());
+        } else {
+            // Fallback: prova a trovare il titolo in un altro elemento
+            titleElement = doc.selectFirst("div.t-title");
             if (titleElement != null) {
                 titolo.setNome(titleElement.text());
             } else {
-                // Fallback: prova a trovare il titolo in un altro elemento
-                titleElement = doc.selectFirst("div.t-title");
-                if (titleElement != null) {
-                    titolo.setNome(titleElement.text());
-                } else {
-                    titolo.setNome("BTP " + isin);
-                }
+                titolo.setNome("BTP " + isin);
             }
-            
-            // Variabili per memorizzare i valori trovati
-            BigDecimal tassoPeriodale = null;
-            
-            // Estrazione altre informazioni dalla tabella
-            Elements rows = doc.select("table.m-table tr");
-            
-            // Prima passata: estrai la periodicità delle cedole
-            for (Element row : rows) {
-                Elements cells = row.select("th, td");
-                if (cells.size() >= 2) {
-                    String label = cells.get(0).text().trim();
-                    String value = cells.get(1).text().trim();
-                    
-                    if (label.contains("Periodicità cedola")) {
-                        // Estrai la periodicità delle cedole
-                        String periodicitaCedole = value.toUpperCase();
-                        if (periodicitaCedole.contains("SEMESTRALE")) {
-                            titolo.setPeriodicitaCedole("SEMESTRALE");
-                        } else if (periodicitaCedole.contains("TRIMESTRALE")) {
-                            titolo.setPeriodicitaCedole("TRIMESTRALE");
-                        } else if (periodicitaCedole.contains("MENSILE")) {
-                            titolo.setPeriodicitaCedole("MENSILE");
-                        } else {
-                            titolo.setPeriodicitaCedole("ANNUALE"); // Default
-                        }
-                        break; // Abbiamo trovato la periodicità, possiamo uscire dal ciclo
+        }
+        
+        // Variabili per memorizzare i valori trovati
+        BigDecimal tassoPeriodale = null;
+        
+        // Estrazione altre informazioni dalla tabella
+        Elements rows = doc.select("table.m-table tr");
+        
+        // Prima passata: estrai la periodicità delle cedole
+        for (Element row : rows) {
+            Elements cells = row.select("th, td");
+            if (cells.size() >= 2) {
+                String label = cells.get(0).text().trim();
+                String value = cells.get(1).text().trim();
+                
+                if (label.contains("Periodicità cedola")) {
+                    // Estrai la periodicità delle cedole
+                    String periodicitaCedole = value.toUpperCase();
+                    if (periodicitaCedole.contains("SEMESTRALE")) {
+                        titolo.setPeriodicitaCedole("SEMESTRALE");
+                    } else if (periodicitaCedole.contains("TRIMESTRALE")) {
+                        titolo.setPeriodicitaCedole("TRIMESTRALE");
+                    } else if (periodicitaCedole.contains("MENSILE")) {
+                        titolo.setPeriodicitaCedole("MENSILE");
+                    } else {
+                        titolo.setPeriodicitaCedole("ANNUALE"); // Default
                     }
+                    break; // Abbiamo trovato la periodicità, possiamo uscire dal ciclo
                 }
             }
-            
-            // Seconda passata: estrai le altre informazioni
-            for (Element row : rows) {
-                Elements cells = row.select("th, td");
-                if (cells.size() >= 2) {
-                    String label = cells.get(0).text().trim();
-                    String value = cells.get(1).text().trim();
+        }
+        
+        // Seconda passata: estrai le altre informazioni
+        for (Element row : rows) {
+            Elements cells = row.select("th, td");
+            if (cells.size() >= 2) {
+                String label = cells.get(0).text().trim();
+                String value = cells.get(1).text().trim();
+                
+                if (label.contains("Scadenza")) {
+                    boolean dataParsed = false;
                     
-                    if (label.contains("Scadenza")) {
-                        boolean dataParsed = false;
-                        
-                        // Prova tutti i formati di data disponibili
-                        for (DateTimeFormatter formatter : DATE_FORMATTERS) {
-                            try {
-                                titolo.setDataScadenza(LocalDate.parse(value, formatter));
-                                dataParsed = true;
-                                break;
-                            } catch (DateTimeParseException e) {
-                                // Continua con il prossimo formato
-                            }
-                        }
-                        
-                        if (!dataParsed) {
-                            // Non impostiamo un valore di default, lasciamo che sia null
-                            logger.warn("Errore nel parsing della data di scadenza: {}", value);
-                        }
-                    } else if (label.contains("Tasso Cedola Periodale")) {
+                    // Prova tutti i formati di data disponibili
+                    for (DateTimeFormatter formatter : DATE_FORMATTERS) {
                         try {
-                            // Parsing del tasso nominale
-                            String tassoStr = value.replace("%", "").replace(",", ".").trim();
-                            tassoPeriodale = new BigDecimal(tassoStr);
-                        } catch (NumberFormatException e) {
-                            // Non impostiamo un valore di default, lasciamo che sia null
-                            logger.warn("Errore nel parsing del tasso: {}", e.getMessage());
+                            titolo.setDataScadenza(LocalDate.parse(value, formatter));
+                            dataParsed = true;
+                            break;
+                        } catch (DateTimeParseException e) {
+                            // Continua con il prossimo formato
                         }
                     }
+                    
+                    if (!dataParsed) {
+                        // Non impostiamo un valore di default, lasciamo che sia null
+                        logger.warn("Errore nel parsing della data di scadenza: {}", value);
+                    }
+                } else if (label.contains("Tasso Cedola Periodale")) {
+                    try {
+                        // Parsing del tasso nominale
+                        String tassoStr = value.replace("%", "").replace(",", ".").trim();
+                        tassoPeriodale = new BigDecimal(tassoStr);
+                    } catch (NumberFormatException e) {
+                        // Non impostiamo un valore di default, lasciamo che sia null
+                        logger.warn("Errore nel parsing del tasso: {}", e.getMessage());
+                    }
                 }
             }
+        }
+        
+        // Calcolo del tasso annuale in base alla periodicità
+        if (tassoPeriodale != null) {
+            if ("SEMESTRALE".equals(titolo.getPeriodicitaCedole())) {
+                titolo.setTassoNominale(tassoPeriodale.multiply(new BigDecimal(2)));
+            } else if ("TRIMESTRALE".equals(titolo.getPeriodicitaCedole())) {
+                titolo.setTassoNominale(tassoPeriodale.multiply(new BigDecimal(4)));
+            } else if ("MENSILE".equals(titolo.getPeriodicitaCedole())) {
+                titolo.setTassoNominale(tassoPeriodale.multiply(new BigDecimal(12)));
+            } else {
+                titolo.setTassoNominale(tassoPeriodale); // ANNUALE
+            }
             
-            // Calcolo del tasso annuale in base alla periodicità
-            if (tassoPeriodale != null) {
-                if ("SEMESTRALE".equals(titolo.getPeriodicitaCedole())) {
-                    titolo.setTassoNominale(tassoPeriodale.multiply(new BigDecimal(2)));
-                } else if ("TRIMESTRALE".equals(titolo.getPeriodicitaCedole())) {
-                    titolo.setTassoNominale(tassoPeriodale.multiply(new BigDecimal(4)));
-                } else if ("MENSILE".equals(titolo.getPeriodicitaCedole())) {
-                    titolo.setTassoNominale(tassoPeriodale.multiply(new BigDecimal(12)));
-                } else {
-                    titolo.setTassoNominale(tassoPeriodale); // ANNUALE
-                }
-                
-                // Verifica se il nome del titolo contiene il tasso nominale
-                // e usa quello come riferimento se possibile
-                if (titolo.getNome() != null && titolo.getNome().contains("%")) {
-                    try {
-                        // Estrai il tasso dal nome (es. "BTP 3,5% 01/11/2026")
-                        String nomeTitolo = titolo.getNome();
-                        int indexPercent = nomeTitolo.indexOf('%');
-                        if (indexPercent > 0) {
-                            // Cerca all'indietro fino a trovare uno spazio o l'inizio della stringa
-                            int startIndex = indexPercent - 1;
-                            while (startIndex >= 0 && 
-                                  (Character.isDigit(nomeTitolo.charAt(startIndex)) || 
-                                   nomeTitolo.charAt(startIndex) == ',' || 
-                                   nomeTitolo.charAt(startIndex) == '.')) {
-                                startIndex--;
-                            }
+            // Verifica se il nome del titolo contiene il tasso nominale
+            // e usa quello come riferimento se possibile
+            if (titolo.getNome() != null && titolo.getNome().contains("%")) {
+                try {
+                    // Estrai il tasso dal nome (es. "BTP 3,5% 01/11/2026")
+                    String nomeTitolo = titolo.getNome();
+                    int indexPercent = nomeTitolo.indexOf('%');
+                    if (indexPercent > 0) {
+                        // Cerca all'indietro fino a trovare uno spazio o l'inizio della stringa
+                        int startIndex = indexPercent - 1;
+                        while (startIndex >= 0 && 
+                              (Character.isDigit(nomeTitolo.charAt(startIndex)) || 
+                               nomeTitolo.charAt(startIndex) == ',' || 
+                               nomeTitolo.charAt(startIndex) == '.')) {
+                            startIndex--;
+                        }
+                        
+                        if (startIndex < indexPercent - 1) {
+                            String tassoNomeStr = nomeTitolo.substring(startIndex + 1, indexPercent)
+                                                          .replace(",", ".")
+                                                          .trim();
+                            BigDecimal tassoNome = new BigDecimal(tassoNomeStr);
                             
-                            if (startIndex < indexPercent - 1) {
-                                String tassoNomeStr = nomeTitolo.substring(startIndex + 1, indexPercent)
-                                                              .replace(",", ".")
-                                                              .trim();
-                                BigDecimal tassoNome = new BigDecimal(tassoNomeStr);
-                                
-                                // Confronta il tasso calcolato con quello nel nome
-                                BigDecimal tassoDifferenza = tassoNome.subtract(titolo.getTassoNominale()).abs();
-                                if (tassoDifferenza.compareTo(new BigDecimal("0.1")) > 0) {
-                                    logger.warn("Attenzione: Tasso calcolato ({}) differisce significativamente dal tasso nel nome ({})", 
-                                               titolo.getTassoNominale(), tassoNome);
-                                }
-                                
-                                // Usa il tasso dal nome come riferimento principale
-                                titolo.setTassoNominale(tassoNome);
+                            // Confronta il tasso calcolato con quello nel nome
+                            BigDecimal tassoDifferenza = tassoNome.subtract(titolo.getTassoNominale()).abs();
+                            if (tassoDifferenza.compareTo(new BigDecimal("0.1")) > 0) {
+                                logger.warn("Attenzione: Tasso calcolato ({}) differisce significativamente dal tasso nel nome ({})", 
+                                           titolo.getTassoNominale(), tassoNome);
                             }
+                            
+                            // Usa il tasso dal nome come riferimento principale
+                            titolo.setTassoNominale(tassoNome);
                         }
-                    } catch (Exception e) {
-                        // In caso di errore nell'estrazione dal nome, mantieni il valore già impostato
-                        logger.warn("Errore nell'estrazione del tasso dal nome: {}", e.getMessage());
                     }
+                } catch (Exception e) {
+                    // In caso di errore nell'estrazione dal nome, mantieni il valore già impostato
+                    logger.warn("Errore nell'estrazione del tasso dal nome: {}", e.getMessage());
                 }
             }
-            
-            // Non impostiamo valori di default, lasciamo che siano null se non trovati
-            
-            // Impostiamo solo la periodicità del bollo che è un campo obbligatorio per il funzionamento
-            // ma non è presente nella pagina
-            titolo.setPeriodicitaBollo("ANNUALE");
-            
-            return titolo;
-        } catch (IOException e) {
-            throw new RuntimeException("Errore scraping titolo da: " + url, e);
         }
+        
+        // Non impostiamo valori di default, lasciamo che siano null se non trovati
+        
+        // Impostiamo solo la periodicità del bollo che è un campo obbligatorio per il funzionamento
+        // ma non è presente nella pagina
+        titolo.setPeriodicitaBollo("ANNUALE");
+        
+        return titolo;
     }
 
-    private BigDecimal scrapeCorso(String url) {
-        try {
-            Document doc = Jsoup.connect(url)
-                    .userAgent("Mozilla/5.0")
-                    .timeout(10_000)
-                    .get();
-
-            Elements rows = doc.select("table tr");
+    private BigDecimal scrapeCorso(Document doc, String url) {
+        Elements rows = doc.select("table tr");
 
-            for (Element row : rows) {
-                String rowText = row.text();
+        for (Element row : rows) {
+            String rowText = row.text();
 
-                if (rowText.contains("Prezzo ufficiale")
-                    || rowText.contains("Prezzo Ultimo Contratto")
-                    || rowText.contains("Corso ufficiale")) {
+            if (rowText.contains("Prezzo ufficiale")
+                || rowText.contains("Prezzo Ultimo Contratto")
+                || rowText.contains("Corso ufficiale")) {
 
-                    String valore = row.select("td")
-                            .last()
-                            .text()
-                            .replace(",", ".");
-                    return new BigDecimal(valore);
-                }
+                String valore = row.select("td")
+                        .last()
+                        .text()
+                        .replace(",", ".");
+                return new BigDecimal(valore);
             }
-            throw new IllegalStateException("Corso non trovato nella pagina: " + url);
+        }
+        throw new IllegalStateException("Corso non trovato nella pagina: " + url);
+    }
+
+    /**
+     * Scarica la scheda del titolo, che contiene sia l'anagrafica sia il corso.
+     */
+    private Document scaricaScheda(String url, String contenuto) {
+        try {
+            return scarica(url);
         } catch (IOException e) {
-            throw new RuntimeException("Errore scraping corso da: " + url, e);
+            throw new RuntimeException("Errore scraping " + contenuto + " da: " + url, e);
         }
     }
+
+    /**
+     * Scarica la pagina sull'esecutore dedicato a Borsa Italiana, con la scadenza configurata.
+     * Una pagina scaricata da pochi secondi viene riletta da {@link PagineRecenti}.
+     */
+    private Document scarica(String url) throws IOException {
+        String html = pagineRecenti.scarica(url, () -> chiamateEsterne.esegui(FonteEsterna.BORSA_ITALIANA_BTP,
+                () -> Jsoup.connect(url)
+                        .userAgent("Mozilla/5.0")
+                        .timeout(10_000)
+                        .execute()
+                        .body()));
+        return Jsoup.parse(html, url);
+    }
 }
@@ -0,0 +1,145 @@
+package com.example.rendimento.service.impl;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.rendimento.constants.RendimentoConstants;
+import com.example.rendimento.dto.RisultatoRendimentoAdvancedDTO;
+import com.example.rendimento.dto.SimulazioneDTO;
+import com.example.rendimento.model.Titolo;
+import com.example.rendimento.repository.TitoloRepository;
+import com.example.rendimento.service.AvanzamentoJob;
+import com.example.rendimento.service.BorsaItalianaService;
+import com.example.rendimento.service.CalcoloRendimentiService;
+import com.example.rendimento.service.CoordinatoreJobService;
+import com.example.rendimento.service.RiprovaConflittiService;
+import com.example.rendimento.service.SimulazioneService;
+import com.example.rendimento.service.TrendService;
+import com.example.rendimento.service.factory.BorsaItalianaServiceFactory;
+import com.example.rendimento.utility.EsecutoreVirtuale;
+
+@Service
+public class CalcoloRendimentiServiceImpl implements CalcoloRendimentiService {
+
+    private static final Logger log = LoggerFactory.getLogger(CalcoloRendimentiServiceImpl.class);
+
+    private static final String OPERAZIONE = "calcolo-rendimenti";
+
+    private final TitoloRepository titoloRepository;
+    private final BorsaItalianaServiceFactory borsaItalianaServiceFactory;
+    private final SimulazioneService simulazioneService;
+    private final TrendService trendService;
+    private final CoordinatoreJobService coordinatoreJobService;
+    private final RiprovaConflittiService riprovaConflittiService;
+    private final int recuperiParalleli;
+
+    public CalcoloRendimentiServiceImpl(TitoloRepository titoloRepository,
+                                        BorsaItalianaServiceFactory borsaItalianaServiceFactory,
+                                        SimulazioneService simulazioneService, TrendService trendService,
+                                        CoordinatoreJobService coordinatoreJobService,
+                                        RiprovaConflittiService riprovaConflittiService,
+                                        @Value("${rendimento.calcolo-rendimenti.recuperi-paralleli:8}") int recuperiParalleli) {
+        this.titoloRepository = titoloRepository;
+        this.borsaItalianaServiceFactory = borsaItalianaServiceFactory;
+        this.simulazioneService = simulazioneService;
+        this.trendService = trendService;
+        this.coordinatoreJobService = coordinatoreJobService;
+        this.riprovaConflittiService = riprovaConflittiService;
+        this.recuperiParalleli = recuperiParalleli;
+    }
+
+    @Override
+    public List<SimulazioneDTO> calcolaRendimentiTitoliUtente(Integer utenteId, AvanzamentoJob avanzamento) {
+        // Con più istanze attive il calcolo di uno stesso utente gira su un solo nodo alla volta
+        return coordinatoreJobService.eseguiInEsclusiva("calcolo-rendimenti:" + utenteId,
+                () -> calcolaRendimenti(utenteId, avanzamento));
+    }
+
+    private List<SimulazioneDTO> calcolaRendimenti(Integer utenteId, AvanzamentoJob avanzamento) {
+        // Recupera tutti i titoli con data di scadenza futura che appartengono all'utente
+        List<Titolo> titoliValidi = titoloRepository.findByDataScadenzaAfterAndUtente_IdUtente(LocalDate.now(), utenteId);
+        log.info("Trovati {} titoli con scadenza futura per l'utente ID: {}", titoliValidi.size(), utenteId);
+        avanzamento.setTotale(titoliValidi.size());
+
+        // I prezzi correnti sono richiesti a Borsa Italiana tutti insieme, un thread virtuale per titolo
+        List<CompletableFuture<BigDecimal>> prezzi;
+        try (EsecutoreVirtuale recuperi = new EsecutoreVirtuale("calcolo-rendimenti-prezzi-", recuperiParalleli)) {
+            prezzi = titoliValidi.stream()
+                    .map(titolo -> CompletableFuture.supplyAsync(() -> getPrezzoAcquistoPerTitolo(titolo), recuperi))
+                    .toList();
+        }
+
+        List<SimulazioneDTO> simulazioniSalvate = new ArrayList<>();
+
+        // Ogni titolo è indipendente: un errore non interrompe i successivi
+        for (int i = 0; i < titoliValidi.size(); i++) {
+            Titolo titolo = titoliValidi.get(i);
+            try {
+                BigDecimal prezzoAcquisto = prezzi.get(i).join();
+                if (prezzoAcquisto == null) {
+                    avanzamento.fallito(titolo.getCodiceIsin(), "Prezzo non disponibile");
+                    continue;
+                }
+
+                // Il calcolo non dipende dalla riga salvata: si fa una volta sola, fuori dai tentativi
+                LocalDate oggi = LocalDate.now();
+                RisultatoRendimentoAdvancedDTO risultato = simulazioneService.calcolaRendimentoAdvanced(
+                        titolo, prezzoAcquisto, RendimentoConstants.IMPORTO_FISSO_SIMULAZIONE, oggi);
+
+                // Ogni tentativo rilegge la simulazione della giornata: un conflitto con un'altra
+                // esecuzione non fa perdere l'aggiornamento
+                SimulazioneDTO simulazione = riprovaConflittiService.eseguiConRiprova(OPERAZIONE,
+                        () -> simulazioneService.salvaSimulazioneCalcolata(titolo, prezzoAcquisto, oggi, risultato));
+
+                // Salva il trend per il titolo utilizzando il rendimento senza costi
+                riprovaConflittiService.eseguiConRiprova(OPERAZIONE,
+                        () -> trendService.salvaOAggiornaTrendPerTitolo(
+                                titolo, prezzoAcquisto, risultato.getRendimentoSenzaCosti(), null));
+                log.info("Trend salvato per il titolo ID: {}, ISIN: {}", titolo.getIdTitolo(), titolo.getCodiceIsin());
+
+                simulazioniSalvate.add(simulazione);
+                avanzamento.completato(titolo.getCodiceIsin());
+            } catch (Exception e) {
+                log.error("Errore nel calcolo della simulazione per il titolo ID: {}, ISIN: {}, Errore: {}",
+                        titolo.getIdTitolo(), titolo.getCodiceIsin(), e.getMessage());
+                avanzamento.fallito(titolo.getCodiceIsin(), e.getMessage());
+            }
+        }
+
+        log.info("Calcolo rendimenti per l'utente ID {}: {} simulazioni aggiornate/create",
+                utenteId, simulazioniSalvate.size());
+        return simulazioniSalvate;
+    }
+
+    /**
+     * Recupera il prezzo corrente del titolo da Borsa Italiana.
+     *
+     * @return il prezzo, o null se non disponibile
+     */
+    private BigDecimal getPrezzoAcquistoPerTitolo(Titolo titolo) {
+        try {
+            // Ottieni il servizio appropriato in base al tipo di titolo
+            BorsaItalianaService borsaItalianaService = borsaItalianaServiceFactory
+                    .getBorsaItalianaService(titolo.getTipoTitolo());
+
+            BigDecimal prezzoAcquisto = borsaItalianaService.getCorsoByIsin(titolo.getCodiceIsin());
+            if (prezzoAcquisto != null) {
+                log.info("Prezzo attuale ottenuto per il titolo {}: {}", titolo.getCodiceIsin(), prezzoAcquisto);
+            } else {
+                log.warn("Prezzo non disponibile per il titolo {}, simulazione saltata", titolo.getCodiceIsin());
+            }
+            return prezzoAcquisto;
+        } catch (Exception e) {
+            log.error("Errore nel recupero del prezzo per il titolo {}: {}", titolo.getCodiceIsin(), e.getMessage());
+            return null;
+        }
+    }
+}
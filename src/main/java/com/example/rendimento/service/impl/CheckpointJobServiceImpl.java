@@ -0,0 +1,228 @@
+package com.example.rendimento.service.impl;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.rendimento.dto.EsecuzioneJobDTO;
+import com.example.rendimento.enums.StatoJob;
+import com.example.rendimento.model.JobCheckpointEntity;
+import com.example.rendimento.model.JobEsecuzioneEntity;
+import com.example.rendimento.repository.JobCheckpointRepository;
+import com.example.rendimento.repository.JobEsecuzioneRepository;
+import com.example.rendimento.service.AvanzamentoJob;
+import com.example.rendimento.service.CheckpointJobService;
+
+/**
+ * Checkpoint dei job nelle tabelle job_esecuzione e job_checkpoint.
+ * <p>
+ * Ogni checkpoint è salvato in una transazione propria appena l'elemento termina, indipendente
+ * da quella del lavoro: dopo un riavvio restano registrati tutti gli elementi conclusi fino
+ * all'interruzione. I conteggi dell'esecuzione sono ricalcolati dai checkpoint, quindi restano
+ * corretti anche quando un elemento fallito viene ripetuto con successo o più nodi lavorano
+ * sulla stessa esecuzione. Un'esecuzione conclusa, anche se fallita, non viene mai ripresa:
+ * altrimenti l'esecuzione successiva salterebbe gli elementi completati il giorno prima.
+ */
+@Service
+public class CheckpointJobServiceImpl implements CheckpointJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(CheckpointJobServiceImpl.class);
+
+    private static final int MAX_MESSAGGIO = 500;
+
+    private final JobEsecuzioneRepository jobEsecuzioneRepository;
+    private final JobCheckpointRepository jobCheckpointRepository;
+    private final TransactionTemplate transazione;
+    private final long ripresaOre;
+
+    public CheckpointJobServiceImpl(JobEsecuzioneRepository jobEsecuzioneRepository,
+                                    JobCheckpointRepository jobCheckpointRepository,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${rendimento.job.ripresa-ore:24}") long ripresaOre) {
+        this.jobEsecuzioneRepository = jobEsecuzioneRepository;
+        this.jobCheckpointRepository = jobCheckpointRepository;
+        this.transazione = new TransactionTemplate(transactionManager);
+        this.transazione.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.ripresaOre = ripresaOre;
+    }
+
+    @Override
+    public EsecuzioneJobDTO avviaORiprendi(String nome, int totale) {
+        LocalDateTime ora = LocalDateTime.now();
+        boolean nuova = avvia(nome, ora, totale);
+
+        JobEsecuzioneEntity esecuzione = transazione.execute(status -> {
+            JobEsecuzioneEntity e = jobEsecuzioneRepository.findById(nome)
+                    .orElseThrow(() -> new IllegalStateException("Esecuzione del job " + nome + " non trovata"));
+            if (!nuova) {
+                e.setStato(StatoJob.IN_ESECUZIONE);
+                e.setTerminataIl(null);
+                e.setTotale(totale);
+                e.setAggiornataIl(ora);
+            }
+            return e;
+        });
+
+        Set<String> completate = nuova ? new HashSet<>() : new HashSet<>(jobCheckpointRepository
+                .findChiaviByNomeAndStatoDal(nome, StatoJob.COMPLETATO, esecuzione.getAvviataIl()));
+        if (nuova) {
+            log.info("Job {}: nuova esecuzione con {} elementi", nome, totale);
+        } else {
+            log.info("Job {}: ripresa dell'esecuzione avviata alle {}, {} elementi su {} già completati",
+                    nome, esecuzione.getAvviataIl(), completate.size(), totale);
+        }
+
+        EsecuzioneJobDTO dto = toDto(esecuzione);
+        dto.setRipresa(!nuova);
+        dto.setChiaviCompletate(completate);
+        return dto;
+    }
+
+    @Override
+    public AvanzamentoJob conCheckpoint(EsecuzioneJobDTO esecuzione, AvanzamentoJob avanzamento) {
+        return new AvanzamentoJob() {
+            @Override
+            public void setTotale(int totale) {
+                avanzamento.setTotale(totale);
+            }
+
+            @Override
+            public void completato(String chiave) {
+                registra(esecuzione, chiave, StatoJob.COMPLETATO, null);
+                avanzamento.completato(chiave);
+            }
+
+            @Override
+            public void fallito(String chiave, String messaggio) {
+                registra(esecuzione, chiave, StatoJob.FALLITO, messaggio);
+                avanzamento.fallito(chiave, messaggio);
+            }
+        };
+    }
+
+    @Override
+    public EsecuzioneJobDTO concludi(EsecuzioneJobDTO esecuzione) {
+        JobEsecuzioneEntity aggiornata = transazione.execute(status -> {
+            JobEsecuzioneEntity e = aggiornaConteggi(esecuzione, null);
+            if (e != null && e.getStato() == StatoJob.IN_ESECUZIONE
+                    && e.getCompletati() + e.getFalliti() >= e.getTotale()) {
+                e.setStato(e.getFalliti() == 0 ? StatoJob.COMPLETATO : StatoJob.FALLITO);
+                e.setTerminataIl(LocalDateTime.now());
+            }
+            return e;
+        });
+        if (aggiornata == null) {
+            return esecuzione;
+        }
+        log.info("Job {}: esecuzione {} con {} elementi completati e {} falliti su {}", esecuzione.getNome(),
+                aggiornata.getStato() == StatoJob.IN_ESECUZIONE ? "ancora in corso" : aggiornata.getStato(),
+                aggiornata.getCompletati(), aggiornata.getFalliti(), aggiornata.getTotale());
+        EsecuzioneJobDTO dto = toDto(aggiornata);
+        dto.setRipresa(esecuzione.isRipresa());
+        dto.setChiaviCompletate(esecuzione.getChiaviCompletate());
+        return dto;
+    }
+
+    /**
+     * Avvia una nuova esecuzione se non ce n'è una da riprendere.
+     *
+     * @return true se è stata avviata una nuova esecuzione
+     */
+    private boolean avvia(String nome, LocalDateTime ora, int totale) {
+        LocalDateTime limiteRipresa = ora.minusHours(ripresaOre);
+        Integer riavviate = transazione.execute(status -> jobEsecuzioneRepository.riavvia(
+                nome, ora, totale, limiteRipresa, StatoJob.IN_ESECUZIONE));
+        if (riavviate != null && riavviate > 0) {
+            return true;
+        }
+        if (Boolean.TRUE.equals(transazione.execute(status -> jobEsecuzioneRepository.existsById(nome)))) {
+            return false;
+        }
+        try {
+            transazione.executeWithoutResult(status -> jobEsecuzioneRepository.inserisci(nome, ora, totale));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            // Un altro nodo ha avviato l'esecuzione nello stesso momento: la si riprende
+            return false;
+        }
+    }
+
+    private void registra(EsecuzioneJobDTO esecuzione, String chiave, StatoJob esito, String messaggio) {
+        try {
+            salvaCheckpoint(esecuzione.getNome(), chiave, esito, messaggio);
+        } catch (DataIntegrityViolationException e) {
+            // Il checkpoint della stessa chiave è stato creato in parallelo: ora esiste e viene aggiornato
+            salvaCheckpoint(esecuzione.getNome(), chiave, esito, messaggio);
+        } catch (RuntimeException e) {
+            // Senza checkpoint l'elemento sarà solo ripetuto alla ripresa: il lavoro prosegue
+            log.warn("Checkpoint di {} per il job {} non salvato: {}", chiave, esecuzione.getNome(), e.getMessage());
+            return;
+        }
+        try {
+            transazione.executeWithoutResult(status ->
+                    aggiornaConteggi(esecuzione, esito == StatoJob.COMPLETATO ? chiave : null));
+        } catch (RuntimeException e) {
+            log.warn("Conteggi del job {} non aggiornati: {}", esecuzione.getNome(), e.getMessage());
+        }
+    }
+
+    private void salvaCheckpoint(String nome, String chiave, StatoJob esito, String messaggio) {
+        transazione.executeWithoutResult(status -> {
+            JobCheckpointEntity checkpoint = jobCheckpointRepository.findByNomeAndChiave(nome, chiave)
+                    .orElseGet(() -> {
+                        JobCheckpointEntity nuovo = new JobCheckpointEntity();
+                        nuovo.setNome(nome);
+                        nuovo.setChiave(chiave);
+                        return nuovo;
+                    });
+            checkpoint.setStato(esito);
+            checkpoint.setMessaggio(messaggio != null && messaggio.length() > MAX_MESSAGGIO
+                    ? messaggio.substring(0, MAX_MESSAGGIO) : messaggio);
+            checkpoint.setAggiornatoIl(LocalDateTime.now());
+            jobCheckpointRepository.saveAndFlush(checkpoint);
+        });
+    }
+
+    /**
+     * Ricalcola dai checkpoint i conteggi dell'esecuzione, se è ancora quella indicata.
+     * Va chiamato all'interno di una transazione.
+     */
+    private JobEsecuzioneEntity aggiornaConteggi(EsecuzioneJobDTO esecuzione, String ultimaChiave) {
+        JobEsecuzioneEntity e = jobEsecuzioneRepository.findById(esecuzione.getNome()).orElse(null);
+        if (e == null || !e.getAvviataIl().equals(esecuzione.getAvviataIl())) {
+            // Nel frattempo è partita un'altra esecuzione
+            return null;
+        }
+        e.setCompletati((int) jobCheckpointRepository.countByNomeAndStatoDal(
+                e.getNome(), StatoJob.COMPLETATO, e.getAvviataIl()));
+        e.setFalliti((int) jobCheckpointRepository.countByNomeAndStatoDal(
+                e.getNome(), StatoJob.FALLITO, e.getAvviataIl()));
+        if (ultimaChiave != null) {
+            e.setUltimaChiave(ultimaChiave);
+        }
+        e.setAggiornataIl(LocalDateTime.now());
+        return e;
+    }
+
+    private static EsecuzioneJobDTO toDto(JobEsecuzioneEntity e) {
+        EsecuzioneJobDTO dto = new EsecuzioneJobDTO();
+        dto.setNome(e.getNome());
+        dto.setStato(e.getStato());
+        dto.setAvviataIl(e.getAvviataIl());
+        dto.setTerminataIl(e.getTerminataIl());
+        dto.setTotale(e.getTotale());
+        dto.setCompletati(e.getCompletati());
+        dto.setFalliti(e.getFalliti());
+        dto.setUltimaChiave(e.getUltimaChiave());
+        return dto;
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.rendimento.service.impl;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.jsoup.HttpStatusException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import com.example.rendimento.enums.FonteEsterna;
+import com.example.rendimento.exception.ServizioEsternoNonDisponibileException;
+import com.example.rendimento.service.ChiamateEsterneService;
+import com.example.rendimento.utility.EsecutoreVirtuale;
+import com.example.rendimento.utility.InterruttoreCircuito;
+import com.example.rendimento.utility.LimitatoreRichieste;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Un {@link EsecutoreVirtuale} per ogni fonte, con limiti letti da {@code rendimento.fonti.<chiave>}:
+ * {@code concorrenti} (chiamate contemporanee), {@code in-attesa} (chiamate in coda oltre quelle
+ * in corso, le successive sono rifiutate subito) e {@code scadenza-ms} (tempo massimo di attesa
+ * del chiamante, coda compresa).
+ * <p>
+ * Per ogni host, da {@code rendimento.host.<host>}:
+ * <ul>
+ * <li>un {@link LimitatoreRichieste} ({@code richieste-al-secondo}, {@code richieste-al-secondo-minime},
+ * {@code raffica}) che rallenta quando il servizio risponde 429 o 503;</li>
+ * <li>un {@link InterruttoreCircuito} ({@code soglia-errori}, {@code apertura-secondi}) che, dopo
+ * errori consecutivi, rifiuta subito le chiamate invece di attendere ogni volta la scadenza.
+ * Una risposta HTTP diversa da 429 e 5xx (es. 404 per un ISIN inesistente) non è un errore dell'host.</li>
+ * </ul>
+ * Metriche (tag {@code host}): {@code rendimento.fonti.circuito} (0 chiuso, 1 semiaperto, 2 aperto),
+ * {@code rendimento.fonti.richieste-al-secondo} e {@code rendimento.fonti.chiamate} con tag {@code esito}.
+ */
+@Service
+public class ChiamateEsterneServiceImpl implements ChiamateEsterneService {
+
+    private static final Logger log = LoggerFactory.getLogger(ChiamateEsterneServiceImpl.class);
+
+    private final MeterRegistry meterRegistry;
+    private final Map<FonteEsterna, EsecutoreVirtuale> esecutori = new EnumMap<>(FonteEsterna.class);
+    private final Map<FonteEsterna, Long> scadenzeMs = new EnumMap<>(FonteEsterna.class);
+    private final Map<String, LimitatoreRichieste> limitatori = new HashMap<>();
+    private final Map<String, InterruttoreCircuito> interruttori = new HashMap<>();
+
+    public ChiamateEsterneServiceImpl(Environment environment, MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        for (FonteEsterna fonte : FonteEsterna.values()) {
+            String prefisso = "rendimento.fonti." + fonte.getChiave() + ".";
+            int concorrenti = environment.getProperty(prefisso + "concorrenti", Integer.class, 4);
+            int inAttesa = environment.getProperty(prefisso + "in-attesa", Integer.class, 20);
+            long scadenzaMs = environment.getProperty(prefisso + "scadenza-ms", Long.class, 30_000L);
+            esecutori.put(fonte, new EsecutoreVirtuale("fonte-" + fonte.getChiave() + "-", concorrenti, inAttesa));
+            scadenzeMs.put(fonte, scadenzaMs);
+            log.info("Fonte {}: {} chiamate contemporanee, {} in attesa, scadenza {} ms",
+                    fonte.getChiave(), concorrenti, inAttesa, scadenzaMs);
+
+            if (!limitatori.containsKey(fonte.getHost())) {
+                registraHost(fonte.getHost(), environment);
+            }
+        }
+    }
+
+    private void registraHost(String host, Environment environment) {
+        String prefisso = "rendimento.host." + host + ".";
+        double alSecondo = environment.getProperty(prefisso + "richieste-al-secondo", Double.class, 2.0);
+        double minimeAlSecondo = environment.getProperty(prefisso + "richieste-al-secondo-minime", Double.class, 0.2);
+        double raffica = environment.getProperty(prefisso + "raffica", Double.class, 4.0);
+        int sogliaErrori = environment.getProperty(prefisso + "soglia-errori", Integer.class, 5);
+        long aperturaSecondi = environment.getProperty(prefisso + "apertura-secondi", Long.class, 30L);
+
+        LimitatoreRichieste limitatore = new LimitatoreRichieste(alSecondo, minimeAlSecondo, raffica);
+        InterruttoreCircuito interruttore = new InterruttoreCircuito(sogliaErrori, Duration.ofSeconds(aperturaSecondi));
+        limitatori.put(host, limitatore);
+        interruttori.put(host, interruttore);
+
+        Gauge.builder("rendimento.fonti.circuito", interruttore, i -> i.getStato().getCodice())
+                .tag("host", host)
+                .description("Stato del circuito: 0 chiuso, 1 semiaperto, 2 aperto")
+                .register(meterRegistry);
+        Gauge.builder("rendimento.fonti.richieste-al-secondo", limitatore, LimitatoreRichieste::getRichiesteAlSecondo)
+                .tag("host", host)
+                .register(meterRegistry);
+        log.info("Host {}: {} richieste al secondo (minimo {}), circuito aperto dopo {} errori per {} s",
+                host, alSecondo, minimeAlSecondo, sogliaErrori, aperturaSecondi);
+    }
+
+    @Override
+    public <T> T esegui(FonteEsterna fonte, ChiamataEsterna<T> chiamata) throws IOException {
+        String host = fonte.getHost();
+        InterruttoreCircuito interruttore = interruttori.get(host);
+        LimitatoreRichieste limitatore = limitatori.get(host);
+
+        if (!interruttore.consenti()) {
+            registraEsito(host, "circuito_aperto");
+            throw new ServizioEsternoNonDisponibileException(fonte,
+                    "Il servizio " + host + " non risponde correttamente, riprovare più tardi", null);
+        }
+
+        Future<T> risultato;
+        try {
+            risultato = esecutori.get(fonte).submit(() -> {
+                // L'attesa del gettone rientra nella scadenza del chiamante
+                limitatore.attendiPermesso();
+                return chiamata.esegui();
+            });
+        } catch (RejectedExecutionException e) {
+            interruttore.abbandona();
+            registraEsito(host, "rifiutata");
+            throw new ServizioEsternoNonDisponibileException(fonte,
+                    "Troppe richieste in corso verso " + fonte.getChiave() + ", riprovare più tardi", e);
+        }
+
+        long scadenzaMs = scadenzeMs.get(fonte);
+        try {
+            T valore = risultato.get(scadenzaMs, TimeUnit.MILLISECONDS);
+            interruttore.registraSuccesso();
+            limitatore.segnalaSuccesso();
+            registraEsito(host, "riuscita");
+            return valore;
+        } catch (TimeoutException e) {
+            // Interrompe la chiamata, che libera il posto sull'esecutore della fonte
+            risultato.cancel(true);
+            interruttore.registraErrore();
+            registraEsito(host, "scaduta");
+            log.warn("Chiamata a {} non terminata entro {} ms", fonte.getChiave(), scadenzaMs);
+            throw new ServizioEsternoNonDisponibileException(fonte,
+                    "Il servizio " + fonte.getChiave() + " non ha risposto entro " + scadenzaMs + " ms", e);
+        } catch (InterruptedException e) {
+            risultato.cancel(true);
+            interruttore.abbandona();
+            Thread.currentThread().interrupt();
+            throw new ServizioEsternoNonDisponibileException(fonte, "Chiamata a " + fonte.getChiave() + " interrotta", e);
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            registraErrore(host, causa);
+            if (causa instanceof IOException io) {
+                throw io;
+            }
+            if (causa instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (causa instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(causa);
+        }
+    }
+
+    private void registraErrore(String host, Throwable causa) {
+        if (causa instanceof HttpStatusException http) {
+            int stato = http.getStatusCode();
+            if (stato == 429 || stato == 503) {
+                limitatori.get(host).segnalaRallentamento();
+                interruttori.get(host).registraErrore();
+                registraEsito(host, "rallentata");
+                log.warn("Host {} ha risposto {}: richieste ridotte a {} al secondo", host, stato,
+                        String.format("%.2f", limitatori.get(host).getRichiesteAlSecondo()));
+                return;
+            }
+            if (stato < 500) {
+                // L'host ha risposto: la pagina non esiste, ma il servizio funziona
+                interruttori.get(host).registraSuccesso();
+                registraEsito(host, "riuscita");
+                return;
+            }
+        }
+        interruttori.get(host).registraErrore();
+        registraEsito(host, "errore");
+    }
+
+    private void registraEsito(String host, String esito) {
+        meterRegistry.counter("rendimento.fonti.chiamate", "host", host, "esito", esito).increment();
+    }
+
+    @PreDestroy
+    public void chiudi() {
+        esecutori.values().forEach(EsecutoreVirtuale::shutdownNow);
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.rendimento.service.impl;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.rendimento.exception.JobInEsecuzioneException;
+import com.example.rendimento.model.JobLeaseEntity;
+import com.example.rendimento.repository.JobLeaseRepository;
+import com.example.rendimento.service.CoordinatoreJobService;
+
+/**
+ * Coordinamento dei job tramite lease a tempo nella tabella job_lease.
+ * <p>
+ * Ogni operazione sul lease è una singola istruzione in una transazione propria, indipendente
+ * da quella del chiamante, così il lease è visibile subito agli altri nodi. I lease detenuti sono
+ * rinnovati periodicamente: se il nodo si arresta, il lease scade e il job può ripartire altrove.
+ * Gli istanti sono presi dall'orologio del nodo, quindi gli orologi dei nodi devono essere
+ * sincronizzati con uno scarto molto inferiore alla durata del lease.
+ */
+@Service
+public class CoordinatoreJobServiceImpl implements CoordinatoreJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(CoordinatoreJobServiceImpl.class);
+
+    private static final String SEPARATORE_PARTIZIONE = "#";
+
+    private final JobLeaseRepository jobLeaseRepository;
+    private final TransactionTemplate transazione;
+    private final String nodo;
+    private final long durataSecondi;
+
+    /**
+     * Lease detenuti da questo nodo, da rinnovare finché il lavoro è in corso.
+     */
+    private final Set<String> posseduti = ConcurrentHashMap.newKeySet();
+
+    public CoordinatoreJobServiceImpl(JobLeaseRepository jobLeaseRepository,
+                                      PlatformTransactionManager transactionManager,
+                                      @Value("${rendimento.cluster.nodo:}") String nodo,
+                                      @Value("${rendimento.cluster.durata-lease-secondi:60}") long durataSecondi) {
+        this.jobLeaseRepository = jobLeaseRepository;
+        this.transazione = new TransactionTemplate(transactionManager);
+        this.transazione.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.nodo = nodo == null || nodo.isBlank() ? nodoPredefinito() : nodo;
+        this.durataSecondi = durataSecondi;
+        log.info("Coordinamento dei job attivo per il nodo {}", this.nodo);
+    }
+
+    @Override
+    public <T> T eseguiInEsclusiva(String job, Supplier<T> lavoro) {
+        LocalDateTime ora = LocalDateTime.now();
+        if (!acquisisci(job, ora, ora)) {
+            throw new JobInEsecuzioneException(messaggioInEsecuzione(job));
+        }
+        try {
+            return lavoro.get();
+        } finally {
+            rilascia(job, false);
+        }
+    }
+
+    @Override
+    public <T> List<T> eseguiPartizionato(String job, int partizioni, IntFunction<T> lavoro) {
+        LocalDateTime ora = LocalDateTime.now();
+        boolean titolare = acquisisci(job, ora, ora);
+        LocalDateTime avvio = ora;
+        if (!titolare) {
+            // Il job è già in esecuzione altrove: questo nodo si unisce alla stessa esecuzione
+            avvio = jobLeaseRepository.findById(job)
+                    .filter(lease -> lease.getScadenza().isAfter(ora))
+                    .map(JobLeaseEntity::getAcquisitoIl)
+                    .orElse(ora);
+            log.info("Job {} già avviato alle {}: il nodo {} elabora le partizioni ancora libere", job, avvio, nodo);
+        }
+
+        List<T> risultati = new ArrayList<>();
+        try {
+            // Partendo da una partizione a caso, due nodi avviati insieme non si contendono le stesse
+            int primo = ThreadLocalRandom.current().nextInt(partizioni);
+            for (int i = 0; i < partizioni; i++) {
+                int partizione = (primo + i) % partizioni;
+                String nome = job + SEPARATORE_PARTIZIONE + partizione;
+                if (!acquisisci(nome, LocalDateTime.now(), avvio)) {
+                    continue;
+                }
+                boolean completata = false;
+                try {
+                    risultati.add(lavoro.apply(partizione));
+                    completata = true;
+                } finally {
+                    rilascia(nome, completata);
+                }
+            }
+        } finally {
+            if (titolare) {
+                rilascia(job, false);
+            }
+        }
+        log.info("Job {}: {} partizioni su {} elaborate dal nodo {}", job, risultati.size(), partizioni, nodo);
+        return risultati;
+    }
+
+    /**
+     * Prolunga i lease detenuti dal nodo. Un lease perso (ad esempio dopo una lunga pausa del nodo)
+     * non è più rinnovato: il lavoro in corso prosegue, ma un altro nodo può già averlo ripreso.
+     */
+    @Scheduled(fixedDelayString = "${rendimento.cluster.rinnovo-ms:20000}")
+    public void rinnovaLease() {
+        for (String nome : posseduti) {
+            Integer rinnovati = transazione.execute(status ->
+                    jobLeaseRepository.rinnova(nome, nodo, LocalDateTime.now().plusSeconds(durataSecondi)));
+            if (rinnovati == null || rinnovati == 0) {
+                posseduti.remove(nome);
+                log.warn("Lease {} non più detenuto dal nodo {}", nome, nodo);
+            }
+        }
+    }
+
+    public String getNodo() {
+        return nodo;
+    }
+
+    /**
+     * Acquisisce il lease se è libero: inesistente, oppure scaduto e non completato dopo {@code completatoPrima}.
+     */
+    private boolean acquisisci(String nome, LocalDateTime ora, LocalDateTime completatoPrima) {
+        LocalDateTime scadenza = ora.plusSeconds(durataSecondi);
+        Integer acquisiti = transazione.execute(status ->
+                jobLeaseRepository.acquisisci(nome, nodo, ora, scadenza, completatoPrima));
+        if (acquisiti == null || acquisiti == 0) {
+            boolean esiste = Optional.ofNullable(transazione.execute(status -> jobLeaseRepository.existsById(nome)))
+                    .orElse(true);
+            if (esiste) {
+                return false;
+            }
+            try {
+                transazione.executeWithoutResult(status -> jobLeaseRepository.inserisci(nome, nodo, ora, scadenza));
+            } catch (DataIntegrityViolationException e) {
+                // Un altro nodo ha creato il lease nello stesso momento
+                return false;
+            }
+        }
+        posseduti.add(nome);
+        log.debug("Lease {} acquisito dal nodo {}", nome, nodo);
+        return true;
+    }
+
+    private void rilascia(String nome, boolean completato) {
+        posseduti.remove(nome);
+        LocalDateTime ora = LocalDateTime.now();
+        try {
+            transazione.executeWithoutResult(status ->
+                    jobLeaseRepository.rilascia(nome, nodo, ora, completato ? ora : null));
+        } catch (RuntimeException e) {
+            // Il lease non rinnovato scade comunque da solo
+            log.warn("Rilascio del lease {} non riuscito: {}", nome, e.getMessage());
+        }
+    }
+
+    private String messaggioInEsecuzione(String job) {
+        return jobLeaseRepository.findById(job)
+                .map(lease -> "Il job " + job + " è già in esecuzione sul nodo " + lease.getNodo())
+                .orElse("Il job " + job + " è già in esecuzione su un altro nodo");
+    }
+
+    private static String nodoPredefinito() {
+        // Nome del processo (pid@host) con un suffisso casuale, unico anche tra riavvii sullo stesso host
+        return ManagementFactory.getRuntimeMXBean().getName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
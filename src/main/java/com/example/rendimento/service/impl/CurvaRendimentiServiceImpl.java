@@ -0,0 +1,226 @@
+package com.example.rendimento.service.impl;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.EntityNotFoundException;
+
+import com.example.rendimento.dto.CurvaRendimentiDTO;
+import com.example.rendimento.dto.ResiduoCurvaDTO;
+import com.example.rendimento.model.TrendEntity;
+import com.example.rendimento.repository.TrendRepository;
+import com.example.rendimento.service.CurvaRendimentiService;
+import com.example.rendimento.service.store.TrendSerieStore;
+import com.example.rendimento.utility.CurvaNelsonSiegel;
+
+@Service
+@Transactional(readOnly = true)
+public class CurvaRendimentiServiceImpl implements CurvaRendimentiService {
+
+    private static final Logger log = LoggerFactory.getLogger(CurvaRendimentiServiceImpl.class);
+
+    /**
+     * Scadenze (in anni) interpolate quando la richiesta non ne indica.
+     */
+    private static final List<Double> SCADENZE_PREDEFINITE = List.of(0.25, 0.5, 1.0, 2.0, 3.0, 5.0, 7.0, 10.0, 15.0, 20.0, 30.0);
+
+    private final TrendRepository trendRepository;
+    private final TrendSerieStore trendSerieStore;
+
+    /**
+     * Curve adattate per giorno con la versione dei dati dello store da cui derivano:
+     * una curva è riusata finché la versione del giorno non cambia. Sono conservati solo i giorni
+     * con snapshot, fino al numero massimo configurato: oltre, esce il giorno usato meno di recente.
+     */
+    private final Map<LocalDate, CurvaInCache> cache;
+
+    public CurvaRendimentiServiceImpl(TrendRepository trendRepository, TrendSerieStore trendSerieStore,
+                                      @Value("${rendimento.trend.curve.cache-giorni:1000}") int cacheGiorni) {
+        this.trendRepository = trendRepository;
+        this.trendSerieStore = trendSerieStore;
+        int massimo = Math.max(1, cacheGiorni);
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<LocalDate, CurvaInCache> eldest) {
+                return size() > massimo;
+            }
+        });
+    }
+
+    @Override
+    public CurvaRendimentiDTO getCurva(LocalDate data, List<Double> scadenze) {
+        CurvaNelsonSiegel curva = curvaDelGiorno(data);
+        if (curva == null) {
+            throw new EntityNotFoundException("Titoli insufficienti per costruire la curva del " + data);
+        }
+        return toDto(data, curva, scadenze == null || scadenze.isEmpty() ? SCADENZE_PREDEFINITE : scadenze);
+    }
+
+    @Override
+    public List<ResiduoCurvaDTO> getResidui(LocalDate data) {
+        Map<String, double[]> punti = puntiDelGiorno(data);
+        CurvaNelsonSiegel curva = curvaDelGiorno(data);
+        if (curva == null) {
+            throw new EntityNotFoundException("Titoli insufficienti per costruire la curva del " + data);
+        }
+
+        List<ResiduoCurvaDTO> residui = new ArrayList<>(punti.size());
+        punti.forEach((isin, punto) -> residui.add(new ResiduoCurvaDTO(isin,
+                arrotonda(punto[0]), arrotonda(punto[1]), arrotonda(curva.rendimento(punto[0])))));
+        residui.sort(Comparator.comparingDouble(ResiduoCurvaDTO::getResiduo).reversed());
+        return residui;
+    }
+
+    @Override
+    public List<CurvaRendimentiDTO> getCurve(LocalDate dataInizio, LocalDate dataFine) {
+        if (dataInizio.isAfter(dataFine)) {
+            throw new IllegalArgumentException("La data di inizio deve precedere la data di fine");
+        }
+
+        long inizio = System.currentTimeMillis();
+        List<CurvaRendimentiDTO> curve;
+        if (trendSerieStore.isCaricato()) {
+            // Ogni giorno è indipendente: l'adattamento (e l'eventuale cache) è eseguito in parallelo
+            curve = dataInizio.datesUntil(dataFine.plusDays(1))
+                    .parallel()
+                    .map(giorno -> {
+                        CurvaNelsonSiegel curva = curvaDelGiorno(giorno);
+                        return curva != null ? toDto(giorno, curva, List.of()) : null;
+                    })
+                    .filter(Objects::nonNull)
+                    .toList();
+        } else {
+            // Senza store una sola query per l'intervallo, poi adattamento parallelo per giorno
+            Map<LocalDate, List<TrendEntity>> perGiorno = trendRepository.findByDataSnapshotBetween(dataInizio, dataFine)
+                    .stream()
+                    .collect(Collectors.groupingBy(TrendEntity::getDataSnapshot, TreeMap::new, Collectors.toList()));
+            curve = perGiorno.entrySet().parallelStream()
+                    .map(e -> {
+                        CurvaNelsonSiegel curva = adatta(puntiDaEntita(e.getValue()));
+                        return curva != null ? toDto(e.getKey(), curva, List.of()) : null;
+                    })
+                    .filter(Objects::nonNull)
+                    .toList();
+        }
+
+        log.debug("Curve dal {} al {} adattate in {} ms: {}", dataInizio, dataFine,
+                System.currentTimeMillis() - inizio, curve.size());
+        return curve;
+    }
+
+    /**
+     * Restituisce la curva del giorno, dalla cache se i dati del giorno non sono cambiati.
+     * Senza store in memoria la curva è adattata dai dati del database e non messa in cache,
+     * dato che le modifiche al database non sono tracciate.
+     */
+    private CurvaNelsonSiegel curvaDelGiorno(LocalDate data) {
+        if (!trendSerieStore.isCaricato()) {
+            return adatta(puntiDelGiorno(data));
+        }
+
+        // La versione è letta prima dei punti: una modifica concorrente rende la voce già superata
+        long versione = trendSerieStore.versioneGiorno(data);
+        CurvaInCache inCache = cache.get(data);
+        if (inCache != null && inCache.versione == versione) {
+            return inCache.curva;
+        }
+        Map<String, double[]> punti = trendSerieStore.puntiDelGiorno(data);
+        if (punti.isEmpty()) {
+            // Giorni festivi o fuori dallo storico: nessuna curva e nulla da conservare
+            return null;
+        }
+        CurvaNelsonSiegel curva = adatta(punti);
+        cache.put(data, new CurvaInCache(versione, curva));
+        return curva;
+    }
+
+    private Map<String, double[]> puntiDelGiorno(LocalDate data) {
+        if (trendSerieStore.isCaricato()) {
+            return trendSerieStore.puntiDelGiorno(data);
+        }
+        return puntiDaEntita(trendRepository.findByDataSnapshot(data));
+    }
+
+    private static Map<String, double[]> puntiDaEntita(List<TrendEntity> trend) {
+        Map<String, double[]> punti = new TreeMap<>();
+        for (TrendEntity t : trend) {
+            if (t.getAnniAllaScadenza() != null && t.getRendimentoAnnuo() != null
+                    && t.getAnniAllaScadenza().signum() > 0) {
+                punti.put(t.getIsin(), new double[] {
+                        t.getAnniAllaScadenza().doubleValue(), t.getRendimentoAnnuo().doubleValue()});
+            }
+        }
+        return punti;
+    }
+
+    private static CurvaNelsonSiegel adatta(Map<String, double[]> punti) {
+        double[] anni = new double[punti.size()];
+        double[] rendimenti = new double[punti.size()];
+        int numero = 0;
+        for (double[] punto : punti.values()) {
+            // I titoli con scadenza nel giorno stesso non hanno un rendimento significativo
+            if (punto[0] > 0) {
+                anni[numero] = punto[0];
+                rendimenti[numero] = punto[1];
+                numero++;
+            }
+        }
+        return CurvaNelsonSiegel.adatta(anni, rendimenti, numero);
+    }
+
+    private static CurvaRendimentiDTO toDto(LocalDate data, CurvaNelsonSiegel curva, List<Double> scadenze) {
+        CurvaRendimentiDTO dto = new CurvaRendimentiDTO();
+        dto.setDataSnapshot(data);
+        dto.setBeta0(arrotonda(curva.getBeta0()));
+        dto.setBeta1(arrotonda(curva.getBeta1()));
+        dto.setBeta2(arrotonda(curva.getBeta2()));
+        dto.setTau(arrotonda(curva.getTau()));
+        dto.setNumeroTitoli(curva.getNumeroPunti());
+        dto.setErroreQuadraticoMedio(arrotonda(curva.getErroreQuadraticoMedio()));
+
+        Map<Double, Double> interpolati = new LinkedHashMap<>();
+        for (Double anni : scadenze) {
+            if (anni == null || anni <= 0) {
+                throw new IllegalArgumentException("Le scadenze devono essere positive: " + anni);
+            }
+            interpolati.put(anni, arrotonda(curva.rendimento(anni)));
+        }
+        dto.setRendimentiInterpolati(interpolati);
+        return dto;
+    }
+
+    /**
+     * Arrotonda a 6 decimali, la precisione dei rendimenti salvati.
+     */
+    private static double arrotonda(double valore) {
+        return Math.round(valore * 1_000_000d) / 1_000_000d;
+    }
+
+    /**
+     * Curva in cache con la versione dei dati del giorno da cui è stata adattata
+     * (la curva è null se il giorno non ha abbastanza titoli).
+     */
+    private static final class CurvaInCache {
+        private final long versione;
+        private final CurvaNelsonSiegel curva;
+
+        private CurvaInCache(long versione, CurvaNelsonSiegel curva) {
+            this.versione = versione;
+            this.curva = curva;
+        }
+    }
+}
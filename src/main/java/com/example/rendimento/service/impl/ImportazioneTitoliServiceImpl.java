@@ -0,0 +1,281 @@
+package com.example.rendimento.service.impl;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.rendimento.dto.EsitoImportazioneTitoloDTO;
+import com.example.rendimento.dto.ImportazioneTitoliDTO;
+import com.example.rendimento.dto.TitoloDTO;
+import com.example.rendimento.dto.TitoloImportDTO;
+import com.example.rendimento.enums.EsitoImportazione;
+import com.example.rendimento.enums.TipoTitolo;
+import com.example.rendimento.event.PortafoglioModificatoEvent;
+import com.example.rendimento.mapper.TitoloMapper;
+import com.example.rendimento.model.Titolo;
+import com.example.rendimento.model.Utente;
+import com.example.rendimento.repository.TitoloRepository;
+import com.example.rendimento.repository.UtenteRepository;
+import com.example.rendimento.service.BorsaItalianaService;
+import com.example.rendimento.service.ImportazioneTitoliService;
+import com.example.rendimento.service.factory.BorsaItalianaServiceFactory;
+import com.example.rendimento.utility.EsecutoreVirtuale;
+
+/**
+ * Importazione di più titoli in tre fasi:
+ * <ol>
+ * <li>gli ISIN sono normalizzati e resi univoci, e i titoli già salvati sono letti con una sola query:
+ * quelli di altri utenti sono scartati prima di scaricarne la pagina;</li>
+ * <li>le pagine di Borsa Italiana sono scaricate in parallelo su thread virtuali, una volta per ISIN;
+ * i limiti per host di {@link com.example.rendimento.service.ChiamateEsterneService} restano validi;</li>
+ * <li>i titoli scaricati sono salvati in un'unica transazione. Se il blocco fallisce (es. lo stesso
+ * ISIN inserito nel frattempo da un'altra richiesta) viene riscritto titolo per titolo, e si perde
+ * solo il titolo in errore.</li>
+ * </ol>
+ */
+@Service
+public class ImportazioneTitoliServiceImpl implements ImportazioneTitoliService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportazioneTitoliServiceImpl.class);
+
+    private final TitoloRepository titoloRepository;
+    private final UtenteRepository utenteRepository;
+    private final TitoloMapper titoloMapper;
+    private final BorsaItalianaServiceFactory borsaItalianaServiceFactory;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transazione;
+    private final int scaricamentiParalleli;
+
+    public ImportazioneTitoliServiceImpl(TitoloRepository titoloRepository, UtenteRepository utenteRepository,
+                                         TitoloMapper titoloMapper,
+                                         BorsaItalianaServiceFactory borsaItalianaServiceFactory,
+                                         ApplicationEventPublisher eventPublisher,
+                                         PlatformTransactionManager transactionManager,
+                                         @Value("${rendimento.importazione-titoli.scaricamenti-paralleli:8}") int scaricamentiParalleli) {
+        this.titoloRepository = titoloRepository;
+        this.utenteRepository = utenteRepository;
+        this.titoloMapper = titoloMapper;
+        this.borsaItalianaServiceFactory = borsaItalianaServiceFactory;
+        this.eventPublisher = eventPublisher;
+        this.transazione = new TransactionTemplate(transactionManager);
+        this.scaricamentiParalleli = scaricamentiParalleli;
+    }
+
+    @Override
+    public ImportazioneTitoliDTO importaTitoli(List<TitoloImportDTO> titoliImport, Integer utenteId) {
+        long inizio = System.currentTimeMillis();
+        Utente utente = utenteRepository.findById(utenteId)
+                .orElseThrow(() -> new IllegalStateException("Utente non trovato con ID: " + utenteId));
+
+        // Un solo esito per ISIN, nell'ordine della richiesta
+        Map<String, EsitoImportazioneTitoloDTO> esiti = new LinkedHashMap<>();
+        Map<String, TipoTitolo> daImportare = new LinkedHashMap<>();
+        for (TitoloImportDTO titoloImport : titoliImport) {
+            String isin = titoloImport.getCodiceIsin() == null ? "" : titoloImport.getCodiceIsin().trim().toUpperCase();
+            if (esiti.containsKey(isin) || daImportare.containsKey(isin)) {
+                continue;
+            }
+            if (isin.isEmpty()) {
+                esiti.put(isin, errore(isin, "Il codice ISIN è obbligatorio"));
+                continue;
+            }
+            TipoTitolo tipoTitolo = tipoTitolo(titoloImport.getTipoTitolo());
+            if (tipoTitolo == null) {
+                esiti.put(isin, errore(isin, "Tipo titolo non supportato: " + titoloImport.getTipoTitolo()));
+                continue;
+            }
+            daImportare.put(isin, tipoTitolo);
+            esiti.put(isin, null);
+        }
+
+        // I titoli di altri utenti non vengono modificati: inutile scaricarne la pagina
+        for (Titolo esistente : titoloRepository.findByCodiceIsinIn(daImportare.keySet())) {
+            if (!utenteId.equals(esistente.getUtente().getIdUtente())) {
+                daImportare.remove(esistente.getCodiceIsin());
+                esiti.put(esistente.getCodiceIsin(), nonAutorizzato(esistente.getCodiceIsin()));
+            }
+        }
+
+        List<TitoloDTO> scaricati = new ArrayList<>();
+        scarica(daImportare).forEach((isin, risultato) -> {
+            if (risultato instanceof TitoloDTO titolo) {
+                scaricati.add(titolo);
+            } else {
+                esiti.put(isin, errore(isin, (String) risultato));
+            }
+        });
+
+        for (EsitoImportazioneTitoloDTO esito : salva(scaricati, utente)) {
+            esiti.put(esito.getCodiceIsin(), esito);
+        }
+
+        ImportazioneTitoliDTO risposta = new ImportazioneTitoliDTO();
+        for (EsitoImportazioneTitoloDTO esito : esiti.values()) {
+            risposta.getEsiti().add(esito);
+            if (esito.getEsito().isSalvato()) {
+                risposta.getTitoli().add(esito.getTitolo());
+            } else {
+                risposta.getErrori().add(esito.getMessaggio());
+            }
+        }
+        risposta.setTotale(risposta.getTitoli().size());
+        risposta.setDurataMillis(System.currentTimeMillis() - inizio);
+
+        if (!risposta.getTitoli().isEmpty()) {
+            eventPublisher.publishEvent(PortafoglioModificatoEvent.perUtente(utenteId));
+        }
+        log.info("Importazione di {} ISIN per l'utente ID {}: {} titoli salvati, {} errori in {} ms",
+                esiti.size(), utenteId, risposta.getTotale(), risposta.getErrori().size(), risposta.getDurataMillis());
+        return risposta;
+    }
+
+    /**
+     * Scarica da Borsa Italiana i dati di ogni ISIN, in parallelo.
+     *
+     * @return per ogni ISIN il titolo scaricato, o il messaggio di errore
+     */
+    private Map<String, Object> scarica(Map<String, TipoTitolo> daImportare) {
+        Map<String, CompletableFuture<TitoloDTO>> scaricamenti = new LinkedHashMap<>();
+        try (EsecutoreVirtuale esecutore = new EsecutoreVirtuale("importazione-titoli-", scaricamentiParalleli)) {
+            daImportare.forEach((isin, tipoTitolo) -> scaricamenti.put(isin,
+                    CompletableFuture.supplyAsync(() -> scaricaTitolo(isin, tipoTitolo), esecutore)));
+        }
+
+        Map<String, Object> risultati = new LinkedHashMap<>();
+        scaricamenti.forEach((isin, scaricamento) -> {
+            try {
+                risultati.put(isin, scaricamento.join());
+            } catch (CompletionException e) {
+                Throwable causa = e.getCause() != null ? e.getCause() : e;
+                log.warn("Importazione del titolo con ISIN {} non riuscita: {}", isin, causa.getMessage());
+                risultati.put(isin, "Errore nell'importazione del titolo con ISIN: " + isin + ": " + causa.getMessage());
+            }
+        });
+        return risultati;
+    }
+
+    private TitoloDTO scaricaTitolo(String isin, TipoTitolo tipoTitolo) {
+        BorsaItalianaService service = borsaItalianaServiceFactory.getBorsaItalianaService(tipoTitolo);
+        TitoloDTO titolo = tipoTitolo == TipoTitolo.BTP ? service.getTitoloByIsin(isin) : service.getTitoloBotByIsin(isin);
+        if (titolo == null) {
+            throw new IllegalArgumentException("Titolo non trovato su Borsa Italiana");
+        }
+        if (titolo.getNome() == null || titolo.getNome().isBlank() || titolo.getDataScadenza() == null) {
+            throw new IllegalArgumentException("Dati del titolo incompleti su Borsa Italiana");
+        }
+
+        // Stessi valori predefiniti dell'importazione del singolo titolo
+        titolo.setCodiceIsin(isin);
+        titolo.setTipoTitolo(tipoTitolo);
+        if (titolo.getTassoNominale() == null) {
+            titolo.setTassoNominale(BigDecimal.ZERO);
+        }
+        if (titolo.getPeriodicitaCedole() == null) {
+            titolo.setPeriodicitaCedole("SEMESTRALE");
+        }
+        titolo.setPeriodicitaBollo("ANNUALE");
+        titolo.setIdTitolo(null);
+        titolo.setUtenteId(null);
+        return titolo;
+    }
+
+    private List<EsitoImportazioneTitoloDTO> salva(List<TitoloDTO> scaricati, Utente utente) {
+        if (scaricati.isEmpty()) {
+            return List.of();
+        }
+        try {
+            return transazione.execute(status -> {
+                Map<String, Titolo> esistenti = titoloRepository
+                        .findByCodiceIsinIn(scaricati.stream().map(TitoloDTO::getCodiceIsin).toList()).stream()
+                        .collect(Collectors.toMap(Titolo::getCodiceIsin, Function.identity()));
+                List<EsitoImportazioneTitoloDTO> salvati = scaricati.stream()
+                        .map(titolo -> salvaTitolo(titolo, utente, esistenti.get(titolo.getCodiceIsin())))
+                        .toList();
+                titoloRepository.flush();
+                return salvati;
+            });
+        } catch (DataAccessException e) {
+            // Il blocco con la riga in errore viene riscritto titolo per titolo: si perde solo quel titolo
+            log.warn("Salvataggio di {} titoli in blocco non riuscito, si procede titolo per titolo: {}",
+                    scaricati.size(), e.getMessage());
+            return scaricati.stream().map(titolo -> salvaSingolo(titolo, utente)).toList();
+        }
+    }
+
+    private EsitoImportazioneTitoloDTO salvaSingolo(TitoloDTO titolo, Utente utente) {
+        try {
+            return transazione.execute(status -> {
+                EsitoImportazioneTitoloDTO esito = salvaTitolo(titolo, utente,
+                        titoloRepository.findByCodiceIsin(titolo.getCodiceIsin()));
+                titoloRepository.flush();
+                return esito;
+            });
+        } catch (RuntimeException e) {
+            log.error("Errore nel salvataggio del titolo con ISIN {}: {}", titolo.getCodiceIsin(), e.getMessage());
+            return errore(titolo.getCodiceIsin(),
+                    "Errore nell'importazione del titolo con ISIN: " + titolo.getCodiceIsin() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Inserisce il titolo o aggiorna quello già salvato dell'utente. Va chiamato all'interno di una transazione.
+     */
+    private EsitoImportazioneTitoloDTO salvaTitolo(TitoloDTO titolo, Utente utente, Titolo esistente) {
+        Titolo salvato;
+        EsitoImportazione esito;
+        if (esistente == null) {
+            salvato = titoloRepository.save(titoloMapper.toEntity(titolo, utente));
+            esito = EsitoImportazione.CREATO;
+        } else if (!utente.getIdUtente().equals(esistente.getUtente().getIdUtente())) {
+            return nonAutorizzato(titolo.getCodiceIsin());
+        } else {
+            esistente.setNome(titolo.getNome());
+            esistente.setDataScadenza(titolo.getDataScadenza());
+            esistente.setTassoNominale(titolo.getTassoNominale());
+            esistente.setPeriodicitaCedole(titolo.getPeriodicitaCedole());
+            esistente.setPeriodicitaBollo(titolo.getPeriodicitaBollo());
+            esistente.setTipoTitolo(titolo.getTipoTitolo());
+            salvato = titoloRepository.save(esistente);
+            esito = EsitoImportazione.AGGIORNATO;
+        }
+        TitoloDTO dto = titoloMapper.toDto(salvato);
+        dto.setUtenteId(utente.getIdUtente());
+        dto.setCorso(titolo.getCorso());
+        return new EsitoImportazioneTitoloDTO(titolo.getCodiceIsin(), esito, null, dto);
+    }
+
+    private static TipoTitolo tipoTitolo(String tipoTitolo) {
+        if (tipoTitolo == null) {
+            return null;
+        }
+        try {
+            return TipoTitolo.valueOf(tipoTitolo.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static EsitoImportazioneTitoloDTO errore(String isin, String messaggio) {
+        return new EsitoImportazioneTitoloDTO(isin, EsitoImportazione.ERRORE, messaggio, null);
+    }
+
+    private static EsitoImportazioneTitoloDTO nonAutorizzato(String isin) {
+        return new EsitoImportazioneTitoloDTO(isin, EsitoImportazione.NON_AUTORIZZATO,
+                "Non sei autorizzato a modificare il titolo con ISIN: " + isin, null);
+    }
+}
@@ -0,0 +1,281 @@
+package com.example.rendimento.service.impl;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+
+import com.example.rendimento.dto.JobDTO;
+import com.example.rendimento.dto.JobDTO.ErroreJobDTO;
+import com.example.rendimento.enums.StatoJob;
+import com.example.rendimento.service.AvanzamentoJob;
+import com.example.rendimento.service.JobService;
+import com.example.rendimento.utility.EsecutoreVirtuale;
+
+/**
+ * Implementazione in memoria dei job in background.
+ * <p>
+ * I job sono eseguiti su thread virtuali, al massimo {@code thread} alla volta, con una coda
+ * limitata: con la coda piena l'invio è rifiutato invece di accumulare lavoro. Le notifiche agli iscritti partono da un unico
+ * thread separato, così un client lento non rallenta il job, e gli aggiornamenti ravvicinati
+ * di uno stesso job sono accorpati in un solo invio con lo stato più recente.
+ */
+@Service
+public class JobServiceImpl implements JobService {
+
+    private static final Logger log = LoggerFactory.getLogger(JobServiceImpl.class);
+
+    /**
+     * Errori per elemento conservati per ogni job; oltre questo numero sono solo contati.
+     */
+    private static final int MAX_ERRORI = 200;
+
+    private final Executor esecuzione;
+    private final Executor notifiche;
+    private final long conservazioneMinuti;
+    private final long timeoutStreamMillis;
+
+    private final Map<String, Job> job = new ConcurrentHashMap<>();
+
+    @Autowired
+    public JobServiceImpl(@Value("${rendimento.job.thread:2}") int thread,
+                          @Value("${rendimento.job.coda:50}") int coda,
+                          @Value("${rendimento.job.conservazione-minuti:60}") long conservazioneMinuti,
+                          @Value("${rendimento.job.stream.timeout-ms:1800000}") long timeoutStreamMillis) {
+        this(new EsecutoreVirtuale("job-", thread, coda),
+                Executors.newSingleThreadExecutor(threadDemone("job-notifiche")),
+                conservazioneMinuti, timeoutStreamMillis);
+    }
+
+    /**
+     * Costruttore con gli esecutori dei job e delle notifiche; quello delle notifiche deve
+     * eseguire i compiti uno alla volta nell'ordine di sottomissione.
+     */
+    public JobServiceImpl(Executor esecuzione, Executor notifiche, long conservazioneMinuti, long timeoutStreamMillis) {
+        this.esecuzione = esecuzione;
+        this.notifiche = notifiche;
+        this.conservazioneMinuti = conservazioneMinuti;
+        this.timeoutStreamMillis = timeoutStreamMillis;
+    }
+
+    @Override
+    public JobDTO avvia(String tipo, Integer utenteId, Function<AvanzamentoJob, ?> lavoro) {
+        Job nuovo = new Job(UUID.randomUUID().toString(), tipo, utenteId);
+        // Il controllo e l'inserimento sono atomici: due invii ravvicinati producono un solo job
+        synchronized (job) {
+            for (Job esistente : job.values()) {
+                if (esistente.utenteId.equals(utenteId) && esistente.tipo.equals(tipo) && !esistente.stato.isTerminato()) {
+                    log.info("Job {} già in corso per l'utente {}: {}", tipo, utenteId, esistente.id);
+                    return esistente.toDto(false);
+                }
+            }
+            job.put(nuovo.id, nuovo);
+        }
+
+        try {
+            esecuzione.execute(() -> esegui(nuovo, lavoro));
+        } catch (RuntimeException e) {
+            job.remove(nuovo.id);
+            throw e;
+        }
+        log.info("Job {} accodato per l'utente {}: {}", tipo, utenteId, nuovo.id);
+        return nuovo.toDto(false);
+    }
+
+    private void esegui(Job j, Function<AvanzamentoJob, ?> lavoro) {
+        j.dataInizio = LocalDateTime.now();
+        j.stato = StatoJob.IN_ESECUZIONE;
+        j.notifica();
+        try {
+            j.risultato = lavoro.apply(j);
+            j.stato = StatoJob.COMPLETATO;
+            log.info("Job {} {} completato: {} elementi completati, {} falliti su {}",
+                    j.tipo, j.id, j.completati.get(), j.falliti.get(), j.totale);
+        } catch (RuntimeException e) {
+            j.messaggio = e.getMessage();
+            j.stato = StatoJob.FALLITO;
+            log.error("Job {} {} fallito: {}", j.tipo, j.id, e.getMessage(), e);
+        } finally {
+            j.dataFine = LocalDateTime.now();
+            j.notifica();
+        }
+    }
+
+    @Override
+    public JobDTO getJob(String id, Integer utenteId) {
+        return trova(id, utenteId).toDto(true);
+    }
+
+    @Override
+    public List<JobDTO> getJobUtente(Integer utenteId) {
+        return job.values().stream()
+                .filter(j -> j.utenteId.equals(utenteId))
+                .sorted(Comparator.comparing((Job j) -> j.dataCreazione).reversed())
+                .map(j -> j.toDto(false))
+                .toList();
+    }
+
+    @Override
+    public SseEmitter iscrivi(String id, Integer utenteId) {
+        Job j = trova(id, utenteId);
+        SseEmitter emitter = new SseEmitter(timeoutStreamMillis);
+        emitter.onCompletion(() -> j.iscritti.remove(emitter));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> emitter.complete());
+        j.iscritti.add(emitter);
+        // Lo stato corrente passa dallo stesso thread delle notifiche, così precede gli aggiornamenti
+        j.notifica();
+        return emitter;
+    }
+
+    /**
+     * Elimina i job terminati da più del periodo di conservazione.
+     */
+    @Scheduled(fixedDelayString = "${rendimento.job.pulizia-ms:600000}")
+    public void eliminaJobTerminati() {
+        LocalDateTime limite = LocalDateTime.now().minusMinutes(conservazioneMinuti);
+        job.values().removeIf(j -> j.stato.isTerminato() && j.dataFine != null && j.dataFine.isBefore(limite));
+    }
+
+    @PreDestroy
+    public void chiudi() {
+        if (esecuzione instanceof ExecutorService executor) {
+            executor.shutdownNow();
+        }
+        if (notifiche instanceof ExecutorService executor) {
+            executor.shutdownNow();
+        }
+    }
+
+    private Job trova(String id, Integer utenteId) {
+        Job j = job.get(id);
+        if (j == null || !j.utenteId.equals(utenteId)) {
+            throw new EntityNotFoundException("Job non trovato con ID: " + id);
+        }
+        return j;
+    }
+
+    private static ThreadFactory threadDemone(String prefisso) {
+        AtomicInteger contatore = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefisso + contatore.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private final class Job implements AvanzamentoJob {
+        private final String id;
+        private final String tipo;
+        private final Integer utenteId;
+        private final LocalDateTime dataCreazione = LocalDateTime.now();
+        private final AtomicInteger completati = new AtomicInteger();
+        private final AtomicInteger falliti = new AtomicInteger();
+        private final List<ErroreJobDTO> errori = new CopyOnWriteArrayList<>();
+        private final List<SseEmitter> iscritti = new CopyOnWriteArrayList<>();
+        private final AtomicBoolean notificaInSospeso = new AtomicBoolean();
+        private volatile StatoJob stato = StatoJob.IN_CODA;
+        private volatile int totale;
+        private volatile String messaggio;
+        private volatile LocalDateTime dataInizio;
+        private volatile LocalDateTime dataFine;
+        private volatile Object risultato;
+
+        private Job(String id, String tipo, Integer utenteId) {
+            this.id = id;
+            this.tipo = tipo;
+            this.utenteId = utenteId;
+        }
+
+        @Override
+        public void setTotale(int totale) {
+            this.totale = totale;
+            notifica();
+        }
+
+        @Override
+        public void completato(String chiave) {
+            completati.incrementAndGet();
+            notifica();
+        }
+
+        @Override
+        public void fallito(String chiave, String messaggio) {
+            falliti.incrementAndGet();
+            if (errori.size() < MAX_ERRORI) {
+                errori.add(new ErroreJobDTO(chiave, messaggio));
+            }
+            notifica();
+        }
+
+        /**
+         * Accoda l'invio dello stato agli iscritti, se non ce n'è già uno in attesa.
+         */
+        private void notifica() {
+            if (iscritti.isEmpty() || !notificaInSospeso.compareAndSet(false, true)) {
+                return;
+            }
+            notifiche.execute(() -> {
+                notificaInSospeso.set(false);
+                boolean terminato = stato.isTerminato();
+                JobDTO dto = toDto(false);
+                for (SseEmitter emitter : iscritti) {
+                    try {
+                        emitter.send(SseEmitter.event()
+                                .name(EVENTO_AVANZAMENTO)
+                                .data(dto, MediaType.APPLICATION_JSON));
+                        if (terminato) {
+                            emitter.complete();
+                        }
+                    } catch (IOException | IllegalStateException e) {
+                        iscritti.remove(emitter);
+                        emitter.completeWithError(e);
+                    }
+                }
+            });
+        }
+
+        private JobDTO toDto(boolean conRisultato) {
+            JobDTO dto = new JobDTO();
+            dto.setId(id);
+            dto.setTipo(tipo);
+            dto.setStato(stato);
+            dto.setTotale(totale);
+            dto.setCompletati(completati.get());
+            dto.setFalliti(falliti.get());
+            dto.setErrori(new ArrayList<>(errori));
+            dto.setMessaggio(messaggio);
+            dto.setDataCreazione(dataCreazione);
+            dto.setDataInizio(dataInizio);
+            dto.setDataFine(dataFine);
+            if (conRisultato && stato == StatoJob.COMPLETATO) {
+                dto.setRisultato(risultato);
+            }
+            return dto;
+        }
+    }
+}
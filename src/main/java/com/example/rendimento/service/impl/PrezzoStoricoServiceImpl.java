@@ -17,9 +17,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import com.example.rendimento.enums.FonteEsterna;
 import com.example.rendimento.enums.TipoTitolo;
 import com.example.rendimento.model.PrezzoStorico;
 import com.example.rendimento.model.Titolo;
+import com.example.rendimento.service.ChiamateEsterneService;
 import com.example.rendimento.service.PrezzoStoricoService;
 
 @Service
@@ -30,6 +32,12 @@ public class PrezzoStoricoServiceImpl implements PrezzoStoricoService {
     private static final DateTimeFormatter FORMATTER_SLASH = DateTimeFormatter.ofPattern("dd/MM/yyyy");
     private static final int CONNECTION_TIMEOUT_MS = 60000; // 60 secondi di timeout per le connessioni HTTP
 
+    private final ChiamateEsterneService chiamateEsterne;
+
+    public PrezzoStoricoServiceImpl(ChiamateEsterneService chiamateEsterne) {
+        this.chiamateEsterne = chiamateEsterne;
+    }
+
     public List<PrezzoStorico> estraiPrezziUltimi3Mesi(Titolo titolo, DayOfWeek giornoSettimana) throws Exception {
         List<PrezzoStorico> prezziStorici = new ArrayList<>();
 
@@ -39,11 +47,11 @@ public class PrezzoStoricoServiceImpl implements PrezzoStoricoService {
         log.info("Tentativo di accesso all'URL: {}", url);
 
         try {
-            // Fetch della pagina con gestione errori migliorata e timeout aumentato
-            Document doc = Jsoup.connect(url)
+            // Fetch della pagina sull'esecutore dedicato a Investing, con timeout aumentato
+            Document doc = chiamateEsterne.esegui(FonteEsterna.INVESTING, () -> Jsoup.connect(url)
                     .userAgent("Mozilla/5.0 (Windows NT 10.0; Win64; x64; rv:147.0) Gecko/20100101 Firefox/147.0")
                     .timeout(CONNECTION_TIMEOUT_MS)
-                    .get();
+                    .get());
 
             // Approccio 1: Cerca direttamente le celle con le classi specifiche fornite dall'utente
             Elements dateCells = doc.select("td[class*='datatable_cell']:contains(/)"); // Celle data contengono slash
@@ -0,0 +1,385 @@
+package com.example.rendimento.service.impl;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
+
+import com.example.rendimento.constants.RendimentoConstants;
+import com.example.rendimento.dto.EsecuzioneJobDTO;
+import com.example.rendimento.dto.RisultatoRendimentoAdvancedDTO;
+import com.example.rendimento.dto.SimulazioneDTO;
+import com.example.rendimento.enums.TipoTitolo;
+import com.example.rendimento.model.Titolo;
+import com.example.rendimento.repository.TitoloRepository;
+import com.example.rendimento.service.AvanzamentoJob;
+import com.example.rendimento.service.CheckpointJobService;
+import com.example.rendimento.service.CoordinatoreJobService;
+import com.example.rendimento.service.PrezzoStoricoService;
+import com.example.rendimento.service.RecuperoDatiService;
+import com.example.rendimento.service.RiprovaConflittiService;
+import com.example.rendimento.service.SimulazioneService;
+import com.example.rendimento.service.TrendService;
+import com.example.rendimento.utility.EsecutoreVirtuale;
+
+/**
+ * Recupero dei dati storici organizzato in tre stadi collegati da code limitate:
+ * <ol>
+ * <li>recupero dei prezzi storici, un thread virtuale per titolo con un numero limitato di richieste in parallelo;</li>
+ * <li>calcolo dei rendimenti di ogni prezzo, su thread dedicati;</li>
+ * <li>scrittura di simulazioni e trend a blocchi, ognuno in un'unica transazione, dal thread chiamante.</li>
+ * </ol>
+ * Con una coda piena lo stadio a monte si ferma finché quello a valle non la svuota: la memoria
+ * resta limitata e la durata complessiva dipende dallo stadio più lento, non dalla somma dei tre.
+ * <p>
+ * Il recupero di tutti i BTP è eseguito da un solo nodo alla volta: serie dei trend, statistiche,
+ * curve, cache degli ETag e buffer degli eventi dei trend sono in memoria e vengono aggiornati solo
+ * dal nodo che scrive. La divisione degli ISIN tra più nodi ({@code rendimento.recupero-dati.distribuito})
+ * va attivata solo quando queste strutture saranno invalidate anche sugli altri nodi.
+ */
+@Service
+public class RecuperoDatiServiceImpl implements RecuperoDatiService {
+
+    private static final Logger log = LoggerFactory.getLogger(RecuperoDatiServiceImpl.class);
+
+    private static final String OPERAZIONE = "recupera-dati";
+
+    private final TitoloRepository titoloRepository;
+    private final PrezzoStoricoService prezzoStoricoService;
+    private final SimulazioneService simulazioneService;
+    private final TrendService trendService;
+    private final CoordinatoreJobService coordinatoreJobService;
+    private final CheckpointJobService checkpointJobService;
+    private final RiprovaConflittiService riprovaConflittiService;
+    private final TransactionOperations transazioni;
+    private final int partizioni;
+    private final boolean distribuito;
+    private final int recuperiParalleli;
+    private final int calcoliParalleli;
+    private final int capacitaCoda;
+    private final int dimensioneBlocco;
+
+    public RecuperoDatiServiceImpl(TitoloRepository titoloRepository,
+                                   PrezzoStoricoService prezzoStoricoService,
+                                   SimulazioneService simulazioneService,
+                                   TrendService trendService,
+                                   CoordinatoreJobService coordinatoreJobService,
+                                   CheckpointJobService checkpointJobService,
+                                   RiprovaConflittiService riprovaConflittiService,
+                                   TransactionOperations transazioni,
+                                   @Value("${rendimento.recupero-dati.partizioni:4}") int partizioni,
+                                   @Value("${rendimento.recupero-dati.distribuito:false}") boolean distribuito,
+                                   @Value("${rendimento.recupero-dati.recuperi-paralleli:4}") int recuperiParalleli,
+                                   @Value("${rendimento.recupero-dati.calcoli-paralleli:2}") int calcoliParalleli,
+                                   @Value("${rendimento.recupero-dati.coda:200}") int capacitaCoda,
+                                   @Value("${rendimento.recupero-dati.blocco-scrittura:50}") int dimensioneBlocco) {
+        this.titoloRepository = titoloRepository;
+        this.prezzoStoricoService = prezzoStoricoService;
+        this.simulazioneService = simulazioneService;
+        this.trendService = trendService;
+        this.coordinatoreJobService = coordinatoreJobService;
+        this.checkpointJobService = checkpointJobService;
+        this.riprovaConflittiService = riprovaConflittiService;
+        this.transazioni = transazioni;
+        this.partizioni = partizioni;
+        this.distribuito = distribuito;
+        this.recuperiParalleli = recuperiParalleli;
+        this.calcoliParalleli = calcoliParalleli;
+        this.capacitaCoda = capacitaCoda;
+        this.dimensioneBlocco = dimensioneBlocco;
+    }
+
+    @Override
+    public List<SimulazioneDTO> recuperaDati(List<Titolo> titoli, DayOfWeek giorno, AvanzamentoJob avanzamento) {
+        avanzamento.setTotale(titoli.size());
+        return elabora(titoli, giorno, avanzamento);
+    }
+
+    @Override
+    public List<SimulazioneDTO> recuperaDatiBtp(DayOfWeek giorno, AvanzamentoJob avanzamento) {
+        String job = "recupera-dati:" + giorno;
+        if (!distribuito) {
+            // Il checkpoint è avviato o ripreso solo da chi possiede il lease del job
+            return coordinatoreJobService.eseguiInEsclusiva(job,
+                    () -> recuperaConCheckpoint(job, giorno, avanzamento, (titoli, conCheckpoint) -> elabora(titoli, giorno, conCheckpoint)));
+        }
+        return recuperaConCheckpoint(job, giorno, avanzamento, (titoli, conCheckpoint) ->
+                coordinatoreJobService.eseguiPartizionato(job, partizioni,
+                                partizione -> elabora(titoli.stream()
+                                        .filter(t -> CoordinatoreJobService.partizione(t.getCodiceIsin(), partizioni) == partizione)
+                                        .toList(), giorno, conCheckpoint))
+                        .stream()
+                        .flatMap(List::stream)
+                        .collect(Collectors.toList()));
+    }
+
+    private List<SimulazioneDTO> recuperaConCheckpoint(String job, DayOfWeek giorno, AvanzamentoJob avanzamento,
+                                                       BiFunction<List<Titolo>, AvanzamentoJob, List<SimulazioneDTO>> esecuzioneTitoli) {
+        List<Titolo> titoli = titoloRepository.findByDataScadenzaAfter(LocalDate.now()).stream()
+                .filter(t -> t.getTipoTitolo() == TipoTitolo.BTP)
+                .toList();
+        log.info("Trovati {} titoli BTP con scadenza futura per tutti gli utenti", titoli.size());
+
+        // Un ISIN è l'unità di lavoro: simulazioni e trend sono aggiornati per data, quindi ripeterlo non duplica nulla
+        int isin = (int) titoli.stream().map(Titolo::getCodiceIsin).distinct().count();
+        EsecuzioneJobDTO esecuzione = checkpointJobService.avviaORiprendi(job, isin);
+        List<Titolo> daElaborare = titoli.stream()
+                .filter(t -> !esecuzione.getChiaviCompletate().contains(t.getCodiceIsin()))
+                .toList();
+        if (esecuzione.isRipresa()) {
+            log.info("Job {} ripreso: {} titoli già completati, {} da elaborare",
+                    job, titoli.size() - daElaborare.size(), daElaborare.size());
+        }
+        avanzamento.setTotale(daElaborare.size());
+        AvanzamentoJob conCheckpoint = checkpointJobService.conCheckpoint(esecuzione, avanzamento);
+
+        try {
+            return esecuzioneTitoli.apply(daElaborare, conCheckpoint);
+        } finally {
+            checkpointJobService.concludi(esecuzione);
+        }
+    }
+
+    private List<SimulazioneDTO> elabora(List<Titolo> titoli, DayOfWeek giorno, AvanzamentoJob avanzamento) {
+        if (titoli.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        long inizio = System.currentTimeMillis();
+        BlockingQueue<Riga> prezzi = new ArrayBlockingQueue<>(capacitaCoda);
+        BlockingQueue<Riga> righe = new ArrayBlockingQueue<>(capacitaCoda);
+        ExecutorService recuperi = new EsecutoreVirtuale("recupero-dati-prezzi-", recuperiParalleli);
+        ExecutorService calcoli = Executors.newFixedThreadPool(calcoliParalleli, threadDemone("recupero-dati-calcolo-"));
+        try {
+            // Terminati i calcoli, il segnale di fine arriva allo stadio di scrittura
+            CompletableFuture.allOf(IntStream.range(0, calcoliParalleli)
+                            .mapToObj(i -> CompletableFuture.runAsync(() -> calcola(prezzi, righe), calcoli))
+                            .toArray(CompletableFuture[]::new))
+                    .whenComplete((r, e) -> segnalaFine(righe, 1));
+
+            // Terminati i recuperi, un segnale di fine per ogni thread di calcolo
+            CompletableFuture.allOf(titoli.stream()
+                            .map(titolo -> CompletableFuture.runAsync(
+                                    () -> recuperaPrezzi(titolo, giorno, prezzi, avanzamento), recuperi))
+                            .toArray(CompletableFuture[]::new))
+                    .whenComplete((r, e) -> segnalaFine(prezzi, calcoliParalleli));
+
+            List<SimulazioneDTO> salvate = scrivi(righe);
+            log.info("Recupero dati di {} titoli completato in {} ms: {} simulazioni salvate",
+                    titoli.size(), System.currentTimeMillis() - inizio, salvate.size());
+            return salvate;
+        } finally {
+            // In caso di errore nella scrittura sblocca gli stadi fermi sulle code piene
+            recuperi.shutdownNow();
+            calcoli.shutdownNow();
+        }
+    }
+
+    /**
+     * Primo stadio: recupera i prezzi storici del titolo e li accoda per il calcolo.
+     */
+    private void recuperaPrezzi(Titolo titolo, DayOfWeek giorno, BlockingQueue<Riga> prezzi, AvanzamentoJob avanzamento) {
+        List<Map<String, Object>> prezziMap;
+        try {
+            prezziMap = prezzoStoricoService.estraiPrezziUltimi3MesiMap(titolo, giorno);
+            log.info("Recuperati {} prezzi storici per il titolo {}", prezziMap.size(), titolo.getCodiceIsin());
+        } catch (Exception e) {
+            log.error("Errore nel recupero dei prezzi storici per il titolo ID: {}, ISIN: {}, Errore: {}",
+                    titolo.getIdTitolo(), titolo.getCodiceIsin(), e.getMessage());
+            avanzamento.fallito(titolo.getCodiceIsin(), "Errore nel recupero dei prezzi storici: " + e.getMessage());
+            return;
+        }
+
+        if (prezziMap.isEmpty()) {
+            avanzamento.completato(titolo.getCodiceIsin());
+            return;
+        }
+
+        EsitoTitolo esito = new EsitoTitolo(titolo.getCodiceIsin(), prezziMap.size(), avanzamento);
+        try {
+            for (Map<String, Object> mappa : prezziMap) {
+                prezzi.put(new Riga(titolo, esito, (LocalDate) mappa.get("data"), (BigDecimal) mappa.get("prezzo")));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Secondo stadio: calcola il rendimento di ogni prezzo e lo passa alla scrittura.
+     */
+    private void calcola(BlockingQueue<Riga> prezzi, BlockingQueue<Riga> righe) {
+        try {
+            Riga riga;
+            while ((riga = prezzi.take()) != Riga.FINE) {
+                try {
+                    riga.risultato = simulazioneService.calcolaRendimentoAdvanced(
+                            riga.titolo, riga.prezzo, RendimentoConstants.IMPORTO_FISSO_SIMULAZIONE, riga.data);
+                } catch (RuntimeException e) {
+                    log.error("Errore nel calcolo della simulazione per il titolo ISIN: {}, Data: {}, Errore: {}",
+                            riga.titolo.getCodiceIsin(), riga.data, e.getMessage());
+                    riga.esito.rigaFallita(e.getMessage());
+                    continue;
+                }
+                righe.put(riga);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Terzo stadio: scrive le righe calcolate a blocchi fino al segnale di fine.
+     * Un blocco comprende le righe già in coda, fino alla dimensione massima: se la scrittura
+     * è lo stadio più lento i blocchi si riempiono e le transazioni si riducono.
+     */
+    private List<SimulazioneDTO> scrivi(BlockingQueue<Riga> righe) {
+        List<SimulazioneDTO> salvate = new ArrayList<>();
+        List<Riga> blocco = new ArrayList<>(dimensioneBlocco);
+        try {
+            boolean fine = false;
+            while (!fine) {
+                blocco.add(righe.take());
+                righe.drainTo(blocco, dimensioneBlocco - 1);
+                fine = blocco.remove(Riga.FINE);
+                if (!blocco.isEmpty()) {
+                    salvate.addAll(scriviBlocco(blocco));
+                    blocco.clear();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Recupero dei dati interrotto", e);
+        }
+        return salvate;
+    }
+
+    private List<SimulazioneDTO> scriviBlocco(List<Riga> blocco) {
+        try {
+            List<SimulazioneDTO> salvate = transazioni.execute(status -> blocco.stream().map(this::salva).toList());
+            blocco.forEach(riga -> riga.esito.rigaSalvata());
+            return salvate;
+        } catch (RuntimeException e) {
+            // Una riga in errore annulla l'intero blocco: si riprova una riga per transazione,
+            // ripetendola se un'altra esecuzione ha modificato nel frattempo la stessa simulazione o trend
+            log.warn("Scrittura di un blocco di {} prezzi non riuscita ({}), nuovo tentativo prezzo per prezzo",
+                    blocco.size(), e.getMessage());
+            List<SimulazioneDTO> salvate = new ArrayList<>();
+            for (Riga riga : blocco) {
+                try {
+                    salvate.add(riprovaConflittiService.eseguiConRiprova(OPERAZIONE,
+                            () -> transazioni.execute(status -> salva(riga))));
+                    riga.esito.rigaSalvata();
+                } catch (RuntimeException errore) {
+                    log.error("Errore nel salvataggio della simulazione per il titolo ISIN: {}, Data: {}, Errore: {}",
+                            riga.titolo.getCodiceIsin(), riga.data, errore.getMessage());
+                    riga.esito.rigaFallita(errore.getMessage());
+                }
+            }
+            return salvate;
+        }
+    }
+
+    private SimulazioneDTO salva(Riga riga) {
+        SimulazioneDTO simulazione = simulazioneService.salvaSimulazioneCalcolata(
+                riga.titolo, riga.prezzo, riga.data, riga.risultato);
+        trendService.salvaOAggiornaTrendPerTitolo(
+                riga.titolo, riga.prezzo, riga.risultato.getRendimentoSenzaCosti(), riga.data);
+        return simulazione;
+    }
+
+    private static void segnalaFine(BlockingQueue<Riga> coda, int segnali) {
+        try {
+            for (int i = 0; i < segnali; i++) {
+                coda.put(Riga.FINE);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ThreadFactory threadDemone(String prefisso) {
+        AtomicInteger contatore = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefisso + contatore.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Un prezzo storico di un titolo lungo la pipeline; il risultato è impostato dallo stadio di calcolo.
+     */
+    private static final class Riga {
+        private static final Riga FINE = new Riga(null, null, null, null);
+
+        private final Titolo titolo;
+        private final EsitoTitolo esito;
+        private final LocalDate data;
+        private final BigDecimal prezzo;
+        private RisultatoRendimentoAdvancedDTO risultato;
+
+        private Riga(Titolo titolo, EsitoTitolo esito, LocalDate data, BigDecimal prezzo) {
+            this.titolo = titolo;
+            this.esito = esito;
+            this.data = data;
+            this.prezzo = prezzo;
+        }
+    }
+
+    /**
+     * Conta i prezzi di un titolo ancora in elaborazione e aggiorna l'avanzamento all'ultimo:
+     * il titolo è completato se tutti i suoi prezzi sono stati salvati, altrimenti fallito.
+     */
+    private static final class EsitoTitolo {
+        private final String isin;
+        private final AvanzamentoJob avanzamento;
+        private final AtomicInteger rimanenti;
+        private final AtomicInteger falliti = new AtomicInteger();
+        private volatile String ultimoErrore;
+
+        private EsitoTitolo(String isin, int prezzi, AvanzamentoJob avanzamento) {
+            this.isin = isin;
+            this.avanzamento = avanzamento;
+            this.rimanenti = new AtomicInteger(prezzi);
+        }
+
+        private void rigaSalvata() {
+            rigaTerminata();
+        }
+
+        private void rigaFallita(String errore) {
+            ultimoErrore = errore;
+            falliti.incrementAndGet();
+            rigaTerminata();
+        }
+
+        private void rigaTerminata() {
+            if (rimanenti.decrementAndGet() == 0) {
+                if (falliti.get() == 0) {
+                    avanzamento.completato(isin);
+                } else {
+                    avanzamento.fallito(isin, falliti.get() + " prezzi non elaborati, ultimo errore: " + ultimoErrore);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.rendimento.service.impl;
+
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+
+import com.example.rendimento.exception.ConflittoModificaException;
+import com.example.rendimento.service.RiprovaConflittiService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.OptimisticLockException;
+
+/**
+ * Nuovi tentativi con attesa esponenziale e jitter completo: l'attesa prima del tentativo n
+ * è casuale tra 0 e min(attesa massima, attesa iniziale * 2^n), così i worker in conflitto
+ * sulla stessa riga non si ripresentano insieme.
+ * <p>
+ * Metriche (Micrometer, tag {@code operazione}):
+ * <ul>
+ * <li>{@code rendimento.scrittura.esiti}, con tag {@code esito}: scritture riuscite al primo
+ * tentativo, riuscite dopo un conflitto, abbandonate per conflitti ripetuti o per altri errori;</li>
+ * <li>{@code rendimento.scrittura.conflitti}: conflitti incontrati, compresi quelli risolti
+ * ritentando. Rapportato agli esiti dà il tasso di conflitto.</li>
+ * </ul>
+ */
+@Service
+public class RiprovaConflittiServiceImpl implements RiprovaConflittiService {
+
+    private static final Logger log = LoggerFactory.getLogger(RiprovaConflittiServiceImpl.class);
+
+    /**
+     * SQLSTATE standard della violazione di un vincolo univoco (PostgreSQL e H2).
+     */
+    private static final String CHIAVE_DUPLICATA = "23505";
+
+    private final MeterRegistry meterRegistry;
+    private final int tentativi;
+    private final long attesaInizialeMs;
+    private final long attesaMassimaMs;
+
+    public RiprovaConflittiServiceImpl(MeterRegistry meterRegistry,
+                                       @Value("${rendimento.scrittura.tentativi:5}") int tentativi,
+                                       @Value("${rendimento.scrittura.attesa-iniziale-ms:50}") long attesaInizialeMs,
+                                       @Value("${rendimento.scrittura.attesa-massima-ms:2000}") long attesaMassimaMs) {
+        this.meterRegistry = meterRegistry;
+        this.tentativi = Math.max(1, tentativi);
+        this.attesaInizialeMs = attesaInizialeMs;
+        this.attesaMassimaMs = attesaMassimaMs;
+    }
+
+    @Override
+    public <T> T eseguiConRiprova(String operazione, Supplier<T> scrittura) {
+        for (int tentativo = 1; ; tentativo++) {
+            try {
+                T risultato = scrittura.get();
+                registraEsito(operazione, tentativo == 1 ? "riuscita" : "riuscita_dopo_conflitto");
+                return risultato;
+            } catch (RuntimeException e) {
+                if (!isConflitto(e)) {
+                    registraEsito(operazione, "errore");
+                    throw e;
+                }
+                meterRegistry.counter("rendimento.scrittura.conflitti", "operazione", operazione).increment();
+                if (tentativo >= tentativi) {
+                    log.warn("Operazione {}: conflitto non risolto dopo {} tentativi", operazione, tentativi);
+                    registraEsito(operazione, "conflitto_esaurito");
+                    throw e;
+                }
+                long attesa = ThreadLocalRandom.current().nextLong(limiteAttesa(tentativo) + 1);
+                log.debug("Operazione {}: conflitto al tentativo {}, nuovo tentativo tra {} ms",
+                        operazione, tentativo, attesa);
+                try {
+                    Thread.sleep(attesa);
+                } catch (InterruptedException interruzione) {
+                    Thread.currentThread().interrupt();
+                    registraEsito(operazione, "conflitto_esaurito");
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private long limiteAttesa(int tentativo) {
+        // Esponente limitato per non andare in overflow con molti tentativi
+        long esponenziale = attesaInizialeMs << Math.min(tentativo - 1, 20);
+        return Math.min(attesaMassimaMs, esponenziale);
+    }
+
+    private void registraEsito(String operazione, String esito) {
+        meterRegistry.counter("rendimento.scrittura.esiti", "operazione", operazione, "esito", esito).increment();
+    }
+
+    /**
+     * Un conflitto può arrivare già tradotto da Spring, avvolto da ConflittoModificaException
+     * o, se emerge al commit, come causa di un'altra eccezione. Anche la chiave duplicata è un
+     * conflitto: due scritture hanno letto la riga come assente e l'hanno inserita entrambe
+     * (es. l'aggregato dello stesso giorno e bucket); ritentando, la riga viene trovata e aggiornata.
+     */
+    private static boolean isConflitto(Throwable e) {
+        for (Throwable causa = e; causa != null; causa = causa.getCause()) {
+            if (causa instanceof OptimisticLockingFailureException
+                    || causa instanceof ConflittoModificaException
+                    || causa instanceof OptimisticLockException
+                    || causa instanceof DuplicateKeyException
+                    || causa instanceof SQLException sql && CHIAVE_DUPLICATA.equals(sql.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -8,6 +8,7 @@ import com.example.rendimento.dto.RisultatoRendimentoAdvancedDTO;
 import com.example.rendimento.dto.RisultatoSimulazioneDTO;
 import com.example.rendimento.dto.SimulazioneDTO;
 import com.example.rendimento.enums.ModalitaCalcoloBollo;
+import com.example.rendimento.event.PortafoglioModificatoEvent;
 import com.example.rendimento.enums.TipoTitolo;
 import com.example.rendimento.exception.ConflittoModificaException;
 import com.example.rendimento.mapper.SimulazioneMapper;
@@ -20,6 +21,7 @@ import jakarta.persistence.EntityNotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -28,8 +30,9 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.stream.Collectors;
 import org.springframework.data.domain.PageRequest;
 
@@ -44,6 +47,7 @@ public class SimulazioneServiceImpl implements SimulazioneService {
         private final SimulazioneRepository simulazioneRepository;
         private final TitoloRepository titoloRepository;
         private final SimulazioneMapper simulazioneMapper;
+        private final ApplicationEventPublisher eventPublisher;
 
         /**
          * Costruttore con parametri per l'iniezione delle dipendenze.
@@ -52,14 +56,17 @@ public class SimulazioneServiceImpl implements SimulazioneService {
          *                              simulazioni
          * @param titoloRepository      repository per le operazioni CRUD sui titoli
          * @param simulazioneMapper     mapper per la conversione tra entità e DTO
+         * @param eventPublisher        publisher degli eventi di modifica del portafoglio
          */
         @Autowired
         public SimulazioneServiceImpl(SimulazioneRepository simulazioneRepository,
                         TitoloRepository titoloRepository,
-                        SimulazioneMapper simulazioneMapper) {
+                        SimulazioneMapper simulazioneMapper,
+                        ApplicationEventPublisher eventPublisher) {
                 this.simulazioneRepository = simulazioneRepository;
                 this.titoloRepository = titoloRepository;
                 this.simulazioneMapper = simulazioneMapper;
+                this.eventPublisher = eventPublisher;
         }
 
         /**
@@ -223,6 +230,7 @@ public class SimulazioneServiceImpl implements SimulazioneService {
                 try {
                         Simulazione simulazione = simulazioneMapper.toEntity(simulazioneDTO);
                         Simulazione savedSimulazione = simulazioneRepository.save(simulazione);
+                        pubblicaModifica(List.of(simulazioneDTO.getIdTitolo()));
                         return simulazioneMapper.toDTO(savedSimulazione);
                 } catch (ObjectOptimisticLockingFailureException e) {
                         // Gestione dell'eccezione di concorrenza ottimistica
@@ -231,6 +239,43 @@ public class SimulazioneServiceImpl implements SimulazioneService {
                 }
         }
 
+        @Override
+        @Transactional
+        public SimulazioneDTO salvaSimulazione(SimulazioneDTO simulazioneDTO, Titolo titolo) {
+                try {
+                        // Il titolo è già in mano al chiamante: nessuna SELECT aggiuntiva sul titolo
+                        Simulazione simulazione = simulazioneMapper.toEntity(simulazioneDTO, titolo);
+                        Simulazione savedSimulazione = simulazioneRepository.save(simulazione);
+                        if (titolo.getUtente() != null) {
+                                eventPublisher.publishEvent(PortafoglioModificatoEvent.perUtente(titolo.getUtente().getIdUtente()));
+                        }
+                        return simulazioneMapper.toDTO(savedSimulazione);
+                } catch (ObjectOptimisticLockingFailureException e) {
+                        // Gestione dell'eccezione di concorrenza ottimistica
+                        throw new ConflittoModificaException(
+                                        "La simulazione è stata modificata da un altro utente. Ricarica e riprova.", e);
+                }
+        }
+
+        @Override
+        @Transactional
+        public List<SimulazioneDTO> salvaSimulazioni(List<SimulazioneDTO> simulazioniDTO) {
+                try {
+                        // I titoli vengono risolti come riferimenti lazy, uno per ogni idTitolo distinto
+                        List<Simulazione> simulazioni = simulazioneMapper.toEntityList(simulazioniDTO);
+                        List<Simulazione> savedSimulazioni = simulazioneRepository.saveAll(simulazioni);
+                        pubblicaModifica(simulazioniDTO.stream()
+                                        .map(SimulazioneDTO::getIdTitolo)
+                                        .distinct()
+                                        .collect(Collectors.toList()));
+                        return simulazioneMapper.toDTOList(savedSimulazioni);
+                } catch (ObjectOptimisticLockingFailureException e) {
+                        // Gestione dell'eccezione di concorrenza ottimistica
+                        throw new ConflittoModificaException(
+                                        "Una o più simulazioni sono state modificate da un altro utente. Ricarica e riprova.", e);
+                }
+        }
+
         /**
          * Converte un RisultatoRendimentoAdvancedDTO in un SimulazioneDTO
          * 
@@ -372,6 +417,21 @@ public class SimulazioneServiceImpl implements SimulazioneService {
                                 .orElseThrow(() -> new EntityNotFoundException(
                                                 "Titolo non trovato con ID: " + idTitolo));
 
+                return calcolaESalvaSimulazione(titolo, prezzoAcquisto, importo, dataAcquisto);
+        }
+
+        /**
+         * Calcola il rendimento e salva la simulazione per un titolo già caricato,
+         * senza rileggere il titolo dal database.
+         * 
+         * @param titolo         il titolo già caricato
+         * @param prezzoAcquisto il prezzo di acquisto
+         * @param importo        l'importo dell'investimento
+         * @param dataAcquisto   la data di acquisto
+         * @return il DTO della simulazione salvata con ID aggiornato
+         */
+        private SimulazioneDTO calcolaESalvaSimulazione(Titolo titolo, BigDecimal prezzoAcquisto,
+                        BigDecimal importo, LocalDate dataAcquisto) {
                 // Usa il metodo avanzato per calcolare il rendimento
                 // Nota: calcolaRendimentoAdvanced calcola sia il bollo mensile che annuale
                 // e utilizza il bollo mensile come default
@@ -380,10 +440,10 @@ public class SimulazioneServiceImpl implements SimulazioneService {
 
                 // Converti il risultato in SimulazioneDTO
                 SimulazioneDTO simulazioneDTO = convertToSimulazioneDTO(
-                                risultatoAdvanced, idTitolo, dataAcquisto, prezzoAcquisto, importo);
+                                risultatoAdvanced, titolo.getIdTitolo(), dataAcquisto, prezzoAcquisto, importo);
 
-                // Salva la simulazione
-                return salvaSimulazione(simulazioneDTO);
+                // Salva la simulazione riutilizzando il titolo già caricato
+                return salvaSimulazione(simulazioneDTO, titolo);
         }
 
         @Override
@@ -403,29 +463,35 @@ public class SimulazioneServiceImpl implements SimulazioneService {
         }
 
         @Override
+        @Transactional
         public void deleteSimulazione(Integer id) {
                 if (!simulazioneRepository.existsById(id)) {
                         throw new EntityNotFoundException("Simulazione non trovata con ID: " + id);
                 }
+                // Il proprietario va letto prima dell'eliminazione; la notifica parte dopo il commit
+                Optional<Integer> utenteId = simulazioneRepository.findUtenteIdByIdSimulazione(id);
                 simulazioneRepository.deleteById(id);
+                utenteId.ifPresent(u -> eventPublisher.publishEvent(PortafoglioModificatoEvent.perUtente(u)));
+        }
+
+        /**
+         * Notifica la modifica del portafoglio dei proprietari dei titoli indicati
+         * (un'unica query per risalire agli utenti).
+         */
+        private void pubblicaModifica(List<Integer> idTitoli) {
+                List<Integer> validi = idTitoli.stream().filter(Objects::nonNull).collect(Collectors.toList());
+                if (!validi.isEmpty()) {
+                        eventPublisher.publishEvent(new PortafoglioModificatoEvent(
+                                        titoloRepository.findUtenteIdByIdTitoloIn(validi)));
+                }
         }
 
         @Override
         public List<SimulazioneDTO> getLatestSimulazioneForEachTitolo() {
-                List<Integer> titoloIds = simulazioneRepository.findDistinctTitoloIds();
-                List<Simulazione> latestSimulazioni = new ArrayList<>();
-
-                for (Integer titoloId : titoloIds) {
-                        List<Simulazione> simulazioni = simulazioneRepository.findByTitoloIdOrderByDataAcquistoDesc(
-                                        titoloId, PageRequest.of(0, 1));
-                        if (!simulazioni.isEmpty()) {
-                                latestSimulazioni.add(simulazioni.get(0));
-                        }
-                }
+                // Un'unica query con il titolo caricato tramite entity graph
+                List<Simulazione> latestSimulazioni = simulazioneRepository.findLatestForEachTitolo();
 
-                return latestSimulazioni.stream()
-                                .map(simulazioneMapper::toDTO)
-                                .collect(Collectors.toList());
+                return simulazioneMapper.toDTOList(latestSimulazioni);
         }
 
         @Override
@@ -857,14 +923,8 @@ public class SimulazioneServiceImpl implements SimulazioneService {
                         log.info("Trovate {} simulazioni più recenti per titoli non scaduti dell'utente ID: {} ordinate per data di scadenza crescente",
                                         simulazioni.size(), utenteId);
                 } else {
-                        // Per il caso in cui latest è false, dobbiamo ordinare manualmente
-                        simulazioni = simulazioneRepository.findByUtenteId(utenteId);
-                        // Ordina le simulazioni per data di scadenza crescente
-                        simulazioni.sort((s1, s2) -> {
-                                LocalDate scadenza1 = s1.getTitolo().getDataScadenza();
-                                LocalDate scadenza2 = s2.getTitolo().getDataScadenza();
-                                return scadenza1.compareTo(scadenza2);
-                        });
+                        // L'ordinamento per data di scadenza è eseguito direttamente dalla query
+                        simulazioni = simulazioneRepository.findByUtenteIdOrderByScadenzaAsc(utenteId);
                         log.info("Trovate {} simulazioni totali per l'utente ID: {} ordinate per data di scadenza crescente",
                                         simulazioni.size(), utenteId);
                 }
@@ -953,8 +1013,31 @@ public class SimulazioneServiceImpl implements SimulazioneService {
                 simulazioneAggiornata.setIdSimulazione(simulazioneEsistente.getIdSimulazione());
                 simulazioneAggiornata.setVersion(simulazioneEsistente.getVersion());
 
-                // Salva la simulazione aggiornata
-                return salvaSimulazione(simulazioneAggiornata);
+                // Salva la simulazione aggiornata riutilizzando il titolo già caricato
+                return salvaSimulazione(simulazioneAggiornata, titolo);
+        }
+
+        @Override
+        @Transactional
+        public SimulazioneDTO salvaSimulazioneCalcolata(Titolo titolo, BigDecimal prezzo, LocalDate dataPrezzo,
+                        RisultatoRendimentoAdvancedDTO risultato) {
+                List<SimulazioneDTO> simulazioniGiorno = findByTitoloIdAndDataAcquisto(titolo.getIdTitolo(), dataPrezzo);
+                if (simulazioniGiorno.isEmpty()) {
+                        return salvaSimulazione(convertToSimulazioneDTO(risultato, titolo.getIdTitolo(), dataPrezzo,
+                                        prezzo, RendimentoConstants.IMPORTO_FISSO_SIMULAZIONE), titolo);
+                }
+
+                // Come in aggiornaSimulazione: restano data, prezzo, ID e versione della simulazione esistente
+                SimulazioneDTO simulazioneEsistente = simulazioniGiorno.get(0);
+                SimulazioneDTO simulazioneAggiornata = convertToSimulazioneDTO(
+                                risultato,
+                                simulazioneEsistente.getIdTitolo(),
+                                simulazioneEsistente.getDataAcquisto(),
+                                simulazioneEsistente.getPrezzoAcquisto(),
+                                RendimentoConstants.IMPORTO_FISSO_SIMULAZIONE);
+                simulazioneAggiornata.setIdSimulazione(simulazioneEsistente.getIdSimulazione());
+                simulazioneAggiornata.setVersion(simulazioneEsistente.getVersion());
+                return salvaSimulazione(simulazioneAggiornata, titolo);
         }
 
         /**
@@ -1008,7 +1091,7 @@ public class SimulazioneServiceImpl implements SimulazioneService {
                         } else {
                                 // Crea una nuova simulazione
                                 simulazione = calcolaESalvaSimulazione(
-                                                titolo.getIdTitolo(),
+                                                titolo,
                                                 prezzo,
                                                 RendimentoConstants.IMPORTO_FISSO_SIMULAZIONE,
                                                 dataPrezzo);
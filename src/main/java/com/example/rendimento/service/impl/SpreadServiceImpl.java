@@ -0,0 +1,226 @@
+package com.example.rendimento.service.impl;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.EntityNotFoundException;
+
+import com.example.rendimento.dto.SpreadCoppiaDTO;
+import com.example.rendimento.dto.SpreadPuntoDTO;
+import com.example.rendimento.dto.SpreadSerieDTO;
+import com.example.rendimento.enums.RisoluzioneTrend;
+import com.example.rendimento.enums.TipoTitolo;
+import com.example.rendimento.model.Titolo;
+import com.example.rendimento.repository.TitoloRepository;
+import com.example.rendimento.repository.TrendRepository;
+import com.example.rendimento.repository.projection.IsinTipoProjection;
+import com.example.rendimento.repository.projection.TrendPuntoProjection;
+import com.example.rendimento.service.SpreadService;
+import com.example.rendimento.service.store.SerieRendimenti;
+import com.example.rendimento.service.store.SerieSpread;
+import com.example.rendimento.service.store.TrendSerieStore;
+
+@Service
+@Transactional(readOnly = true)
+public class SpreadServiceImpl implements SpreadService {
+
+    private final TrendRepository trendRepository;
+    private final TitoloRepository titoloRepository;
+    private final TrendSerieStore trendSerieStore;
+
+    public SpreadServiceImpl(TrendRepository trendRepository, TitoloRepository titoloRepository,
+                             TrendSerieStore trendSerieStore) {
+        this.trendRepository = trendRepository;
+        this.titoloRepository = titoloRepository;
+        this.trendSerieStore = trendSerieStore;
+    }
+
+    @Override
+    public SpreadSerieDTO getSpread(String isinPrimo, String isinSecondo, LocalDate dataInizio, LocalDate dataFine,
+                                    RisoluzioneTrend risoluzione) {
+        verificaIntervallo(dataInizio, dataFine);
+        if (isinPrimo.equals(isinSecondo)) {
+            throw new IllegalArgumentException("Lo spread richiede due ISIN diversi");
+        }
+
+        Map<String, SerieRendimenti> serie = leggiSerie(List.of(isinPrimo, isinSecondo), dataInizio, dataFine);
+        for (String isin : List.of(isinPrimo, isinSecondo)) {
+            if (serie.get(isin).isEmpty()) {
+                throw new EntityNotFoundException("Nessun trend trovato per l'ISIN " + isin + " nell'intervallo");
+            }
+        }
+
+        SerieSpread spread = SerieSpread.calcola(serie.get(isinPrimo), serie.get(isinSecondo));
+        return toDto(isinPrimo, isinSecondo, spread.perRisoluzione(risoluzione), risoluzione);
+    }
+
+    @Override
+    public SpreadSerieDTO getSpreadSegmenti(LocalDate dataInizio, LocalDate dataFine, RisoluzioneTrend risoluzione) {
+        verificaIntervallo(dataInizio, dataFine);
+
+        Map<String, TipoTitolo> tipi = new HashMap<>();
+        for (IsinTipoProjection p : titoloRepository.findIsinETipo()) {
+            if (p.getTipoTitolo() != null) {
+                tipi.put(p.getCodiceIsin(), p.getTipoTitolo());
+            }
+        }
+        Map<String, SerieRendimenti> serie = leggiSerie(tipi.keySet(), dataInizio, dataFine);
+
+        // Media giornaliera di ogni segmento: somme e conteggi indicizzati per giorno dell'intervallo
+        int primoGiorno = (int) dataInizio.toEpochDay();
+        int numeroGiorni = (int) dataFine.toEpochDay() - primoGiorno + 1;
+        Map<TipoTitolo, double[]> somme = new EnumMap<>(TipoTitolo.class);
+        Map<TipoTitolo, int[]> conteggi = new EnumMap<>(TipoTitolo.class);
+        for (TipoTitolo tipo : TipoTitolo.values()) {
+            somme.put(tipo, new double[numeroGiorni]);
+            conteggi.put(tipo, new int[numeroGiorni]);
+        }
+        serie.forEach((isin, s) -> {
+            double[] somma = somme.get(tipi.get(isin));
+            int[] conteggio = conteggi.get(tipi.get(isin));
+            for (int i = 0; i < s.size(); i++) {
+                somma[s.giorno(i) - primoGiorno] += s.rendimento(i);
+                conteggio[s.giorno(i) - primoGiorno]++;
+            }
+        });
+
+        SerieSpread spread = SerieSpread.calcola(
+                mediaGiornaliera(somme.get(TipoTitolo.BTP), conteggi.get(TipoTitolo.BTP), primoGiorno),
+                mediaGiornaliera(somme.get(TipoTitolo.BOT), conteggi.get(TipoTitolo.BOT), primoGiorno));
+        return toDto(TipoTitolo.BTP.name(), TipoTitolo.BOT.name(), spread.perRisoluzione(risoluzione), risoluzione);
+    }
+
+    @Override
+    public List<SpreadCoppiaDTO> getSpreadTitoliUtente(Integer utenteId, LocalDate dataInizio, LocalDate dataFine) {
+        verificaIntervallo(dataInizio, dataFine);
+
+        // Un titolo per ISIN (l'utente può averne inseriti più con lo stesso codice)
+        Map<String, String> nomi = new TreeMap<>();
+        for (Titolo titolo : titoloRepository.findByUtente_IdUtente(utenteId)) {
+            nomi.putIfAbsent(titolo.getCodiceIsin(), titolo.getNome());
+        }
+        List<String> isin = new ArrayList<>(nomi.keySet());
+        Map<String, SerieRendimenti> serie = leggiSerie(isin, dataInizio, dataFine);
+
+        List<SpreadCoppiaDTO> coppie = new ArrayList<>();
+        for (int i = 0; i < isin.size(); i++) {
+            for (int j = i + 1; j < isin.size(); j++) {
+                SerieSpread spread = SerieSpread.calcola(serie.get(isin.get(i)), serie.get(isin.get(j)));
+
+                SpreadCoppiaDTO dto = new SpreadCoppiaDTO();
+                dto.setIsinPrimo(isin.get(i));
+                dto.setNomePrimo(nomi.get(isin.get(i)));
+                dto.setIsinSecondo(isin.get(j));
+                dto.setNomeSecondo(nomi.get(isin.get(j)));
+                dto.setNumeroPunti(spread.size());
+                if (spread.size() > 0) {
+                    int ultimo = spread.size() - 1;
+                    dto.setDataUltimo(spread.data(ultimo));
+                    dto.setSpreadUltimo(arrotonda(spread.spread(ultimo)));
+                    dto.setSpreadMedio(arrotonda(spread.media()));
+                    dto.setSpreadMinimo(arrotonda(spread.minimo()));
+                    dto.setSpreadMassimo(arrotonda(spread.massimo()));
+                }
+                coppie.add(dto);
+            }
+        }
+        return coppie;
+    }
+
+    /**
+     * Legge le serie dei rendimenti degli ISIN indicati: dallo store in memoria se caricato,
+     * altrimenti con un'unica query per tutti gli ISIN. Gli ISIN senza dati hanno una serie vuota.
+     */
+    private Map<String, SerieRendimenti> leggiSerie(Collection<String> isin, LocalDate dataInizio, LocalDate dataFine) {
+        Map<String, SerieRendimenti> serie = new HashMap<>();
+        if (trendSerieStore.isCaricato()) {
+            for (String codice : isin) {
+                serie.put(codice, trendSerieStore.getRendimenti(codice, dataInizio, dataFine));
+            }
+            return serie;
+        }
+
+        for (String codice : isin) {
+            serie.put(codice, SerieRendimenti.VUOTA);
+        }
+        if (isin.isEmpty()) {
+            return serie;
+        }
+        List<TrendPuntoProjection> punti = trendRepository.findPuntiByIsinInAndDataSnapshotBetween(isin, dataInizio, dataFine);
+        // I punti sono ordinati per ISIN e data: ogni ISIN è un blocco contiguo
+        int inizio = 0;
+        while (inizio < punti.size()) {
+            String codice = punti.get(inizio).getIsin();
+            int fine = inizio;
+            while (fine < punti.size() && punti.get(fine).getIsin().equals(codice)) {
+                fine++;
+            }
+            int[] giorni = new int[fine - inizio];
+            double[] rendimenti = new double[fine - inizio];
+            int n = 0;
+            for (int k = inizio; k < fine; k++) {
+                TrendPuntoProjection p = punti.get(k);
+                if (p.getRendimentoAnnuo() != null) {
+                    giorni[n] = (int) p.getDataSnapshot().toEpochDay();
+                    rendimenti[n] = p.getRendimentoAnnuo().doubleValue();
+                    n++;
+                }
+            }
+            serie.put(codice, new SerieRendimenti(Arrays.copyOf(giorni, n), Arrays.copyOf(rendimenti, n)));
+            inizio = fine;
+        }
+        return serie;
+    }
+
+    private static SerieRendimenti mediaGiornaliera(double[] somme, int[] conteggi, int primoGiorno) {
+        int n = 0;
+        for (int conteggio : conteggi) {
+            if (conteggio > 0) {
+                n++;
+            }
+        }
+        int[] giorni = new int[n];
+        double[] medie = new double[n];
+        int k = 0;
+        for (int i = 0; i < conteggi.length; i++) {
+            if (conteggi[i] > 0) {
+                giorni[k] = primoGiorno + i;
+                medie[k] = somme[i] / conteggi[i];
+                k++;
+            }
+        }
+        return new SerieRendimenti(giorni, medie);
+    }
+
+    private static SpreadSerieDTO toDto(String primo, String secondo, SerieSpread spread, RisoluzioneTrend risoluzione) {
+        List<SpreadPuntoDTO> punti = new ArrayList<>(spread.size());
+        for (int i = 0; i < spread.size(); i++) {
+            punti.add(new SpreadPuntoDTO(spread.data(i), arrotonda(spread.primo(i)),
+                    arrotonda(spread.secondo(i)), arrotonda(spread.spread(i))));
+        }
+        return new SpreadSerieDTO(primo, secondo, risoluzione.getLabel(), punti);
+    }
+
+    private static void verificaIntervallo(LocalDate dataInizio, LocalDate dataFine) {
+        if (dataInizio.isAfter(dataFine)) {
+            throw new IllegalArgumentException("La data di inizio deve precedere la data di fine");
+        }
+    }
+
+    /**
+     * Arrotonda a 6 decimali, la precisione dei rendimenti salvati.
+     */
+    private static double arrotonda(double valore) {
+        return Math.round(valore * 1_000_000d) / 1_000_000d;
+    }
+}
@@ -5,25 +5,34 @@ import com.example.rendimento.dto.SimulazioneDTO;
 import com.example.rendimento.dto.TitoloDTO;
 import com.example.rendimento.dto.UtenteResponseDTO;
 import com.example.rendimento.enums.PeriodoScadenza;
+import com.example.rendimento.event.PortafoglioModificatoEvent;
 import com.example.rendimento.enums.TipoTitolo;
+import com.example.rendimento.enums.TrendBucket;
 import com.example.rendimento.exception.ConflittoModificaException;
+import com.example.rendimento.exception.ServizioEsternoNonDisponibileException;
 import com.example.rendimento.mapper.TitoloMapper;
-import com.example.rendimento.model.Simulazione;
 import com.example.rendimento.model.Titolo;
+import com.example.rendimento.model.TrendEntity;
 import com.example.rendimento.model.Utente;
 import com.example.rendimento.repository.SimulazioneRepository;
 import com.example.rendimento.repository.TitoloRepository;
+import com.example.rendimento.repository.TrendRepository;
 import com.example.rendimento.repository.UtenteRepository;
+import com.example.rendimento.repository.projection.UltimoPrezzoTitoloProjection;
 import com.example.rendimento.service.BorsaItalianaService;
 import com.example.rendimento.service.SimulazioneService;
 import com.example.rendimento.service.TitoloService;
+import com.example.rendimento.service.TrendAggregatiService;
 import com.example.rendimento.service.UtenteService;
 import com.example.rendimento.service.factory.BorsaItalianaServiceFactory;
+import com.example.rendimento.service.store.TrendSerieStore;
 
+import jakarta.persistence.EntityNotFoundException;
 import java.math.BigDecimal;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -33,7 +42,9 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -64,29 +75,26 @@ public class TitoloServiceImpl implements TitoloService {
     
     @Autowired
     private SimulazioneRepository simulazioneRepository;
+    
+    @Autowired
+    private TrendRepository trendRepository;
+
+    @Autowired
+    private TrendAggregatiService trendAggregatiService;
+
+    @Autowired
+    private TrendSerieStore trendSerieStore;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
     @Override
     public List<TitoloDTO> getAllTitoli() {
         List<Titolo> titoli = titoloRepository.findAll();
         List<TitoloDTO> titoloDTOs = titoloMapper.toDtoList(titoli);
         
-        // Per ogni titolo, recupera la simulazione più recente e imposta il campo corso
-        for (TitoloDTO titoloDTO : titoloDTOs) {
-            try {
-                // Recupera la simulazione più recente per il titolo
-                SimulazioneDTO simulazione = simulazioneService.getLatestSimulazioneByTitoloId(titoloDTO.getIdTitolo());
-                
-                // Se esiste una simulazione, imposta il campo corso con il prezzo di acquisto
-                if (simulazione != null) {
-                    titoloDTO.setCorso(simulazione.getPrezzoAcquisto());
-                    log.debug("Corso impostato a {} per il titolo ID: {} (ISIN: {})", 
-                            simulazione.getPrezzoAcquisto(), titoloDTO.getIdTitolo(), titoloDTO.getCodiceIsin());
-                }
-            } catch (Exception e) {
-                // Se non esiste una simulazione per il titolo, lascia il campo corso invariato
-                log.debug("Nessuna simulazione trovata per il titolo ID: {}", titoloDTO.getIdTitolo());
-            }
-        }
+        // Imposta il corso con il prezzo dell'ultima simulazione di ogni titolo (una sola query)
+        impostaCorsoDaUltimeSimulazioni(titoloDTOs, simulazioneRepository.findUltimiPrezzi());
         
         return titoloDTOs;
     }
@@ -97,23 +105,8 @@ public class TitoloServiceImpl implements TitoloService {
         List<Titolo> titoli = titoloRepository.findByUtente_IdUtenteOrderByDataScadenzaAsc(utenteId);
         List<TitoloDTO> titoloDTOs = titoloMapper.toDtoList(titoli);
         
-        // Per ogni titolo, recupera la simulazione più recente e imposta il campo corso
-        for (TitoloDTO titoloDTO : titoloDTOs) {
-            try {
-                // Recupera la simulazione più recente per il titolo
-                SimulazioneDTO simulazione = simulazioneService.getLatestSimulazioneByTitoloId(titoloDTO.getIdTitolo());
-                
-                // Se esiste una simulazione, imposta il campo corso con il prezzo di acquisto
-                if (simulazione != null) {
-                    titoloDTO.setCorso(simulazione.getPrezzoAcquisto());
-                    log.debug("Corso impostato a {} per il titolo ID: {} (ISIN: {})", 
-                            simulazione.getPrezzoAcquisto(), titoloDTO.getIdTitolo(), titoloDTO.getCodiceIsin());
-                }
-            } catch (Exception e) {
-                // Se non esiste una simulazione per il titolo, lascia il campo corso invariato
-                log.debug("Nessuna simulazione trovata per il titolo ID: {}", titoloDTO.getIdTitolo());
-            }
-        }
+        // Imposta il corso con il prezzo dell'ultima simulazione di ogni titolo (una sola query)
+        impostaCorsoDaUltimeSimulazioni(titoloDTOs, simulazioneRepository.findUltimiPrezziByUtenteId(utenteId));
         
         return titoloDTOs;
     }
@@ -121,6 +114,12 @@ public class TitoloServiceImpl implements TitoloService {
     @Override
     @Transactional
     public TitoloDTO saveTitolo(TitoloDTO titoloDTO) {
+        return saveTitolo(titoloDTO, true);
+    }
+
+    @Override
+    @Transactional
+    public TitoloDTO saveTitolo(TitoloDTO titoloDTO, boolean aggiornaDaBorsaItaliana) {
         try {
             log.info("Inizio salvataggio titolo - ISIN: {}", titoloDTO.getCodiceIsin());
             
@@ -142,7 +141,7 @@ public class TitoloServiceImpl implements TitoloService {
                     .orElseThrow(() -> new IllegalStateException("Utente non trovato con ID: " + titoloDTO.getUtenteId()));
             
             // Tenta di recuperare i dati aggiornati da Borsa Italiana se è specificato un tipo di titolo
-            if (titoloDTO.getTipoTitolo() != null && titoloDTO.getCodiceIsin() != null) {
+            if (aggiornaDaBorsaItaliana && titoloDTO.getTipoTitolo() != null && titoloDTO.getCodiceIsin() != null) {
                 try {
                     log.info("Tentativo di recupero dati da Borsa Italiana - ISIN: {}, Tipo: {}", 
                             titoloDTO.getCodiceIsin(), titoloDTO.getTipoTitolo());
@@ -189,6 +188,7 @@ public class TitoloServiceImpl implements TitoloService {
             // Creazione di un nuovo titolo con l'utente specificato
             Titolo titolo = titoloMapper.toEntity(titoloDTO, utente);
             titolo = titoloRepository.save(titolo);
+            eventPublisher.publishEvent(PortafoglioModificatoEvent.perUtente(utente.getIdUtente()));
             
             log.info("Titolo salvato con successo - ISIN: {}, ID: {}", titoloDTO.getCodiceIsin(), titolo.getIdTitolo());
             return titoloMapper.toDto(titolo);
@@ -306,20 +306,36 @@ public class TitoloServiceImpl implements TitoloService {
     @Override
     @Transactional
     public void deleteTitolo(Integer id) {
-        // Prima di eliminare il titolo, conta e elimina tutte le simulazioni associate
-        log.info("Eliminazione del titolo con ID: {} - Eliminazione simulazioni associate", id);
+        log.info("Eliminazione del titolo con ID: {} - Eliminazione simulazioni e trend associati", id);
         
-        // Conta le simulazioni associate al titolo prima di eliminarle
-        List<Simulazione> simulazioniAssociate = simulazioneRepository.findByTitolo_IdTitolo(id);
-        int numeroSimulazioniAssociate = simulazioniAssociate.size();
+        // Recupera solo l'ISIN, necessario per eliminare i trend del titolo
+        String codiceIsin = titoloRepository.findCodiceIsinByIdTitolo(id)
+                .orElseThrow(() -> new EntityNotFoundException("Titolo non trovato con ID: " + id));
         
-        // Elimina direttamente tutte le simulazioni associate al titolo
-        simulazioneRepository.deleteByTitolo_IdTitolo(id);
-        log.info("Eliminate {} simulazioni associate al titolo ID: {}", numeroSimulazioniAssociate, id);
+        // Il riepilogo dei rendimenti del proprietario va ricalcolato dopo l'eliminazione
+        eventPublisher.publishEvent(new PortafoglioModificatoEvent(
+                titoloRepository.findUtenteIdByIdTitoloIn(List.of(id))));
+        
+        // Elimina tutte le simulazioni associate al titolo con un'unica DELETE
+        int numeroSimulazioniEliminate = simulazioneRepository.deleteAllByTitoloId(id);
+        log.info("Eliminate {} simulazioni associate al titolo ID: {}", numeroSimulazioniEliminate, id);
         
         // Ora elimina il titolo
-        titoloRepository.deleteById(id);
-        log.info("Titolo con ID: {} eliminato con successo (1 riga cancellata)", id);
+        int numeroTitoliEliminati = titoloRepository.deleteByIdTitolo(id);
+        log.info("Titolo con ID: {} eliminato con successo ({} riga cancellata)", id, numeroTitoliEliminati);
+        
+        // Gli aggregati dei giorni e bucket in cui compariva l'ISIN sono ricalcolati prima del commit
+        for (TrendEntity trend : trendRepository.findByIsinOrderByDataSnapshotAsc(codiceIsin)) {
+            TrendBucket bucket = TrendBucket.daAnni(trend.getAnniAllaScadenza());
+            if (bucket != null) {
+                trendAggregatiService.segnalaModifica(trend.getDataSnapshot(), bucket);
+            }
+        }
+        
+        // Il codice ISIN è univoco: i trend dell'ISIN appartengono solo a questo titolo
+        int numeroTrendEliminati = trendRepository.deleteAllByIsin(codiceIsin);
+        log.info("Eliminati {} trend associati all'ISIN: {}", numeroTrendEliminati, codiceIsin);
+        trendSerieStore.rimuoviDopoCommit(codiceIsin);
     }
     
     @Override
@@ -332,23 +348,8 @@ public class TitoloServiceImpl implements TitoloService {
         
         List<TitoloDTO> titoloDTOs = titoloMapper.toDtoList(titoliFiltered);
         
-        // Per ogni titolo, recupera la simulazione più recente e imposta il campo corso
-        for (TitoloDTO titoloDTO : titoloDTOs) {
-            try {
-                // Recupera la simulazione più recente per il titolo
-                SimulazioneDTO simulazione = simulazioneService.getLatestSimulazioneByTitoloId(titoloDTO.getIdTitolo());
-                
-                // Se esiste una simulazione, imposta il campo corso con il prezzo di acquisto
-                if (simulazione != null) {
-                    titoloDTO.setCorso(simulazione.getPrezzoAcquisto());
-                    log.debug("Corso impostato a {} per il titolo ID: {} (ISIN: {})", 
-                            simulazione.getPrezzoAcquisto(), titoloDTO.getIdTitolo(), titoloDTO.getCodiceIsin());
-                }
-            } catch (Exception e) {
-                // Se non esiste una simulazione per il titolo, lascia il campo corso invariato
-                log.debug("Nessuna simulazione trovata per il titolo ID: {}", titoloDTO.getIdTitolo());
-            }
-        }
+        // Imposta il corso con il prezzo dell'ultima simulazione di ogni titolo (una sola query)
+        impostaCorsoDaUltimeSimulazioni(titoloDTOs, simulazioneRepository.findUltimiPrezziByUtenteId(utenteId));
         
         return titoloDTOs;
     }
@@ -398,8 +399,9 @@ public class TitoloServiceImpl implements TitoloService {
             // Imposta la periodicità del bollo
             titoloDTO.setPeriodicitaBollo("ANNUALE");
             
-            // Salva il titolo nel database
-            TitoloDTO savedTitolo = saveTitolo(titoloDTO);
+            // Salva il titolo nel database: i dati sono appena stati letti, non vanno scaricati di nuovo
+            TitoloDTO savedTitolo = saveTitolo(titoloDTO, false);
+            savedTitolo.setCorso(titoloDTO.getCorso());
             log.info("Titolo importato con successo - ISIN: {}, ID: {}", codiceIsin, savedTitolo.getIdTitolo());
             
             return savedTitolo;
@@ -407,6 +409,10 @@ public class TitoloServiceImpl implements TitoloService {
             log.error("Errore durante l'importazione del titolo - ISIN: {}, Tipo: {}, Errore: {}", 
                     codiceIsin, tipoTitoloStr, e.getMessage());
             throw e;
+        } catch (ServizioEsternoNonDisponibileException e) {
+            // Borsa Italiana lenta o sovraccarica: la richiesta fallisce subito con 503
+            log.warn("Importazione del titolo non riuscita - ISIN: {}, Errore: {}", codiceIsin, e.getMessage());
+            throw e;
         } catch (Exception e) {
             log.error("Errore imprevisto durante l'importazione del titolo - ISIN: {}, Tipo: {}, Errore: {}", 
                     codiceIsin, tipoTitoloStr, e.getMessage());
@@ -526,4 +532,29 @@ public class TitoloServiceImpl implements TitoloService {
         
         return new RendimentiDTO(rendimentoMinimo, rendimentoMedio, rendimentoMassimo, titoliRendimento);
     }
+
+    /**
+     * Imposta il campo corso di ogni titolo con il prezzo della sua simulazione più recente.
+     * I titoli senza simulazioni mantengono il corso invariato.
+     *
+     * @param titoloDTOs i titoli da aggiornare
+     * @param ultimiPrezzi i prezzi delle ultime simulazioni per titolo
+     */
+    private void impostaCorsoDaUltimeSimulazioni(List<TitoloDTO> titoloDTOs, List<UltimoPrezzoTitoloProjection> ultimiPrezzi) {
+        Map<Integer, BigDecimal> prezziPerTitolo = new HashMap<>();
+        for (UltimoPrezzoTitoloProjection ultimoPrezzo : ultimiPrezzi) {
+            prezziPerTitolo.put(ultimoPrezzo.getIdTitolo(), ultimoPrezzo.getPrezzoAcquisto());
+        }
+        
+        for (TitoloDTO titoloDTO : titoloDTOs) {
+            BigDecimal prezzo = prezziPerTitolo.get(titoloDTO.getIdTitolo());
+            if (prezzo != null) {
+                titoloDTO.setCorso(prezzo);
+                log.debug("Corso impostato a {} per il titolo ID: {} (ISIN: {})", 
+                        prezzo, titoloDTO.getIdTitolo(), titoloDTO.getCodiceIsin());
+            } else {
+                log.debug("Nessuna simulazione trovata per il titolo ID: {}", titoloDTO.getIdTitolo());
+            }
+        }
+    }
 }
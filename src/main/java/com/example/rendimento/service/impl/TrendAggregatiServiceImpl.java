@@ -0,0 +1,294 @@
+package com.example.rendimento.service.impl;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.rendimento.enums.RisoluzioneTrend;
+import com.example.rendimento.enums.TrendBucket;
+import com.example.rendimento.mapper.TrendAggregatoMapper;
+import com.example.rendimento.model.TrendAggregatoEntity;
+import com.example.rendimento.repository.TrendAggregatoRepository;
+import com.example.rendimento.repository.TrendRepository;
+import com.example.rendimento.service.TrendAggregatiService;
+import com.example.rendimento.service.TrendStreamService;
+import com.example.rendimento.utility.IstogrammaRendimenti;
+
+@Service
+public class TrendAggregatiServiceImpl implements TrendAggregatiService {
+
+    private static final Logger log = LoggerFactory.getLogger(TrendAggregatiServiceImpl.class);
+
+    /**
+     * Risoluzioni calcolate a partire dagli aggregati giornalieri.
+     */
+    private static final Set<RisoluzioneTrend> ROLLUP = EnumSet.of(RisoluzioneTrend.SETTIMANALE, RisoluzioneTrend.MENSILE);
+
+    /**
+     * Chiave con cui i giorni da ricalcolare sono legati alla transazione corrente.
+     */
+    private static final Object CHIAVE_IN_SOSPESO = new Object();
+
+    private final TrendRepository trendRepository;
+    private final TrendAggregatoRepository trendAggregatoRepository;
+    private final TrendAggregatoMapper trendAggregatoMapper;
+    private final TrendStreamService trendStreamService;
+
+    @Autowired
+    public TrendAggregatiServiceImpl(TrendRepository trendRepository, TrendAggregatoRepository trendAggregatoRepository,
+                                     TrendAggregatoMapper trendAggregatoMapper, TrendStreamService trendStreamService) {
+        this.trendRepository = trendRepository;
+        this.trendAggregatoRepository = trendAggregatoRepository;
+        this.trendAggregatoMapper = trendAggregatoMapper;
+        this.trendStreamService = trendStreamService;
+    }
+
+    @Override
+    @Transactional
+    public void segnalaModifica(LocalDate dataSnapshot, TrendBucket bucket) {
+        AggregatiInSospeso inSospeso = (AggregatiInSospeso) TransactionSynchronizationManager.getResource(CHIAVE_IN_SOSPESO);
+        if (inSospeso == null) {
+            inSospeso = new AggregatiInSospeso();
+            TransactionSynchronizationManager.bindResource(CHIAVE_IN_SOSPESO, inSospeso);
+            TransactionSynchronizationManager.registerSynchronization(inSospeso);
+        }
+        inSospeso.giorni.computeIfAbsent(bucket, b -> new TreeSet<>()).add(dataSnapshot);
+    }
+
+    @Override
+    @Transactional
+    public void aggiornaAggregatiInSospeso() {
+        AggregatiInSospeso inSospeso = (AggregatiInSospeso) TransactionSynchronizationManager.getResource(CHIAVE_IN_SOSPESO);
+        if (inSospeso != null) {
+            inSospeso.aggiorna();
+        }
+    }
+
+    /**
+     * Ricalcola gli aggregati giornalieri dei giorni indicati per un bucket e i rollup dei periodi
+     * che li contengono. Snapshot, aggregati giornalieri e rollup esistenti sono letti con una sola
+     * query ciascuno sull'intervallo tra il primo e l'ultimo giorno; ogni aggregato è salvato una volta.
+     */
+    private void aggiornaAggregati(TrendBucket bucket, NavigableSet<LocalDate> giorni) {
+        LocalDate primo = giorni.first();
+        LocalDate ultimo = giorni.last();
+        Map<LocalDate, TrendAggregatoEntity> calcolati = perData(trendRepository.calcolaAggregatiPerBucket(primo, ultimo, bucket));
+        Map<LocalDate, TrendAggregatoEntity> esistenti = perData(trendAggregatoRepository.findByRisoluzioneAndBucketAndDataSnapshotBetween(
+                RisoluzioneTrend.GIORNALIERA, bucket, primo, ultimo));
+        for (LocalDate giorno : giorni) {
+            salvaOEliminaAggregato(Optional.ofNullable(esistenti.get(giorno)), calcolati.get(giorno));
+        }
+
+        // I rollup dei periodi toccati si ricalcolano dai soli aggregati giornalieri appena salvati
+        for (RisoluzioneTrend risoluzione : ROLLUP) {
+            LocalDate inizio = risoluzione.inizioPeriodo(primo);
+            LocalDate fine = risoluzione.finePeriodo(ultimo);
+            Map<LocalDate, List<TrendAggregatoEntity>> giornalieriPerPeriodo = new HashMap<>();
+            for (TrendAggregatoEntity g : trendAggregatoRepository.findByRisoluzioneAndBucketAndDataSnapshotBetween(
+                    RisoluzioneTrend.GIORNALIERA, bucket, inizio, fine)) {
+                giornalieriPerPeriodo.computeIfAbsent(risoluzione.inizioPeriodo(g.getDataSnapshot()), k -> new ArrayList<>()).add(g);
+            }
+            Map<LocalDate, TrendAggregatoEntity> rollupEsistenti = perData(
+                    trendAggregatoRepository.findByRisoluzioneAndBucketAndDataSnapshotBetween(risoluzione, bucket, inizio, fine));
+
+            Set<LocalDate> periodi = new TreeSet<>();
+            giorni.forEach(giorno -> periodi.add(risoluzione.inizioPeriodo(giorno)));
+            for (LocalDate periodo : periodi) {
+                List<TrendAggregatoEntity> giornalieri = giornalieriPerPeriodo.get(periodo);
+                salvaOEliminaAggregato(Optional.ofNullable(rollupEsistenti.get(periodo)),
+                        giornalieri == null ? null : calcolaRollup(giornalieri, risoluzione, periodo, bucket));
+            }
+        }
+    }
+
+    private static Map<LocalDate, TrendAggregatoEntity> perData(List<TrendAggregatoEntity> aggregati) {
+        Map<LocalDate, TrendAggregatoEntity> perData = new HashMap<>();
+        aggregati.forEach(a -> perData.put(a.getDataSnapshot(), a));
+        return perData;
+    }
+
+    /**
+     * Aggiorna l'aggregato esistente con i valori calcolati, lo crea se non esiste
+     * o lo elimina se non ci sono più valori (calcolato null).
+     */
+    private void salvaOEliminaAggregato(Optional<TrendAggregatoEntity> esistente, TrendAggregatoEntity calcolato) {
+        if (calcolato == null) {
+            esistente.ifPresent(a -> {
+                trendAggregatoRepository.delete(a);
+                log.debug("Nessuno snapshot per l'aggregato {}: rimosso", a);
+            });
+            return;
+        }
+
+        TrendAggregatoEntity aggregato = esistente.orElse(calcolato);
+        if (aggregato != calcolato) {
+            aggregato.setRendimentoMedio(calcolato.getRendimentoMedio());
+            aggregato.setRendimentoMinimo(calcolato.getRendimentoMinimo());
+            aggregato.setRendimentoMassimo(calcolato.getRendimentoMassimo());
+            aggregato.setNumeroTitoli(calcolato.getNumeroTitoli());
+            aggregato.setIstogramma(calcolato.getIstogramma());
+        }
+        trendAggregatoRepository.save(aggregato);
+        log.debug("Aggregato aggiornato: {}", aggregato);
+
+        // I client dello stream ricevono l'aggregato aggiornato invece di ricalcolare l'intervallo
+        trendStreamService.pubblicaDopoCommit(TrendStreamService.EVENTO_AGGREGATO, trendAggregatoMapper.toDto(aggregato));
+    }
+
+    /**
+     * Combina gli aggregati giornalieri di un periodo: la media è pesata sul numero di titoli
+     * di ogni giorno, il numero di titoli è il massimo giornaliero del periodo e l'istogramma
+     * è l'unione degli istogrammi giornalieri.
+     */
+    private static TrendAggregatoEntity calcolaRollup(List<TrendAggregatoEntity> giornalieri, RisoluzioneTrend risoluzione,
+                                                      LocalDate inizioPeriodo, TrendBucket bucket) {
+        BigDecimal somma = BigDecimal.ZERO;
+        BigDecimal minimo = null;
+        BigDecimal massimo = null;
+        int osservazioni = 0;
+        int numeroTitoli = 0;
+        IstogrammaRendimenti istogramma = new IstogrammaRendimenti();
+        for (TrendAggregatoEntity g : giornalieri) {
+            istogramma.unisci(IstogrammaRendimenti.deserializza(g.getIstogramma()));
+            somma = somma.add(g.getRendimentoMedio().multiply(BigDecimal.valueOf(g.getNumeroTitoli())));
+            minimo = minimo == null ? g.getRendimentoMinimo() : minimo.min(g.getRendimentoMinimo());
+            massimo = massimo == null ? g.getRendimentoMassimo() : massimo.max(g.getRendimentoMassimo());
+            osservazioni += g.getNumeroTitoli();
+            numeroTitoli = Math.max(numeroTitoli, g.getNumeroTitoli());
+        }
+
+        TrendAggregatoEntity rollup = new TrendAggregatoEntity();
+        rollup.setRisoluzione(risoluzione);
+        rollup.setDataSnapshot(inizioPeriodo);
+        rollup.setBucket(bucket);
+        rollup.setRendimentoMedio(osservazioni > 0
+                ? somma.divide(BigDecimal.valueOf(osservazioni), 6, RoundingMode.HALF_UP)
+                : BigDecimal.ZERO.setScale(6));
+        rollup.setRendimentoMinimo(minimo);
+        rollup.setRendimentoMassimo(massimo);
+        rollup.setNumeroTitoli(numeroTitoli);
+        rollup.setIstogramma(istogramma.isVuoto() ? null : istogramma.serializza());
+        return rollup;
+    }
+
+    @Override
+    @Transactional
+    public int ricostruisciAggregati(LocalDate dataInizio, LocalDate dataFine) {
+        // Prima del trend più vecchio le partizioni sono state eliminate: i loro aggregati restano com'erano
+        LocalDate primoTrend = trendRepository.findMinDataSnapshot();
+        if (primoTrend == null || primoTrend.isAfter(dataFine)) {
+            log.info("Nessun trend dal {} al {}: aggregati non ricostruiti", dataInizio, dataFine);
+            return 0;
+        }
+        if (primoTrend.isAfter(dataInizio)) {
+            dataInizio = primoTrend;
+        }
+        log.info("Ricostruzione aggregati trend dal {} al {}", dataInizio, dataFine);
+
+        // Il raggruppamento per (giorno, bucket) è eseguito interamente dal database
+        List<TrendAggregatoEntity> aggregati = trendRepository.calcolaAggregatiPerBucket(dataInizio, dataFine, null);
+
+        trendAggregatoRepository.deleteAllByRisoluzioneAndDataSnapshotBetween(
+                RisoluzioneTrend.GIORNALIERA, dataInizio, dataFine);
+        trendAggregatoRepository.saveAll(aggregati);
+
+        // Rollup dei periodi che intersecano l'intervallo, dai giornalieri appena salvati
+        for (RisoluzioneTrend risoluzione : ROLLUP) {
+            LocalDate inizio = risoluzione.inizioPeriodo(dataInizio);
+            LocalDate fine = risoluzione.finePeriodo(dataFine);
+            trendAggregatoRepository.deleteAllByRisoluzioneAndDataSnapshotBetween(risoluzione, inizio, fine);
+
+            Map<LocalDate, Map<TrendBucket, List<TrendAggregatoEntity>>> perPeriodo = new LinkedHashMap<>();
+            for (TrendAggregatoEntity g : trendAggregatoRepository.findByRisoluzioneAndDataSnapshotBetweenOrderByDataSnapshotAsc(
+                    RisoluzioneTrend.GIORNALIERA, inizio, fine)) {
+                perPeriodo.computeIfAbsent(risoluzione.inizioPeriodo(g.getDataSnapshot()), k -> new LinkedHashMap<>())
+                        .computeIfAbsent(g.getBucket(), k -> new ArrayList<>())
+                        .add(g);
+            }
+
+            List<TrendAggregatoEntity> rollup = new ArrayList<>();
+            perPeriodo.forEach((periodo, perBucket) -> perBucket.forEach((bucket, giornalieri) ->
+                    rollup.add(calcolaRollup(giornalieri, risoluzione, periodo, bucket))));
+            trendAggregatoRepository.saveAll(rollup);
+            log.info("Ricostruiti {} rollup {} dal {} al {}", rollup.size(), risoluzione.getLabel(), inizio, fine);
+        }
+
+        log.info("Ricostruiti {} aggregati trend dal {} al {}", aggregati.size(), dataInizio, dataFine);
+        return aggregati.size();
+    }
+
+    /**
+     * All'avvio, se la tabella degli aggregati non contiene ancora i rollup (tabella vuota
+     * o creata prima dell'introduzione delle risoluzioni) ma esistono trend, la popola
+     * a partire dallo storico.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void inizializzaAggregati() {
+        if (trendAggregatoRepository.existsByRisoluzione(RisoluzioneTrend.MENSILE)) {
+            return;
+        }
+        LocalDate primo = trendRepository.findMinDataSnapshot();
+        LocalDate ultimo = trendRepository.findMaxDataSnapshot();
+        if (primo == null || ultimo == null) {
+            return;
+        }
+        ricostruisciAggregati(primo, ultimo);
+    }
+
+    /**
+     * Giorni da ricalcolare per bucket, raccolti durante una transazione e aggiornati una volta
+     * sola prima del commit. Come le risorse delle transazioni di Spring, viene sganciata quando
+     * la transazione è sospesa e riagganciata alla ripresa.
+     */
+    private final class AggregatiInSospeso implements TransactionSynchronization {
+
+        private final Map<TrendBucket, NavigableSet<LocalDate>> giorni = new EnumMap<>(TrendBucket.class);
+
+        private void aggiorna() {
+            giorni.forEach(TrendAggregatiServiceImpl.this::aggiornaAggregati);
+            giorni.clear();
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            aggiorna();
+        }
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(CHIAVE_IN_SOSPESO);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(CHIAVE_IN_SOSPESO, this);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(CHIAVE_IN_SOSPESO);
+        }
+    }
+}
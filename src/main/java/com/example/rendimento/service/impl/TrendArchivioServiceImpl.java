@@ -0,0 +1,193 @@
+package com.example.rendimento.service.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.rendimento.dto.ImportazioneTrendDTO;
+import com.example.rendimento.repository.TrendRepository;
+import com.example.rendimento.repository.projection.TrendPuntoProjection;
+import com.example.rendimento.service.TrendAggregatiService;
+import com.example.rendimento.service.TrendArchivioService;
+import com.example.rendimento.service.TrendStreamService;
+import com.example.rendimento.service.store.LettoreTrendColonnare;
+import com.example.rendimento.service.store.ScrittoreTrendColonnare;
+import com.example.rendimento.service.store.TrendSerieStore;
+
+@Service
+public class TrendArchivioServiceImpl implements TrendArchivioService {
+
+    private static final Logger log = LoggerFactory.getLogger(TrendArchivioServiceImpl.class);
+
+    private final TrendRepository trendRepository;
+    private final TrendAggregatiService trendAggregatiService;
+    private final TrendSerieStore trendSerieStore;
+    private final TrendStreamService trendStreamService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public TrendArchivioServiceImpl(TrendRepository trendRepository, TrendAggregatiService trendAggregatiService,
+                                    TrendSerieStore trendSerieStore, TrendStreamService trendStreamService,
+                                    JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.trendRepository = trendRepository;
+        this.trendAggregatiService = trendAggregatiService;
+        this.trendSerieStore = trendSerieStore;
+        this.trendStreamService = trendStreamService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long esporta(LocalDate dataInizio, LocalDate dataFine, boolean compresso, OutputStream destinazione)
+            throws IOException {
+        if (dataInizio.isAfter(dataFine)) {
+            throw new IllegalArgumentException("La data di inizio deve precedere la data di fine");
+        }
+
+        long inizio = System.currentTimeMillis();
+        try (Stream<TrendPuntoProjection> punti = trendRepository.streamPuntiByDataSnapshotBetween(dataInizio, dataFine);
+             ScrittoreTrendColonnare scrittore = new ScrittoreTrendColonnare(destinazione, compresso)) {
+            Iterator<TrendPuntoProjection> iteratore = punti.iterator();
+            while (iteratore.hasNext()) {
+                TrendPuntoProjection p = iteratore.next();
+                if (p.getRendimentoAnnuo() == null || p.getPrezzo() == null) {
+                    continue;
+                }
+                scrittore.scrivi(p.getIsin(), p.getDataSnapshot(), p.getDataScadenza(),
+                        p.getRendimentoAnnuo(), p.getPrezzo());
+            }
+            log.info("Esportati {} snapshot dal {} al {} in {} ms", scrittore.getRigheScritte(),
+                    dataInizio, dataFine, System.currentTimeMillis() - inizio);
+            return scrittore.getRigheScritte();
+        }
+    }
+
+    @Override
+    public ImportazioneTrendDTO importa(InputStream sorgente) throws IOException {
+        long inizio = System.currentTimeMillis();
+        ImportazioneTrendDTO esito = new ImportazioneTrendDTO();
+        Set<String> isin = new HashSet<>();
+        String upsert = istruzioneUpsert();
+
+        try (LettoreTrendColonnare lettore = new LettoreTrendColonnare(sorgente)) {
+            LettoreTrendColonnare.Blocco blocco;
+            while ((blocco = lettore.leggiBlocco()) != null) {
+                LettoreTrendColonnare.Blocco letto = blocco;
+                // Un blocco per transazione: la durata di ogni transazione non dipende dalla dimensione del file
+                transactionTemplate.executeWithoutResult(status -> {
+                    importaBlocco(letto, upsert, esito);
+                    trendSerieStore.aggiornaDopoCommit(letto);
+                });
+                isin.add(blocco.getIsin());
+            }
+            esito.setRigheLette(lettore.getRigheLette());
+        } catch (IOException e) {
+            // I blocchi già importati restano salvati: ripetere l'importazione li aggiorna senza duplicarli
+            concludi(esito);
+            throw new IllegalArgumentException("Archivio di trend non valido: " + e.getMessage(), e);
+        }
+        esito.setNumeroIsin(isin.size());
+        concludi(esito);
+
+        esito.setDurataMillis(System.currentTimeMillis() - inizio);
+        log.info("Importati {} snapshot di {} ISIN ({} inseriti, {} aggiornati) in {} ms",
+                esito.getRigheLette(), esito.getNumeroIsin(), esito.getInserite(), esito.getAggiornate(),
+                esito.getDurataMillis());
+        return esito;
+    }
+
+    /**
+     * Ricostruisce gli aggregati dell'intervallo importato e avvisa i client.
+     */
+    private void concludi(ImportazioneTrendDTO esito) {
+        if (esito.getDataInizio() != null) {
+            trendAggregatiService.ricostruisciAggregati(esito.getDataInizio(), esito.getDataFine());
+            // Troppe modifiche per notificarle una alla volta: i client ricaricano i dati
+            trendStreamService.pubblicaDopoCommit(TrendStreamService.EVENTO_RESET, Map.of());
+        }
+    }
+
+    /**
+     * Salva le righe di un blocco con un'unica istruzione di upsert eseguita in batch JDBC.
+     * Le date già presenti per l'ISIN nell'intervallo del blocco sono lette con una sola query,
+     * solo per distinguere nell'esito gli snapshot inseriti da quelli aggiornati.
+     */
+    private void importaBlocco(LettoreTrendColonnare.Blocco blocco, String upsert, ImportazioneTrendDTO esito) {
+        LocalDate primo = blocco.getData(0);
+        LocalDate ultimo = blocco.getData(blocco.size() - 1);
+        Set<LocalDate> esistenti = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT data_snapshot FROM trends WHERE isin = ? AND data_snapshot BETWEEN ? AND ?",
+                LocalDate.class, blocco.getIsin(), primo, ultimo));
+
+        LocalDate dataScadenza = blocco.getDataScadenza();
+        List<Object[]> righe = new ArrayList<>(blocco.size());
+        for (int i = 0; i < blocco.size(); i++) {
+            LocalDate data = blocco.getData(i);
+            long giorniAllaScadenza = ChronoUnit.DAYS.between(data, dataScadenza);
+            righe.add(new Object[] {
+                    blocco.getIsin(), data, dataScadenza,
+                    BigDecimal.valueOf(giorniAllaScadenza),
+                    BigDecimal.valueOf(giorniAllaScadenza).divide(BigDecimal.valueOf(365), 6, RoundingMode.HALF_UP),
+                    blocco.getPrezzo(i), blocco.getRendimento(i)});
+            if (esistenti.contains(data)) {
+                esito.setAggiornate(esito.getAggiornate() + 1);
+            } else {
+                esito.setInserite(esito.getInserite() + 1);
+            }
+        }
+        jdbcTemplate.batchUpdate(upsert, righe);
+
+        if (esito.getDataInizio() == null || primo.isBefore(esito.getDataInizio())) {
+            esito.setDataInizio(primo);
+        }
+        if (esito.getDataFine() == null || ultimo.isAfter(esito.getDataFine())) {
+            esito.setDataFine(ultimo);
+        }
+    }
+
+    /**
+     * Upsert di uno snapshot: su PostgreSQL con ON CONFLICT sul vincolo univoco (isin, data_snapshot),
+     * sicuro anche con inserimenti concorrenti; sugli altri database (H2 nei test) con MERGE.
+     * Di uno snapshot esistente sono aggiornati solo prezzo e rendimento, come nel salvataggio dei trend.
+     */
+    private String istruzioneUpsert() {
+        String prodotto = jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        if (prodotto != null && prodotto.toLowerCase().contains("postgresql")) {
+            return "INSERT INTO trends (isin, data_snapshot, data_scadenza, giorni_alla_scadenza, "
+                    + "anni_alla_scadenza, prezzo, rendimento_annuo, version) VALUES (?, ?, ?, ?, ?, ?, ?, 0) "
+                    + "ON CONFLICT (isin, data_snapshot) DO UPDATE SET prezzo = EXCLUDED.prezzo, "
+                    + "rendimento_annuo = EXCLUDED.rendimento_annuo, version = COALESCE(trends.version, 0) + 1";
+        }
+        return "MERGE INTO trends t USING (SELECT CAST(? AS VARCHAR(12)) AS isin, CAST(? AS DATE) AS data_snapshot, "
+                + "CAST(? AS DATE) AS data_scadenza, CAST(? AS NUMERIC(10, 2)) AS giorni_alla_scadenza, "
+                + "CAST(? AS NUMERIC(10, 6)) AS anni_alla_scadenza, CAST(? AS NUMERIC(10, 4)) AS prezzo, "
+                + "CAST(? AS NUMERIC(10, 6)) AS rendimento_annuo) s "
+                + "ON t.isin = s.isin AND t.data_snapshot = s.data_snapshot "
+                + "WHEN MATCHED THEN UPDATE SET prezzo = s.prezzo, rendimento_annuo = s.rendimento_annuo, "
+                + "version = COALESCE(t.version, 0) + 1 "
+                + "WHEN NOT MATCHED THEN INSERT (isin, data_snapshot, data_scadenza, giorni_alla_scadenza, "
+                + "anni_alla_scadenza, prezzo, rendimento_annuo, version) VALUES (s.isin, s.data_snapshot, "
+                + "s.data_scadenza, s.giorni_alla_scadenza, s.anni_alla_scadenza, s.prezzo, s.rendimento_annuo, 0)";
+    }
+}
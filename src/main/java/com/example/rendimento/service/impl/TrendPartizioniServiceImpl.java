@@ -0,0 +1,219 @@
+package com.example.rendimento.service.impl;
+
+import java.sql.Date;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.rendimento.service.TrendPartizioniService;
+import com.example.rendimento.service.store.TrendSerieStore;
+
+/**
+ * Implementazione dell'interfaccia TrendPartizioniService basata su JdbcTemplate.
+ * Le partizioni seguono la convenzione di nome trends_pAAAAMM e coprono l'intervallo
+ * [primo giorno del mese, primo giorno del mese successivo).
+ */
+@Service
+public class TrendPartizioniServiceImpl implements TrendPartizioniService {
+
+    private static final Logger log = LoggerFactory.getLogger(TrendPartizioniServiceImpl.class);
+
+    private static final String TABELLA = "trends";
+    private static final String PARTIZIONE_DEFAULT = "trends_default";
+    private static final String PREFISSO_PARTIZIONE = "trends_p";
+    private static final DateTimeFormatter FORMATO_MESE = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TrendSerieStore trendSerieStore;
+
+    @Value("${rendimento.trend.partizioni.mesi-avanti:3}")
+    private int mesiAvanti;
+
+    @Value("${rendimento.trend.partizioni.retention-mesi:0}")
+    private int retentionMesi;
+
+    private volatile Boolean partizionamentoAttivo;
+
+    @Autowired
+    public TrendPartizioniServiceImpl(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                      TrendSerieStore trendSerieStore) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.trendSerieStore = trendSerieStore;
+    }
+
+    @Override
+    public boolean isPartizionamentoAttivo() {
+        if (partizionamentoAttivo == null) {
+            partizionamentoAttivo = verificaPartizionamento();
+        }
+        return partizionamentoAttivo;
+    }
+
+    @Override
+    public int creaPartizioniMensili(YearMonth meseInizio, YearMonth meseFine) {
+        if (!isPartizionamentoAttivo()) {
+            return 0;
+        }
+
+        List<String> esistenti = elencaPartizioni();
+        int create = 0;
+        for (YearMonth mese = meseInizio; !mese.isAfter(meseFine); mese = mese.plusMonths(1)) {
+            String nome = nomePartizione(mese);
+            if (esistenti.contains(nome)) {
+                continue;
+            }
+            try {
+                creaPartizione(mese, nome);
+                create++;
+                log.info("Creata partizione {} per il mese {}", nome, mese);
+            } catch (DataAccessException e) {
+                log.warn("Impossibile creare la partizione {}: {}", nome, e.getMessage());
+            }
+        }
+        return create;
+    }
+
+    @Override
+    public int eliminaPartizioniPrecedenti(YearMonth meseLimite) {
+        if (!isPartizionamentoAttivo()) {
+            return 0;
+        }
+
+        int eliminate = 0;
+        for (String nome : elencaPartizioni()) {
+            YearMonth mese = meseDaNomePartizione(nome);
+            if (mese == null || !mese.isBefore(meseLimite)) {
+                continue;
+            }
+            // Il nome proviene dal catalogo e rispetta il formato trends_pAAAAMM
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + nome);
+            eliminate++;
+            log.info("Eliminata partizione {} (mese {} precedente a {})", nome, mese, meseLimite);
+        }
+
+        int righeDefault = jdbcTemplate.update(
+                "DELETE FROM " + PARTIZIONE_DEFAULT + " WHERE data_snapshot < ?",
+                Date.valueOf(meseLimite.atDay(1)));
+        if (righeDefault > 0) {
+            log.info("Eliminate {} righe della partizione di default precedenti a {}", righeDefault, meseLimite);
+        }
+
+        // I punti eliminati dal database escono anche dallo store in memoria
+        trendSerieStore.rimuoviPrecedenti(meseLimite.atDay(1));
+        return eliminate;
+    }
+
+    @Override
+    @Scheduled(cron = "${rendimento.trend.partizioni.cron:0 30 2 * * *}")
+    public void manutenzionePartizioni() {
+        if (!isPartizionamentoAttivo()) {
+            log.debug("Tabella trends non partizionata: manutenzione partizioni non eseguita");
+            return;
+        }
+
+        YearMonth meseCorrente = YearMonth.now();
+        int create = creaPartizioniMensili(meseCorrente, meseCorrente.plusMonths(mesiAvanti));
+        int eliminate = 0;
+        if (retentionMesi > 0) {
+            eliminate = eliminaPartizioniPrecedenti(meseCorrente.minusMonths(retentionMesi));
+        }
+        log.info("Manutenzione partizioni trends completata: {} create, {} eliminate", create, eliminate);
+    }
+
+    /**
+     * Esegue la manutenzione all'avvio, così le partizioni dei prossimi mesi esistono
+     * anche se il job notturno non è ancora stato eseguito.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            manutenzionePartizioni();
+        } catch (DataAccessException e) {
+            log.warn("Manutenzione partizioni trends all'avvio non riuscita: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Crea la partizione di un mese in un'unica transazione, spostando prima le righe
+     * del mese presenti nella partizione di default (altrimenti PostgreSQL rifiuta la creazione).
+     */
+    private void creaPartizione(YearMonth mese, String nome) {
+        Date da = Date.valueOf(mese.atDay(1));
+        Date a = Date.valueOf(mese.plusMonths(1).atDay(1));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("CREATE TEMP TABLE trends_spostati ON COMMIT DROP AS SELECT * FROM "
+                    + PARTIZIONE_DEFAULT + " WHERE false");
+            jdbcTemplate.update("INSERT INTO trends_spostati SELECT * FROM " + PARTIZIONE_DEFAULT
+                    + " WHERE data_snapshot >= ? AND data_snapshot < ?", da, a);
+            jdbcTemplate.update("DELETE FROM " + PARTIZIONE_DEFAULT
+                    + " WHERE data_snapshot >= ? AND data_snapshot < ?", da, a);
+            jdbcTemplate.execute("CREATE TABLE " + nome + " PARTITION OF " + TABELLA
+                    + " FOR VALUES FROM ('" + mese.atDay(1) + "') TO ('" + mese.plusMonths(1).atDay(1) + "')");
+            int spostate = jdbcTemplate.update("INSERT INTO " + TABELLA + " SELECT * FROM trends_spostati");
+            if (spostate > 0) {
+                log.info("Spostate {} righe dalla partizione di default a {}", spostate, nome);
+            }
+        });
+    }
+
+    private List<String> elencaPartizioni() {
+        return jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i "
+                        + "JOIN pg_class c ON c.oid = i.inhrelid "
+                        + "WHERE i.inhparent = to_regclass(?)",
+                String.class, TABELLA);
+    }
+
+    private boolean verificaPartizionamento() {
+        try {
+            String prodotto = jdbcTemplate.execute(
+                    (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+            if (prodotto == null || !prodotto.toLowerCase().contains("postgresql")) {
+                log.info("Database {}: partizionamento della tabella trends non disponibile", prodotto);
+                return false;
+            }
+            Boolean partizionata = jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass(?))",
+                    Boolean.class, TABELLA);
+            if (!Boolean.TRUE.equals(partizionata)) {
+                log.info("La tabella trends non è partizionata: eseguire V7__partition_trends_by_month.sql");
+            }
+            return Boolean.TRUE.equals(partizionata);
+        } catch (DataAccessException e) {
+            log.warn("Impossibile verificare il partizionamento della tabella trends: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    static String nomePartizione(YearMonth mese) {
+        return PREFISSO_PARTIZIONE + mese.format(FORMATO_MESE);
+    }
+
+    static YearMonth meseDaNomePartizione(String nome) {
+        if (nome == null || !nome.startsWith(PREFISSO_PARTIZIONE)) {
+            return null;
+        }
+        try {
+            return YearMonth.parse(nome.substring(PREFISSO_PARTIZIONE.length()), FORMATO_MESE);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -1,58 +1,137 @@
 package com.example.rendimento.service.impl;
 
 import java.time.LocalDate;
-import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import jakarta.persistence.EntityNotFoundException;
+
 import com.example.rendimento.dto.TrendAggregatoDTO;
+import com.example.rendimento.dto.TrendPuntoDTO;
+import com.example.rendimento.dto.TrendStatisticheDTO;
+import com.example.rendimento.enums.RisoluzioneTrend;
 import com.example.rendimento.enums.TrendBucket;
+import com.example.rendimento.mapper.TrendAggregatoMapper;
+import com.example.rendimento.model.TrendAggregatoEntity;
+import com.example.rendimento.repository.TrendAggregatoRepository;
 import com.example.rendimento.repository.TrendRepository;
-import com.example.rendimento.repository.projection.TrendAggregatoProjection;
 import com.example.rendimento.service.TrendQueryService;
+import com.example.rendimento.service.store.TrendSerieStore;
 
 @Service
 @Transactional(readOnly = true)
 public class TrendQueryServiceImpl implements TrendQueryService {
 
+    private final TrendAggregatoRepository trendAggregatoRepository;
     private final TrendRepository trendRepository;
+    private final TrendSerieStore trendSerieStore;
+    private final TrendAggregatoMapper trendAggregatoMapper;
 
-    public TrendQueryServiceImpl(TrendRepository trendRepository) {
+    public TrendQueryServiceImpl(TrendAggregatoRepository trendAggregatoRepository,
+                                 TrendRepository trendRepository,
+                                 TrendSerieStore trendSerieStore,
+                                 TrendAggregatoMapper trendAggregatoMapper) {
+        this.trendAggregatoRepository = trendAggregatoRepository;
         this.trendRepository = trendRepository;
+        this.trendSerieStore = trendSerieStore;
+        this.trendAggregatoMapper = trendAggregatoMapper;
     }
 
     @Override
     public List<TrendAggregatoDTO> getTrendAggregati(LocalDate dataInizio, LocalDate dataFine) {
+        return leggiAggregati(dataInizio, dataFine, List.of(), RisoluzioneTrend.GIORNALIERA);
+    }
 
-        return trendRepository.findTrendAggregati(dataInizio, dataFine)
-                .stream()
-                .map(this::toDto)
-                .toList();
+    @Override
+    public List<TrendAggregatoDTO> getTrendAggregati(LocalDate dataInizio, LocalDate dataFine, String keyword) {
+        List<TrendBucket> buckets = TrendBucket.perKeyword(keyword);
+        if (buckets.isEmpty()) {
+            return List.of();
+        }
+        return leggiAggregati(dataInizio, dataFine, buckets, RisoluzioneTrend.GIORNALIERA);
     }
 
-    private TrendAggregatoDTO toDto(TrendAggregatoProjection p) {
-        TrendBucket bucket = Arrays.stream(TrendBucket.values())
-                .filter(b -> b.matches(p.getAnniAllaScadenza()))
-                .findFirst()
-                .orElse(TrendBucket.OLTRE_SESSANTA_MESI);
+    @Override
+    public List<TrendAggregatoDTO> getTrendAggregati(LocalDate dataInizio, LocalDate dataFine, String keyword, int maxPunti) {
+        if (maxPunti < 1) {
+            throw new IllegalArgumentException("Il numero massimo di punti deve essere almeno 1");
+        }
+        List<TrendBucket> buckets = TrendBucket.perKeyword(keyword);
+        if (buckets.isEmpty()) {
+            return List.of();
+        }
+        return leggiAggregati(dataInizio, dataFine, buckets,
+                RisoluzioneTrend.perIntervallo(dataInizio, dataFine, maxPunti));
+    }
 
-        TrendAggregatoDTO dto = new TrendAggregatoDTO();
-        dto.setDataSnapshot(p.getDataSnapshot());
-        dto.setBucket(bucket.getLabel());
+    /**
+     * Legge gli aggregati dei periodi che intersecano l'intervallo dalla tabella trend_aggregati,
+     * unica fonte degli aggregati anche con lo store in memoria caricato: è aggiornata ad ogni
+     * commit dei trend e conserva i mesi le cui partizioni sono state eliminate dalla retention,
+     * che lo store non contiene più.
+     *
+     * @param buckets i bucket da includere; se vuoto li include tutti
+     */
+    private List<TrendAggregatoDTO> leggiAggregati(LocalDate dataInizio, LocalDate dataFine,
+                                                   Collection<TrendBucket> buckets, RisoluzioneTrend risoluzione) {
+        LocalDate inizio = risoluzione.inizioPeriodo(dataInizio);
+        LocalDate fine = risoluzione.finePeriodo(dataFine);
 
-        dto.setRendimentoMedio(
-                p.getRendimentoMedio() != null ? p.getRendimentoMedio().doubleValue() : 0.0);
-        dto.setRendimentoMinimo(
-                p.getRendimentoMinimo() != null ? p.getRendimentoMinimo().doubleValue() : 0.0);
-        dto.setRendimentoMassimo(
-                p.getRendimentoMassimo() != null ? p.getRendimentoMassimo().doubleValue() : 0.0);
+        // Legge le statistiche pre-aggregate: una riga per (periodo, bucket)
+        List<TrendAggregatoEntity> aggregati = buckets.isEmpty()
+                ? trendAggregatoRepository.findByRisoluzioneAndDataSnapshotBetweenOrderByDataSnapshotAsc(
+                        risoluzione, inizio, fine)
+                : trendAggregatoRepository.findByRisoluzioneAndDataSnapshotBetweenAndBucketInOrderByDataSnapshotAsc(
+                        risoluzione, inizio, fine, buckets);
 
-        dto.setNumeroTitoli(
-                p.getNumeroTitoli() != null ? p.getNumeroTitoli().intValue() : 0);
+        return aggregati.stream()
+                .sorted(Comparator.comparing(TrendAggregatoEntity::getDataSnapshot)
+                        .thenComparing(TrendAggregatoEntity::getBucket))
+                .map(trendAggregatoMapper::toDto)
+                .toList();
+    }
 
-        return dto;
+    @Override
+    public List<TrendPuntoDTO> getStoricoIsin(String isin, LocalDate dataInizio, LocalDate dataFine) {
+        if (trendSerieStore.isCaricato()) {
+            return trendSerieStore.getStorico(isin, dataInizio, dataFine);
+        }
+
+        return trendRepository.findByIsinAndDataSnapshotBetweenOrderByDataSnapshotAsc(isin, dataInizio, dataFine)
+                .stream()
+                .map(t -> new TrendPuntoDTO(t.getDataSnapshot(),
+                        t.getRendimentoAnnuo().doubleValue(), t.getPrezzo().doubleValue()))
+                .toList();
     }
 
+    @Override
+    public List<TrendStatisticheDTO> getStatistiche(Double zScoreMinimo) {
+        return trendSerieStore.getStatistiche(LocalDate.now()).stream()
+                .filter(s -> zScoreMinimo == null || (s.getZScore() != null && s.getZScore() >= zScoreMinimo))
+                .sorted(Comparator.comparing(TrendStatisticheDTO::getZScore,
+                        Comparator.nullsLast(Comparator.reverseOrder())))
+                .toList();
+    }
+
+    @Override
+    public TrendStatisticheDTO getStatisticheIsin(String isin) {
+        TrendStatisticheDTO statistiche;
+        if (trendSerieStore.isCaricato()) {
+            statistiche = trendSerieStore.getStatistiche(isin);
+        } else {
+            statistiche = trendSerieStore.calcolaStatistiche(isin,
+                    trendRepository.findByIsinOrderByDataSnapshotAsc(isin).stream()
+                            .map(t -> new TrendPuntoDTO(t.getDataSnapshot(),
+                                    t.getRendimentoAnnuo().doubleValue(), t.getPrezzo().doubleValue()))
+                            .toList());
+        }
+        if (statistiche == null) {
+            throw new EntityNotFoundException("Nessun trend trovato per l'ISIN: " + isin);
+        }
+        return statistiche;
+    }
 }
@@ -0,0 +1,171 @@
+package com.example.rendimento.service.impl;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.rendimento.dto.RisultatoRendimentoAdvancedDTO;
+import com.example.rendimento.dto.TrendRendimentiDTO;
+import com.example.rendimento.dto.TrendRendimentiDTO.TitoloRendimentoDTO;
+import com.example.rendimento.enums.PeriodoScadenza;
+import com.example.rendimento.event.PortafoglioModificatoEvent;
+import com.example.rendimento.model.Simulazione;
+import com.example.rendimento.model.Titolo;
+import com.example.rendimento.repository.SimulazioneRepository;
+import com.example.rendimento.service.SimulazioneService;
+import com.example.rendimento.service.TrendRendimentiService;
+
+@Service
+public class TrendRendimentiServiceImpl implements TrendRendimentiService {
+
+    private static final Logger log = LoggerFactory.getLogger(TrendRendimentiServiceImpl.class);
+
+    private static final BigDecimal NOMINALE_PREDEFINITO = new BigDecimal("10000");
+
+    /**
+     * Parte fissa delle versioni: distingue le versioni di questa esecuzione da quelle
+     * di un'esecuzione precedente (il contatore per utente riparte da zero).
+     */
+    private final long avvio = System.currentTimeMillis();
+
+    private final SimulazioneRepository simulazioneRepository;
+    private final SimulazioneService simulazioneService;
+
+    /**
+     * Numero di modifiche al portafoglio di ogni utente da quando l'applicazione è avviata.
+     */
+    private final Map<Integer, Long> modifiche = new ConcurrentHashMap<>();
+
+    /**
+     * Riepiloghi calcolati per utente e periodo, con la versione con cui sono stati calcolati.
+     */
+    private final Map<Integer, Map<PeriodoScadenza, TrendRendimentiDTO>> riepiloghi = new ConcurrentHashMap<>();
+
+    public TrendRendimentiServiceImpl(SimulazioneRepository simulazioneRepository,
+                                      SimulazioneService simulazioneService) {
+        this.simulazioneRepository = simulazioneRepository;
+        this.simulazioneService = simulazioneService;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public TrendRendimentiDTO getTrendRendimenti(Integer utenteId, String periodo) {
+        PeriodoScadenza periodoScadenza = PeriodoScadenza.fromString(periodo);
+        LocalDate oggi = LocalDate.now();
+        String versione = versione(utenteId, oggi);
+
+        TrendRendimentiDTO riepilogo = riepiloghi.getOrDefault(utenteId, Map.of()).get(periodoScadenza);
+        if (riepilogo != null && versione.equals(riepilogo.getVersione())) {
+            return riepilogo;
+        }
+
+        long inizio = System.currentTimeMillis();
+        riepilogo = calcola(utenteId, periodoScadenza, oggi);
+        riepilogo.setVersione(versione);
+        // Un riepilogo calcolato durante una modifica ha già una versione superata e
+        // non verrà mai restituito dalla cache: basta memorizzarlo
+        riepiloghi.computeIfAbsent(utenteId, k -> new ConcurrentHashMap<>()).put(periodoScadenza, riepilogo);
+        log.info("Riepilogo rendimenti calcolato per utente {} e periodo {}: {} titoli in {} ms",
+                utenteId, periodoScadenza, riepilogo.getTitoli().size(), System.currentTimeMillis() - inizio);
+        return riepilogo;
+    }
+
+    @Override
+    public void invalidaUtente(Integer utenteId) {
+        modifiche.merge(utenteId, 1L, Long::sum);
+        riepiloghi.remove(utenteId);
+    }
+
+    /**
+     * Invalida i riepiloghi degli utenti il cui portafoglio è cambiato, dopo il commit
+     * della transazione che lo ha modificato (subito se non c'è una transazione).
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPortafoglioModificato(PortafoglioModificatoEvent evento) {
+        evento.getUtenti().forEach(this::invalidaUtente);
+    }
+
+    private String versione(Integer utenteId, LocalDate oggi) {
+        // Il giorno fa parte della versione: scadenze residue e rendimenti dipendono dalla data di calcolo
+        return avvio + "." + modifiche.getOrDefault(utenteId, 0L) + "." + oggi.toEpochDay();
+    }
+
+    /**
+     * Calcola il riepilogo a partire dall'ultima simulazione di ogni titolo non scaduto,
+     * letta con un'unica query insieme al titolo.
+     */
+    private TrendRendimentiDTO calcola(Integer utenteId, PeriodoScadenza periodo, LocalDate oggi) {
+        List<Simulazione> ultime = simulazioneRepository.findLatestByUtenteIdAndNotExpiredOrderByScadenzaAsc(utenteId, oggi);
+
+        List<TitoloRendimentoDTO> titoliRendimento = new ArrayList<>();
+        List<BigDecimal> rendimentiBolloAnnuale = new ArrayList<>();
+        Set<Integer> titoliConsiderati = new HashSet<>();
+        for (Simulazione simulazione : ultime) {
+            Titolo titolo = simulazione.getTitolo();
+            // Più simulazioni nello stesso giorno: si considera solo la prima per titolo
+            if (!titolo.getDataScadenza().isAfter(oggi) || !inPeriodo(titolo.getDataScadenza(), periodo, oggi)
+                    || !titoliConsiderati.add(titolo.getIdTitolo())) {
+                continue;
+            }
+            try {
+                RisultatoRendimentoAdvancedDTO risultato = simulazioneService.calcolaRendimentoAdvanced(
+                        titolo,
+                        simulazione.getPrezzoAcquisto(),
+                        simulazione.getNominale() != null ? simulazione.getNominale() : NOMINALE_PREDEFINITO,
+                        simulazione.getDataAcquisto());
+
+                titoliRendimento.add(new TitoloRendimentoDTO(
+                        titolo.getIdTitolo(),
+                        titolo.getNome(),
+                        titolo.getCodiceIsin(),
+                        risultato.getRendimentoConCommissioniEBolloMensile(),
+                        risultato.getRendimentoConCommissioniEBolloAnnuale()));
+                rendimentiBolloAnnuale.add(risultato.getRendimentoConCommissioniEBolloAnnuale());
+            } catch (Exception e) {
+                log.error("Errore nel calcolo dei rendimenti per il titolo ID: {}, Errore: {}",
+                        titolo.getIdTitolo(), e.getMessage());
+            }
+        }
+
+        BigDecimal rendimentoMinimo = BigDecimal.ZERO;
+        BigDecimal rendimentoMedio = BigDecimal.ZERO;
+        BigDecimal rendimentoMassimo = BigDecimal.ZERO;
+        if (!rendimentiBolloAnnuale.isEmpty()) {
+            BigDecimal somma = BigDecimal.ZERO;
+            rendimentoMinimo = rendimentiBolloAnnuale.get(0);
+            rendimentoMassimo = rendimentiBolloAnnuale.get(0);
+            for (BigDecimal rendimento : rendimentiBolloAnnuale) {
+                rendimentoMinimo = rendimentoMinimo.min(rendimento);
+                rendimentoMassimo = rendimentoMassimo.max(rendimento);
+                somma = somma.add(rendimento);
+            }
+            rendimentoMedio = somma.divide(new BigDecimal(rendimentiBolloAnnuale.size()), 4, RoundingMode.HALF_UP);
+        }
+
+        return new TrendRendimentiDTO(rendimentoMinimo, rendimentoMedio, rendimentoMassimo, titoliRendimento);
+    }
+
+    /**
+     * Verifica se la scadenza ricade nella finestra del periodo (estremi inclusi):
+     * ad esempio per i semestrali tra 5 e 6 mesi da oggi.
+     */
+    private static boolean inPeriodo(LocalDate dataScadenza, PeriodoScadenza periodo, LocalDate oggi) {
+        if (periodo == PeriodoScadenza.TUTTI) {
+            return true;
+        }
+        return !dataScadenza.isBefore(oggi.plusMonths(periodo.getMesiMin()))
+                && !dataScadenza.isAfter(oggi.plusMonths(periodo.getMesiMax()));
+    }
+}
@@ -11,10 +11,15 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.example.rendimento.dto.TrendSnapshotDTO;
+import com.example.rendimento.enums.TrendBucket;
 import com.example.rendimento.model.Titolo;
 import com.example.rendimento.model.TrendEntity;
 import com.example.rendimento.repository.TrendRepository;
+import com.example.rendimento.service.TrendAggregatiService;
 import com.example.rendimento.service.TrendService;
+import com.example.rendimento.service.TrendStreamService;
+import com.example.rendimento.service.store.TrendSerieStore;
 
 @Service
 public class TrendServiceImpl implements TrendService {
@@ -22,10 +27,17 @@ public class TrendServiceImpl implements TrendService {
     private static final Logger log = LoggerFactory.getLogger(TrendServiceImpl.class);
 
     private final TrendRepository trendRepository;
+    private final TrendAggregatiService trendAggregatiService;
+    private final TrendSerieStore trendSerieStore;
+    private final TrendStreamService trendStreamService;
 
     @Autowired
-    public TrendServiceImpl(TrendRepository trendRepository) {
+    public TrendServiceImpl(TrendRepository trendRepository, TrendAggregatiService trendAggregatiService,
+                            TrendSerieStore trendSerieStore, TrendStreamService trendStreamService) {
         this.trendRepository = trendRepository;
+        this.trendAggregatiService = trendAggregatiService;
+        this.trendSerieStore = trendSerieStore;
+        this.trendStreamService = trendStreamService;
     }
 
     @Override
@@ -88,6 +100,23 @@ public class TrendServiceImpl implements TrendService {
         log.debug("Salvato/aggiornato trend per titolo {}: rendimento={}, data={}", 
             titolo.getCodiceIsin(), rendimentoCalcolato, dataEffettiva);
         
+        // L'aggregato del giorno per il bucket di scadenza del titolo è ricalcolato prima del commit
+        // (le scadenze che non ricadono in alcun bucket non contribuiscono agli aggregati)
+        TrendBucket bucket = TrendBucket.daAnni(savedTrend.getAnniAllaScadenza());
+        if (bucket != null) {
+            trendAggregatiService.segnalaModifica(dataEffettiva, bucket);
+        }
+        
+        // Allinea lo store in memoria quando la transazione va a buon fine
+        trendSerieStore.aggiornaDopoCommit(savedTrend.getIsin(), savedTrend.getDataSnapshot(),
+                savedTrend.getDataScadenza(), savedTrend.getRendimentoAnnuo(), savedTrend.getPrezzo());
+        
+        // Notifica lo snapshot ai client dello stream dei trend
+        trendStreamService.pubblicaDopoCommit(TrendStreamService.EVENTO_SNAPSHOT, new TrendSnapshotDTO(
+                savedTrend.getIsin(), savedTrend.getDataSnapshot(), savedTrend.getDataScadenza(),
+                bucket != null ? bucket.getLabel() : null,
+                savedTrend.getRendimentoAnnuo().doubleValue(), savedTrend.getPrezzo().doubleValue()));
+        
         return savedTrend;
     }
 }
@@ -0,0 +1,248 @@
+package com.example.rendimento.service.impl;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.annotation.PreDestroy;
+
+import com.example.rendimento.service.TrendStreamService;
+
+/**
+ * Implementazione dello stream dei trend.
+ * <p>
+ * Gli ultimi eventi pubblicati sono conservati in un buffer circolare per permettere la ripresa
+ * dei client che si riconnettono. La capacità è espressa in snapshot: gli eventi degli aggregati
+ * pubblicati insieme agli snapshot non la consumano, ma il buffer non supera in ogni caso
+ * {@value #EVENTI_PER_SNAPSHOT} eventi per snapshot. Gli invii avvengono su un unico thread dedicato, così un client
+ * lento non blocca i job che salvano gli snapshot e ogni client riceve gli eventi in ordine.
+ * Gli identificativi partono dall'istante di avvio in millisecondi: quelli di un'esecuzione
+ * precedente sono sempre minori e il client riceve un reset.
+ */
+@Service
+public class TrendStreamServiceImpl implements TrendStreamService {
+
+    private static final Logger log = LoggerFactory.getLogger(TrendStreamServiceImpl.class);
+
+    /**
+     * Eventi conservati al più per ogni snapshot della capacità: lo snapshot e gli aggregati
+     * giornaliero, settimanale e mensile del suo giorno e bucket.
+     */
+    private static final int EVENTI_PER_SNAPSHOT = 4;
+
+    private final int capacitaBuffer;
+    private final long timeoutMillis;
+    private final Executor invio;
+
+    private final Object lock = new Object();
+    private final Deque<Evento> buffer = new ArrayDeque<>();
+    private int snapshotNelBuffer;
+    private long prossimoId = System.currentTimeMillis();
+
+    /**
+     * Client collegati: modificati e letti solo dal thread di invio.
+     */
+    private final List<Iscritto> iscritti = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    public TrendStreamServiceImpl(@Value("${rendimento.trend.stream.buffer:1000}") int capacitaBuffer,
+                                  @Value("${rendimento.trend.stream.timeout-ms:1800000}") long timeoutMillis) {
+        this(capacitaBuffer, timeoutMillis, Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "trend-stream");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    /**
+     * Costruttore con l'esecutore degli invii, che deve eseguire i compiti uno alla volta
+     * nell'ordine di sottomissione.
+     */
+    public TrendStreamServiceImpl(int capacitaBuffer, long timeoutMillis, Executor invio) {
+        if (capacitaBuffer < 1) {
+            throw new IllegalArgumentException("Il buffer dello stream dei trend deve contenere almeno uno snapshot");
+        }
+        this.capacitaBuffer = capacitaBuffer;
+        this.timeoutMillis = timeoutMillis;
+        this.invio = invio;
+    }
+
+    @Override
+    public SseEmitter iscrivi(Long ultimoEventoId) {
+        SseEmitter emitter = nuovoEmitter(timeoutMillis);
+        Iscritto iscritto = new Iscritto(emitter);
+        emitter.onCompletion(() -> invio.execute(() -> iscritti.remove(iscritto)));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> emitter.complete());
+
+        invio.execute(() -> {
+            List<Evento> daRiprendere;
+            boolean reset;
+            synchronized (lock) {
+                long primoDisponibile = buffer.isEmpty() ? prossimoId : buffer.peekFirst().id;
+                // Gli eventi persi vanno da ultimoEventoId + 1: se sono usciti dal buffer (o l'id
+                // non appartiene a questa esecuzione) il client deve ricaricare tutto
+                reset = ultimoEventoId != null
+                        && (ultimoEventoId + 1 < primoDisponibile || ultimoEventoId >= prossimoId);
+                daRiprendere = new ArrayList<>();
+                if (ultimoEventoId != null && !reset) {
+                    for (Evento evento : buffer) {
+                        if (evento.id > ultimoEventoId) {
+                            daRiprendere.add(evento);
+                        }
+                    }
+                }
+                iscritto.ultimoInviato = reset || ultimoEventoId == null ? prossimoId - 1 : ultimoEventoId;
+            }
+
+            try {
+                if (reset) {
+                    emitter.send(SseEmitter.event()
+                            .id(String.valueOf(iscritto.ultimoInviato))
+                            .name(EVENTO_RESET)
+                            .data("{}", MediaType.APPLICATION_JSON));
+                }
+                for (Evento evento : daRiprendere) {
+                    invia(iscritto, evento);
+                }
+                iscritti.add(iscritto);
+                log.debug("Nuovo client dello stream trend: {} eventi ripresi, reset={}", daRiprendere.size(), reset);
+            } catch (IOException | IllegalStateException e) {
+                emitter.completeWithError(e);
+            }
+        });
+        return emitter;
+    }
+
+    /**
+     * Crea l'emitter di un nuovo client.
+     */
+    protected SseEmitter nuovoEmitter(long timeoutMillis) {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    @Override
+    public void pubblicaDopoCommit(String tipo, Object dati) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    pubblica(tipo, dati);
+                }
+            });
+        } else {
+            pubblica(tipo, dati);
+        }
+    }
+
+    private void pubblica(String tipo, Object dati) {
+        Evento evento;
+        synchronized (lock) {
+            evento = new Evento(prossimoId++, tipo, dati);
+            buffer.addLast(evento);
+            if (evento.isSnapshot()) {
+                snapshotNelBuffer++;
+            }
+            while (snapshotNelBuffer > capacitaBuffer || buffer.size() > capacitaBuffer * EVENTI_PER_SNAPSHOT) {
+                if (buffer.removeFirst().isSnapshot()) {
+                    snapshotNelBuffer--;
+                }
+            }
+        }
+        invio.execute(() -> {
+            for (Iscritto iscritto : iscritti) {
+                // Un evento già inviato con la ripresa non va ripetuto
+                if (evento.id <= iscritto.ultimoInviato) {
+                    continue;
+                }
+                try {
+                    invia(iscritto, evento);
+                } catch (IOException | IllegalStateException e) {
+                    iscritti.remove(iscritto);
+                    iscritto.emitter.completeWithError(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Invia periodicamente un commento ai client per mantenere aperte le connessioni
+     * attraverso proxy e bilanciatori e per rimuovere i client disconnessi.
+     */
+    @Scheduled(fixedDelayString = "${rendimento.trend.stream.heartbeat-ms:25000}")
+    public void heartbeat() {
+        invio.execute(() -> {
+            for (Iscritto iscritto : iscritti) {
+                try {
+                    iscritto.emitter.send(SseEmitter.event().comment("heartbeat"));
+                } catch (IOException | IllegalStateException e) {
+                    iscritti.remove(iscritto);
+                    iscritto.emitter.completeWithError(e);
+                }
+            }
+        });
+    }
+
+    @Override
+    public int numeroIscritti() {
+        return iscritti.size();
+    }
+
+    @PreDestroy
+    public void chiudi() {
+        if (invio instanceof ExecutorService executor) {
+            executor.shutdownNow();
+        }
+        iscritti.forEach(iscritto -> iscritto.emitter.complete());
+    }
+
+    private static void invia(Iscritto iscritto, Evento evento) throws IOException {
+        iscritto.emitter.send(SseEmitter.event()
+                .id(String.valueOf(evento.id))
+                .name(evento.tipo)
+                .data(evento.dati, MediaType.APPLICATION_JSON));
+        iscritto.ultimoInviato = evento.id;
+    }
+
+    private static final class Evento {
+        private final long id;
+        private final String tipo;
+        private final Object dati;
+
+        private Evento(long id, String tipo, Object dati) {
+            this.id = id;
+            this.tipo = tipo;
+            this.dati = dati;
+        }
+
+        private boolean isSnapshot() {
+            return EVENTO_SNAPSHOT.equals(tipo);
+        }
+    }
+
+    private static final class Iscritto {
+        private final SseEmitter emitter;
+        private volatile long ultimoInviato;
+
+        private Iscritto(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+}
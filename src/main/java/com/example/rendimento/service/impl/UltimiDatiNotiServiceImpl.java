@@ -0,0 +1,59 @@
+package com.example.rendimento.service.impl;
+
+import java.util.Optional;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.rendimento.dto.TitoloDTO;
+import com.example.rendimento.mapper.TitoloMapper;
+import com.example.rendimento.model.PrezzoStorico;
+import com.example.rendimento.repository.TitoloRepository;
+import com.example.rendimento.repository.TrendRepository;
+import com.example.rendimento.service.UltimiDatiNotiService;
+
+/**
+ * Ultimi dati noti letti dai titoli salvati e dai trend, aggiornati dai job di recupero dati
+ * e di calcolo dei rendimenti.
+ */
+@Service
+public class UltimiDatiNotiServiceImpl implements UltimiDatiNotiService {
+
+    private final TrendRepository trendRepository;
+    private final TitoloRepository titoloRepository;
+    private final TitoloMapper titoloMapper;
+
+    public UltimiDatiNotiServiceImpl(TrendRepository trendRepository, TitoloRepository titoloRepository,
+                                     TitoloMapper titoloMapper) {
+        this.trendRepository = trendRepository;
+        this.titoloRepository = titoloRepository;
+        this.titoloMapper = titoloMapper;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<PrezzoStorico> ultimoCorso(String isin) {
+        return trendRepository.findFirstByIsinOrderByDataSnapshotDesc(isin)
+                .filter(trend -> trend.getPrezzo() != null)
+                .map(trend -> {
+                    PrezzoStorico prezzo = new PrezzoStorico();
+                    prezzo.setData(trend.getDataSnapshot());
+                    prezzo.setPrezzo(trend.getPrezzo());
+                    return prezzo;
+                });
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<TitoloDTO> ultimoTitolo(String isin) {
+        return titoloRepository.findFirstByCodiceIsinOrderByIdTitoloAsc(isin)
+                .map(titolo -> {
+                    TitoloDTO dto = titoloMapper.toDto(titolo);
+                    // Il titolo resta dell'utente che l'ha salvato: qui servono solo i dati di mercato
+                    dto.setIdTitolo(null);
+                    dto.setUtenteId(null);
+                    ultimoCorso(isin).ifPresent(prezzo -> dto.setCorso(prezzo.getPrezzo()));
+                    return dto;
+                });
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.rendimento.service.store;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Formato binario a colonne dello storico dei trend, usato per esportazioni, importazioni
+ * e per l'avvio rapido dello store in memoria.
+ * <p>
+ * Struttura del file:
+ * <pre>
+ * intestazione: MAGIC (4 byte) | versione (1 byte) | opzioni (1 byte, bit 0 = corpo compresso con Deflate)
+ * corpo:        blocco* | 0 (varint) | numero totale di righe (varint)
+ * blocco:       righe (varint, &gt; 0) | id ISIN (varint) [| ISIN (UTF) se id nuovo] | giorno di scadenza (zigzag)
+ *               | colonna giorni | colonna rendimenti | colonna prezzi
+ * </pre>
+ * Un blocco contiene righe dello stesso ISIN con giorni crescenti. Gli ISIN sono codificati
+ * con un dizionario costruito durante la scrittura: la prima occorrenza riporta la stringa,
+ * le successive solo l'indice. I giorni (epoch day) sono scritti come primo valore e differenze
+ * positive; rendimenti e prezzi come interi scalati alla precisione della tabella trends
+ * (6 e 4 decimali) e differenze zigzag rispetto alla riga precedente. Con valori giornalieri
+ * che variano poco quasi tutte le celle occupano uno o due byte prima della compressione.
+ */
+public final class FormatoTrendColonnare {
+
+    /**
+     * "RTC1": primi byte di ogni file del formato.
+     */
+    public static final int MAGIC = 0x52544331;
+    public static final int VERSIONE = 1;
+    public static final int OPZIONE_COMPRESSO = 1;
+
+    public static final int SCALA_RENDIMENTO = 6;
+    public static final int SCALA_PREZZO = 4;
+
+    /**
+     * Righe massime per blocco: limita la memoria di scrittura e lettura.
+     */
+    public static final int RIGHE_PER_BLOCCO = 4096;
+
+    public static final String CONTENT_TYPE = "application/vnd.rendimento.trend-colonnare";
+    public static final String ESTENSIONE = ".rtc";
+
+    private FormatoTrendColonnare() {
+    }
+
+    static void scriviVarint(OutputStream out, long valore) throws IOException {
+        while ((valore & ~0x7FL) != 0) {
+            out.write((int) ((valore & 0x7F) | 0x80));
+            valore >>>= 7;
+        }
+        out.write((int) valore);
+    }
+
+    static void scriviZigzag(OutputStream out, long valore) throws IOException {
+        scriviVarint(out, (valore << 1) ^ (valore >> 63));
+    }
+
+    static long leggiVarint(InputStream in) throws IOException {
+        long valore = 0;
+        for (int spostamento = 0; spostamento < 64; spostamento += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("File di trend troncato");
+            }
+            valore |= (long) (b & 0x7F) << spostamento;
+            if ((b & 0x80) == 0) {
+                return valore;
+            }
+        }
+        throw new IOException("Intero a lunghezza variabile non valido nel file di trend");
+    }
+
+    static long leggiZigzag(InputStream in) throws IOException {
+        long valore = leggiVarint(in);
+        return (valore >>> 1) ^ -(valore & 1);
+    }
+
+    /**
+     * Legge un varint che deve rientrare tra 0 e il massimo indicato.
+     */
+    static int leggiIntero(InputStream in, int massimo, String campo) throws IOException {
+        long valore = leggiVarint(in);
+        if (valore < 0 || valore > massimo) {
+            throw new IOException("Valore non valido per " + campo + " nel file di trend: " + valore);
+        }
+        return (int) valore;
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.rendimento.service.store;
+
+import static com.example.rendimento.service.store.FormatoTrendColonnare.leggiIntero;
+import static com.example.rendimento.service.store.FormatoTrendColonnare.leggiVarint;
+import static com.example.rendimento.service.store.FormatoTrendColonnare.leggiZigzag;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Legge un file nel {@link FormatoTrendColonnare formato a colonne} un blocco alla volta.
+ * <p>
+ * Un file non valido o troncato produce una {@link IOException}; il totale delle righe
+ * scritto in coda è confrontato con quelle lette, così un file incompleto non viene
+ * scambiato per un'esportazione più corta.
+ */
+public class LettoreTrendColonnare implements Closeable {
+
+    private static final double FATTORE_RENDIMENTO = Math.pow(10, FormatoTrendColonnare.SCALA_RENDIMENTO);
+    private static final double FATTORE_PREZZO = Math.pow(10, FormatoTrendColonnare.SCALA_PREZZO);
+
+    private final DataInputStream in;
+    private final List<String> dizionario = new ArrayList<>();
+    private long righeLette;
+    private boolean terminato;
+
+    public LettoreTrendColonnare(InputStream sorgente) throws IOException {
+        DataInputStream intestazione = new DataInputStream(sorgente);
+        int magic;
+        int versione;
+        int opzioni;
+        try {
+            magic = intestazione.readInt();
+            versione = intestazione.readUnsignedByte();
+            opzioni = intestazione.readUnsignedByte();
+        } catch (EOFException e) {
+            throw new IOException("File di trend vuoto o troncato", e);
+        }
+        if (magic != FormatoTrendColonnare.MAGIC) {
+            throw new IOException("Il file non è un archivio di trend");
+        }
+        if (versione != FormatoTrendColonnare.VERSIONE) {
+            throw new IOException("Versione dell'archivio di trend non supportata: " + versione);
+        }
+
+        InputStream corpo = (opzioni & FormatoTrendColonnare.OPZIONE_COMPRESSO) != 0
+                ? new InflaterInputStream(sorgente, new Inflater(), 65536)
+                : sorgente;
+        this.in = new DataInputStream(new BufferedInputStream(corpo, 65536));
+    }
+
+    /**
+     * Legge il blocco successivo.
+     *
+     * @return il blocco, o null alla fine del file
+     */
+    public Blocco leggiBlocco() throws IOException {
+        if (terminato) {
+            return null;
+        }
+        int righe = leggiIntero(in, FormatoTrendColonnare.RIGHE_PER_BLOCCO, "righe del blocco");
+        if (righe == 0) {
+            long attese = leggiVarint(in);
+            if (attese != righeLette) {
+                throw new IOException("Archivio di trend incompleto: lette " + righeLette + " righe su " + attese);
+            }
+            terminato = true;
+            return null;
+        }
+
+        int id = leggiIntero(in, dizionario.size(), "indice ISIN");
+        if (id == dizionario.size()) {
+            dizionario.add(in.readUTF());
+        }
+        String isin = dizionario.get(id);
+        int giornoScadenza = (int) leggiZigzag(in);
+
+        int[] giorni = new int[righe];
+        giorni[0] = (int) leggiZigzag(in);
+        for (int i = 1; i < righe; i++) {
+            giorni[i] = Math.addExact(giorni[i - 1], leggiIntero(in, Integer.MAX_VALUE, "giorno"));
+        }
+        long[] rendimenti = leggiDifferenze(righe);
+        long[] prezzi = leggiDifferenze(righe);
+
+        righeLette += righe;
+        return new Blocco(isin, giornoScadenza, giorni, rendimenti, prezzi);
+    }
+
+    private long[] leggiDifferenze(int righe) throws IOException {
+        long[] valori = new long[righe];
+        long precedente = 0;
+        for (int i = 0; i < righe; i++) {
+            precedente += leggiZigzag(in);
+            valori[i] = precedente;
+        }
+        return valori;
+    }
+
+    public long getRigheLette() {
+        return righeLette;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Righe consecutive di uno stesso ISIN, con giorni crescenti.
+     */
+    public static final class Blocco {
+        private final String isin;
+        private final int giornoScadenza;
+        private final int[] giorni;
+        private final long[] rendimenti;
+        private final long[] prezzi;
+
+        private Blocco(String isin, int giornoScadenza, int[] giorni, long[] rendimenti, long[] prezzi) {
+            this.isin = isin;
+            this.giornoScadenza = giornoScadenza;
+            this.giorni = giorni;
+            this.rendimenti = rendimenti;
+            this.prezzi = prezzi;
+        }
+
+        public String getIsin() {
+            return isin;
+        }
+
+        public int getGiornoScadenza() {
+            return giornoScadenza;
+        }
+
+        public LocalDate getDataScadenza() {
+            return LocalDate.ofEpochDay(giornoScadenza);
+        }
+
+        public int size() {
+            return giorni.length;
+        }
+
+        public int getGiorno(int i) {
+            return giorni[i];
+        }
+
+        public LocalDate getData(int i) {
+            return LocalDate.ofEpochDay(giorni[i]);
+        }
+
+        public BigDecimal getRendimento(int i) {
+            return BigDecimal.valueOf(rendimenti[i], FormatoTrendColonnare.SCALA_RENDIMENTO);
+        }
+
+        public BigDecimal getPrezzo(int i) {
+            return BigDecimal.valueOf(prezzi[i], FormatoTrendColonnare.SCALA_PREZZO);
+        }
+
+        public float getRendimentoFloat(int i) {
+            return (float) (rendimenti[i] / FATTORE_RENDIMENTO);
+        }
+
+        public float getPrezzoFloat(int i) {
+            return (float) (prezzi[i] / FATTORE_PREZZO);
+        }
+    }
+}
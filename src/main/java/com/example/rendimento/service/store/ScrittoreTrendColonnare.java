@@ -0,0 +1,140 @@
+package com.example.rendimento.service.store;
+
+import static com.example.rendimento.service.store.FormatoTrendColonnare.scriviVarint;
+import static com.example.rendimento.service.store.FormatoTrendColonnare.scriviZigzag;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Scrive lo storico dei trend nel {@link FormatoTrendColonnare formato a colonne}.
+ * <p>
+ * Le righe sono accumulate nel blocco corrente e scritte per colonne quando cambia l'ISIN,
+ * quando il giorno non è successivo all'ultimo o quando il blocco è pieno: la memoria usata
+ * non dipende dalla dimensione dell'esportazione. Le righe ordinate per ISIN e data
+ * producono i blocchi più lunghi e quindi il file più compatto.
+ * {@link #close()} completa il file e chiude lo stream sottostante.
+ */
+public class ScrittoreTrendColonnare implements Closeable {
+
+    private final DataOutputStream out;
+    private final Map<String, Integer> dizionario = new HashMap<>();
+
+    private String isin;
+    private int giornoScadenza;
+    private final int[] giorni = new int[FormatoTrendColonnare.RIGHE_PER_BLOCCO];
+    private final long[] rendimenti = new long[FormatoTrendColonnare.RIGHE_PER_BLOCCO];
+    private final long[] prezzi = new long[FormatoTrendColonnare.RIGHE_PER_BLOCCO];
+    private int righeBlocco;
+    private long righeTotali;
+    private boolean chiuso;
+
+    public ScrittoreTrendColonnare(OutputStream destinazione, boolean compresso) throws IOException {
+        DataOutputStream intestazione = new DataOutputStream(destinazione);
+        intestazione.writeInt(FormatoTrendColonnare.MAGIC);
+        intestazione.writeByte(FormatoTrendColonnare.VERSIONE);
+        intestazione.writeByte(compresso ? FormatoTrendColonnare.OPZIONE_COMPRESSO : 0);
+
+        OutputStream corpo = compresso
+                ? new DeflaterOutputStream(destinazione, new Deflater(Deflater.BEST_SPEED), 65536)
+                : destinazione;
+        this.out = new DataOutputStream(new BufferedOutputStream(corpo, 65536));
+    }
+
+    /**
+     * Aggiunge una riga. Rendimento e prezzo sono arrotondati alla precisione della tabella trends.
+     */
+    public void scrivi(String isin, LocalDate dataSnapshot, LocalDate dataScadenza,
+                       BigDecimal rendimento, BigDecimal prezzo) throws IOException {
+        scrivi(isin, (int) dataSnapshot.toEpochDay(), (int) dataScadenza.toEpochDay(),
+                scala(rendimento, FormatoTrendColonnare.SCALA_RENDIMENTO),
+                scala(prezzo, FormatoTrendColonnare.SCALA_PREZZO));
+    }
+
+    /**
+     * Aggiunge una riga con giorni in epoch day e valori già scalati.
+     */
+    public void scrivi(String isin, int giorno, int giornoScadenza,
+                       long rendimentoScalato, long prezzoScalato) throws IOException {
+        if (chiuso) {
+            throw new IllegalStateException("Scrittore dei trend già chiuso");
+        }
+        if (righeBlocco > 0 && (righeBlocco == giorni.length || giornoScadenza != this.giornoScadenza
+                || giorno <= giorni[righeBlocco - 1] || !isin.equals(this.isin))) {
+            scriviBlocco();
+        }
+        if (righeBlocco == 0) {
+            this.isin = isin;
+            this.giornoScadenza = giornoScadenza;
+        }
+        giorni[righeBlocco] = giorno;
+        rendimenti[righeBlocco] = rendimentoScalato;
+        prezzi[righeBlocco] = prezzoScalato;
+        righeBlocco++;
+        righeTotali++;
+    }
+
+    public long getRigheScritte() {
+        return righeTotali;
+    }
+
+    private void scriviBlocco() throws IOException {
+        scriviVarint(out, righeBlocco);
+        Integer id = dizionario.get(isin);
+        if (id == null) {
+            id = dizionario.size();
+            dizionario.put(isin, id);
+            scriviVarint(out, id);
+            out.writeUTF(isin);
+        } else {
+            scriviVarint(out, id);
+        }
+        scriviZigzag(out, giornoScadenza);
+
+        // Una colonna alla volta: valori simili vicini si comprimono meglio
+        scriviZigzag(out, giorni[0]);
+        for (int i = 1; i < righeBlocco; i++) {
+            scriviVarint(out, giorni[i] - giorni[i - 1]);
+        }
+        scriviDifferenze(rendimenti);
+        scriviDifferenze(prezzi);
+        righeBlocco = 0;
+    }
+
+    private void scriviDifferenze(long[] valori) throws IOException {
+        long precedente = 0;
+        for (int i = 0; i < righeBlocco; i++) {
+            scriviZigzag(out, valori[i] - precedente);
+            precedente = valori[i];
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (chiuso) {
+            return;
+        }
+        if (righeBlocco > 0) {
+            scriviBlocco();
+        }
+        scriviVarint(out, 0);
+        scriviVarint(out, righeTotali);
+        chiuso = true;
+        // Chiude anche l'eventuale DeflaterOutputStream, che completa il flusso compresso
+        out.close();
+    }
+
+    private static long scala(BigDecimal valore, int scala) {
+        return valore.setScale(scala, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.rendimento.service.store;
+
+/**
+ * Copia immutabile dei rendimenti di un ISIN in un intervallo: giorni (epoch day) crescenti
+ * e rendimenti corrispondenti in due array paralleli. È il formato su cui lavorano
+ * i calcoli che confrontano più serie (es. {@link SerieSpread}).
+ */
+public final class SerieRendimenti {
+
+    public static final SerieRendimenti VUOTA = new SerieRendimenti(new int[0], new double[0]);
+
+    private final int[] giorni;
+    private final double[] rendimenti;
+
+    /**
+     * @param giorni i giorni in ordine strettamente crescente
+     * @param rendimenti i rendimenti, nello stesso ordine (gli array non vengono copiati)
+     */
+    public SerieRendimenti(int[] giorni, double[] rendimenti) {
+        if (giorni.length != rendimenti.length) {
+            throw new IllegalArgumentException("Giorni e rendimenti devono avere la stessa lunghezza");
+        }
+        this.giorni = giorni;
+        this.rendimenti = rendimenti;
+    }
+
+    public int size() {
+        return giorni.length;
+    }
+
+    public boolean isEmpty() {
+        return giorni.length == 0;
+    }
+
+    public int giorno(int indice) {
+        return giorni[indice];
+    }
+
+    public double rendimento(int indice) {
+        return rendimenti[indice];
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.rendimento.service.store;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import com.example.rendimento.enums.RisoluzioneTrend;
+
+/**
+ * Spread tra due serie di rendimenti (primo - secondo) sui soli giorni presenti in entrambe.
+ * <p>
+ * Le serie sono allineate con un merge dei giorni ordinati, in tempo lineare; la differenza
+ * è poi un ciclo su array primitivi contigui, che il compilatore JIT vettorizza.
+ * Gli spread sono nella stessa scala dei rendimenti (0.0025 = 25 punti base).
+ */
+public final class SerieSpread {
+
+    private final int[] giorni;
+    private final double[] primo;
+    private final double[] secondo;
+    private final double[] spread;
+
+    private SerieSpread(int[] giorni, double[] primo, double[] secondo, double[] spread) {
+        this.giorni = giorni;
+        this.primo = primo;
+        this.secondo = secondo;
+        this.spread = spread;
+    }
+
+    /**
+     * Calcola lo spread giornaliero tra due serie.
+     */
+    public static SerieSpread calcola(SerieRendimenti a, SerieRendimenti b) {
+        int massimo = Math.min(a.size(), b.size());
+        int[] giorni = new int[massimo];
+        double[] primo = new double[massimo];
+        double[] secondo = new double[massimo];
+
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.size() && j < b.size()) {
+            int giornoA = a.giorno(i);
+            int giornoB = b.giorno(j);
+            if (giornoA < giornoB) {
+                i++;
+            } else if (giornoA > giornoB) {
+                j++;
+            } else {
+                giorni[n] = giornoA;
+                primo[n] = a.rendimento(i++);
+                secondo[n] = b.rendimento(j++);
+                n++;
+            }
+        }
+
+        double[] spread = new double[n];
+        for (int k = 0; k < n; k++) {
+            spread[k] = primo[k] - secondo[k];
+        }
+        return new SerieSpread(Arrays.copyOf(giorni, n), Arrays.copyOf(primo, n), Arrays.copyOf(secondo, n), spread);
+    }
+
+    /**
+     * Riduce la serie alla risoluzione indicata: ogni periodo ha la media dei giorni che contiene
+     * ed è identificato dal suo primo giorno.
+     */
+    public SerieSpread perRisoluzione(RisoluzioneTrend risoluzione) {
+        if (risoluzione == RisoluzioneTrend.GIORNALIERA || giorni.length == 0) {
+            return this;
+        }
+
+        int[] periodi = new int[giorni.length];
+        double[] mediaPrimo = new double[giorni.length];
+        double[] mediaSecondo = new double[giorni.length];
+        double[] mediaSpread = new double[giorni.length];
+        int n = 0;
+        int inizio = 0;
+        // I giorni sono ordinati: ogni periodo è un blocco contiguo
+        while (inizio < giorni.length) {
+            int periodo = (int) risoluzione.inizioPeriodo(LocalDate.ofEpochDay(giorni[inizio])).toEpochDay();
+            int fine = (int) risoluzione.finePeriodo(LocalDate.ofEpochDay(giorni[inizio])).toEpochDay();
+            double sommaPrimo = 0;
+            double sommaSecondo = 0;
+            double sommaSpread = 0;
+            int k = inizio;
+            for (; k < giorni.length && giorni[k] <= fine; k++) {
+                sommaPrimo += primo[k];
+                sommaSecondo += secondo[k];
+                sommaSpread += spread[k];
+            }
+            int numero = k - inizio;
+            periodi[n] = periodo;
+            mediaPrimo[n] = sommaPrimo / numero;
+            mediaSecondo[n] = sommaSecondo / numero;
+            mediaSpread[n] = sommaSpread / numero;
+            n++;
+            inizio = k;
+        }
+        return new SerieSpread(Arrays.copyOf(periodi, n), Arrays.copyOf(mediaPrimo, n),
+                Arrays.copyOf(mediaSecondo, n), Arrays.copyOf(mediaSpread, n));
+    }
+
+    public int size() {
+        return giorni.length;
+    }
+
+    public LocalDate data(int indice) {
+        return LocalDate.ofEpochDay(giorni[indice]);
+    }
+
+    public double primo(int indice) {
+        return primo[indice];
+    }
+
+    public double secondo(int indice) {
+        return secondo[indice];
+    }
+
+    public double spread(int indice) {
+        return spread[indice];
+    }
+
+    /**
+     * Media degli spread (NaN se la serie è vuota).
+     */
+    public double media() {
+        double somma = 0;
+        for (double s : spread) {
+            somma += s;
+        }
+        return spread.length > 0 ? somma / spread.length : Double.NaN;
+    }
+
+    /**
+     * Spread minimo (NaN se la serie è vuota).
+     */
+    public double minimo() {
+        return spread.length > 0 ? Arrays.stream(spread).min().getAsDouble() : Double.NaN;
+    }
+
+    /**
+     * Spread massimo (NaN se la serie è vuota).
+     */
+    public double massimo() {
+        return spread.length > 0 ? Arrays.stream(spread).max().getAsDouble() : Double.NaN;
+    }
+}
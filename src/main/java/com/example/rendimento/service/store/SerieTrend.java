@@ -0,0 +1,191 @@
+package com.example.rendimento.service.store;
+
+import java.util.Arrays;
+import java.util.function.Function;
+
+/**
+ * Serie storica dei trend di un singolo ISIN memorizzata per colonne.
+ * <p>
+ * I giorni sono espressi come epoch day e mantenuti ordinati in un array di interi,
+ * affiancato dagli array di rendimenti e prezzi: una ricerca di intervallo è una
+ * ricerca binaria seguita da una scansione sequenziale degli array.
+ * <p>
+ * Le scritture sono rare (al più una per giorno e ISIN) e sincronizzate; le letture
+ * sincronizzano sullo stesso monitor, dato che operano su poche centinaia di elementi.
+ * <p>
+ * La serie mantiene anche le {@link StatisticheMobili} dei rendimenti: l'aggiunta di un giorno
+ * in coda o la sostituzione dell'ultimo giorno le aggiornano in O(1), le modifiche dei giorni
+ * precedenti le ricalcolano.
+ */
+public class SerieTrend {
+
+    public static final int CAPACITA_INIZIALE = 16;
+
+    /**
+     * Finestra predefinita delle statistiche mobili (circa un mese di borsa).
+     */
+    public static final int FINESTRA_PREDEFINITA = 20;
+
+    private int[] giorni;
+    private float[] rendimenti;
+    private float[] prezzi;
+    private int dimensione;
+    private int giornoScadenza;
+    private final StatisticheMobili statistiche;
+
+    public SerieTrend(int giornoScadenza) {
+        this(giornoScadenza, CAPACITA_INIZIALE, FINESTRA_PREDEFINITA);
+    }
+
+    public SerieTrend(int giornoScadenza, int capacita, int finestra) {
+        int capacitaEffettiva = Math.max(capacita, 1);
+        this.giornoScadenza = giornoScadenza;
+        this.statistiche = new StatisticheMobili(finestra);
+        this.giorni = new int[capacitaEffettiva];
+        this.rendimenti = new float[capacitaEffettiva];
+        this.prezzi = new float[capacitaEffettiva];
+    }
+
+    /**
+     * Inserisce o sostituisce il punto del giorno indicato mantenendo l'ordinamento.
+     * L'inserimento in coda, caso normale dello snapshot giornaliero, non sposta elementi.
+     */
+    public synchronized void upsert(int giorno, float rendimento, float prezzo) {
+        int indice = dimensione > 0 && giorni[dimensione - 1] < giorno
+                ? -(dimensione + 1)
+                : Arrays.binarySearch(giorni, 0, dimensione, giorno);
+
+        if (indice >= 0) {
+            rendimenti[indice] = rendimento;
+            prezzi[indice] = prezzo;
+            if (indice != dimensione - 1 || !statistiche.sostituisciUltimo(giorno, rendimento)) {
+                statistiche.ricalcola(giorni, rendimenti, dimensione);
+            }
+            return;
+        }
+
+        int posizione = -(indice + 1);
+        if (dimensione == giorni.length) {
+            int nuovaCapacita = giorni.length + (giorni.length >> 1) + 1;
+            giorni = Arrays.copyOf(giorni, nuovaCapacita);
+            rendimenti = Arrays.copyOf(rendimenti, nuovaCapacita);
+            prezzi = Arrays.copyOf(prezzi, nuovaCapacita);
+        }
+        int daSpostare = dimensione - posizione;
+        if (daSpostare > 0) {
+            System.arraycopy(giorni, posizione, giorni, posizione + 1, daSpostare);
+            System.arraycopy(rendimenti, posizione, rendimenti, posizione + 1, daSpostare);
+            System.arraycopy(prezzi, posizione, prezzi, posizione + 1, daSpostare);
+        }
+        giorni[posizione] = giorno;
+        rendimenti[posizione] = rendimento;
+        prezzi[posizione] = prezzo;
+        dimensione++;
+
+        if (daSpostare == 0) {
+            statistiche.aggiungi(giorno, rendimento);
+        } else {
+            statistiche.ricalcola(giorni, rendimenti, dimensione);
+        }
+    }
+
+    /**
+     * Elimina i punti precedenti al giorno indicato.
+     *
+     * @return il numero di punti eliminati
+     */
+    public synchronized int rimuoviPrecedenti(int giorno) {
+        int primo = primoIndiceDa(giorno);
+        if (primo == 0) {
+            return 0;
+        }
+        int rimanenti = dimensione - primo;
+        System.arraycopy(giorni, primo, giorni, 0, rimanenti);
+        System.arraycopy(rendimenti, primo, rendimenti, 0, rimanenti);
+        System.arraycopy(prezzi, primo, prezzi, 0, rimanenti);
+        dimensione = rimanenti;
+        statistiche.ricalcola(giorni, rendimenti, dimensione);
+        return primo;
+    }
+
+    /**
+     * Scorre i punti compresi tra i due giorni (estremi inclusi) in ordine crescente.
+     */
+    public synchronized void perOgniPunto(int giornoDa, int giornoA, VisitatorePunto visitatore) {
+        for (int i = primoIndiceDa(giornoDa); i < dimensione && giorni[i] <= giornoA; i++) {
+            visitatore.visita(giorni[i], rendimenti[i], prezzi[i]);
+        }
+    }
+
+    /**
+     * Copia i rendimenti compresi tra i due giorni (estremi inclusi), escludendo quelli mancanti.
+     */
+    public synchronized SerieRendimenti estraiRendimenti(int giornoDa, int giornoA) {
+        int primo = primoIndiceDa(giornoDa);
+        int ultimo = primoIndiceDa(giornoA + 1);
+        if (ultimo <= primo) {
+            return SerieRendimenti.VUOTA;
+        }
+        int[] giorniEstratti = new int[ultimo - primo];
+        double[] rendimentiEstratti = new double[ultimo - primo];
+        int n = 0;
+        for (int i = primo; i < ultimo; i++) {
+            if (!Float.isNaN(rendimenti[i])) {
+                giorniEstratti[n] = giorni[i];
+                rendimentiEstratti[n] = rendimenti[i];
+                n++;
+            }
+        }
+        return n == giorniEstratti.length
+                ? new SerieRendimenti(giorniEstratti, rendimentiEstratti)
+                : new SerieRendimenti(Arrays.copyOf(giorniEstratti, n), Arrays.copyOf(rendimentiEstratti, n));
+    }
+
+    /**
+     * Legge le statistiche mobili sotto il monitor della serie.
+     */
+    public synchronized <T> T leggiStatistiche(Function<StatisticheMobili, T> lettura) {
+        return lettura.apply(statistiche);
+    }
+
+    public synchronized int getGiornoScadenza() {
+        return giornoScadenza;
+    }
+
+    public synchronized void setGiornoScadenza(int giornoScadenza) {
+        this.giornoScadenza = giornoScadenza;
+    }
+
+    public synchronized int size() {
+        return dimensione;
+    }
+
+    public synchronized boolean isEmpty() {
+        return dimensione == 0;
+    }
+
+    /**
+     * Primo indice con giorno maggiore o uguale a quello indicato (ricerca binaria).
+     */
+    private int primoIndiceDa(int giorno) {
+        int basso = 0;
+        int alto = dimensione;
+        while (basso < alto) {
+            int medio = (basso + alto) >>> 1;
+            if (giorni[medio] < giorno) {
+                basso = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return basso;
+    }
+
+    /**
+     * Callback invocata per ogni punto di una scansione di intervallo.
+     */
+    @FunctionalInterface
+    public interface VisitatorePunto {
+        void visita(int giorno, float rendimento, float prezzo);
+    }
+}
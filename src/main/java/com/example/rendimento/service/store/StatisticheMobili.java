@@ -0,0 +1,155 @@
+package com.example.rendimento.service.store;
+
+/**
+ * Statistiche mobili sui rendimenti degli ultimi N punti di una serie.
+ * <p>
+ * I rendimenti della finestra sono tenuti in un buffer circolare con somma e somma dei quadrati
+ * correnti, per cui l'aggiunta di un nuovo punto in coda costa O(1) indipendentemente dalla
+ * lunghezza della serie. La media esponenziale usa alfa = 2 / (N + 1) ed è calcolata su tutta la serie.
+ * <p>
+ * La classe non è thread-safe: è protetta dal monitor della {@link SerieTrend} che la contiene.
+ */
+public class StatisticheMobili {
+
+    /**
+     * Sotto questa deviazione standard (1e-5 punti base) la finestra è considerata costante.
+     */
+    private static final double DEVIAZIONE_MINIMA = 1e-9;
+
+    private final float[] buffer;
+    private final double alfa;
+    private int prossimo;
+    private int numero;
+    private double somma;
+    private double sommaQuadrati;
+    private double mediaEsponenziale = Double.NaN;
+    private double mediaEsponenzialePrecedente = Double.NaN;
+    private int giornoUltimo;
+    private float ultimo = Float.NaN;
+
+    public StatisticheMobili(int finestra) {
+        if (finestra < 2) {
+            throw new IllegalArgumentException("La finestra delle statistiche mobili deve contenere almeno 2 punti");
+        }
+        this.buffer = new float[finestra];
+        this.alfa = 2.0 / (finestra + 1);
+    }
+
+    /**
+     * Aggiunge il rendimento di un giorno successivo a tutti quelli già considerati.
+     */
+    public void aggiungi(int giorno, float rendimento) {
+        if (Float.isNaN(rendimento)) {
+            return;
+        }
+        if (numero == buffer.length) {
+            float uscente = buffer[prossimo];
+            somma -= uscente;
+            sommaQuadrati -= (double) uscente * uscente;
+        } else {
+            numero++;
+        }
+        buffer[prossimo] = rendimento;
+        prossimo = (prossimo + 1) % buffer.length;
+        somma += rendimento;
+        sommaQuadrati += (double) rendimento * rendimento;
+
+        mediaEsponenzialePrecedente = mediaEsponenziale;
+        mediaEsponenziale = calcolaMediaEsponenziale(rendimento);
+        giornoUltimo = giorno;
+        ultimo = rendimento;
+    }
+
+    /**
+     * Sostituisce in O(1) il rendimento dell'ultimo giorno considerato (es. un secondo
+     * aggiornamento dello snapshot odierno).
+     *
+     * @return false se l'ultimo punto non è sostituibile e occorre un {@link #ricalcola}
+     */
+    public boolean sostituisciUltimo(int giorno, float rendimento) {
+        if (numero == 0 || giorno != giornoUltimo || Float.isNaN(rendimento)) {
+            return false;
+        }
+        int indiceUltimo = (prossimo - 1 + buffer.length) % buffer.length;
+        somma += rendimento - buffer[indiceUltimo];
+        sommaQuadrati += (double) rendimento * rendimento - (double) buffer[indiceUltimo] * buffer[indiceUltimo];
+        buffer[indiceUltimo] = rendimento;
+
+        mediaEsponenziale = mediaEsponenzialePrecedente;
+        mediaEsponenziale = calcolaMediaEsponenziale(rendimento);
+        ultimo = rendimento;
+        return true;
+    }
+
+    private double calcolaMediaEsponenziale(float rendimento) {
+        return Double.isNaN(mediaEsponenziale)
+                ? rendimento
+                : alfa * rendimento + (1 - alfa) * mediaEsponenziale;
+    }
+
+    /**
+     * Ricalcola da zero le statistiche a partire dai punti ordinati della serie.
+     * Da usare quando un punto già considerato viene modificato o eliminato.
+     */
+    public void ricalcola(int[] giorni, float[] rendimenti, int dimensione) {
+        prossimo = 0;
+        numero = 0;
+        somma = 0;
+        sommaQuadrati = 0;
+        mediaEsponenziale = Double.NaN;
+        mediaEsponenzialePrecedente = Double.NaN;
+        giornoUltimo = 0;
+        ultimo = Float.NaN;
+        for (int i = 0; i < dimensione; i++) {
+            aggiungi(giorni[i], rendimenti[i]);
+        }
+    }
+
+    public int getFinestra() {
+        return buffer.length;
+    }
+
+    public int getNumero() {
+        return numero;
+    }
+
+    public int getGiornoUltimo() {
+        return giornoUltimo;
+    }
+
+    public float getUltimo() {
+        return ultimo;
+    }
+
+    public double getMedia() {
+        return numero > 0 ? somma / numero : Double.NaN;
+    }
+
+    public double getMediaEsponenziale() {
+        return mediaEsponenziale;
+    }
+
+    /**
+     * Deviazione standard campionaria della finestra (NaN con meno di due punti).
+     */
+    public double getDeviazioneStandard() {
+        if (numero < 2) {
+            return Double.NaN;
+        }
+        double varianza = (sommaQuadrati - somma * somma / numero) / (numero - 1);
+        // Le somme correnti possono produrre valori negativi minimi per errori di arrotondamento
+        return Math.sqrt(Math.max(varianza, 0));
+    }
+
+    /**
+     * Scostamento dell'ultimo rendimento dalla media della finestra, in deviazioni standard
+     * (NaN se la deviazione standard è nulla o non calcolabile).
+     */
+    public double getZScore() {
+        double deviazione = getDeviazioneStandard();
+        if (Double.isNaN(deviazione) || deviazione < DEVIAZIONE_MINIMA) {
+            return Double.NaN;
+        }
+        return (ultimo - getMedia()) / deviazione;
+    }
+}
@@ -0,0 +1,644 @@
+package com.example.rendimento.service.store;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.rendimento.dto.TrendAggregatoDTO;
+import com.example.rendimento.dto.TrendPuntoDTO;
+import com.example.rendimento.dto.TrendStatisticheDTO;
+import com.example.rendimento.enums.RisoluzioneTrend;
+import com.example.rendimento.enums.TrendBucket;
+import com.example.rendimento.repository.TrendRepository;
+import com.example.rendimento.repository.projection.TrendPuntoProjection;
+import com.example.rendimento.utility.IstogrammaRendimenti;
+
+/**
+ * Store in memoria delle serie storiche dei trend, una {@link SerieTrend} per ISIN.
+ * <p>
+ * Viene caricato all'avvio con un'unica query e mantenuto allineato dalle scritture
+ * applicative (dopo il commit della transazione). Con {@code rendimento.trend.store.file-avvio}
+ * il contenuto è salvato dopo ogni caricamento in un file a colonne, letto al successivo avvio
+ * prima della query. Finché il caricamento non è completato
+ * {@link #isCaricato()} restituisce false e le letture devono passare dal database.
+ * Con {@code rendimento.trend.store.abilitato=false} lo store non viene mai caricato.
+ */
+@Component
+public class TrendSerieStore {
+
+    private static final Logger log = LoggerFactory.getLogger(TrendSerieStore.class);
+
+    private static final TrendBucket[] BUCKETS = TrendBucket.values();
+
+    private static final double FATTORE_RENDIMENTO = Math.pow(10, FormatoTrendColonnare.SCALA_RENDIMENTO);
+    private static final double FATTORE_PREZZO = Math.pow(10, FormatoTrendColonnare.SCALA_PREZZO);
+
+    private final TrendRepository trendRepository;
+
+    private final Object lock = new Object();
+
+    @Value("${rendimento.trend.store.abilitato:true}")
+    private boolean abilitato = true;
+
+    @Value("${rendimento.trend.statistiche.finestra:" + SerieTrend.FINESTRA_PREDEFINITA + "}")
+    private int finestraStatistiche = SerieTrend.FINESTRA_PREDEFINITA;
+
+    private volatile Map<String, SerieTrend> serie = new ConcurrentHashMap<>();
+    private volatile boolean caricato;
+
+    /**
+     * Contatore delle modifiche: ogni giorno modificato registra il valore corrente, le modifiche
+     * che toccano tutti i giorni (caricamento, eliminazioni) aggiornano la versione globale.
+     * Permette a chi calcola dati derivati per giorno (es. le curve) di riconoscerli come superati.
+     */
+    private final AtomicLong contatoreModifiche = new AtomicLong();
+    private final Map<Integer, Long> versioniGiorno = new ConcurrentHashMap<>();
+    private volatile long versioneGlobale;
+
+    /**
+     * Modifiche ricevute durante un caricamento, da riapplicare alla nuova mappa
+     * prima di renderla visibile (null quando nessun caricamento è in corso).
+     */
+    private List<Consumer<Map<String, SerieTrend>>> modificheInSospeso;
+
+    /**
+     * File per l'avvio rapido dello store, riscritto dopo ogni caricamento dal database
+     * (vuoto = nessun file).
+     */
+    @Value("${rendimento.trend.store.file-avvio:}")
+    private String fileAvvio = "";
+
+    public TrendSerieStore(TrendRepository trendRepository) {
+        this.trendRepository = trendRepository;
+    }
+
+    /**
+     * Carica lo store all'avvio dell'applicazione. Se è configurato un file di avvio leggibile,
+     * lo store è popolato dal file e subito utilizzabile; il caricamento dal database prosegue
+     * in background e recepisce le modifiche successive alla scrittura del file.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!abilitato) {
+            log.info("Store dei trend disabilitato: le letture useranno il database");
+            return;
+        }
+        if (caricaDaFileAvvio()) {
+            Thread.ofVirtual().name("trend-store-carica").start(this::caricaDalDatabase);
+            return;
+        }
+        caricaDalDatabase();
+    }
+
+    /**
+     * Ricarica periodicamente lo store per recepire eventuali modifiche fatte fuori
+     * dall'applicazione (script SQL, manutenzione manuale).
+     */
+    @Scheduled(cron = "${rendimento.trend.store.cron:0 45 2 * * *}")
+    public void ricaricaPeriodica() {
+        if (abilitato) {
+            caricaDalDatabase();
+        }
+    }
+
+    /**
+     * Carica lo store dal database e, se configurato, ne riscrive il file di avvio.
+     */
+    private void caricaDalDatabase() {
+        try {
+            carica();
+        } catch (DataAccessException e) {
+            log.warn("Impossibile caricare lo store dei trend, le letture useranno il database: {}", e.getMessage());
+            return;
+        }
+        if (!fileAvvio.isBlank()) {
+            try {
+                salvaImmagine(Path.of(fileAvvio));
+            } catch (IOException e) {
+                log.warn("Impossibile scrivere il file di avvio dello store dei trend {}: {}", fileAvvio, e.getMessage());
+            }
+        }
+    }
+
+    private boolean caricaDaFileAvvio() {
+        if (fileAvvio.isBlank() || !Files.isReadable(Path.of(fileAvvio))) {
+            return false;
+        }
+        try {
+            caricaImmagine(Path.of(fileAvvio));
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.warn("File di avvio dello store dei trend {} non utilizzabile: {}", fileAvvio, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Legge tutti gli snapshot dal database e sostituisce il contenuto dello store.
+     */
+    public void carica() {
+        try {
+            sostituisci("database", nuova -> {
+                int punti = 0;
+                for (TrendPuntoProjection p : trendRepository.findAllPunti()) {
+                    nuova.computeIfAbsent(p.getIsin(), isin -> nuovaSerie(giorno(p.getDataScadenza())))
+                            .upsert(giorno(p.getDataSnapshot()), valore(p.getRendimentoAnnuo()), valore(p.getPrezzo()));
+                    punti++;
+                }
+                return punti;
+            });
+        } catch (IOException e) {
+            // La lettura dal database non produce IOException
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Sostituisce il contenuto dello store con quello di un file nel {@link FormatoTrendColonnare formato a colonne}.
+     */
+    public void caricaImmagine(Path file) throws IOException {
+        sostituisci(file.toString(), nuova -> {
+            int punti = 0;
+            try (LettoreTrendColonnare lettore = new LettoreTrendColonnare(Files.newInputStream(file))) {
+                LettoreTrendColonnare.Blocco blocco;
+                while ((blocco = lettore.leggiBlocco()) != null) {
+                    LettoreTrendColonnare.Blocco b = blocco;
+                    SerieTrend s = nuova.computeIfAbsent(b.getIsin(), isin -> nuovaSerie(b.getGiornoScadenza()));
+                    s.setGiornoScadenza(b.getGiornoScadenza());
+                    for (int i = 0; i < b.size(); i++) {
+                        s.upsert(b.getGiorno(i), b.getRendimentoFloat(i), b.getPrezzoFloat(i));
+                    }
+                    punti += b.size();
+                }
+            }
+            return punti;
+        });
+    }
+
+    /**
+     * Scrive il contenuto dello store in un file nel {@link FormatoTrendColonnare formato a colonne} compresso.
+     * Il file è scritto accanto alla destinazione e poi rinominato, così un avvio concorrente
+     * non legge mai un file parziale. I punti senza rendimento o prezzo non sono scritti.
+     *
+     * @return il numero di punti scritti
+     */
+    public long salvaImmagine(Path file) throws IOException {
+        Path assoluto = file.toAbsolutePath();
+        if (assoluto.getParent() != null) {
+            Files.createDirectories(assoluto.getParent());
+        }
+        Path temporaneo = Files.createTempFile(assoluto.getParent(), assoluto.getFileName().toString(), ".tmp");
+        long inizio = System.currentTimeMillis();
+        long punti;
+        try {
+            try (ScrittoreTrendColonnare scrittore = new ScrittoreTrendColonnare(Files.newOutputStream(temporaneo), true)) {
+                Map<String, SerieTrend> correnti = serie;
+                for (String isin : new TreeMap<>(correnti).keySet()) {
+                    SerieTrend s = correnti.get(isin);
+                    int giornoScadenza = s.getGiornoScadenza();
+                    IOException[] errore = new IOException[1];
+                    s.perOgniPunto(Integer.MIN_VALUE, Integer.MAX_VALUE, (giorno, rendimento, prezzo) -> {
+                        if (errore[0] != null || Float.isNaN(rendimento) || Float.isNaN(prezzo)) {
+                            return;
+                        }
+                        try {
+                            scrittore.scrivi(isin, giorno, giornoScadenza,
+                                    Math.round(rendimento * FATTORE_RENDIMENTO), Math.round(prezzo * FATTORE_PREZZO));
+                        } catch (IOException e) {
+                            errore[0] = e;
+                        }
+                    });
+                    if (errore[0] != null) {
+                        throw errore[0];
+                    }
+                }
+                punti = scrittore.getRigheScritte();
+            }
+            Files.move(temporaneo, assoluto, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaneo);
+        }
+        log.info("File di avvio dello store dei trend scritto: {} punti in {} ({} byte, {} ms)",
+                punti, assoluto, Files.size(assoluto), System.currentTimeMillis() - inizio);
+        return punti;
+    }
+
+    /**
+     * Costruisce una nuova mappa con la lettura indicata e la rende visibile al posto della corrente.
+     * Le modifiche ricevute durante la lettura sono riapplicate alla nuova mappa, così non vanno perse.
+     */
+    private void sostituisci(String origine, LetturaStore lettura) throws IOException {
+        synchronized (lock) {
+            if (modificheInSospeso != null) {
+                log.debug("Caricamento dello store dei trend già in corso");
+                return;
+            }
+            modificheInSospeso = new ArrayList<>();
+        }
+
+        long inizio = System.currentTimeMillis();
+        Map<String, SerieTrend> nuova = new ConcurrentHashMap<>();
+        int punti;
+        try {
+            punti = lettura.leggi(nuova);
+        } catch (IOException | RuntimeException e) {
+            synchronized (lock) {
+                modificheInSospeso = null;
+            }
+            throw e;
+        }
+
+        synchronized (lock) {
+            modificheInSospeso.forEach(modifica -> modifica.accept(nuova));
+            modificheInSospeso = null;
+            serie = nuova;
+            caricato = true;
+            versioneGlobale = contatoreModifiche.incrementAndGet();
+        }
+        log.info("Store dei trend caricato da {}: {} ISIN, {} punti in {} ms",
+                origine, nuova.size(), punti, System.currentTimeMillis() - inizio);
+    }
+
+    public boolean isCaricato() {
+        return caricato;
+    }
+
+    /**
+     * Inserisce o aggiorna il punto di un ISIN.
+     */
+    public void aggiorna(String isin, LocalDate dataSnapshot, LocalDate dataScadenza,
+                         BigDecimal rendimento, BigDecimal prezzo) {
+        int giorno = giorno(dataSnapshot);
+        int giornoScadenza = giorno(dataScadenza);
+        float r = valore(rendimento);
+        float p = valore(prezzo);
+        applica(mappa -> {
+            SerieTrend s = mappa.computeIfAbsent(isin, k -> nuovaSerie(giornoScadenza));
+            s.setGiornoScadenza(giornoScadenza);
+            s.upsert(giorno, r, p);
+        });
+        versioniGiorno.put(giorno, contatoreModifiche.incrementAndGet());
+    }
+
+    /**
+     * Come {@link #aggiorna}, ma se è attiva una transazione applica la modifica solo
+     * dopo il commit, così lo store non espone dati poi annullati da un rollback.
+     */
+    public void aggiornaDopoCommit(String isin, LocalDate dataSnapshot, LocalDate dataScadenza,
+                                   BigDecimal rendimento, BigDecimal prezzo) {
+        dopoCommit(() -> aggiorna(isin, dataSnapshot, dataScadenza, rendimento, prezzo));
+    }
+
+    /**
+     * Inserisce o aggiorna i punti di un blocco letto da un archivio a colonne, dopo il commit
+     * della transazione corrente: una sola modifica dello store per tutte le righe del blocco.
+     */
+    public void aggiornaDopoCommit(LettoreTrendColonnare.Blocco blocco) {
+        dopoCommit(() -> {
+            applica(mappa -> {
+                SerieTrend s = mappa.computeIfAbsent(blocco.getIsin(), k -> nuovaSerie(blocco.getGiornoScadenza()));
+                s.setGiornoScadenza(blocco.getGiornoScadenza());
+                for (int i = 0; i < blocco.size(); i++) {
+                    s.upsert(blocco.getGiorno(i), blocco.getRendimentoFloat(i), blocco.getPrezzoFloat(i));
+                }
+            });
+            long versione = contatoreModifiche.incrementAndGet();
+            for (int i = 0; i < blocco.size(); i++) {
+                versioniGiorno.put(blocco.getGiorno(i), versione);
+            }
+        });
+    }
+
+    /**
+     * Elimina la serie di un ISIN.
+     */
+    public void rimuovi(String isin) {
+        applica(mappa -> mappa.remove(isin));
+        versioneGlobale = contatoreModifiche.incrementAndGet();
+    }
+
+    /**
+     * Come {@link #rimuovi}, ma applicata solo dopo il commit della transazione corrente.
+     */
+    public void rimuoviDopoCommit(String isin) {
+        dopoCommit(() -> rimuovi(isin));
+    }
+
+    /**
+     * Elimina da tutte le serie i punti precedenti alla data indicata.
+     */
+    public void rimuoviPrecedenti(LocalDate data) {
+        int giorno = giorno(data);
+        applica(mappa -> mappa.values().removeIf(s -> {
+            s.rimuoviPrecedenti(giorno);
+            return s.isEmpty();
+        }));
+        versioneGlobale = contatoreModifiche.incrementAndGet();
+    }
+
+    /**
+     * Restituisce la versione dei dati di un giorno: cambia ad ogni modifica che può
+     * alterare i punti del giorno.
+     */
+    public long versioneGiorno(LocalDate data) {
+        return Math.max(versioniGiorno.getOrDefault(giorno(data), 0L), versioneGlobale);
+    }
+
+    /**
+     * Restituisce gli anni alla scadenza e il rendimento di ogni ISIN con uno snapshot nel giorno indicato,
+     * ordinati per ISIN.
+     *
+     * @return per ogni ISIN la coppia {anni alla scadenza, rendimento}
+     */
+    public Map<String, double[]> puntiDelGiorno(LocalDate data) {
+        int giorno = giorno(data);
+        Map<String, double[]> punti = new TreeMap<>();
+        serie.forEach((isin, s) -> {
+            int giornoScadenza = s.getGiornoScadenza();
+            s.perOgniPunto(giorno, giorno, (g, rendimento, prezzo) -> {
+                if (!Float.isNaN(rendimento)) {
+                    punti.put(isin, new double[] {(giornoScadenza - g) / 365.0, rendimento});
+                }
+            });
+        });
+        return punti;
+    }
+
+    /**
+     * Restituisce la serie storica di un ISIN nell'intervallo (estremi inclusi).
+     */
+    public List<TrendPuntoDTO> getStorico(String isin, LocalDate dataInizio, LocalDate dataFine) {
+        SerieTrend s = serie.get(isin);
+        if (s == null) {
+            return List.of();
+        }
+        List<TrendPuntoDTO> punti = new ArrayList<>();
+        s.perOgniPunto(giorno(dataInizio), giorno(dataFine), (giorno, rendimento, prezzo) ->
+                punti.add(new TrendPuntoDTO(LocalDate.ofEpochDay(giorno), arrotonda(rendimento), arrotonda(prezzo))));
+        return punti;
+    }
+
+    /**
+     * Restituisce i rendimenti di un ISIN nell'intervallo (estremi inclusi) in forma di array,
+     * vuota se l'ISIN non è presente.
+     */
+    public SerieRendimenti getRendimenti(String isin, LocalDate dataInizio, LocalDate dataFine) {
+        SerieTrend s = serie.get(isin);
+        return s != null ? s.estraiRendimenti(giorno(dataInizio), giorno(dataFine)) : SerieRendimenti.VUOTA;
+    }
+
+    /**
+     * Calcola gli aggregati giornalieri per bucket dell'intervallo, ordinati per data e bucket.
+     *
+     * @param buckets i bucket da includere; se vuoto li include tutti
+     */
+    public List<TrendAggregatoDTO> aggregaPerBucket(LocalDate dataInizio, LocalDate dataFine,
+                                                    Collection<TrendBucket> buckets) {
+        return aggregaPerBucket(dataInizio, dataFine, buckets, RisoluzioneTrend.GIORNALIERA);
+    }
+
+    /**
+     * Calcola media, minimo, massimo, numero di titoli e percentili per ogni periodo e bucket
+     * dell'intervallo, ordinati per data e bucket. Il bucket di ogni punto dipende dagli anni
+     * residui alla scadenza alla data dello snapshot. I periodi settimanali e mensili combinano
+     * gli aggregati giornalieri con le stesse regole dei rollup della tabella trend_aggregati.
+     *
+     * @param buckets i bucket da includere; se vuoto li include tutti
+     * @param risoluzione la risoluzione dei periodi
+     */
+    public List<TrendAggregatoDTO> aggregaPerBucket(LocalDate dataInizio, LocalDate dataFine,
+                                                    Collection<TrendBucket> buckets, RisoluzioneTrend risoluzione) {
+        int giornoDa = giorno(dataInizio);
+        int giornoA = giorno(dataFine);
+        if (giornoA < giornoDa) {
+            return List.of();
+        }
+        Set<TrendBucket> inclusi = buckets.isEmpty() ? EnumSet.allOf(TrendBucket.class) : EnumSet.copyOf(buckets);
+
+        Map<Long, Accumulatore> giornalieri = new HashMap<>();
+        for (SerieTrend s : serie.values()) {
+            int giornoScadenza = s.getGiornoScadenza();
+            s.perOgniPunto(giornoDa, giornoA, (giorno, rendimento, prezzo) -> {
+                TrendBucket bucket = TrendBucket.daAnni((giornoScadenza - giorno) / 365.0);
+                if (bucket != null && inclusi.contains(bucket)) {
+                    giornalieri.computeIfAbsent(chiave(giorno, bucket), k -> new Accumulatore()).aggiungi(rendimento);
+                }
+            });
+        }
+
+        Map<Long, Accumulatore> periodi = giornalieri;
+        if (risoluzione != RisoluzioneTrend.GIORNALIERA) {
+            periodi = new HashMap<>();
+            for (Map.Entry<Long, Accumulatore> e : giornalieri.entrySet()) {
+                int periodo = giorno(risoluzione.inizioPeriodo(LocalDate.ofEpochDay(giornoDaChiave(e.getKey()))));
+                periodi.computeIfAbsent(chiave(periodo, bucketDaChiave(e.getKey())), k -> new Accumulatore())
+                        .unisci(e.getValue());
+            }
+        }
+
+        return periodi.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(e -> e.getValue().toDto(
+                        LocalDate.ofEpochDay(giornoDaChiave(e.getKey())), bucketDaChiave(e.getKey()), risoluzione))
+                .toList();
+    }
+
+    private static long chiave(int giorno, TrendBucket bucket) {
+        return (long) giorno * BUCKETS.length + bucket.ordinal();
+    }
+
+    private static int giornoDaChiave(long chiave) {
+        return (int) Math.floorDiv(chiave, (long) BUCKETS.length);
+    }
+
+    private static TrendBucket bucketDaChiave(long chiave) {
+        return BUCKETS[(int) Math.floorMod(chiave, (long) BUCKETS.length)];
+    }
+
+    /**
+     * Restituisce le statistiche mobili dell'ultimo rendimento di un ISIN.
+     *
+     * @return le statistiche, o null se l'ISIN non è presente o non ha rendimenti
+     */
+    public TrendStatisticheDTO getStatistiche(String isin) {
+        SerieTrend s = serie.get(isin);
+        return s != null ? statistiche(isin, s) : null;
+    }
+
+    /**
+     * Restituisce le statistiche mobili di tutti gli ISIN non ancora scaduti alla data indicata.
+     */
+    public List<TrendStatisticheDTO> getStatistiche(LocalDate dataRiferimento) {
+        int giornoRiferimento = giorno(dataRiferimento);
+        List<TrendStatisticheDTO> risultato = new ArrayList<>();
+        serie.forEach((isin, s) -> {
+            if (s.getGiornoScadenza() >= giornoRiferimento) {
+                TrendStatisticheDTO dto = statistiche(isin, s);
+                if (dto != null) {
+                    risultato.add(dto);
+                }
+            }
+        });
+        return risultato;
+    }
+
+    /**
+     * Calcola le statistiche mobili di una serie non presente nello store (es. letta dal database).
+     */
+    public TrendStatisticheDTO calcolaStatistiche(String isin, List<TrendPuntoDTO> punti) {
+        SerieTrend s = nuovaSerie(0);
+        punti.forEach(p -> s.upsert(giorno(p.getDataSnapshot()), (float) p.getRendimento(), (float) p.getPrezzo()));
+        return statistiche(isin, s);
+    }
+
+    private static TrendStatisticheDTO statistiche(String isin, SerieTrend s) {
+        return s.leggiStatistiche(st -> {
+            if (st.getNumero() == 0) {
+                return null;
+            }
+            TrendStatisticheDTO dto = new TrendStatisticheDTO();
+            dto.setIsin(isin);
+            dto.setDataUltimo(LocalDate.ofEpochDay(st.getGiornoUltimo()));
+            dto.setRendimentoUltimo(arrotonda(st.getUltimo()));
+            dto.setFinestra(st.getFinestra());
+            dto.setNumeroPunti(st.getNumero());
+            dto.setMediaMobile(arrotonda(st.getMedia()));
+            dto.setMediaEsponenziale(arrotonda(st.getMediaEsponenziale()));
+            double deviazione = st.getDeviazioneStandard();
+            dto.setDeviazioneStandard(Double.isNaN(deviazione) ? null : arrotonda(deviazione));
+            double zScore = st.getZScore();
+            dto.setZScore(Double.isNaN(zScore) ? null : Math.round(zScore * 1_000d) / 1_000d);
+            return dto;
+        });
+    }
+
+    private SerieTrend nuovaSerie(int giornoScadenza) {
+        return new SerieTrend(giornoScadenza, SerieTrend.CAPACITA_INIZIALE, finestraStatistiche);
+    }
+
+    /**
+     * Numero di ISIN presenti nello store.
+     */
+    public int numeroIsin() {
+        return serie.size();
+    }
+
+    private void applica(Consumer<Map<String, SerieTrend>> modifica) {
+        synchronized (lock) {
+            modifica.accept(serie);
+            if (modificheInSospeso != null) {
+                modificheInSospeso.add(modifica);
+            }
+        }
+    }
+
+    private static void dopoCommit(Runnable azione) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    azione.run();
+                }
+            });
+        } else {
+            azione.run();
+        }
+    }
+
+    private static int giorno(LocalDate data) {
+        return (int) data.toEpochDay();
+    }
+
+    private static float valore(BigDecimal valore) {
+        return valore != null ? valore.floatValue() : Float.NaN;
+    }
+
+    /**
+     * Riporta i valori float alla stessa scala delle colonne (6 decimali), evitando
+     * nelle risposte le cifre spurie della conversione float/double.
+     */
+    private static double arrotonda(double valore) {
+        return Math.round(valore * 1_000_000d) / 1_000_000d;
+    }
+
+    /**
+     * Statistiche parziali di un periodo e bucket. Per i periodi composti da più giorni
+     * il numero di titoli è il massimo giornaliero, la media è calcolata su tutte le osservazioni.
+     */
+    private static final class Accumulatore {
+        private double somma;
+        private double minimo = Double.POSITIVE_INFINITY;
+        private double massimo = Double.NEGATIVE_INFINITY;
+        private int osservazioni;
+        private int numeroTitoli;
+        private final IstogrammaRendimenti istogramma = new IstogrammaRendimenti();
+
+        void aggiungi(float rendimento) {
+            if (Float.isNaN(rendimento)) {
+                return;
+            }
+            somma += rendimento;
+            minimo = Math.min(minimo, rendimento);
+            massimo = Math.max(massimo, rendimento);
+            osservazioni++;
+            numeroTitoli++;
+            istogramma.aggiungi(rendimento);
+        }
+
+        void unisci(Accumulatore giornaliero) {
+            somma += giornaliero.somma;
+            minimo = Math.min(minimo, giornaliero.minimo);
+            massimo = Math.max(massimo, giornaliero.massimo);
+            osservazioni += giornaliero.osservazioni;
+            numeroTitoli = Math.max(numeroTitoli, giornaliero.numeroTitoli);
+            istogramma.unisci(giornaliero.istogramma);
+        }
+
+        TrendAggregatoDTO toDto(LocalDate data, TrendBucket bucket, RisoluzioneTrend risoluzione) {
+            TrendAggregatoDTO dto = new TrendAggregatoDTO();
+            dto.setDataSnapshot(data);
+            dto.setRisoluzione(risoluzione.getLabel());
+            dto.setBucket(bucket.getLabel());
+            dto.setRendimentoMedio(osservazioni > 0 ? arrotonda(somma / osservazioni) : 0.0);
+            dto.setRendimentoMinimo(osservazioni > 0 ? arrotonda(minimo) : 0.0);
+            dto.setRendimentoMassimo(osservazioni > 0 ? arrotonda(massimo) : 0.0);
+            dto.setNumeroTitoli(numeroTitoli);
+            dto.impostaPercentili(istogramma);
+            return dto;
+        }
+    }
+
+    /**
+     * Lettura che popola la mappa di un nuovo caricamento.
+     */
+    @FunctionalInterface
+    private interface LetturaStore {
+        int leggi(Map<String, SerieTrend> nuova) throws IOException;
+    }
+}
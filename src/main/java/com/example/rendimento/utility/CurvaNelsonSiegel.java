@@ -0,0 +1,203 @@
+package com.example.rendimento.utility;
+
+/**
+ * Curva dei rendimenti secondo il modello di Nelson-Siegel:
+ * <pre>
+ * y(t) = b0 + b1 * (1 - e^(-t/tau)) / (t/tau) + b2 * ((1 - e^(-t/tau)) / (t/tau) - e^(-t/tau))
+ * </pre>
+ * dove t sono gli anni alla scadenza. b0 è il livello di lungo periodo, b1 la pendenza
+ * e b2 la curvatura; tau determina dove la curvatura è massima.
+ * <p>
+ * L'adattamento fissa tau su una griglia logaritmica e, per ogni valore, stima b0, b1 e b2
+ * con i minimi quadrati (sistema 3x3 delle equazioni normali): si sceglie il tau con
+ * l'errore quadratico minore. Il costo è lineare nel numero di punti e non richiede
+ * ottimizzazioni non lineari.
+ */
+public class CurvaNelsonSiegel {
+
+    /**
+     * Numero minimo di punti per adattare i quattro parametri con un minimo di ridondanza.
+     */
+    public static final int PUNTI_MINIMI = 4;
+
+    private static final double TAU_MINIMO = 0.1;
+    private static final double TAU_MASSIMO = 15.0;
+    private static final int PASSI_TAU = 60;
+    private static final double[] GRIGLIA_TAU = costruisciGrigliaTau();
+
+    private final double beta0;
+    private final double beta1;
+    private final double beta2;
+    private final double tau;
+    private final int numeroPunti;
+    private final double erroreQuadraticoMedio;
+
+    public CurvaNelsonSiegel(double beta0, double beta1, double beta2, double tau,
+                             int numeroPunti, double erroreQuadraticoMedio) {
+        this.beta0 = beta0;
+        this.beta1 = beta1;
+        this.beta2 = beta2;
+        this.tau = tau;
+        this.numeroPunti = numeroPunti;
+        this.erroreQuadraticoMedio = erroreQuadraticoMedio;
+    }
+
+    /**
+     * Adatta la curva ai punti indicati.
+     *
+     * @param anni gli anni alla scadenza dei punti (devono essere positivi)
+     * @param rendimenti i rendimenti dei punti, nello stesso ordine
+     * @param numero il numero di punti da considerare
+     * @return la curva adattata, o null se i punti sono meno di {@link #PUNTI_MINIMI}
+     *         o non permettono di stimare i parametri
+     */
+    public static CurvaNelsonSiegel adatta(double[] anni, double[] rendimenti, int numero) {
+        if (numero < PUNTI_MINIMI) {
+            return null;
+        }
+
+        CurvaNelsonSiegel migliore = null;
+        double sseMigliore = Double.POSITIVE_INFINITY;
+        for (double tau : GRIGLIA_TAU) {
+            // Equazioni normali A * beta = b con regressori (1, x1, x2)
+            double[][] a = new double[3][3];
+            double[] b = new double[3];
+            for (int i = 0; i < numero; i++) {
+                double[] x = regressori(anni[i], tau);
+                for (int r = 0; r < 3; r++) {
+                    for (int c = 0; c < 3; c++) {
+                        a[r][c] += x[r] * x[c];
+                    }
+                    b[r] += x[r] * rendimenti[i];
+                }
+            }
+            double[] beta = risolvi(a, b);
+            if (beta == null) {
+                continue;
+            }
+
+            double sse = 0;
+            for (int i = 0; i < numero; i++) {
+                double[] x = regressori(anni[i], tau);
+                double residuo = rendimenti[i] - (beta[0] + beta[1] * x[1] + beta[2] * x[2]);
+                sse += residuo * residuo;
+            }
+            if (sse < sseMigliore) {
+                sseMigliore = sse;
+                migliore = new CurvaNelsonSiegel(beta[0], beta[1], beta[2], tau, numero, Math.sqrt(sse / numero));
+            }
+        }
+        return migliore;
+    }
+
+    /**
+     * Rendimento della curva per la scadenza indicata.
+     *
+     * @param anni gli anni alla scadenza
+     * @return il rendimento interpolato
+     */
+    public double rendimento(double anni) {
+        double[] x = regressori(anni, tau);
+        return beta0 + beta1 * x[1] + beta2 * x[2];
+    }
+
+    private static double[] regressori(double anni, double tau) {
+        double m = Math.max(anni, 0) / tau;
+        if (m < 1e-8) {
+            // Limite per scadenza nulla: (1 - e^-m) / m -> 1, e^-m -> 1
+            return new double[] {1, 1, 0};
+        }
+        double esponenziale = Math.exp(-m);
+        double x1 = (1 - esponenziale) / m;
+        return new double[] {1, x1, x1 - esponenziale};
+    }
+
+    /**
+     * Risolve il sistema 3x3 con eliminazione di Gauss e pivot parziale.
+     *
+     * @return la soluzione, o null se il sistema è singolare
+     */
+    private static double[] risolvi(double[][] a, double[] b) {
+        int n = b.length;
+        for (int colonna = 0; colonna < n; colonna++) {
+            int pivot = colonna;
+            for (int riga = colonna + 1; riga < n; riga++) {
+                if (Math.abs(a[riga][colonna]) > Math.abs(a[pivot][colonna])) {
+                    pivot = riga;
+                }
+            }
+            if (Math.abs(a[pivot][colonna]) < 1e-12) {
+                return null;
+            }
+            double[] tmpRiga = a[colonna];
+            a[colonna] = a[pivot];
+            a[pivot] = tmpRiga;
+            double tmp = b[colonna];
+            b[colonna] = b[pivot];
+            b[pivot] = tmp;
+
+            for (int riga = colonna + 1; riga < n; riga++) {
+                double fattore = a[riga][colonna] / a[colonna][colonna];
+                for (int c = colonna; c < n; c++) {
+                    a[riga][c] -= fattore * a[colonna][c];
+                }
+                b[riga] -= fattore * b[colonna];
+            }
+        }
+
+        double[] x = new double[n];
+        for (int riga = n - 1; riga >= 0; riga--) {
+            double somma = b[riga];
+            for (int c = riga + 1; c < n; c++) {
+                somma -= a[riga][c] * x[c];
+            }
+            x[riga] = somma / a[riga][riga];
+        }
+        return x;
+    }
+
+    private static double[] costruisciGrigliaTau() {
+        double[] griglia = new double[PASSI_TAU];
+        double rapporto = Math.log(TAU_MASSIMO / TAU_MINIMO) / (PASSI_TAU - 1);
+        for (int i = 0; i < PASSI_TAU; i++) {
+            griglia[i] = TAU_MINIMO * Math.exp(rapporto * i);
+        }
+        return griglia;
+    }
+
+    public double getBeta0() {
+        return beta0;
+    }
+
+    public double getBeta1() {
+        return beta1;
+    }
+
+    public double getBeta2() {
+        return beta2;
+    }
+
+    public double getTau() {
+        return tau;
+    }
+
+    public int getNumeroPunti() {
+        return numeroPunti;
+    }
+
+    public double getErroreQuadraticoMedio() {
+        return erroreQuadraticoMedio;
+    }
+
+    @Override
+    public String toString() {
+        return "CurvaNelsonSiegel{" +
+                "beta0=" + beta0 +
+                ", beta1=" + beta1 +
+                ", beta2=" + beta2 +
+                ", tau=" + tau +
+                ", numeroPunti=" + numeroPunti +
+                ", erroreQuadraticoMedio=" + erroreQuadraticoMedio +
+                '}';
+    }
+}
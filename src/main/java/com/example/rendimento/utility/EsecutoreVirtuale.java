@@ -0,0 +1,106 @@
+package com.example.rendimento.utility;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Esecutore con un thread virtuale per ogni compito, per il lavoro che passa il tempo in attesa
+ * di I/O bloccante (richieste HTTP, JDBC).
+ * <p>
+ * Non c'è un pool da dimensionare: il numero di compiti in esecuzione contemporanea è limitato
+ * da un semaforo, perché il limite riguarda il servizio esterno o il database e non i thread.
+ * I compiti oltre il limite attendono il proprio turno nell'ordine di invio; se è indicato
+ * un numero massimo di compiti in attesa, quelli in eccesso sono rifiutati
+ * con {@link RejectedExecutionException}.
+ */
+public class EsecutoreVirtuale extends AbstractExecutorService {
+
+    private final ExecutorService thread;
+    private final Semaphore inEsecuzione;
+    private final Semaphore ammessi;
+
+    /**
+     * Esecutore senza limite ai compiti in attesa.
+     *
+     * @param prefisso il prefisso del nome dei thread
+     * @param concorrenti il numero massimo di compiti in esecuzione contemporanea
+     */
+    public EsecutoreVirtuale(String prefisso, int concorrenti) {
+        this(prefisso, concorrenti, -1);
+    }
+
+    /**
+     * @param prefisso il prefisso del nome dei thread
+     * @param concorrenti il numero massimo di compiti in esecuzione contemporanea
+     * @param inAttesa il numero massimo di compiti in attesa oltre quelli in esecuzione (negativo = nessun limite)
+     */
+    public EsecutoreVirtuale(String prefisso, int concorrenti, int inAttesa) {
+        this.thread = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefisso, 1).factory());
+        this.inEsecuzione = new Semaphore(concorrenti, true);
+        this.ammessi = inAttesa < 0 ? null : new Semaphore(concorrenti + inAttesa);
+    }
+
+    @Override
+    public void execute(Runnable compito) {
+        if (ammessi != null && !ammessi.tryAcquire()) {
+            throw new RejectedExecutionException("Troppi compiti in attesa");
+        }
+        try {
+            thread.execute(() -> esegui(compito));
+        } catch (RejectedExecutionException e) {
+            rilascia();
+            throw e;
+        }
+    }
+
+    private void esegui(Runnable compito) {
+        try {
+            inEsecuzione.acquire();
+            try {
+                compito.run();
+            } finally {
+                inEsecuzione.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            rilascia();
+        }
+    }
+
+    private void rilascia() {
+        if (ammessi != null) {
+            ammessi.release();
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        thread.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return thread.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return thread.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return thread.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return thread.awaitTermination(timeout, unit);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.rendimento.utility;
+
+import java.time.Duration;
+
+/**
+ * Interruttore di circuito per le chiamate a un servizio esterno.
+ * <ul>
+ * <li>{@link Stato#CHIUSO}: le chiamate passano; dopo un numero di errori consecutivi pari alla soglia
+ * il circuito si apre.</li>
+ * <li>{@link Stato#APERTO}: le chiamate sono rifiutate subito, senza attendere il servizio, per
+ * la durata di apertura.</li>
+ * <li>{@link Stato#SEMI_APERTO}: trascorsa l'apertura passa una sola chiamata di prova; se riesce
+ * il circuito si chiude, altrimenti si riapre.</li>
+ * </ul>
+ */
+public class InterruttoreCircuito {
+
+    /**
+     * Stato del circuito, con il codice esposto nelle metriche.
+     */
+    public enum Stato {
+        CHIUSO(0),
+        SEMI_APERTO(1),
+        APERTO(2);
+
+        private final int codice;
+
+        Stato(int codice) {
+            this.codice = codice;
+        }
+
+        public int getCodice() {
+            return codice;
+        }
+    }
+
+    private final int sogliaErrori;
+    private final long aperturaNanos;
+
+    private Stato stato = Stato.CHIUSO;
+    private int erroriConsecutivi;
+    private long apertoIl;
+    private boolean provaInCorso;
+
+    /**
+     * @param sogliaErrori gli errori consecutivi che aprono il circuito
+     * @param apertura per quanto tempo il circuito resta aperto prima di una chiamata di prova
+     */
+    public InterruttoreCircuito(int sogliaErrori, Duration apertura) {
+        this.sogliaErrori = Math.max(1, sogliaErrori);
+        this.aperturaNanos = apertura.toNanos();
+    }
+
+    /**
+     * Indica se una chiamata può partire. Con il circuito semiaperto lo consente a una sola chiamata
+     * di prova, che deve poi registrare il proprio esito o rinunciare con {@link #abbandona()}.
+     */
+    public synchronized boolean consenti() {
+        if (stato == Stato.APERTO && System.nanoTime() - apertoIl >= aperturaNanos) {
+            stato = Stato.SEMI_APERTO;
+        }
+        return switch (stato) {
+            case CHIUSO -> true;
+            case APERTO -> false;
+            case SEMI_APERTO -> {
+                if (provaInCorso) {
+                    yield false;
+                }
+                provaInCorso = true;
+                yield true;
+            }
+        };
+    }
+
+    public synchronized void registraSuccesso() {
+        erroriConsecutivi = 0;
+        provaInCorso = false;
+        stato = Stato.CHIUSO;
+    }
+
+    public synchronized void registraErrore() {
+        provaInCorso = false;
+        erroriConsecutivi++;
+        if (stato == Stato.SEMI_APERTO || erroriConsecutivi >= sogliaErrori) {
+            stato = Stato.APERTO;
+            apertoIl = System.nanoTime();
+        }
+    }
+
+    /**
+     * Libera la chiamata di prova che non è partita, senza cambiare lo stato.
+     */
+    public synchronized void abbandona() {
+        provaInCorso = false;
+    }
+
+    public synchronized Stato getStato() {
+        if (stato == Stato.APERTO && System.nanoTime() - apertoIl >= aperturaNanos) {
+            return Stato.SEMI_APERTO;
+        }
+        return stato;
+    }
+}
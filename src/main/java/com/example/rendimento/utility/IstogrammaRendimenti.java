@@ -0,0 +1,148 @@
+package com.example.rendimento.utility;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Istogramma sparso dei rendimenti con classi di un punto base (0,0001 in formato decimale).
+ * <p>
+ * Conserva solo le classi effettivamente osservate, quindi la memoria dipende dall'ampiezza
+ * dei rendimenti e non dal numero di osservazioni. Due istogrammi si uniscono sommando i conteggi
+ * delle classi, per cui i percentili di una settimana o di un mese si ottengono unendo gli
+ * istogrammi giornalieri senza rileggere i singoli snapshot. I percentili hanno l'errore
+ * massimo di mezzo punto base.
+ */
+public class IstogrammaRendimenti {
+
+    /**
+     * Ampiezza di una classe: un punto base.
+     */
+    public static final double PUNTO_BASE = 0.0001;
+
+    private static final char SEPARATORE_CLASSI = ',';
+    private static final char SEPARATORE_CONTEGGIO = ':';
+
+    private final TreeMap<Integer, Long> conteggi = new TreeMap<>();
+    private long totale;
+
+    /**
+     * Restituisce la classe (in punti base) di un rendimento.
+     */
+    public static int classe(double rendimento) {
+        return (int) Math.round(rendimento / PUNTO_BASE);
+    }
+
+    /**
+     * Aggiunge un'osservazione.
+     */
+    public void aggiungi(double rendimento) {
+        aggiungiClasse(classe(rendimento), 1);
+    }
+
+    /**
+     * Aggiunge un numero di osservazioni a una classe.
+     *
+     * @param classe la classe in punti base
+     * @param conteggio il numero di osservazioni (se non positivo l'istogramma non cambia)
+     */
+    public void aggiungiClasse(int classe, long conteggio) {
+        if (conteggio <= 0) {
+            return;
+        }
+        conteggi.merge(classe, conteggio, Long::sum);
+        totale += conteggio;
+    }
+
+    /**
+     * Aggiunge a questo istogramma tutte le osservazioni di un altro.
+     */
+    public void unisci(IstogrammaRendimenti altro) {
+        if (altro != null) {
+            altro.conteggi.forEach(this::aggiungiClasse);
+        }
+    }
+
+    public long getTotale() {
+        return totale;
+    }
+
+    public boolean isVuoto() {
+        return totale == 0;
+    }
+
+    /**
+     * Restituisce il percentile indicato con il metodo del rango più vicino.
+     *
+     * @param quantile il quantile richiesto, tra 0 e 1 (es. 0.5 per la mediana)
+     * @return il rendimento del percentile, o null se l'istogramma è vuoto
+     * @throws IllegalArgumentException se il quantile non è compreso tra 0 e 1
+     */
+    public Double percentile(double quantile) {
+        if (quantile < 0 || quantile > 1) {
+            throw new IllegalArgumentException("Il quantile deve essere compreso tra 0 e 1: " + quantile);
+        }
+        if (totale == 0) {
+            return null;
+        }
+        long rango = Math.max(1, (long) Math.ceil(quantile * totale));
+        long cumulato = 0;
+        for (Map.Entry<Integer, Long> classe : conteggi.entrySet()) {
+            cumulato += classe.getValue();
+            if (cumulato >= rango) {
+                return valoreClasse(classe.getKey());
+            }
+        }
+        return valoreClasse(conteggi.lastKey());
+    }
+
+    /**
+     * Serializza l'istogramma nel formato "classe:conteggio,classe:conteggio" ordinato per classe.
+     */
+    public String serializza() {
+        StringBuilder sb = new StringBuilder();
+        conteggi.forEach((classe, conteggio) -> {
+            if (sb.length() > 0) {
+                sb.append(SEPARATORE_CLASSI);
+            }
+            sb.append(classe).append(SEPARATORE_CONTEGGIO).append(conteggio);
+        });
+        return sb.toString();
+    }
+
+    /**
+     * Ricostruisce un istogramma dal formato prodotto da {@link #serializza()}.
+     *
+     * @param testo il testo serializzato; se null o vuoto restituisce un istogramma vuoto
+     * @return l'istogramma
+     * @throws IllegalArgumentException se il testo non è nel formato atteso
+     */
+    public static IstogrammaRendimenti deserializza(String testo) {
+        IstogrammaRendimenti istogramma = new IstogrammaRendimenti();
+        if (testo == null || testo.isBlank()) {
+            return istogramma;
+        }
+        for (String voce : testo.split(String.valueOf(SEPARATORE_CLASSI))) {
+            int separatore = voce.indexOf(SEPARATORE_CONTEGGIO);
+            if (separatore <= 0) {
+                throw new IllegalArgumentException("Voce dell'istogramma non valida: " + voce);
+            }
+            try {
+                istogramma.aggiungiClasse(Integer.parseInt(voce.substring(0, separatore).trim()),
+                        Long.parseLong(voce.substring(separatore + 1).trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Voce dell'istogramma non valida: " + voce, e);
+            }
+        }
+        return istogramma;
+    }
+
+    private static double valoreClasse(int classe) {
+        // Evita le cifre spurie della moltiplicazione in virgola mobile (es. 0.030000000000000002)
+        return classe / 10_000d;
+    }
+
+    @Override
+    public String toString() {
+        return "IstogrammaRendimenti{totale=" + totale + ", classi=" + conteggi.size() + '}';
+    }
+}
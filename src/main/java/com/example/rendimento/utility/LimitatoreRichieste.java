@@ -0,0 +1,120 @@
+package com.example.rendimento.utility;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limitatore di richieste a secchio di gettoni con velocità adattiva: il secchio si riempie
+ * alla velocità corrente fino alla raffica massima, e ogni richiesta consuma un gettone.
+ * <p>
+ * Quando il servizio segnala di rallentare (es. HTTP 429) la velocità si dimezza, fino alla
+ * minima; ogni richiesta riuscita la fa risalire di un passo fisso, fino alla massima. Così il
+ * ritmo si assesta poco sotto quello tollerato dal servizio, senza conoscerlo in anticipo.
+ */
+public class LimitatoreRichieste {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final double massimaAlSecondo;
+    private final double minimaAlSecondo;
+    private final double passoAlSecondo;
+    private final double raffica;
+
+    private double alSecondo;
+    private double gettoni;
+    private long ultimoRiempimento;
+
+    /**
+     * @param massimaAlSecondo la velocità iniziale e massima (richieste al secondo)
+     * @param minimaAlSecondo la velocità minima dopo i rallentamenti
+     * @param raffica il numero massimo di richieste consecutive senza attesa
+     */
+    public LimitatoreRichieste(double massimaAlSecondo, double minimaAlSecondo, double raffica) {
+        this.massimaAlSecondo = massimaAlSecondo;
+        this.minimaAlSecondo = Math.min(minimaAlSecondo, massimaAlSecondo);
+        // Dopo un dimezzamento servono circa 20 richieste riuscite per tornare alla massima
+        this.passoAlSecondo = massimaAlSecondo / 40;
+        this.raffica = Math.max(1, raffica);
+        this.alSecondo = massimaAlSecondo;
+        this.gettoni = this.raffica;
+        this.ultimoRiempimento = System.nanoTime();
+    }
+
+    /**
+     * Attende un gettone. Le richieste in attesa sono servite nell'ordine di arrivo.
+     *
+     * @throws InterruptedException se il thread è interrotto durante l'attesa
+     */
+    public void attendiPermesso() throws InterruptedException {
+        // Il gettone è prenotato sotto lock, anche in debito: l'attesa avviene fuori dal lock,
+        // così esiti delle richieste e metriche non restano in coda dietro a chi aspetta
+        long attesaNanos;
+        lock.lockInterruptibly();
+        try {
+            riempi();
+            gettoni -= 1;
+            attesaNanos = gettoni < 0 ? (long) (-gettoni / alSecondo * TimeUnit.SECONDS.toNanos(1)) : 0;
+        } finally {
+            lock.unlock();
+        }
+        if (attesaNanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(attesaNanos);
+        } catch (InterruptedException e) {
+            // Il gettone prenotato non sarà usato: torna a chi attende dopo
+            lock.lock();
+            try {
+                gettoni += 1;
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Registra una richiesta riuscita: la velocità risale di un passo.
+     */
+    public void segnalaSuccesso() {
+        lock.lock();
+        try {
+            alSecondo = Math.min(massimaAlSecondo, alSecondo + passoAlSecondo);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Registra una richiesta respinta dal servizio perché troppo frequente: la velocità si dimezza
+     * e i gettoni accumulati sono scartati.
+     */
+    public void segnalaRallentamento() {
+        lock.lock();
+        try {
+            riempi();
+            alSecondo = Math.max(minimaAlSecondo, alSecondo / 2);
+            gettoni = Math.min(gettoni, 0);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Restituisce la velocità corrente in richieste al secondo.
+     */
+    public double getRichiesteAlSecondo() {
+        lock.lock();
+        try {
+            return alSecondo;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void riempi() {
+        long ora = System.nanoTime();
+        gettoni = Math.min(raffica, gettoni + (ora - ultimoRiempimento) * alSecondo / TimeUnit.SECONDS.toNanos(1));
+        ultimoRiempimento = ora;
+    }
+}
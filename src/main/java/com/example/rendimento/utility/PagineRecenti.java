@@ -0,0 +1,108 @@
+package com.example.rendimento.utility;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pagine scaricate di recente, conservate per poco tempo e indicizzate per URL.
+ * <p>
+ * Le richieste della stessa pagina ravvicinate (es. anteprima del titolo e subito dopo il suo
+ * salvataggio, o più calcoli sullo stesso ISIN) usano il contenuto già scaricato invece di
+ * richiederlo di nuovo al servizio esterno. Se la stessa pagina è richiesta da più thread mentre
+ * è in corso lo scaricamento, tutti attendono quell'unico scaricamento. Gli errori non sono conservati.
+ */
+public class PagineRecenti {
+
+    /**
+     * Scarica il contenuto di una pagina.
+     */
+    @FunctionalInterface
+    public interface Scaricamento {
+        String scarica() throws IOException;
+    }
+
+    private record Pagina(CompletableFuture<String> contenuto, long scadenza) {
+
+        boolean isScaduta(long ora) {
+            return ora - scadenza >= 0;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Pagina> pagine = new ConcurrentHashMap<>();
+    private final long durataNanos;
+    private final int massimo;
+
+    /**
+     * @param durata per quanto tempo una pagina scaricata resta valida (zero = nessuna conservazione)
+     * @param massimo il numero massimo di pagine conservate
+     */
+    public PagineRecenti(Duration durata, int massimo) {
+        this.durataNanos = durata.toNanos();
+        this.massimo = Math.max(1, massimo);
+    }
+
+    /**
+     * Restituisce il contenuto della pagina, scaricandolo solo se non ce n'è uno recente.
+     *
+     * @param url l'URL della pagina
+     * @param scaricamento lo scaricamento da eseguire se la pagina non è disponibile
+     * @return il contenuto della pagina
+     * @throws IOException se lo scaricamento fallisce
+     */
+    public String scarica(String url, Scaricamento scaricamento) throws IOException {
+        if (durataNanos <= 0) {
+            return scaricamento.scarica();
+        }
+
+        long ora = System.nanoTime();
+        CompletableFuture<String> nuovo = new CompletableFuture<>();
+        Pagina pagina = pagine.compute(url, (chiave, esistente) ->
+                esistente != null && !esistente.isScaduta(ora) ? esistente : new Pagina(nuovo, ora + durataNanos));
+
+        if (pagina.contenuto() != nuovo) {
+            return attendi(url, pagina);
+        }
+
+        // Questo thread esegue lo scaricamento per tutti quelli che chiedono la stessa pagina
+        try {
+            String contenuto = scaricamento.scarica();
+            nuovo.complete(contenuto);
+            pulisci(ora);
+            return contenuto;
+        } catch (IOException | RuntimeException | Error e) {
+            pagine.remove(url, pagina);
+            nuovo.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private String attendi(String url, Pagina pagina) throws IOException {
+        try {
+            return pagina.contenuto().join();
+        } catch (CompletionException | CancellationException e) {
+            Throwable causa = e.getCause() != null ? e.getCause() : e;
+            if (causa instanceof IOException io) {
+                throw new IOException(io.getMessage(), io);
+            }
+            if (causa instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Scaricamento di " + url + " non riuscito", causa);
+        }
+    }
+
+    private void pulisci(long ora) {
+        if (pagine.size() <= massimo) {
+            return;
+        }
+        pagine.values().removeIf(p -> p.contenuto().isDone() && p.isScaduta(ora));
+        if (pagine.size() > massimo) {
+            // Troppe pagine ancora valide: si ricomincia da capo piuttosto che crescere senza limite
+            pagine.values().removeIf(p -> p.contenuto().isDone());
+        }
+    }
+}
@@ -22,9 +22,9 @@ import com.example.rendimento.enums.TipoTitolo;
 import com.example.rendimento.model.PrezzoStorico;
 import com.example.rendimento.model.Titolo;
 import com.example.rendimento.service.PrezzoStoricoService;
+import com.example.rendimento.service.RiprovaConflittiService;
 import com.example.rendimento.service.SimulazioneService;
 import com.example.rendimento.service.TrendService;
-import com.example.rendimento.service.impl.PrezzoStoricoServiceImpl;
 
 public class TestPrezziStorici {
     private static final Logger log = LoggerFactory.getLogger(TestPrezziStorici.class);
@@ -39,6 +39,7 @@ public class TestPrezziStorici {
         // Ottieni i servizi necessari dal contesto Spring
         SimulazioneService simulazioneService = springContext.getBean(SimulazioneService.class);
         TrendService trendService = springContext.getBean(TrendService.class);
+        RiprovaConflittiService riprovaConflittiService = springContext.getBean(RiprovaConflittiService.class);
         
         log.info("Contesto Spring avviato, servizi ottenuti");
 
@@ -47,7 +48,7 @@ public class TestPrezziStorici {
                 ResultSet rs = stmt.executeQuery(
                         "SELECT id_titolo, nome, codice_isin, data_scadenza, tasso_nominale, periodicita_cedole, periodicita_bollo, tipo_titolo FROM titolo")) {
 
-            PrezzoStoricoService servizio = new PrezzoStoricoServiceImpl();
+            PrezzoStoricoService servizio = springContext.getBean(PrezzoStoricoService.class);
 
             while (rs.next()) {
                 Titolo t = new Titolo();
@@ -89,13 +90,15 @@ public class TestPrezziStorici {
                                 continue; // Salta questo titolo se l'elaborazione ha fallito
                             }
                             
-                            // Salva il trend per il titolo utilizzando il rendimento senza costi
-                            trendService.salvaOAggiornaTrendPerTitolo(
-                                t,
-                                prezzo,
-                                risultatoElaborazione.getRisultatoDettagliato().getRendimentoSenzaCosti(),
-                                data
-                            );
+                            // Salva il trend per il titolo utilizzando il rendimento senza costi,
+                            // ripetendo la scrittura se un job concorrente aggiorna lo stesso aggregato
+                            riprovaConflittiService.eseguiConRiprova("test-prezzi-storici",
+                                () -> trendService.salvaOAggiornaTrendPerTitolo(
+                                    t,
+                                    prezzo,
+                                    risultatoElaborazione.getRisultatoDettagliato().getRendimentoSenzaCosti(),
+                                    data
+                                ));
                             log.info("Trend salvato per il titolo ID: {}, ISIN: {}", 
                                     t.getIdTitolo(), t.getCodiceIsin());
                             
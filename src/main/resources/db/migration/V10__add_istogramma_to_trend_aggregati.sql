@@ -0,0 +1,7 @@
+-- Script SQL per aggiungere l'istogramma dei rendimenti (classi di un punto base) alla tabella trend_aggregati,
+-- da cui vengono calcolati i percentili p10/p50/p90 di ogni giorno, settimana e mese.
+
+ALTER TABLE trend_aggregati ADD COLUMN IF NOT EXISTS istogramma TEXT;
+
+-- Nessuna riga viene cancellata: gli aggregati salvati prima di questo script restano validi, senza
+-- percentili finché il loro giorno non viene riscritto o ricostruito (TrendAggregatiService).
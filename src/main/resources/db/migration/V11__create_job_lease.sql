@@ -0,0 +1,16 @@
+-- Script SQL per creare la tabella job_lease con i lease (concessioni a tempo) dei job batch,
+-- usati per eseguire ogni job o partizione di job su un solo nodo alla volta.
+-- Si usano righe con scadenza e non advisory lock di PostgreSQL: i lock di sessione non sono
+-- affidabili attraverso un connection pooler in modalità transazione (PgBouncer).
+
+CREATE TABLE IF NOT EXISTS job_lease (
+    nome          VARCHAR(150) PRIMARY KEY,
+    nodo          VARCHAR(100) NOT NULL,
+    acquisito_il  TIMESTAMP    NOT NULL,
+    scadenza      TIMESTAMP    NOT NULL,
+    completato_il TIMESTAMP
+);
+
+-- Nota: Questo script è fornito per riferimento e per l'esecuzione manuale se necessario.
+-- Se l'applicazione è configurata con spring.jpa.hibernate.ddl-auto=update,
+-- Hibernate creerà automaticamente questa tabella al riavvio dell'applicazione.
@@ -0,0 +1,30 @@
+-- Script SQL per creare le tabelle dei checkpoint dei job batch ripristinabili (es. recupera-dati):
+-- job_esecuzione contiene l'ultima esecuzione di ogni job con i conteggi degli elementi,
+-- job_checkpoint l'esito di ogni elemento (es. un ISIN). Un job interrotto e riavviato salta
+-- gli elementi completati dall'inizio della stessa esecuzione.
+
+CREATE TABLE IF NOT EXISTS job_esecuzione (
+    nome          VARCHAR(150) PRIMARY KEY,
+    stato         VARCHAR(20)  NOT NULL,
+    avviata_il    TIMESTAMP    NOT NULL,
+    aggiornata_il TIMESTAMP    NOT NULL,
+    terminata_il  TIMESTAMP,
+    totale        INTEGER      NOT NULL,
+    completati    INTEGER      NOT NULL,
+    falliti       INTEGER      NOT NULL,
+    ultima_chiave VARCHAR(50)
+);
+
+CREATE TABLE IF NOT EXISTS job_checkpoint (
+    id            BIGSERIAL    PRIMARY KEY,
+    nome          VARCHAR(150) NOT NULL,
+    chiave        VARCHAR(50)  NOT NULL,
+    stato         VARCHAR(20)  NOT NULL,
+    messaggio     VARCHAR(500),
+    aggiornato_il TIMESTAMP    NOT NULL,
+    CONSTRAINT uk_job_checkpoint_nome_chiave UNIQUE (nome, chiave)
+);
+
+-- Nota: Questo script è fornito per riferimento e per l'esecuzione manuale se necessario.
+-- Se l'applicazione è configurata con spring.jpa.hibernate.ddl-auto=update,
+-- Hibernate creerà automaticamente queste tabelle al riavvio dell'applicazione.
@@ -0,0 +1,66 @@
+-- Script SQL per convertire la tabella trends in una tabella partizionata per mese su data_snapshot (PostgreSQL)
+--
+-- - Partizioni mensili con nome trends_pAAAAMM e una partizione di default per le date non coperte
+-- - Chiave primaria (id, data_snapshot): la chiave di partizionamento deve far parte della chiave primaria
+-- - id generato da una sequenza (compatibile con GenerationType.IDENTITY lato Hibernate)
+-- - Indice BRIN su data_snapshot: i dati arrivano in ordine di data, quindi l'indice resta piccolo
+--   ed efficace per le scansioni per intervallo
+-- - Le query con filtro su data_snapshot leggono solo le partizioni dell'intervallo (partition pruning)
+-- - La retention elimina intere partizioni (DROP TABLE) invece di cancellare riga per riga
+
+BEGIN;
+
+ALTER TABLE trends RENAME TO trends_old;
+
+CREATE SEQUENCE IF NOT EXISTS trends_id_seq_part;
+
+CREATE TABLE trends (
+    id                   BIGINT        NOT NULL DEFAULT nextval('trends_id_seq_part'),
+    data_snapshot        DATE          NOT NULL,
+    isin                 VARCHAR(12)   NOT NULL,
+    data_scadenza        DATE          NOT NULL,
+    giorni_alla_scadenza DECIMAL(10,2) NOT NULL,
+    anni_alla_scadenza   DECIMAL(10,6) NOT NULL,
+    prezzo               DECIMAL(10,4) NOT NULL,
+    rendimento_annuo     DECIMAL(10,6) NOT NULL,
+    version              BIGINT        NOT NULL DEFAULT 0,
+    CONSTRAINT pk_trends PRIMARY KEY (id, data_snapshot),
+    CONSTRAINT uk_trends_isin_data_snapshot UNIQUE (isin, data_snapshot)
+) PARTITION BY RANGE (data_snapshot);
+
+ALTER SEQUENCE trends_id_seq_part OWNED BY trends.id;
+
+-- Crea una partizione per ogni mese dal primo snapshot esistente fino a tre mesi dopo quello corrente
+DO $$
+DECLARE
+    mese DATE := date_trunc('month', COALESCE((SELECT MIN(data_snapshot) FROM trends_old), CURRENT_DATE))::date;
+    ultimo DATE := (date_trunc('month', CURRENT_DATE) + INTERVAL '3 months')::date;
+BEGIN
+    WHILE mese <= ultimo LOOP
+        EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF trends FOR VALUES FROM (%L) TO (%L)',
+                       'trends_p' || to_char(mese, 'YYYYMM'), mese, (mese + INTERVAL '1 month')::date);
+        mese := (mese + INTERVAL '1 month')::date;
+    END LOOP;
+END $$;
+
+CREATE TABLE IF NOT EXISTS trends_default PARTITION OF trends DEFAULT;
+
+CREATE INDEX IF NOT EXISTS idx_trends_data_snapshot_brin ON trends USING BRIN (data_snapshot);
+
+-- Copia dei dati esistenti mantenendo gli ID
+INSERT INTO trends (id, data_snapshot, isin, data_scadenza, giorni_alla_scadenza, anni_alla_scadenza,
+                    prezzo, rendimento_annuo, version)
+SELECT id, data_snapshot, isin, data_scadenza, giorni_alla_scadenza, anni_alla_scadenza,
+       prezzo, rendimento_annuo, COALESCE(version, 0)
+FROM trends_old
+ORDER BY data_snapshot;
+
+SELECT setval('trends_id_seq_part', COALESCE((SELECT MAX(id) FROM trends), 0) + 1, false);
+
+DROP TABLE trends_old;
+
+COMMIT;
+
+-- Nota: Questo script è fornito per riferimento e per l'esecuzione manuale, prima dell'avvio
+-- dell'applicazione. Le partizioni dei mesi successivi e la retention sono gestite da
+-- TrendPartizioniService (proprietà rendimento.trend.partizioni.* in application.yml).
@@ -0,0 +1,20 @@
+-- Script SQL per creare la tabella trend_aggregati con le statistiche pre-aggregate
+-- dei rendimenti per giorno (data_snapshot) e bucket di scadenza
+
+CREATE TABLE IF NOT EXISTS trend_aggregati (
+    id                BIGSERIAL     PRIMARY KEY,
+    data_snapshot     DATE          NOT NULL,
+    bucket            VARCHAR(30)   NOT NULL,
+    rendimento_medio  DECIMAL(10,6) NOT NULL,
+    rendimento_minimo DECIMAL(10,6) NOT NULL,
+    rendimento_massimo DECIMAL(10,6) NOT NULL,
+    numero_titoli     INTEGER       NOT NULL,
+    version           BIGINT        NOT NULL DEFAULT 0,
+    CONSTRAINT uk_trend_aggregati_data_bucket UNIQUE (data_snapshot, bucket)
+);
+
+-- Nota: Questo script è fornito per riferimento e per l'esecuzione manuale se necessario.
+-- Se l'applicazione è configurata con spring.jpa.hibernate.ddl-auto=update,
+-- Hibernate creerà automaticamente questa tabella al riavvio dell'applicazione.
+-- Se la tabella è vuota, gli aggregati vengono ricostruiti dai trend esistenti all'avvio
+-- (TrendAggregatiService.ricostruisciAggregati).
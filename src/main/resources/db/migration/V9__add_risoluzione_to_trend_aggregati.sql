@@ -0,0 +1,13 @@
+-- Script SQL per aggiungere la risoluzione (giornaliera, settimanale, mensile) alla tabella trend_aggregati.
+-- Le righe esistenti sono aggregati giornalieri; i rollup settimanali e mensili vengono ricostruiti
+-- all'avvio se non presenti.
+
+ALTER TABLE trend_aggregati ADD COLUMN IF NOT EXISTS risoluzione VARCHAR(20) NOT NULL DEFAULT 'GIORNALIERA';
+
+ALTER TABLE trend_aggregati DROP CONSTRAINT IF EXISTS uk_trend_aggregati_data_bucket;
+ALTER TABLE trend_aggregati ADD CONSTRAINT uk_trend_aggregati_risoluzione_data_bucket
+    UNIQUE (risoluzione, data_snapshot, bucket);
+
+-- Nota: con spring.jpa.hibernate.ddl-auto=update Hibernate aggiunge la colonna e il nuovo vincolo
+-- ma non elimina il vecchio vincolo uk_trend_aggregati_data_bucket, che impedirebbe di salvare
+-- un rollup con la stessa data di un aggregato giornaliero: questo script va quindi eseguito.
@@ -762,7 +762,9 @@ class SimulazioniController {
         // Mostra un indicatore di caricamento
         DomUtils.toggleLoading(true);
         
-        Simulazione.calcolaRendimentiTuttiTitoli()
+        Simulazione.calcolaRendimentiTuttiTitoli(job => {
+                console.log(`Calcolo rendimenti: ${job.completati + job.falliti}/${job.totale} titoli elaborati`);
+            })
             .then(data => {
                 console.log("Rendimenti calcolati:", data);
                 
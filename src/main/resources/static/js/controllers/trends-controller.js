@@ -28,6 +28,15 @@ window.TrendsController = (function() {
     const titoliList2 = document.getElementById('titoli-list-2');
     const titoliList3 = document.getElementById('titoli-list-3');
     
+    // Attesa prima di ricaricare una sezione dopo uno snapshot: raggruppa gli snapshot
+    // salvati in sequenza dallo stesso job
+    const RITARDO_RICARICA_MS = 2000;
+    
+    // Periodo e ISIN visualizzati in ogni sezione, usati per ricaricare solo le sezioni interessate
+    const periodiSezioni = {};
+    const isinSezioni = {};
+    const ricaricheInAttesa = {};
+    
     /**
      * Inizializza il controller
      */
@@ -60,6 +69,55 @@ window.TrendsController = (function() {
         loadTitoliByPeriodo('semestrali', 1);
         loadTitoliByPeriodo('annuali', 2);
         loadTitoliByPeriodo('tutti', 3);
+        
+        // Riceve gli snapshot salvati dai job invece di ricaricare periodicamente
+        apriStreamTrend();
+    }
+    
+    /**
+     * Apre lo stream (Server-Sent Events) dei trend. Il browser si riconnette da solo
+     * inviando l'ultimo evento ricevuto, per cui riceve solo gli eventi persi.
+     */
+    function apriStreamTrend() {
+        if (!window.EventSource) {
+            console.warn('EventSource non supportato: i dati non verranno aggiornati automaticamente');
+            return;
+        }
+        
+        const source = new EventSource(`${ApiService.baseUrl}/trend/stream`);
+        
+        source.addEventListener('snapshot', function(event) {
+            const snapshot = JSON.parse(event.data);
+            Object.keys(isinSezioni).forEach(sectionIndex => {
+                if (isinSezioni[sectionIndex].has(snapshot.isin)) {
+                    pianificaRicarica(sectionIndex);
+                }
+            });
+        });
+        
+        // Gli eventi persi non sono più disponibili: ricarica tutte le sezioni
+        source.addEventListener('reset', function() {
+            Object.keys(periodiSezioni).forEach(pianificaRicarica);
+        });
+        
+        source.onerror = function() {
+            console.warn('Stream dei trend interrotto, riconnessione in corso');
+        };
+    }
+    
+    /**
+     * Ricarica una sezione senza indicatore di caricamento, raggruppando gli eventi ravvicinati
+     * 
+     * @param {number} sectionIndex - L'indice della sezione (1, 2, 3)
+     */
+    function pianificaRicarica(sectionIndex) {
+        if (ricaricheInAttesa[sectionIndex]) {
+            return;
+        }
+        ricaricheInAttesa[sectionIndex] = setTimeout(function() {
+            delete ricaricheInAttesa[sectionIndex];
+            loadTitoliByPeriodo(periodiSezioni[sectionIndex], sectionIndex, true);
+        }, RITARDO_RICARICA_MS);
     }
     
     /**
@@ -80,18 +138,25 @@ window.TrendsController = (function() {
      * 
      * @param {string} periodo - Il periodo di scadenza (trimestrali, semestrali, annuali, triennali, tutti)
      * @param {number} sectionIndex - L'indice della sezione (1, 2, 3)
+     * @param {boolean} silenzioso - Se true non mostra l'indicatore di caricamento (aggiornamenti dallo stream)
      */
-    function loadTitoliByPeriodo(periodo, sectionIndex) {
+    function loadTitoliByPeriodo(periodo, sectionIndex, silenzioso) {
         console.log(`Caricamento titoli per periodo: ${periodo}, sezione: ${sectionIndex}`);
+        periodiSezioni[sectionIndex] = periodo;
         
         // Mostra indicatore di caricamento
-        DomUtils.toggleLoading(true);
+        if (!silenzioso) {
+            DomUtils.toggleLoading(true);
+        }
         
         // Chiama l'API per recuperare i dati di trend dei rendimenti
         ApiService.get(`${ApiService.baseUrl}/simulazioni/trends/${periodo}`)
             .then(trendData => {
                 console.log(`Dati di trend caricati per periodo ${periodo}:`, trendData);
                 
+                // Memorizza gli ISIN della sezione per gli aggiornamenti dallo stream
+                isinSezioni[sectionIndex] = new Set((trendData.titoli || []).map(titolo => titolo.codiceIsin));
+                
                 // Aggiorna la tabella dei titoli
                 updateTitoliTable(trendData.titoli, sectionIndex);
                 
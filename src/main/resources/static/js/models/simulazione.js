@@ -47,10 +47,11 @@ window.Simulazione = {
     
     /**
      * Calcola i rendimenti di tutti i titoli
+     * @param {Function} [onAvanzamento] - Callback invocata con lo stato del job di calcolo
      * @returns {Promise} - Promise che risolve con l'esito del calcolo
      */
-    calcolaRendimentiTuttiTitoli: function() {
-        return ApiService.calcolaRendimentiTuttiTitoli();
+    calcolaRendimentiTuttiTitoli: function(onAvanzamento) {
+        return ApiService.calcolaRendimentiTuttiTitoli(onAvanzamento);
     },
     
     /**
@@ -233,11 +233,44 @@ window.ApiService = {
     },
     
     /**
-     * Calcola i rendimenti di tutti i titoli
+     * Calcola i rendimenti di tutti i titoli.
+     * Il calcolo è eseguito dal server come job in background: la Promise risolve
+     * con le simulazioni salvate quando il job termina.
+     * @param {Function} [onAvanzamento] - Callback invocata con lo stato del job a ogni controllo
      * @returns {Promise} - Promise che risolve con l'esito del calcolo
      */
-    calcolaRendimentiTuttiTitoli: function() {
-        return this.post(`${this.baseUrl}/simulazioni/calcola-rendimenti-tutti-titoli`, {});
+    calcolaRendimentiTuttiTitoli: function(onAvanzamento) {
+        return this.post(`${this.baseUrl}/simulazioni/calcola-rendimenti-tutti-titoli`, {})
+            .then(job => this.attendiJob(job.id, onAvanzamento));
+    },
+    
+    /**
+     * Attende il termine di un job in background interrogandone lo stato a intervalli regolari
+     * @param {string} jobId - L'ID del job
+     * @param {Function} [onAvanzamento] - Callback invocata con lo stato del job a ogni controllo
+     * @param {number} [intervalloMs] - Intervallo tra due controlli in millisecondi
+     * @returns {Promise} - Promise che risolve con il risultato del job o rifiuta se il job fallisce
+     */
+    attendiJob: function(jobId, onAvanzamento, intervalloMs = 1000) {
+        return new Promise((resolve, reject) => {
+            const controlla = () => {
+                this.get(`${this.baseUrl}/jobs/${jobId}`)
+                    .then(job => {
+                        if (onAvanzamento) {
+                            onAvanzamento(job);
+                        }
+                        if (job.stato === 'COMPLETATO') {
+                            resolve(job.risultato);
+                        } else if (job.stato === 'FALLITO') {
+                            reject(new Error(job.messaggio || 'Elaborazione non riuscita'));
+                        } else {
+                            setTimeout(controlla, intervalloMs);
+                        }
+                    })
+                    .catch(reject);
+            };
+            controlla();
+        });
     },
     
     /**
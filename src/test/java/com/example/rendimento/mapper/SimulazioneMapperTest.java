@@ -13,6 +13,8 @@ import org.mockito.MockitoAnnotations;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -110,4 +112,59 @@ public class SimulazioneMapperTest {
         assertEquals(dto.getVersion(), simulazione.getVersion(), "Il campo version dovrebbe essere preservato");
         assertEquals(42L, simulazione.getVersion(), "Il campo version dovrebbe essere 42");
     }
+
+    @Test
+    @DisplayName("Test conversione da DTO a entità con titolo già caricato senza accesso al repository")
+    public void testToEntityConTitoloCaricato() {
+        // Arrange
+        SimulazioneDTO dto = new SimulazioneDTO();
+        dto.setIdSimulazione(1);
+        dto.setIdTitolo(1);
+        dto.setPrezzoAcquisto(new BigDecimal("109.8887"));
+        dto.setVersion(42L);
+
+        Titolo titolo = new Titolo();
+        titolo.setIdTitolo(1);
+        titolo.setCodiceIsin("IT0001278511");
+
+        // Act
+        Simulazione simulazione = simulazioneMapper.toEntity(dto, titolo);
+
+        // Assert
+        assertSame(titolo, simulazione.getTitolo(), "Il titolo fornito dovrebbe essere riutilizzato");
+        assertEquals(42L, simulazione.getVersion(), "Il campo version dovrebbe essere preservato");
+        verifyNoInteractions(titoloRepository);
+    }
+
+    @Test
+    @DisplayName("Test conversione di una lista di DTO con un solo riferimento per titolo")
+    public void testToEntityList() {
+        // Arrange
+        SimulazioneDTO dto1 = new SimulazioneDTO();
+        dto1.setIdTitolo(1);
+        SimulazioneDTO dto2 = new SimulazioneDTO();
+        dto2.setIdTitolo(1);
+        SimulazioneDTO dto3 = new SimulazioneDTO();
+        dto3.setIdTitolo(2);
+
+        Titolo titolo1 = new Titolo();
+        titolo1.setIdTitolo(1);
+        Titolo titolo2 = new Titolo();
+        titolo2.setIdTitolo(2);
+
+        when(titoloRepository.getReferenceById(1)).thenReturn(titolo1);
+        when(titoloRepository.getReferenceById(2)).thenReturn(titolo2);
+
+        // Act
+        List<Simulazione> simulazioni = simulazioneMapper.toEntityList(Arrays.asList(dto1, dto2, dto3));
+
+        // Assert
+        assertEquals(3, simulazioni.size(), "Dovrebbero essere convertite tutte le simulazioni");
+        assertSame(titolo1, simulazioni.get(0).getTitolo());
+        assertSame(titolo1, simulazioni.get(1).getTitolo());
+        assertSame(titolo2, simulazioni.get(2).getTitolo());
+        verify(titoloRepository, times(1)).getReferenceById(1);
+        verify(titoloRepository, times(1)).getReferenceById(2);
+        verify(titoloRepository, never()).findById(any());
+    }
 }
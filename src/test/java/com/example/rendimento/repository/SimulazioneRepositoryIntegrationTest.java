@@ -0,0 +1,119 @@
+package com.example.rendimento.repository;
+
+import com.example.rendimento.enums.TipoTitolo;
+import com.example.rendimento.model.Simulazione;
+import com.example.rendimento.model.Titolo;
+import com.example.rendimento.model.Utente;
+import com.example.rendimento.repository.projection.UltimoPrezzoTitoloProjection;
+import com.example.rendimento.util.TestDataBuilder;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test di integrazione per il repository SimulazioneRepository utilizzando un database H2 in memoria.
+ * Verifica le query di lista con entity graph e le proiezioni sui prezzi più recenti.
+ */
+@SpringBootTest
+@ActiveProfiles("test") // Utilizza il profilo di test con il database H2
+@Transactional
+public class SimulazioneRepositoryIntegrationTest {
+
+    @Autowired
+    private SimulazioneRepository simulazioneRepository;
+
+    @Autowired
+    private TitoloRepository titoloRepository;
+
+    @Autowired
+    private UtenteRepository utenteRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Utente utente;
+    private Titolo titoloBreve;
+    private Titolo titoloLungo;
+
+    @BeforeEach
+    public void setup() {
+        utente = utenteRepository.save(TestDataBuilder.createDefaultUtente("sim"));
+
+        titoloLungo = titoloRepository.save(TestDataBuilder.createTitolo(
+                "BTP Lungo", "IT0000000SIM2", LocalDate.now().plusYears(5),
+                new BigDecimal("4.00"), "SEMESTRALE", "ANNUALE", TipoTitolo.BTP, utente));
+        titoloBreve = titoloRepository.save(TestDataBuilder.createTitolo(
+                "BTP Breve", "IT0000000SIM1", LocalDate.now().plusYears(1),
+                new BigDecimal("3.00"), "SEMESTRALE", "ANNUALE", TipoTitolo.BTP, utente));
+
+        LocalDate oggi = LocalDate.now();
+        simulazioneRepository.save(TestDataBuilder.createSimulazione(titoloLungo, oggi.minusDays(7), new BigDecimal("98.5000")));
+        simulazioneRepository.save(TestDataBuilder.createSimulazione(titoloLungo, oggi, new BigDecimal("99.0000")));
+        simulazioneRepository.save(TestDataBuilder.createSimulazione(titoloBreve, oggi.minusDays(7), new BigDecimal("100.1000")));
+
+        // Svuota il contesto di persistenza per verificare cosa viene caricato dalle query
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    @DisplayName("Le simulazioni di un utente sono ordinate per scadenza e hanno il titolo già caricato")
+    public void testFindByUtenteIdOrderByScadenzaAsc() {
+        List<Simulazione> simulazioni = simulazioneRepository.findByUtenteIdOrderByScadenzaAsc(utente.getIdUtente());
+
+        assertEquals(3, simulazioni.size(), "Dovrebbero essere restituite tutte le simulazioni dell'utente");
+        assertEquals("BTP Breve", simulazioni.get(0).getTitolo().getNome(), "Il titolo con scadenza più vicina dovrebbe essere il primo");
+        assertTrue(simulazioni.stream().allMatch(s -> Hibernate.isInitialized(s.getTitolo())),
+                "Il titolo dovrebbe essere caricato dall'entity graph senza lazy load");
+        assertEquals(utente.getIdUtente(), simulazioni.get(0).getTitolo().getUtente().getIdUtente(),
+                "L'ID utente dovrebbe essere disponibile dalla chiave esterna");
+    }
+
+    @Test
+    @DisplayName("La proiezione restituisce il prezzo dell'ultima simulazione per ogni titolo")
+    public void testFindUltimiPrezziByUtenteId() {
+        List<UltimoPrezzoTitoloProjection> ultimiPrezzi = simulazioneRepository.findUltimiPrezziByUtenteId(utente.getIdUtente());
+
+        assertEquals(2, ultimiPrezzi.size(), "Dovrebbe esserci un prezzo per ogni titolo");
+        UltimoPrezzoTitoloProjection prezzoLungo = ultimiPrezzi.stream()
+                .filter(p -> p.getIdTitolo().equals(titoloLungo.getIdTitolo()))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(0, new BigDecimal("99.0000").compareTo(prezzoLungo.getPrezzoAcquisto()),
+                "Il prezzo dovrebbe essere quello della simulazione più recente");
+        assertEquals(LocalDate.now(), prezzoLungo.getDataAcquisto());
+    }
+
+    @Test
+    @DisplayName("L'ultima simulazione per ogni titolo è recuperata con una sola query")
+    public void testFindLatestForEachTitolo() {
+        List<Simulazione> ultime = simulazioneRepository.findLatestForEachTitolo();
+
+        assertEquals(2, ultime.size(), "Dovrebbe esserci una simulazione per ogni titolo");
+        assertTrue(ultime.stream().allMatch(s -> Hibernate.isInitialized(s.getTitolo())),
+                "Il titolo dovrebbe essere caricato dall'entity graph senza lazy load");
+    }
+
+    @Test
+    @DisplayName("La cancellazione massiva restituisce il numero di simulazioni eliminate")
+    public void testDeleteAllByTitoloId() {
+        int eliminate = simulazioneRepository.deleteAllByTitoloId(titoloLungo.getIdTitolo());
+
+        assertEquals(2, eliminate, "Dovrebbero essere eliminate le due simulazioni del titolo");
+        assertTrue(simulazioneRepository.findByTitolo_IdTitolo(titoloLungo.getIdTitolo()).isEmpty());
+        assertEquals(1, simulazioneRepository.findByTitolo_IdTitolo(titoloBreve.getIdTitolo()).size(),
+                "Le simulazioni degli altri titoli non dovrebbero essere toccate");
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.rendimento.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.example.rendimento.dto.EsecuzioneJobDTO;
+import com.example.rendimento.enums.StatoJob;
+import com.example.rendimento.repository.JobCheckpointRepository;
+import com.example.rendimento.repository.JobEsecuzioneRepository;
+import com.example.rendimento.service.impl.CheckpointJobServiceImpl;
+
+/**
+ * Test per i checkpoint dei job su H2: un'esecuzione interrotta riprende dagli elementi
+ * non completati, una conclusa riparte da capo.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class CheckpointJobServiceTest {
+
+    private static final String JOB = "recupera-dati:MONDAY";
+
+    @Autowired
+    private JobEsecuzioneRepository jobEsecuzioneRepository;
+
+    @Autowired
+    private JobCheckpointRepository jobCheckpointRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private CheckpointJobService checkpointJobService;
+
+    private final AvanzamentoJob nessunAvanzamento = new AvanzamentoJob() {
+        @Override
+        public void setTotale(int totale) {
+        }
+
+        @Override
+        public void completato(String chiave) {
+        }
+
+        @Override
+        public void fallito(String chiave, String messaggio) {
+        }
+    };
+
+    @BeforeEach
+    public void setup() {
+        jobCheckpointRepository.deleteAll();
+        jobEsecuzioneRepository.deleteAll();
+        checkpointJobService = new CheckpointJobServiceImpl(
+                jobEsecuzioneRepository, jobCheckpointRepository, transactionManager, 24);
+    }
+
+    @Test
+    @DisplayName("Un'esecuzione interrotta riprende saltando gli elementi completati e ripete quelli falliti")
+    public void testRipresa() {
+        EsecuzioneJobDTO prima = checkpointJobService.avviaORiprendi(JOB, 3);
+        assertFalse(prima.isRipresa());
+        AvanzamentoJob avanzamento = checkpointJobService.conCheckpoint(prima, nessunAvanzamento);
+        avanzamento.completato("IT0001");
+        avanzamento.fallito("IT0002", "Timeout");
+        // Interruzione: IT0003 non è mai stato elaborato e l'esecuzione non è conclusa
+
+        EsecuzioneJobDTO ripresa = checkpointJobService.avviaORiprendi(JOB, 3);
+        assertTrue(ripresa.isRipresa());
+        assertEquals(prima.getAvviataIl(), ripresa.getAvviataIl());
+        assertEquals(Set.of("IT0001"), ripresa.getChiaviCompletate());
+        assertEquals(1, ripresa.getCompletati());
+        assertEquals(1, ripresa.getFalliti());
+        assertEquals("IT0001", ripresa.getUltimaChiave());
+
+        AvanzamentoJob avanzamentoRipresa = checkpointJobService.conCheckpoint(ripresa, nessunAvanzamento);
+        avanzamentoRipresa.completato("IT0002");
+        avanzamentoRipresa.completato("IT0003");
+        EsecuzioneJobDTO conclusa = checkpointJobService.concludi(ripresa);
+
+        assertEquals(StatoJob.COMPLETATO, conclusa.getStato());
+        assertEquals(3, conclusa.getCompletati());
+        assertEquals(0, conclusa.getFalliti());
+    }
+
+    @Test
+    @DisplayName("Un'esecuzione completata non viene ripresa: il job riparte da capo")
+    public void testNuovaEsecuzioneDopoCompletamento() {
+        EsecuzioneJobDTO prima = checkpointJobService.avviaORiprendi(JOB, 1);
+        checkpointJobService.conCheckpoint(prima, nessunAvanzamento).completato("IT0001");
+        assertEquals(StatoJob.COMPLETATO, checkpointJobService.concludi(prima).getStato());
+
+        EsecuzioneJobDTO seconda = checkpointJobService.avviaORiprendi(JOB, 1);
+
+        assertFalse(seconda.isRipresa());
+        assertTrue(seconda.getChiaviCompletate().isEmpty());
+        assertEquals(StatoJob.IN_ESECUZIONE, seconda.getStato());
+        assertEquals(0, seconda.getCompletati());
+    }
+
+    @Test
+    @DisplayName("Un'esecuzione conclusa con elementi falliti non viene ripresa: il job riparte da capo")
+    public void testNuovaEsecuzioneDopoFallimento() {
+        EsecuzioneJobDTO prima = checkpointJobService.avviaORiprendi(JOB, 2);
+        AvanzamentoJob avanzamento = checkpointJobService.conCheckpoint(prima, nessunAvanzamento);
+        avanzamento.completato("IT0001");
+        avanzamento.fallito("IT0002", "Timeout");
+        assertEquals(StatoJob.FALLITO, checkpointJobService.concludi(prima).getStato());
+
+        EsecuzioneJobDTO seconda = checkpointJobService.avviaORiprendi(JOB, 2);
+
+        assertFalse(seconda.isRipresa());
+        assertTrue(seconda.getChiaviCompletate().isEmpty());
+        assertEquals(StatoJob.IN_ESECUZIONE, seconda.getStato());
+        assertEquals(0, seconda.getCompletati());
+        assertEquals(0, seconda.getFalliti());
+    }
+
+    @Test
+    @DisplayName("Un'esecuzione con elementi ancora da elaborare resta in corso, con tutti gli esiti si chiude come fallita")
+    public void testConcludi() {
+        EsecuzioneJobDTO esecuzione = checkpointJobService.avviaORiprendi(JOB, 2);
+        AvanzamentoJob avanzamento = checkpointJobService.conCheckpoint(esecuzione, nessunAvanzamento);
+        avanzamento.fallito("IT0001", "x".repeat(800));
+        assertEquals(StatoJob.IN_ESECUZIONE, checkpointJobService.concludi(esecuzione).getStato());
+
+        avanzamento.completato("IT0002");
+        EsecuzioneJobDTO conclusa = checkpointJobService.concludi(esecuzione);
+
+        assertEquals(StatoJob.FALLITO, conclusa.getStato());
+        assertEquals(1, conclusa.getFalliti());
+    }
+}
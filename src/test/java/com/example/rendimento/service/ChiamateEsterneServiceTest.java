@@ -0,0 +1,159 @@
+package com.example.rendimento.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.jsoup.HttpStatusException;
+import org.springframework.mock.env.MockEnvironment;
+
+import com.example.rendimento.enums.FonteEsterna;
+import com.example.rendimento.exception.ServizioEsternoNonDisponibileException;
+import com.example.rendimento.service.impl.ChiamateEsterneServiceImpl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Test per l'isolamento delle chiamate ai servizi esterni: scadenza, rifiuto oltre la coda,
+ * indipendenza tra fonti diverse, interruttore di circuito e rallentamento per host.
+ */
+public class ChiamateEsterneServiceTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private ChiamateEsterneServiceImpl chiamateEsterne;
+
+    @BeforeEach
+    public void setup() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("rendimento.fonti.investing.concorrenti", "1")
+                .withProperty("rendimento.fonti.investing.in-attesa", "0")
+                .withProperty("rendimento.fonti.investing.scadenza-ms", "200")
+                .withProperty("rendimento.host.borsa-italiana.richieste-al-secondo", "100")
+                .withProperty("rendimento.host.borsa-italiana.richieste-al-secondo-minime", "10")
+                .withProperty("rendimento.host.borsa-italiana.raffica", "10")
+                .withProperty("rendimento.host.borsa-italiana.soglia-errori", "3")
+                .withProperty("rendimento.host.borsa-italiana.apertura-secondi", "60");
+        meterRegistry = new SimpleMeterRegistry();
+        chiamateEsterne = new ChiamateEsterneServiceImpl(environment, meterRegistry);
+    }
+
+    @AfterEach
+    public void chiudi() {
+        chiamateEsterne.chiudi();
+    }
+
+    @Test
+    @DisplayName("Una chiamata lenta scade e viene interrotta, liberando il posto per le successive")
+    public void testScadenza() throws Exception {
+        CountDownLatch interrotta = new CountDownLatch(1);
+
+        assertThrows(ServizioEsternoNonDisponibileException.class, () -> chiamateEsterne.esegui(FonteEsterna.INVESTING, () -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrotta.countDown();
+            }
+            return "tardi";
+        }));
+
+        assertTrue(interrotta.await(5, TimeUnit.SECONDS));
+        // Il posto è liberato appena la chiamata interrotta termina, poco dopo il segnale
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (true) {
+            try {
+                assertEquals("ok", chiamateEsterne.esegui(FonteEsterna.INVESTING, () -> "ok"));
+                return;
+            } catch (ServizioEsternoNonDisponibileException e) {
+                if (System.nanoTime() - limite > 0) {
+                    throw e;
+                }
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Con la fonte satura le nuove chiamate sono rifiutate subito, le altre fonti non ne risentono")
+    public void testRifiutoEIsolamento() throws Exception {
+        CountDownLatch inCorso = new CountDownLatch(1);
+        CountDownLatch sblocca = new CountDownLatch(1);
+        CompletableFuture<String> lenta = CompletableFuture.supplyAsync(() -> {
+            try {
+                return chiamateEsterne.esegui(FonteEsterna.INVESTING, () -> {
+                    inCorso.countDown();
+                    try {
+                        sblocca.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return "lenta";
+                });
+            } catch (Exception e) {
+                return e.getClass().getSimpleName();
+            }
+        });
+        assertTrue(inCorso.await(5, TimeUnit.SECONDS));
+
+        assertThrows(ServizioEsternoNonDisponibileException.class,
+                () -> chiamateEsterne.esegui(FonteEsterna.INVESTING, () -> "rifiutata"));
+        assertEquals("btp", chiamateEsterne.esegui(FonteEsterna.BORSA_ITALIANA_BTP, () -> "btp"));
+        assertThrows(IOException.class, () -> chiamateEsterne.esegui(FonteEsterna.BORSA_ITALIANA_BOT, () -> {
+            throw new IOException("404");
+        }));
+
+        sblocca.countDown();
+        lenta.join();
+    }
+
+    @Test
+    @DisplayName("Dopo gli errori consecutivi il circuito dell'host si apre e rifiuta subito, anche per le altre fonti dello stesso host")
+    public void testCircuitoAperto() throws Exception {
+        // Una pagina inesistente non è un errore dell'host
+        assertThrows(HttpStatusException.class, () -> chiamateEsterne.esegui(FonteEsterna.BORSA_ITALIANA_BTP, () -> {
+            throw new HttpStatusException("Non trovata", 404, "https://www.borsaitaliana.it");
+        }));
+        for (int i = 0; i < 3; i++) {
+            assertThrows(IOException.class, () -> chiamateEsterne.esegui(FonteEsterna.BORSA_ITALIANA_BTP, () -> {
+                throw new IOException("Connessione rifiutata");
+            }));
+        }
+        assertEquals(2, meterRegistry.get("rendimento.fonti.circuito").tag("host", "borsa-italiana").gauge().value());
+
+        AtomicInteger chiamate = new AtomicInteger();
+        assertThrows(ServizioEsternoNonDisponibileException.class,
+                () -> chiamateEsterne.esegui(FonteEsterna.BORSA_ITALIANA_BOT, chiamate::incrementAndGet));
+        assertEquals(0, chiamate.get());
+        assertEquals(1, meterRegistry.counter("rendimento.fonti.chiamate",
+                "host", "borsa-italiana", "esito", "circuito_aperto").count());
+        assertEquals("investing", chiamateEsterne.esegui(FonteEsterna.INVESTING, () -> "investing"));
+    }
+
+    @Test
+    @DisplayName("Ogni risposta 429 dimezza le richieste al secondo dell'host, le chiamate riuscite le fanno risalire")
+    public void testRallentamento() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            assertThrows(HttpStatusException.class, () -> chiamateEsterne.esegui(FonteEsterna.BORSA_ITALIANA_BTP, () -> {
+                throw new HttpStatusException("Troppe richieste", 429, "https://www.borsaitaliana.it");
+            }));
+        }
+        assertEquals(25, richiesteAlSecondo("borsa-italiana"), 0.01);
+        assertEquals(2, richiesteAlSecondo("investing"), 0.01);
+
+        assertEquals("ok", chiamateEsterne.esegui(FonteEsterna.BORSA_ITALIANA_BOT, () -> "ok"));
+        assertEquals(27.5, richiesteAlSecondo("borsa-italiana"), 0.01);
+    }
+
+    private double richiesteAlSecondo(String host) {
+        return meterRegistry.get("rendimento.fonti.richieste-al-secondo").tag("host", host).gauge().value();
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.rendimento.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.example.rendimento.exception.JobInEsecuzioneException;
+import com.example.rendimento.repository.JobLeaseRepository;
+import com.example.rendimento.service.impl.CoordinatoreJobServiceImpl;
+
+/**
+ * Test per il coordinamento dei job tra nodi con la tabella job_lease su H2:
+ * due istanze del servizio con nomi di nodo diversi simulano due nodi.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class CoordinatoreJobServiceTest {
+
+    @Autowired
+    private JobLeaseRepository jobLeaseRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private CoordinatoreJobService nodoA;
+    private CoordinatoreJobService nodoB;
+
+    @BeforeEach
+    public void setup() {
+        jobLeaseRepository.deleteAll();
+        nodoA = new CoordinatoreJobServiceImpl(jobLeaseRepository, transactionManager, "nodo-a", 60);
+        nodoB = new CoordinatoreJobServiceImpl(jobLeaseRepository, transactionManager, "nodo-b", 60);
+    }
+
+    @Test
+    @DisplayName("Un job in esclusiva non parte su un secondo nodo finché il primo non termina")
+    public void testEsclusiva() {
+        String risultato = nodoA.eseguiInEsclusiva("calcolo-rendimenti:1", () -> {
+            assertThrows(JobInEsecuzioneException.class,
+                    () -> nodoB.eseguiInEsclusiva("calcolo-rendimenti:1", () -> "b"));
+            assertEquals("altro", nodoB.eseguiInEsclusiva("calcolo-rendimenti:2", () -> "altro"));
+            return "a";
+        });
+
+        assertEquals("a", risultato);
+        assertEquals("b", nodoB.eseguiInEsclusiva("calcolo-rendimenti:1", () -> "b"));
+    }
+
+    @Test
+    @DisplayName("Le partizioni di un job avviato su due nodi sono elaborate una sola volta")
+    public void testPartizioniDistribuite() {
+        List<String> elaborate = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> partizioniB = new ArrayList<>();
+
+        // Mentre il nodo A elabora la sua prima partizione, il nodo B si unisce e prende le altre
+        List<Integer> partizioniA = nodoA.eseguiPartizionato("recupera-dati:MONDAY", 4, partizione -> {
+            elaborate.add("a" + partizione);
+            if (partizioniB.isEmpty()) {
+                partizioniB.addAll(nodoB.eseguiPartizionato("recupera-dati:MONDAY", 4, altra -> {
+                    elaborate.add("b" + altra);
+                    return altra;
+                }));
+            }
+            return partizione;
+        });
+
+        assertEquals(1, partizioniA.size());
+        assertEquals(3, partizioniB.size());
+        assertEquals(4, elaborate.size());
+
+        // Terminata l'esecuzione, un nuovo avvio elabora di nuovo tutte le partizioni
+        assertEquals(4, nodoB.eseguiPartizionato("recupera-dati:MONDAY", 4, partizione -> partizione).size());
+    }
+}
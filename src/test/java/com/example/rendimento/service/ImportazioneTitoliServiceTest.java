@@ -0,0 +1,159 @@
+package com.example.rendimento.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.rendimento.dto.EsitoImportazioneTitoloDTO;
+import com.example.rendimento.dto.ImportazioneTitoliDTO;
+import com.example.rendimento.dto.TitoloDTO;
+import com.example.rendimento.dto.TitoloImportDTO;
+import com.example.rendimento.enums.EsitoImportazione;
+import com.example.rendimento.enums.TipoTitolo;
+import com.example.rendimento.mapper.TitoloMapper;
+import com.example.rendimento.model.Titolo;
+import com.example.rendimento.model.Utente;
+import com.example.rendimento.repository.TitoloRepository;
+import com.example.rendimento.repository.UtenteRepository;
+import com.example.rendimento.service.factory.BorsaItalianaServiceFactory;
+import com.example.rendimento.service.impl.ImportazioneTitoliServiceImpl;
+import com.example.rendimento.util.TestDataBuilder;
+
+/**
+ * Test per l'importazione di più titoli su H2: ISIN ripetuti scaricati una volta sola,
+ * titoli nuovi e già presenti salvati insieme, errori riportati per ISIN.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+public class ImportazioneTitoliServiceTest {
+
+    @Autowired
+    private TitoloRepository titoloRepository;
+
+    @Autowired
+    private UtenteRepository utenteRepository;
+
+    @Autowired
+    private TitoloMapper titoloMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private BorsaItalianaService btpService;
+    private BorsaItalianaService botService;
+    private ImportazioneTitoliService importazioneTitoliService;
+    private Utente utente;
+    private Utente altroUtente;
+
+    @BeforeEach
+    public void setup() {
+        utente = utenteRepository.save(TestDataBuilder.createDefaultUtente("importazione1"));
+        altroUtente = utenteRepository.save(TestDataBuilder.createDefaultUtente("importazione2"));
+
+        btpService = mock(BorsaItalianaService.class);
+        botService = mock(BorsaItalianaService.class);
+        BorsaItalianaServiceFactory factory = mock(BorsaItalianaServiceFactory.class);
+        when(factory.getBorsaItalianaService(TipoTitolo.BTP)).thenReturn(btpService);
+        when(factory.getBorsaItalianaService(TipoTitolo.BOT)).thenReturn(botService);
+
+        importazioneTitoliService = new ImportazioneTitoliServiceImpl(titoloRepository, utenteRepository,
+                titoloMapper, factory, mock(ApplicationEventPublisher.class), transactionManager, 4);
+    }
+
+    private static TitoloDTO scaricato(String isin, String nome) {
+        TitoloDTO titolo = new TitoloDTO();
+        titolo.setCodiceIsin(isin);
+        titolo.setNome(nome);
+        titolo.setDataScadenza(LocalDate.of(2030, 6, 1));
+        titolo.setTassoNominale(new BigDecimal("3.50"));
+        titolo.setCorso(new BigDecimal("101.25"));
+        return titolo;
+    }
+
+    @Test
+    @DisplayName("Ogni ISIN è scaricato una volta sola: i nuovi sono creati e quelli dell'utente aggiornati")
+    public void testImportazione() {
+        titoloRepository.save(TestDataBuilder.createTitolo("BTP vecchio nome", "IT9000000002", LocalDate.of(2030, 6, 1),
+                new BigDecimal("3.50"), "SEMESTRALE", "ANNUALE", TipoTitolo.BTP, utente));
+        when(btpService.getTitoloByIsin("IT9000000001")).thenReturn(scaricato("IT9000000001", "BTP 3,5% 2030"));
+        when(btpService.getTitoloByIsin("IT9000000002")).thenReturn(scaricato("IT9000000002", "BTP nuovo nome"));
+        when(botService.getTitoloBotByIsin("IT9000000003")).thenReturn(scaricato("IT9000000003", "BOT 2030"));
+
+        ImportazioneTitoliDTO risultato = importazioneTitoliService.importaTitoli(List.of(
+                new TitoloImportDTO("IT9000000001", "BTP"),
+                new TitoloImportDTO(" it9000000001 ", "btp"),
+                new TitoloImportDTO("IT9000000002", "BTP"),
+                new TitoloImportDTO("IT9000000003", "BOT")), utente.getIdUtente());
+
+        assertEquals(3, risultato.getTotale());
+        assertEquals(List.of(), risultato.getErrori());
+        Map<String, EsitoImportazione> esiti = esiti(risultato);
+        assertEquals(EsitoImportazione.CREATO, esiti.get("IT9000000001"));
+        assertEquals(EsitoImportazione.AGGIORNATO, esiti.get("IT9000000002"));
+        assertEquals(EsitoImportazione.CREATO, esiti.get("IT9000000003"));
+        verify(btpService, times(1)).getTitoloByIsin("IT9000000001");
+
+        Titolo aggiornato = titoloRepository.findByCodiceIsin("IT9000000002");
+        assertEquals("BTP nuovo nome", aggiornato.getNome());
+        Titolo bot = titoloRepository.findByCodiceIsin("IT9000000003");
+        assertNotNull(bot.getIdTitolo());
+        assertEquals(TipoTitolo.BOT, bot.getTipoTitolo());
+        assertEquals(utente.getIdUtente(), bot.getUtente().getIdUtente());
+        assertEquals(new BigDecimal("101.25"), risultato.getTitoli().get(0).getCorso());
+    }
+
+    @Test
+    @DisplayName("Titoli di altri utenti, tipi non validi e pagine in errore non fermano gli altri ISIN")
+    public void testErroriPerIsin() {
+        titoloRepository.save(TestDataBuilder.createTitolo("BTP altrui", "IT9000000004", LocalDate.of(2030, 6, 1),
+                new BigDecimal("3.50"), "SEMESTRALE", "ANNUALE", TipoTitolo.BTP, altroUtente));
+        when(btpService.getTitoloByIsin("IT9000000005")).thenThrow(new IllegalStateException("Corso non trovato"));
+        when(btpService.getTitoloByIsin("IT9000000006")).thenReturn(scaricato("IT9000000006", "BTP 2030"));
+
+        ImportazioneTitoliDTO risultato = importazioneTitoliService.importaTitoli(List.of(
+                new TitoloImportDTO("IT9000000004", "BTP"),
+                new TitoloImportDTO("IT9000000005", "BTP"),
+                new TitoloImportDTO("IT9000000006", "BTP"),
+                new TitoloImportDTO("IT9000000007", "CCT")), utente.getIdUtente());
+
+        assertEquals(1, risultato.getTotale());
+        assertEquals(3, risultato.getErrori().size());
+        assertEquals(List.of("IT9000000004", "IT9000000005", "IT9000000006", "IT9000000007"),
+                risultato.getEsiti().stream().map(EsitoImportazioneTitoloDTO::getCodiceIsin).toList());
+        Map<String, EsitoImportazione> esiti = esiti(risultato);
+        assertEquals(EsitoImportazione.NON_AUTORIZZATO, esiti.get("IT9000000004"));
+        assertEquals(EsitoImportazione.ERRORE, esiti.get("IT9000000005"));
+        assertEquals(EsitoImportazione.CREATO, esiti.get("IT9000000006"));
+        assertEquals(EsitoImportazione.ERRORE, esiti.get("IT9000000007"));
+        verify(btpService, never()).getTitoloByIsin("IT9000000004");
+        verify(botService, never()).getTitoloBotByIsin(anyString());
+        assertEquals("BTP altrui", titoloRepository.findByCodiceIsin("IT9000000004").getNome());
+    }
+
+    private static Map<String, EsitoImportazione> esiti(ImportazioneTitoliDTO risultato) {
+        return risultato.getEsiti().stream()
+                .collect(Collectors.toMap(EsitoImportazioneTitoloDTO::getCodiceIsin, EsitoImportazioneTitoloDTO::getEsito));
+    }
+}
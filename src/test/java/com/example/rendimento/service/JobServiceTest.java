@@ -0,0 +1,96 @@
+package com.example.rendimento.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.example.rendimento.dto.JobDTO;
+import com.example.rendimento.enums.StatoJob;
+import com.example.rendimento.service.impl.JobServiceImpl;
+
+import jakarta.persistence.EntityNotFoundException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per i job in background: avanzamento, risultato, errori e visibilità per utente.
+ * I job sono eseguiti solo quando il test lo richiede, per controllare lo stato intermedio.
+ */
+public class JobServiceTest {
+
+    private final List<Runnable> inAttesa = new ArrayList<>();
+    private final JobService jobService = new JobServiceImpl(inAttesa::add, Runnable::run, 60, 0L);
+
+    private void eseguiInAttesa() {
+        List<Runnable> daEseguire = new ArrayList<>(inAttesa);
+        inAttesa.clear();
+        daEseguire.forEach(Runnable::run);
+    }
+
+    @Test
+    @DisplayName("Il job è accodato subito e a termine espone avanzamento, errori e risultato")
+    public void testJobCompletato() {
+        JobDTO job = jobService.avvia("test", 1, avanzamento -> {
+            avanzamento.setTotale(3);
+            avanzamento.completato("IT0000000001");
+            avanzamento.fallito("IT0000000002", "Prezzo non disponibile");
+            avanzamento.completato("IT0000000003");
+            return List.of("a", "b");
+        });
+        assertEquals(StatoJob.IN_CODA, job.getStato());
+
+        eseguiInAttesa();
+
+        JobDTO terminato = jobService.getJob(job.getId(), 1);
+        assertEquals(StatoJob.COMPLETATO, terminato.getStato());
+        assertEquals(3, terminato.getTotale());
+        assertEquals(2, terminato.getCompletati());
+        assertEquals(1, terminato.getFalliti());
+        assertEquals("IT0000000002", terminato.getErrori().get(0).getChiave());
+        assertEquals(List.of("a", "b"), terminato.getRisultato());
+        assertNotNull(terminato.getDataFine());
+        assertNull(jobService.getJobUtente(1).get(0).getRisultato(), "L'elenco dei job non include i risultati");
+    }
+
+    @Test
+    @DisplayName("Un'eccezione del lavoro rende il job fallito con il messaggio dell'errore")
+    public void testJobFallito() {
+        JobDTO job = jobService.avvia("test", 1, avanzamento -> {
+            throw new IllegalStateException("Servizio non raggiungibile");
+        });
+        eseguiInAttesa();
+
+        JobDTO terminato = jobService.getJob(job.getId(), 1);
+        assertEquals(StatoJob.FALLITO, terminato.getStato());
+        assertEquals("Servizio non raggiungibile", terminato.getMessaggio());
+        assertNull(terminato.getRisultato());
+    }
+
+    @Test
+    @DisplayName("Un secondo invio dello stesso tipo restituisce il job non terminato dell'utente")
+    public void testJobGiaInCorso() {
+        JobDTO primo = jobService.avvia("test", 1, avanzamento -> null);
+        JobDTO secondo = jobService.avvia("test", 1, avanzamento -> null);
+        JobDTO altroUtente = jobService.avvia("test", 2, avanzamento -> null);
+
+        assertEquals(primo.getId(), secondo.getId());
+        assertNotEquals(primo.getId(), altroUtente.getId());
+        assertEquals(2, inAttesa.size());
+
+        eseguiInAttesa();
+        assertNotEquals(primo.getId(), jobService.avvia("test", 1, avanzamento -> null).getId(),
+                "Terminato il job, un nuovo invio dovrebbe avviarne un altro");
+    }
+
+    @Test
+    @DisplayName("Il job di un altro utente non è visibile")
+    public void testJobAltroUtente() {
+        JobDTO job = jobService.avvia("test", 1, avanzamento -> null);
+
+        assertThrows(EntityNotFoundException.class, () -> jobService.getJob(job.getId(), 2));
+        assertThrows(EntityNotFoundException.class, () -> jobService.getJob("inesistente", 1));
+        assertTrue(jobService.getJobUtente(2).isEmpty());
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.rendimento.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.support.TransactionOperations;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import com.example.rendimento.dto.RisultatoRendimentoAdvancedDTO;
+import com.example.rendimento.dto.SimulazioneDTO;
+import com.example.rendimento.model.Titolo;
+import com.example.rendimento.repository.TitoloRepository;
+import com.example.rendimento.service.impl.RecuperoDatiServiceImpl;
+import com.example.rendimento.service.impl.RiprovaConflittiServiceImpl;
+import com.example.rendimento.util.TestDataBuilder;
+
+/**
+ * Test per la pipeline di recupera-dati: tutti i prezzi recuperati arrivano alla scrittura
+ * anche con code più piccole dei dati, e gli errori restano confinati al proprio titolo.
+ */
+public class RecuperoDatiServiceTest {
+
+    private static final int PREZZI_PER_TITOLO = 13;
+
+    @Mock
+    private TitoloRepository titoloRepository;
+
+    @Mock
+    private PrezzoStoricoService prezzoStoricoService;
+
+    @Mock
+    private SimulazioneService simulazioneService;
+
+    @Mock
+    private TrendService trendService;
+
+    @Mock
+    private CoordinatoreJobService coordinatoreJobService;
+
+    @Mock
+    private CheckpointJobService checkpointJobService;
+
+    private RecuperoDatiService recuperoDatiService;
+
+    private final Map<String, String> esiti = new ConcurrentHashMap<>();
+
+    private final AvanzamentoJob avanzamento = new AvanzamentoJob() {
+        @Override
+        public void setTotale(int totale) {
+        }
+
+        @Override
+        public void completato(String chiave) {
+            esiti.put(chiave, "completato");
+        }
+
+        @Override
+        public void fallito(String chiave, String messaggio) {
+            esiti.put(chiave, messaggio);
+        }
+    };
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        // Code da 2 elementi e blocchi da 3 righe: gli stadi si attendono a vicenda più volte
+        recuperoDatiService = new RecuperoDatiServiceImpl(titoloRepository, prezzoStoricoService, simulazioneService,
+                trendService, coordinatoreJobService, checkpointJobService,
+                new RiprovaConflittiServiceImpl(new SimpleMeterRegistry(), 1, 0, 0),
+                TransactionOperations.withoutTransaction(), 1, false, 2, 2, 2, 3);
+
+        RisultatoRendimentoAdvancedDTO risultato = new RisultatoRendimentoAdvancedDTO();
+        risultato.setRendimentoSenzaCosti(new BigDecimal("3.25"));
+        when(simulazioneService.calcolaRendimentoAdvanced(any(), any(), any(), any())).thenReturn(risultato);
+        when(simulazioneService.salvaSimulazioneCalcolata(any(), any(), any(), any())).thenReturn(new SimulazioneDTO());
+    }
+
+    private Titolo titolo(String suffisso) throws Exception {
+        Titolo titolo = TestDataBuilder.createDefaultTitolo(suffisso, null);
+        List<Map<String, Object>> prezzi = new ArrayList<>();
+        for (int i = 0; i < PREZZI_PER_TITOLO; i++) {
+            prezzi.add(Map.of("data", LocalDate.of(2025, 1, 6).plusWeeks(i), "prezzo", new BigDecimal("99.50")));
+        }
+        when(prezzoStoricoService.estraiPrezziUltimi3MesiMap(titolo, DayOfWeek.MONDAY)).thenReturn(prezzi);
+        return titolo;
+    }
+
+    @Test
+    @DisplayName("Ogni prezzo recuperato viene calcolato e salvato insieme al trend")
+    public void testTuttiIPrezziSalvati() throws Exception {
+        List<Titolo> titoli = List.of(titolo("1"), titolo("2"), titolo("3"));
+
+        List<SimulazioneDTO> salvate = recuperoDatiService.recuperaDati(titoli, DayOfWeek.MONDAY, avanzamento);
+
+        assertEquals(3 * PREZZI_PER_TITOLO, salvate.size());
+        verify(trendService, times(3 * PREZZI_PER_TITOLO))
+                .salvaOAggiornaTrendPerTitolo(any(), any(), eq(new BigDecimal("3.25")), any());
+        assertEquals(Map.of("IT0001", "completato", "IT0002", "completato", "IT0003", "completato"), esiti);
+    }
+
+    @Test
+    @DisplayName("Un titolo senza prezzi o con un salvataggio in errore fallisce senza fermare gli altri")
+    public void testErroriConfinatiAlTitolo() throws Exception {
+        Titolo senzaPrezzi = TestDataBuilder.createDefaultTitolo("1", null);
+        when(prezzoStoricoService.estraiPrezziUltimi3MesiMap(senzaPrezzi, DayOfWeek.MONDAY))
+                .thenThrow(new IllegalStateException("Timeout"));
+        Titolo conErrore = titolo("2");
+        Titolo valido = titolo("3");
+        LocalDate dataInErrore = LocalDate.of(2025, 1, 13);
+        when(simulazioneService.salvaSimulazioneCalcolata(eq(conErrore), any(), eq(dataInErrore), any()))
+                .thenThrow(new IllegalStateException("Conflitto"));
+
+        List<SimulazioneDTO> salvate = recuperoDatiService.recuperaDati(
+                List.of(senzaPrezzi, conErrore, valido), DayOfWeek.MONDAY, avanzamento);
+
+        // Il blocco con la riga in errore viene riscritto riga per riga: si perde solo quella riga
+        assertEquals(2 * PREZZI_PER_TITOLO - 1, salvate.size());
+        assertEquals("completato", esiti.get("IT0003"));
+        assertTrue(esiti.get("IT0001").contains("Timeout"));
+        assertTrue(esiti.get("IT0002").contains("Conflitto"));
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.rendimento.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import com.example.rendimento.exception.ConflittoModificaException;
+import com.example.rendimento.model.Simulazione;
+import com.example.rendimento.service.impl.RiprovaConflittiServiceImpl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Test per i nuovi tentativi sui conflitti di versione e le relative metriche.
+ */
+public class RiprovaConflittiServiceTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private RiprovaConflittiService riprovaConflittiService;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        riprovaConflittiService = new RiprovaConflittiServiceImpl(meterRegistry, 3, 1, 5);
+    }
+
+    private double conteggio(String nome, String... tag) {
+        return meterRegistry.counter(nome, tag).count();
+    }
+
+    @Test
+    @DisplayName("Un conflitto transitorio viene superato ritentando, e conteggiato")
+    public void testConflittoRisolto() {
+        AtomicInteger tentativi = new AtomicInteger();
+
+        String risultato = riprovaConflittiService.eseguiConRiprova("test", () -> {
+            if (tentativi.incrementAndGet() < 3) {
+                throw new ConflittoModificaException("Conflitto",
+                        new ObjectOptimisticLockingFailureException(Simulazione.class, 1));
+            }
+            return "salvata";
+        });
+
+        assertEquals("salvata", risultato);
+        assertEquals(3, tentativi.get());
+        assertEquals(2, conteggio("rendimento.scrittura.conflitti", "operazione", "test"));
+        assertEquals(1, conteggio("rendimento.scrittura.esiti", "operazione", "test", "esito", "riuscita_dopo_conflitto"));
+    }
+
+    @Test
+    @DisplayName("Un conflitto persistente è rilanciato dopo l'ultimo tentativo, gli altri errori subito")
+    public void testConflittoEsauritoEErrori() {
+        AtomicInteger tentativi = new AtomicInteger();
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> riprovaConflittiService.eseguiConRiprova("test", () -> {
+            tentativi.incrementAndGet();
+            throw new ObjectOptimisticLockingFailureException(Simulazione.class, 1);
+        }));
+        assertEquals(3, tentativi.get());
+        assertEquals(1, conteggio("rendimento.scrittura.esiti", "operazione", "test", "esito", "conflitto_esaurito"));
+
+        AtomicInteger tentativiErrore = new AtomicInteger();
+        assertThrows(IllegalStateException.class, () -> riprovaConflittiService.eseguiConRiprova("test", () -> {
+            tentativiErrore.incrementAndGet();
+            throw new IllegalStateException("Errore");
+        }));
+        assertEquals(1, tentativiErrore.get());
+        assertEquals(1, conteggio("rendimento.scrittura.esiti", "operazione", "test", "esito", "errore"));
+    }
+
+    @Test
+    @DisplayName("Una chiave duplicata inserita in parallelo viene ritentata, le altre violazioni di vincolo no")
+    public void testChiaveDuplicata() {
+        AtomicInteger tentativi = new AtomicInteger();
+        String risultato = riprovaConflittiService.eseguiConRiprova("test", () -> {
+            if (tentativi.incrementAndGet() == 1) {
+                throw new DataIntegrityViolationException("Chiave duplicata",
+                        new SQLException("duplicate key value violates unique constraint", "23505"));
+            }
+            return "aggiornata";
+        });
+        assertEquals("aggiornata", risultato);
+        assertEquals(2, tentativi.get());
+
+        AtomicInteger tentativiNull = new AtomicInteger();
+        assertThrows(DataIntegrityViolationException.class, () -> riprovaConflittiService.eseguiConRiprova("test", () -> {
+            tentativiNull.incrementAndGet();
+            throw new DataIntegrityViolationException("Valore nullo",
+                    new SQLException("null value in column violates not-null constraint", "23502"));
+        }));
+        assertEquals(1, tentativiNull.get());
+    }
+}
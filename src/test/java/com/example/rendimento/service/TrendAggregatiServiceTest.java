@@ -0,0 +1,258 @@
+package com.example.rendimento.service;
+
+import com.example.rendimento.dto.TrendAggregatoDTO;
+import com.example.rendimento.enums.RisoluzioneTrend;
+import com.example.rendimento.enums.TipoTitolo;
+import com.example.rendimento.enums.TrendBucket;
+import com.example.rendimento.model.Titolo;
+import com.example.rendimento.model.TrendAggregatoEntity;
+import com.example.rendimento.model.Utente;
+import com.example.rendimento.repository.TitoloRepository;
+import com.example.rendimento.repository.TrendAggregatoRepository;
+import com.example.rendimento.repository.TrendRepository;
+import com.example.rendimento.repository.UtenteRepository;
+import com.example.rendimento.util.TestDataBuilder;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per il mantenimento incrementale della tabella trend_aggregati utilizzando un database H2 in memoria.
+ * Lo store in memoria è disabilitato: le letture devono passare dalla tabella degli aggregati.
+ */
+@SpringBootTest
+@ActiveProfiles("test") // Utilizza il profilo di test con il database H2
+@TestPropertySource(properties = "rendimento.trend.store.abilitato=false")
+@Transactional
+public class TrendAggregatiServiceTest {
+
+    private static final LocalDate GIORNO = LocalDate.of(2026, 3, 2);
+
+    @Autowired
+    private TrendService trendService;
+
+    @Autowired
+    private TrendAggregatiService trendAggregatiService;
+
+    @Autowired
+    private TrendAggregatoRepository trendAggregatoRepository;
+
+    @Autowired
+    private TrendQueryService trendQueryService;
+
+    @Autowired
+    private TrendRepository trendRepository;
+
+    @Autowired
+    private TransactionTemplate transazioni;
+
+    @Autowired
+    private TitoloService titoloService;
+
+    @Autowired
+    private TitoloRepository titoloRepository;
+
+    @Autowired
+    private UtenteRepository utenteRepository;
+
+    private Titolo titoloConScadenza(String isin, LocalDate scadenza) {
+        return TestDataBuilder.createTitolo("BTP " + isin, isin, scadenza, new BigDecimal("3.00"),
+                "SEMESTRALE", "ANNUALE", TipoTitolo.BTP, null);
+    }
+
+    @Test
+    @DisplayName("Gli snapshot salvati aggiornano l'aggregato del loro giorno e bucket")
+    public void testAggiornamentoIncrementale() {
+        Titolo titolo1 = titoloConScadenza("IT0000000AG1", GIORNO.plusDays(365));
+        Titolo titolo2 = titoloConScadenza("IT0000000AG2", GIORNO.plusDays(400));
+
+        trendService.salvaOAggiornaTrendPerTitolo(titolo1, new BigDecimal("99.50"), new BigDecimal("0.030000"), GIORNO);
+        trendService.salvaOAggiornaTrendPerTitolo(titolo2, new BigDecimal("98.00"), new BigDecimal("0.040000"), GIORNO);
+        // Il test gira in una transazione che non arriva al commit
+        trendAggregatiService.aggiornaAggregatiInSospeso();
+
+        TrendAggregatoEntity aggregato = trendAggregatoRepository
+                .findByDataSnapshotAndBucket(GIORNO, TrendBucket.DODICI_MESI)
+                .orElseThrow();
+        assertEquals(2, aggregato.getNumeroTitoli(), "L'aggregato dovrebbe contare entrambi i titoli");
+        assertEquals(0, new BigDecimal("0.035000").compareTo(aggregato.getRendimentoMedio()));
+        assertEquals(0, new BigDecimal("0.030000").compareTo(aggregato.getRendimentoMinimo()));
+        assertEquals(0, new BigDecimal("0.040000").compareTo(aggregato.getRendimentoMassimo()));
+
+        // L'aggiornamento di uno snapshot esistente ricalcola l'aggregato
+        trendService.salvaOAggiornaTrendPerTitolo(titolo2, new BigDecimal("99.00"), new BigDecimal("0.032000"), GIORNO);
+        trendAggregatiService.aggiornaAggregatiInSospeso();
+
+        aggregato = trendAggregatoRepository.findByDataSnapshotAndBucket(GIORNO, TrendBucket.DODICI_MESI).orElseThrow();
+        assertEquals(2, aggregato.getNumeroTitoli());
+        assertEquals(0, new BigDecimal("0.032000").compareTo(aggregato.getRendimentoMassimo()),
+                "Il massimo dovrebbe riflettere il valore aggiornato");
+    }
+
+    @Test
+    @DisplayName("Un blocco di snapshot nella stessa transazione aggiorna gli aggregati una volta, prima del commit")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void testAggiornamentoAlCommit() {
+        Titolo titolo1 = titoloConScadenza("IT0000000AG9", GIORNO.plusDays(365));
+        Titolo titolo2 = titoloConScadenza("IT0000000AGA", GIORNO.plusDays(400));
+        try {
+            transazioni.executeWithoutResult(status -> {
+                trendService.salvaOAggiornaTrendPerTitolo(titolo1, new BigDecimal("99.50"), new BigDecimal("0.030000"), GIORNO);
+                trendService.salvaOAggiornaTrendPerTitolo(titolo2, new BigDecimal("98.00"), new BigDecimal("0.040000"), GIORNO);
+                trendService.salvaOAggiornaTrendPerTitolo(titolo1, new BigDecimal("99.50"), new BigDecimal("0.030000"), GIORNO.plusDays(1));
+                assertTrue(trendAggregatoRepository.findByDataSnapshotAndBucket(GIORNO, TrendBucket.DODICI_MESI).isEmpty(),
+                        "Gli aggregati dovrebbero essere ricalcolati solo al commit del blocco");
+            });
+
+            assertEquals(2, trendAggregatoRepository.findByDataSnapshotAndBucket(GIORNO, TrendBucket.DODICI_MESI)
+                    .orElseThrow().getNumeroTitoli());
+            assertEquals(1, trendAggregatoRepository.findByDataSnapshotAndBucket(GIORNO.plusDays(1), TrendBucket.DODICI_MESI)
+                    .orElseThrow().getNumeroTitoli());
+            assertEquals(2, trendAggregatoRepository.findByRisoluzioneAndDataSnapshotAndBucket(
+                    RisoluzioneTrend.SETTIMANALE, GIORNO, TrendBucket.DODICI_MESI).orElseThrow().getNumeroTitoli());
+        } finally {
+            trendAggregatoRepository.deleteAll();
+            trendRepository.deleteAll();
+        }
+    }
+
+    @Test
+    @DisplayName("La ricostruzione produce gli stessi aggregati del mantenimento incrementale")
+    public void testRicostruzioneAggregati() {
+        trendService.salvaOAggiornaTrendPerTitolo(titoloConScadenza("IT0000000AG3", GIORNO.plusDays(180)),
+                new BigDecimal("99.80"), new BigDecimal("0.025000"), GIORNO);
+        trendService.salvaOAggiornaTrendPerTitolo(titoloConScadenza("IT0000000AG4", GIORNO.plusDays(200)),
+                new BigDecimal("99.70"), new BigDecimal("0.027000"), GIORNO);
+
+        int ricostruiti = trendAggregatiService.ricostruisciAggregati(GIORNO, GIORNO);
+
+        assertEquals(1, ricostruiti, "Dovrebbe esserci un solo aggregato per il giorno e il bucket");
+        TrendAggregatoEntity aggregato = trendAggregatoRepository
+                .findByDataSnapshotAndBucket(GIORNO, TrendBucket.SEI_MESI)
+                .orElseThrow();
+        assertEquals(2, aggregato.getNumeroTitoli());
+        assertEquals(0, new BigDecimal("0.026000").compareTo(aggregato.getRendimentoMedio()));
+    }
+
+    @Test
+    @DisplayName("Le scadenze tra due bucket non vengono conteggiate e la keyword filtra i bucket nella query")
+    public void testBucketCorrettiEKeyword() {
+        // 0,8 anni: tra il bucket 6M (fino a 0,67) e il bucket 12M (da 0,90)
+        trendService.salvaOAggiornaTrendPerTitolo(titoloConScadenza("IT0000000AG5", GIORNO.plusDays(292)),
+                new BigDecimal("99.00"), new BigDecimal("0.028000"), GIORNO);
+        trendService.salvaOAggiornaTrendPerTitolo(titoloConScadenza("IT0000000AG6", GIORNO.plusDays(365 * 3)),
+                new BigDecimal("97.00"), new BigDecimal("0.041000"), GIORNO);
+        trendAggregatiService.aggiornaAggregatiInSospeso();
+
+        List<TrendAggregatoDTO> tutti = trendQueryService.getTrendAggregati(GIORNO, GIORNO);
+        assertEquals(1, tutti.size(), "Lo snapshot tra due bucket non dovrebbe produrre aggregati");
+        assertEquals("36M", tutti.get(0).getBucket());
+        assertTrue(trendAggregatoRepository.findByDataSnapshotAndBucket(GIORNO, TrendBucket.OLTRE_SESSANTA_MESI).isEmpty(),
+                "Lo snapshot tra due bucket non dovrebbe finire nel bucket >60M");
+
+        assertEquals(1, trendQueryService.getTrendAggregati(GIORNO, GIORNO, "36").size());
+        assertTrue(trendQueryService.getTrendAggregati(GIORNO, GIORNO, "12M").isEmpty(),
+                "La keyword dovrebbe limitare il risultato ai bucket corrispondenti");
+    }
+
+    @Test
+    @DisplayName("I rollup settimanali e mensili sono mantenuti con gli snapshot e scelti in base a maxPunti")
+    public void testRollupERisoluzioneAutomatica() {
+        // GIORNO è un lunedì: i due giorni ricadono nella stessa settimana e nello stesso mese
+        Titolo titolo1 = titoloConScadenza("IT0000000AG7", GIORNO.plusDays(365));
+        Titolo titolo2 = titoloConScadenza("IT0000000AG8", GIORNO.plusDays(400));
+        trendService.salvaOAggiornaTrendPerTitolo(titolo1, new BigDecimal("99.00"), new BigDecimal("0.030000"), GIORNO);
+        trendService.salvaOAggiornaTrendPerTitolo(titolo1, new BigDecimal("98.00"), new BigDecimal("0.050000"), GIORNO.plusDays(1));
+        trendService.salvaOAggiornaTrendPerTitolo(titolo2, new BigDecimal("98.50"), new BigDecimal("0.040000"), GIORNO.plusDays(1));
+        trendAggregatiService.aggiornaAggregatiInSospeso();
+
+        TrendAggregatoEntity settimanale = trendAggregatoRepository
+                .findByRisoluzioneAndDataSnapshotAndBucket(RisoluzioneTrend.SETTIMANALE, GIORNO, TrendBucket.DODICI_MESI)
+                .orElseThrow();
+        assertEquals(0, new BigDecimal("0.040000").compareTo(settimanale.getRendimentoMedio()),
+                "La media del rollup dovrebbe essere pesata sul numero di titoli di ogni giorno");
+        assertEquals(0, new BigDecimal("0.030000").compareTo(settimanale.getRendimentoMinimo()));
+        assertEquals(0, new BigDecimal("0.050000").compareTo(settimanale.getRendimentoMassimo()));
+        assertEquals(2, settimanale.getNumeroTitoli());
+        assertTrue(trendAggregatoRepository.findByRisoluzioneAndDataSnapshotAndBucket(
+                RisoluzioneTrend.MENSILE, GIORNO.withDayOfMonth(1), TrendBucket.DODICI_MESI).isPresent());
+
+        // 400 giorni con al più 30 punti per bucket: solo la risoluzione mensile è sufficiente
+        List<TrendAggregatoDTO> mensili = trendQueryService.getTrendAggregati(GIORNO, GIORNO.plusDays(400), null, 30);
+        assertEquals(1, mensili.size());
+        assertEquals(RisoluzioneTrend.MENSILE.getLabel(), mensili.get(0).getRisoluzione());
+        assertEquals(GIORNO.withDayOfMonth(1), mensili.get(0).getDataSnapshot());
+        assertEquals(0.03, mensili.get(0).getRendimentoP10(), 1e-9);
+        assertEquals(0.04, mensili.get(0).getRendimentoP50(), 1e-9,
+                "La mediana mensile dovrebbe derivare dall'unione degli istogrammi giornalieri");
+        assertEquals(0.05, mensili.get(0).getRendimentoP90(), 1e-9);
+
+        List<TrendAggregatoDTO> giornalieri = trendQueryService.getTrendAggregati(GIORNO, GIORNO.plusDays(6), null, 30);
+        assertEquals(2, giornalieri.size(), "Con pochi giorni la risoluzione dovrebbe restare giornaliera");
+        assertEquals(RisoluzioneTrend.GIORNALIERA.getLabel(), giornalieri.get(0).getRisoluzione());
+    }
+
+    @Test
+    @DisplayName("L'eliminazione di un titolo ricalcola gli aggregati dei giorni in cui compariva")
+    public void testEliminazioneTitolo() {
+        Utente utente = utenteRepository.save(TestDataBuilder.createDefaultUtente("aggregati"));
+        Titolo eliminato = titoloConScadenza("IT0000000AGB", GIORNO.plusDays(365));
+        eliminato.setUtente(utente);
+        eliminato = titoloRepository.save(eliminato);
+        Titolo rimasto = titoloConScadenza("IT0000000AGC", GIORNO.plusDays(400));
+        trendService.salvaOAggiornaTrendPerTitolo(eliminato, new BigDecimal("99.00"), new BigDecimal("0.030000"), GIORNO);
+        trendService.salvaOAggiornaTrendPerTitolo(rimasto, new BigDecimal("98.00"), new BigDecimal("0.040000"), GIORNO);
+        trendService.salvaOAggiornaTrendPerTitolo(eliminato, new BigDecimal("99.10"), new BigDecimal("0.031000"), GIORNO.plusDays(1));
+        trendAggregatiService.aggiornaAggregatiInSospeso();
+
+        titoloService.deleteTitolo(eliminato.getIdTitolo());
+        trendAggregatiService.aggiornaAggregatiInSospeso();
+
+        TrendAggregatoEntity aggregato = trendAggregatoRepository
+                .findByDataSnapshotAndBucket(GIORNO, TrendBucket.DODICI_MESI)
+                .orElseThrow();
+        assertEquals(1, aggregato.getNumeroTitoli(), "L'aggregato non dovrebbe più contare il titolo eliminato");
+        assertEquals(0, new BigDecimal("0.040000").compareTo(aggregato.getRendimentoMedio()));
+        assertTrue(trendAggregatoRepository.findByDataSnapshotAndBucket(GIORNO.plusDays(1), TrendBucket.DODICI_MESI).isEmpty(),
+                "L'aggregato di un giorno senza altri titoli dovrebbe essere eliminato");
+    }
+
+    @Test
+    @DisplayName("La ricostruzione conserva gli aggregati dei giorni precedenti al trend più vecchio")
+    public void testAggregatiConservatiDopoRetention() {
+        Titolo titolo = titoloConScadenza("IT0000000AG5", GIORNO.plusDays(365));
+        trendService.salvaOAggiornaTrendPerTitolo(titolo, new BigDecimal("99.00"), new BigDecimal("0.030000"), GIORNO);
+        trendAggregatiService.aggiornaAggregatiInSospeso();
+
+        // Aggregato di un mese la cui partizione dei trend è già stata eliminata
+        LocalDate eliminato = LocalDate.of(2020, 1, 6);
+        TrendAggregatoEntity storico = new TrendAggregatoEntity();
+        storico.setDataSnapshot(eliminato);
+        storico.setBucket(TrendBucket.DODICI_MESI);
+        storico.setRendimentoMedio(new BigDecimal("0.010000"));
+        storico.setRendimentoMinimo(new BigDecimal("0.010000"));
+        storico.setRendimentoMassimo(new BigDecimal("0.010000"));
+        storico.setNumeroTitoli(1);
+        trendAggregatoRepository.save(storico);
+
+        trendAggregatiService.ricostruisciAggregati(eliminato, GIORNO);
+
+        assertTrue(trendAggregatoRepository.findByDataSnapshotAndBucket(eliminato, TrendBucket.DODICI_MESI).isPresent(),
+                "L'aggregato senza trend non dovrebbe essere eliminato");
+        assertEquals(1, trendQueryService.getTrendAggregati(eliminato, eliminato).size(),
+                "L'aggregato di un mese eliminato dalla retention dovrebbe restare leggibile");
+        assertTrue(trendAggregatoRepository.findByDataSnapshotAndBucket(GIORNO, TrendBucket.DODICI_MESI).isPresent());
+    }
+}
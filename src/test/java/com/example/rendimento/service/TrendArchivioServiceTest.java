@@ -0,0 +1,95 @@
+package com.example.rendimento.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.example.rendimento.dto.ImportazioneTrendDTO;
+import com.example.rendimento.model.TrendEntity;
+import com.example.rendimento.repository.TrendAggregatoRepository;
+import com.example.rendimento.repository.TrendRepository;
+import com.example.rendimento.service.store.ScrittoreTrendColonnare;
+
+/**
+ * Test per l'importazione degli archivi di trend su H2: ogni blocco è salvato con un upsert
+ * in batch e confermato subito, gli snapshot esistenti sono aggiornati senza duplicati.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class TrendArchivioServiceTest {
+
+    private static final String ISIN = "IT0000000AR1";
+    private static final LocalDate GIORNO = LocalDate.of(2026, 3, 2);
+    private static final LocalDate SCADENZA = LocalDate.of(2030, 3, 1);
+
+    @Autowired
+    private TrendArchivioService trendArchivioService;
+
+    @Autowired
+    private TrendRepository trendRepository;
+
+    @Autowired
+    private TrendAggregatoRepository trendAggregatoRepository;
+
+    @BeforeEach
+    @AfterEach
+    public void pulisci() {
+        trendAggregatoRepository.deleteAll();
+        trendRepository.deleteAll();
+    }
+
+    private byte[] archivio(boolean compresso, BigDecimal... rendimenti) throws Exception {
+        ByteArrayOutputStream destinazione = new ByteArrayOutputStream();
+        try (ScrittoreTrendColonnare scrittore = new ScrittoreTrendColonnare(destinazione, compresso)) {
+            for (int i = 0; i < rendimenti.length; i++) {
+                scrittore.scrivi(ISIN, GIORNO.plusDays(i), SCADENZA, rendimenti[i], new BigDecimal("99.5000"));
+            }
+        }
+        return destinazione.toByteArray();
+    }
+
+    @Test
+    @DisplayName("Gli snapshot nuovi sono inseriti e quelli esistenti aggiornati")
+    public void testImportazioneUpsert() throws Exception {
+        trendArchivioService.importa(new ByteArrayInputStream(archivio(false, new BigDecimal("0.030000"))));
+        TrendEntity primo = trendRepository.findByIsinAndDataSnapshot(ISIN, GIORNO).orElseThrow();
+
+        ImportazioneTrendDTO esito = trendArchivioService.importa(new ByteArrayInputStream(
+                archivio(false, new BigDecimal("0.032000"), new BigDecimal("0.033000"))));
+
+        assertEquals(2, esito.getRigheLette());
+        assertEquals(1, esito.getInserite());
+        assertEquals(1, esito.getAggiornate());
+        assertEquals(2, trendRepository.count());
+        TrendEntity aggiornato = trendRepository.findByIsinAndDataSnapshot(ISIN, GIORNO).orElseThrow();
+        assertEquals(primo.getId(), aggiornato.getId());
+        assertEquals(0, new BigDecimal("0.032000").compareTo(aggiornato.getRendimentoAnnuo()));
+        assertEquals(primo.getVersion() + 1, aggiornato.getVersion());
+        TrendEntity inserito = trendRepository.findByIsinAndDataSnapshot(ISIN, GIORNO.plusDays(1)).orElseThrow();
+        assertEquals(SCADENZA, inserito.getDataScadenza());
+        assertEquals(0, new BigDecimal("99.5000").compareTo(inserito.getPrezzo()));
+    }
+
+    @Test
+    @DisplayName("Un archivio troncato è rifiutato")
+    public void testArchivioTroncato() throws Exception {
+        byte[] completo = archivio(false, new BigDecimal("0.030000"));
+        byte[] troncato = Arrays.copyOf(completo, completo.length - 1);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> trendArchivioService.importa(new ByteArrayInputStream(troncato)));
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.rendimento.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.example.rendimento.dto.RisultatoRendimentoAdvancedDTO;
+import com.example.rendimento.dto.TrendRendimentiDTO;
+import com.example.rendimento.event.PortafoglioModificatoEvent;
+import com.example.rendimento.model.Simulazione;
+import com.example.rendimento.model.Titolo;
+import com.example.rendimento.repository.SimulazioneRepository;
+import com.example.rendimento.service.impl.TrendRendimentiServiceImpl;
+import com.example.rendimento.util.TestDataBuilder;
+
+/**
+ * Test per i riepiloghi dei rendimenti per utente: riuso finché il portafoglio
+ * non cambia e ricalcolo dopo una modifica.
+ */
+public class TrendRendimentiServiceTest {
+
+    private static final Integer UTENTE_ID = 1;
+
+    @Mock
+    private SimulazioneRepository simulazioneRepository;
+
+    @Mock
+    private SimulazioneService simulazioneService;
+
+    @InjectMocks
+    private TrendRendimentiServiceImpl trendRendimentiService;
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+
+        Titolo titolo = TestDataBuilder.createDefaultTitolo("1", null);
+        titolo.setIdTitolo(10);
+        Simulazione simulazione = TestDataBuilder.createSimulazione(titolo, LocalDate.now(), new BigDecimal("99.50"));
+        List<Simulazione> ultime = List.of(simulazione);
+        when(simulazioneRepository.findLatestByUtenteIdAndNotExpiredOrderByScadenzaAsc(eq(UTENTE_ID), any()))
+                .thenReturn(ultime);
+
+        RisultatoRendimentoAdvancedDTO risultato = new RisultatoRendimentoAdvancedDTO();
+        risultato.setRendimentoConCommissioniEBolloAnnuale(new BigDecimal("0.0310"));
+        risultato.setRendimentoConCommissioniEBolloMensile(new BigDecimal("0.0305"));
+        when(simulazioneService.calcolaRendimentoAdvanced(any(), any(), any(), any())).thenReturn(risultato);
+    }
+
+    @Test
+    @DisplayName("Il riepilogo è riusato finché il portafoglio non cambia")
+    public void testRiepilogoRiusato() {
+        TrendRendimentiDTO primo = trendRendimentiService.getTrendRendimenti(UTENTE_ID, "tutti");
+        TrendRendimentiDTO secondo = trendRendimentiService.getTrendRendimenti(UTENTE_ID, "tutti");
+
+        assertSame(primo, secondo);
+        assertEquals(1, primo.getTitoli().size());
+        assertEquals(new BigDecimal("0.0310"), primo.getRendimentoMedio());
+        verify(simulazioneRepository, times(1))
+                .findLatestByUtenteIdAndNotExpiredOrderByScadenzaAsc(eq(UTENTE_ID), any());
+    }
+
+    @Test
+    @DisplayName("Una modifica al portafoglio cambia la versione e forza il ricalcolo")
+    public void testRicalcoloDopoModifica() {
+        TrendRendimentiDTO prima = trendRendimentiService.getTrendRendimenti(UTENTE_ID, "tutti");
+
+        trendRendimentiService.onPortafoglioModificato(PortafoglioModificatoEvent.perUtente(UTENTE_ID));
+        TrendRendimentiDTO dopo = trendRendimentiService.getTrendRendimenti(UTENTE_ID, "tutti");
+
+        assertNotEquals(prima.getVersione(), dopo.getVersione());
+        verify(simulazioneRepository, times(2))
+                .findLatestByUtenteIdAndNotExpiredOrderByScadenzaAsc(eq(UTENTE_ID), any());
+    }
+}
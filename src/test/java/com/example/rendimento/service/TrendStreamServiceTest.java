@@ -0,0 +1,126 @@
+package com.example.rendimento.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.example.rendimento.service.impl.TrendStreamServiceImpl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per lo stream dei trend: invio degli eventi e ripresa dei client che si riconnettono.
+ * Gli invii sono eseguiti sul thread del test per rendere il test deterministico.
+ */
+public class TrendStreamServiceTest {
+
+    /**
+     * Emitter che registra il testo degli eventi inviati invece di scriverli sulla risposta.
+     */
+    private static class EmitterRegistrato extends SseEmitter {
+        private final List<String> eventi = new ArrayList<>();
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            eventi.add(builder.build().stream()
+                    .map(d -> String.valueOf(d.getData()))
+                    .collect(Collectors.joining()));
+        }
+    }
+
+    private static class StreamDiTest extends TrendStreamServiceImpl {
+        private final List<EmitterRegistrato> emitter = new ArrayList<>();
+
+        StreamDiTest(int capacitaBuffer) {
+            super(capacitaBuffer, 0L, Runnable::run);
+        }
+
+        @Override
+        protected SseEmitter nuovoEmitter(long timeoutMillis) {
+            EmitterRegistrato nuovo = new EmitterRegistrato();
+            emitter.add(nuovo);
+            return nuovo;
+        }
+    }
+
+    private static long id(String evento) {
+        return Long.parseLong(evento.substring(3, evento.indexOf('\n')));
+    }
+
+    @Test
+    @DisplayName("I client ricevono gli eventi pubblicati e alla riconnessione solo quelli persi")
+    public void testRipresaDallUltimoEvento() {
+        StreamDiTest stream = new StreamDiTest(10);
+        stream.iscrivi(null);
+        EmitterRegistrato primo = stream.emitter.get(0);
+
+        stream.pubblicaDopoCommit(TrendStreamService.EVENTO_SNAPSHOT, "A");
+        stream.pubblicaDopoCommit(TrendStreamService.EVENTO_SNAPSHOT, "B");
+        assertEquals(2, primo.eventi.size());
+        assertTrue(primo.eventi.get(0).contains("event:snapshot"));
+        long idPrimoEvento = id(primo.eventi.get(0));
+
+        stream.pubblicaDopoCommit(TrendStreamService.EVENTO_AGGREGATO, "C");
+
+        // Riconnessione dopo il primo evento: riceve B e C, poi gli eventi successivi
+        stream.iscrivi(idPrimoEvento);
+        EmitterRegistrato ripreso = stream.emitter.get(1);
+        assertEquals(2, ripreso.eventi.size());
+        assertTrue(ripreso.eventi.get(0).contains("B"));
+        assertTrue(ripreso.eventi.get(1).contains("event:aggregato"));
+
+        stream.pubblicaDopoCommit(TrendStreamService.EVENTO_SNAPSHOT, "D");
+        assertEquals(3, ripreso.eventi.size());
+        assertEquals(4, primo.eventi.size());
+        assertEquals(2, stream.numeroIscritti());
+    }
+
+    @Test
+    @DisplayName("Se gli eventi persi sono usciti dal buffer il client riceve un reset")
+    public void testResetOltreIlBuffer() {
+        StreamDiTest stream = new StreamDiTest(2);
+        stream.iscrivi(null);
+        for (String dati : List.of("A", "B", "C", "D")) {
+            stream.pubblicaDopoCommit(TrendStreamService.EVENTO_SNAPSHOT, dati);
+        }
+        long idPrimoEvento = id(stream.emitter.get(0).eventi.get(0));
+
+        stream.iscrivi(idPrimoEvento);
+        List<String> eventi = stream.emitter.get(1).eventi;
+        assertEquals(1, eventi.size());
+        assertTrue(eventi.get(0).contains("event:" + TrendStreamService.EVENTO_RESET));
+
+        // Un identificativo di un'esecuzione precedente (minore di tutti) produce anch'esso un reset
+        stream.iscrivi(1L);
+        assertTrue(stream.emitter.get(2).eventi.get(0).contains("event:" + TrendStreamService.EVENTO_RESET));
+    }
+
+    @Test
+    @DisplayName("Gli eventi degli aggregati non consumano la capacità del buffer, espressa in snapshot")
+    public void testCapacitaInSnapshot() {
+        StreamDiTest stream = new StreamDiTest(2);
+        stream.iscrivi(null);
+        stream.pubblicaDopoCommit(TrendStreamService.EVENTO_SNAPSHOT, "A");
+        for (String dati : List.of("G", "S", "M")) {
+            stream.pubblicaDopoCommit(TrendStreamService.EVENTO_AGGREGATO, dati);
+        }
+        stream.pubblicaDopoCommit(TrendStreamService.EVENTO_SNAPSHOT, "B");
+        stream.pubblicaDopoCommit(TrendStreamService.EVENTO_AGGREGATO, "G");
+        long idPrimoEvento = id(stream.emitter.get(0).eventi.get(0));
+
+        stream.iscrivi(idPrimoEvento);
+        List<String> eventi = stream.emitter.get(1).eventi;
+        assertEquals(5, eventi.size(), "Il client dovrebbe riprendere tutti gli eventi persi senza reset");
+        assertTrue(eventi.get(3).contains("B"));
+
+        // Il terzo snapshot fa uscire il primo: chi si era fermato prima di A riceve un reset
+        stream.pubblicaDopoCommit(TrendStreamService.EVENTO_SNAPSHOT, "C");
+        stream.iscrivi(idPrimoEvento - 1);
+        assertTrue(stream.emitter.get(2).eventi.get(0).contains("event:" + TrendStreamService.EVENTO_RESET));
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.rendimento.service.store;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test per il formato binario a colonne dello storico dei trend.
+ */
+public class FormatoTrendColonnareTest {
+
+    private static final LocalDate GIORNO = LocalDate.of(2026, 3, 2);
+    private static final LocalDate SCADENZA = LocalDate.of(2031, 6, 1);
+
+    private static byte[] scrivi(boolean compresso, int giorniPerIsin) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ScrittoreTrendColonnare scrittore = new ScrittoreTrendColonnare(out, compresso)) {
+            for (String isin : List.of("IT0000000AA1", "IT0000000BB2")) {
+                for (int i = 0; i < giorniPerIsin; i++) {
+                    scrittore.scrivi(isin, GIORNO.plusDays(i), SCADENZA,
+                            new BigDecimal("0.031234").add(BigDecimal.valueOf(i, 6)),
+                            new BigDecimal("98.7654").subtract(BigDecimal.valueOf(i, 4)));
+                }
+            }
+            // L'ISIN già scritto torna dopo un altro: nuovo blocco con l'indice del dizionario
+            scrittore.scrivi("IT0000000AA1", GIORNO.minusDays(1), SCADENZA,
+                    new BigDecimal("-0.0012345"), new BigDecimal("100"));
+        }
+        return out.toByteArray();
+    }
+
+    private static List<LettoreTrendColonnare.Blocco> leggi(byte[] dati) throws IOException {
+        List<LettoreTrendColonnare.Blocco> blocchi = new ArrayList<>();
+        try (LettoreTrendColonnare lettore = new LettoreTrendColonnare(new ByteArrayInputStream(dati))) {
+            LettoreTrendColonnare.Blocco blocco;
+            while ((blocco = lettore.leggiBlocco()) != null) {
+                blocchi.add(blocco);
+            }
+        }
+        return blocchi;
+    }
+
+    @Test
+    @DisplayName("Le righe scritte sono rilette identiche, con o senza compressione")
+    public void testRoundTrip() throws IOException {
+        for (boolean compresso : new boolean[] {false, true}) {
+            List<LettoreTrendColonnare.Blocco> blocchi = leggi(scrivi(compresso, 5000));
+
+            // 5000 righe per ISIN superano la dimensione di un blocco
+            assertEquals(5, blocchi.size());
+            assertEquals(10001, blocchi.stream().mapToInt(LettoreTrendColonnare.Blocco::size).sum());
+
+            LettoreTrendColonnare.Blocco primo = blocchi.get(0);
+            assertEquals("IT0000000AA1", primo.getIsin());
+            assertEquals(SCADENZA, primo.getDataScadenza());
+            assertEquals(GIORNO, primo.getData(0));
+            assertEquals(new BigDecimal("0.031234"), primo.getRendimento(0));
+            assertEquals(new BigDecimal("98.7654"), primo.getPrezzo(0));
+
+            LettoreTrendColonnare.Blocco secondo = blocchi.get(1);
+            assertEquals(GIORNO.plusDays(FormatoTrendColonnare.RIGHE_PER_BLOCCO), secondo.getData(0));
+            assertEquals(new BigDecimal("0.035330"), secondo.getRendimento(0));
+
+            LettoreTrendColonnare.Blocco ultimo = blocchi.get(4);
+            assertEquals("IT0000000AA1", ultimo.getIsin());
+            assertEquals(GIORNO.minusDays(1), ultimo.getData(0));
+            assertEquals(new BigDecimal("-0.001235"), ultimo.getRendimento(0), "Il rendimento è arrotondato a 6 decimali");
+            assertEquals(new BigDecimal("100.0000"), ultimo.getPrezzo(0));
+        }
+    }
+
+    @Test
+    @DisplayName("Le colonne a differenze occupano pochi byte per riga")
+    public void testDimensione() throws IOException {
+        byte[] nonCompresso = scrivi(false, 5000);
+        byte[] compresso = scrivi(true, 5000);
+
+        assertTrue(nonCompresso.length < 10001 * 5, "Attesi meno di 5 byte per riga: " + nonCompresso.length);
+        assertTrue(compresso.length < nonCompresso.length, "La compressione dovrebbe ridurre il file");
+    }
+
+    @Test
+    @DisplayName("Un file troncato o non valido è rifiutato")
+    public void testFileNonValido() throws IOException {
+        byte[] dati = scrivi(false, 10);
+
+        assertThrows(IOException.class, () -> leggi(Arrays.copyOf(dati, dati.length - 1)));
+        assertThrows(IOException.class, () -> leggi(Arrays.copyOf(dati, 3)));
+
+        byte[] alterato = dati.clone();
+        alterato[0] = 'X';
+        assertThrows(IOException.class, () -> leggi(alterato));
+    }
+}
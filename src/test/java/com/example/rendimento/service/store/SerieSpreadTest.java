@@ -0,0 +1,61 @@
+package com.example.rendimento.service.store;
+
+import com.example.rendimento.enums.RisoluzioneTrend;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per il calcolo dello spread tra due serie di rendimenti.
+ */
+public class SerieSpreadTest {
+
+    // Lunedì
+    private static final int LUNEDI = (int) LocalDate.of(2026, 3, 2).toEpochDay();
+
+    @Test
+    @DisplayName("Lo spread considera solo i giorni comuni alle due serie")
+    public void testAllineamento() {
+        SerieRendimenti btp = new SerieRendimenti(
+                new int[] {LUNEDI, LUNEDI + 1, LUNEDI + 2, LUNEDI + 4},
+                new double[] {0.035, 0.036, 0.037, 0.038});
+        SerieRendimenti bot = new SerieRendimenti(
+                new int[] {LUNEDI, LUNEDI + 2, LUNEDI + 3, LUNEDI + 4},
+                new double[] {0.025, 0.026, 0.027, 0.029});
+
+        SerieSpread spread = SerieSpread.calcola(btp, bot);
+
+        assertEquals(3, spread.size());
+        assertEquals(LocalDate.ofEpochDay(LUNEDI + 2), spread.data(1));
+        assertEquals(0.011, spread.spread(1), 1e-12);
+        assertEquals(0.009, spread.spread(2), 1e-12);
+        assertEquals(0.009, spread.minimo(), 1e-12);
+        assertEquals(0.011, spread.massimo(), 1e-12);
+        assertEquals(0.010, spread.media(), 1e-12);
+        assertEquals(0, SerieSpread.calcola(btp, SerieRendimenti.VUOTA).size());
+        assertTrue(Double.isNaN(SerieSpread.calcola(btp, SerieRendimenti.VUOTA).media()));
+    }
+
+    @Test
+    @DisplayName("La risoluzione settimanale media i giorni di ogni settimana")
+    public void testRisoluzioneSettimanale() {
+        SerieRendimenti primo = new SerieRendimenti(
+                new int[] {LUNEDI, LUNEDI + 1, LUNEDI + 7},
+                new double[] {0.030, 0.032, 0.040});
+        SerieRendimenti secondo = new SerieRendimenti(
+                new int[] {LUNEDI, LUNEDI + 1, LUNEDI + 7},
+                new double[] {0.020, 0.020, 0.025});
+
+        SerieSpread settimanale = SerieSpread.calcola(primo, secondo).perRisoluzione(RisoluzioneTrend.SETTIMANALE);
+
+        assertEquals(2, settimanale.size());
+        assertEquals(LocalDate.ofEpochDay(LUNEDI), settimanale.data(0));
+        assertEquals(0.031, settimanale.primo(0), 1e-12);
+        assertEquals(0.011, settimanale.spread(0), 1e-12);
+        assertEquals(LocalDate.ofEpochDay(LUNEDI + 7), settimanale.data(1));
+        assertEquals(0.015, settimanale.spread(1), 1e-12);
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.rendimento.service.store;
+
+import com.example.rendimento.dto.TrendAggregatoDTO;
+import com.example.rendimento.dto.TrendPuntoDTO;
+import com.example.rendimento.dto.TrendStatisticheDTO;
+import com.example.rendimento.enums.TrendBucket;
+import com.example.rendimento.repository.TrendRepository;
+import com.example.rendimento.repository.projection.TrendPuntoProjection;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test per lo store in memoria delle serie storiche dei trend.
+ */
+public class TrendSerieStoreTest {
+
+    private static final LocalDate GIORNO = LocalDate.of(2026, 3, 2);
+
+    @Mock
+    private TrendRepository trendRepository;
+
+    @InjectMocks
+    private TrendSerieStore trendSerieStore;
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    private TrendPuntoProjection punto(String isin, LocalDate data, LocalDate scadenza, String rendimento) {
+        TrendPuntoProjection p = mock(TrendPuntoProjection.class);
+        when(p.getIsin()).thenReturn(isin);
+        when(p.getDataSnapshot()).thenReturn(data);
+        when(p.getDataScadenza()).thenReturn(scadenza);
+        when(p.getRendimentoAnnuo()).thenReturn(new BigDecimal(rendimento));
+        when(p.getPrezzo()).thenReturn(new BigDecimal("99.5000"));
+        return p;
+    }
+
+    @Test
+    @DisplayName("Il caricamento popola lo store e lo storico rispetta l'intervallo richiesto")
+    public void testCaricamentoEStorico() {
+        LocalDate scadenza = GIORNO.plusYears(3);
+        List<TrendPuntoProjection> punti = List.of(
+                punto("IT0000000ST1", GIORNO.minusDays(2), scadenza, "0.030000"),
+                punto("IT0000000ST1", GIORNO.minusDays(1), scadenza, "0.031000"),
+                punto("IT0000000ST1", GIORNO, scadenza, "0.032000"));
+        when(trendRepository.findAllPunti()).thenReturn(punti);
+
+        assertFalse(trendSerieStore.isCaricato());
+        trendSerieStore.carica();
+
+        assertTrue(trendSerieStore.isCaricato());
+        assertEquals(1, trendSerieStore.numeroIsin());
+        List<TrendPuntoDTO> storico = trendSerieStore.getStorico("IT0000000ST1", GIORNO.minusDays(1), GIORNO);
+        assertEquals(2, storico.size(), "Lo storico dovrebbe contenere solo i punti dell'intervallo");
+        assertEquals(GIORNO.minusDays(1), storico.get(0).getDataSnapshot());
+        assertEquals(0.031, storico.get(0).getRendimento(), 1e-9);
+        assertEquals(99.5, storico.get(1).getPrezzo(), 1e-9);
+        assertTrue(trendSerieStore.getStorico("IT0000000XXX", GIORNO, GIORNO).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Il file di avvio ricostruisce lo store senza accessi al database")
+    public void testImmagineStore(@TempDir Path cartella) throws IOException {
+        LocalDate scadenza = GIORNO.plusYears(3);
+        trendSerieStore.aggiorna("IT0000000ST6", GIORNO.minusDays(1), scadenza, new BigDecimal("0.030000"), new BigDecimal("101.2345"));
+        trendSerieStore.aggiorna("IT0000000ST6", GIORNO, scadenza, new BigDecimal("0.031500"), new BigDecimal("101.0000"));
+        trendSerieStore.aggiorna("IT0000000ST7", GIORNO, GIORNO.plusYears(10), new BigDecimal("0.042000"), new BigDecimal("87.5000"));
+
+        Path file = cartella.resolve("store.rtc");
+        assertEquals(3, trendSerieStore.salvaImmagine(file));
+
+        TrendSerieStore ripristinato = new TrendSerieStore(trendRepository);
+        ripristinato.caricaImmagine(file);
+
+        assertTrue(ripristinato.isCaricato());
+        assertEquals(2, ripristinato.numeroIsin());
+        List<TrendPuntoDTO> storico = ripristinato.getStorico("IT0000000ST6", GIORNO.minusDays(1), GIORNO);
+        assertEquals(2, storico.size());
+        assertEquals(0.0315, storico.get(1).getRendimento(), 1e-9);
+        assertEquals(101.2345, storico.get(0).getPrezzo(), 1e-4);
+        verify(trendRepository, never()).findAllPunti();
+    }
+
+    @Test
+    @DisplayName("Gli aggiornamenti inseriscono in ordine o sostituiscono il punto dello stesso giorno")
+    public void testAggiornamento() {
+        LocalDate scadenza = GIORNO.plusYears(3);
+        trendSerieStore.aggiorna("IT0000000ST2", GIORNO, scadenza, new BigDecimal("0.040000"), new BigDecimal("98.0000"));
+        trendSerieStore.aggiorna("IT0000000ST2", GIORNO.minusDays(5), scadenza, new BigDecimal("0.039000"), new BigDecimal("98.5000"));
+        trendSerieStore.aggiorna("IT0000000ST2", GIORNO, scadenza, new BigDecimal("0.041000"), new BigDecimal("97.5000"));
+
+        List<TrendPuntoDTO> storico = trendSerieStore.getStorico("IT0000000ST2", GIORNO.minusDays(10), GIORNO);
+        assertEquals(2, storico.size(), "Lo stesso giorno non dovrebbe essere duplicato");
+        assertEquals(GIORNO.minusDays(5), storico.get(0).getDataSnapshot());
+        assertEquals(0.041, storico.get(1).getRendimento(), 1e-9, "Il punto dovrebbe riflettere l'ultimo aggiornamento");
+
+        trendSerieStore.rimuoviPrecedenti(GIORNO);
+        assertEquals(1, trendSerieStore.getStorico("IT0000000ST2", GIORNO.minusDays(10), GIORNO).size());
+
+        trendSerieStore.rimuovi("IT0000000ST2");
+        assertEquals(0, trendSerieStore.numeroIsin());
+    }
+
+    @Test
+    @DisplayName("L'aggregazione per bucket ignora le scadenze tra due bucket e applica il filtro")
+    public void testAggregazionePerBucket() {
+        trendSerieStore.aggiorna("IT0000000ST3", GIORNO, GIORNO.plusDays(365),
+                new BigDecimal("0.030000"), new BigDecimal("99.0000"));
+        trendSerieStore.aggiorna("IT0000000ST4", GIORNO, GIORNO.plusDays(400),
+                new BigDecimal("0.040000"), new BigDecimal("98.0000"));
+        // 0,8 anni: tra il bucket 6M e il bucket 12M
+        trendSerieStore.aggiorna("IT0000000ST5", GIORNO, GIORNO.plusDays(292),
+                new BigDecimal("0.028000"), new BigDecimal("99.0000"));
+
+        List<TrendAggregatoDTO> aggregati = trendSerieStore.aggregaPerBucket(GIORNO, GIORNO, List.of());
+        assertEquals(1, aggregati.size());
+        TrendAggregatoDTO aggregato = aggregati.get(0);
+        assertEquals(TrendBucket.DODICI_MESI.getLabel(), aggregato.getBucket());
+        assertEquals(2, aggregato.getNumeroTitoli());
+        assertEquals(0.035, aggregato.getRendimentoMedio(), 1e-9);
+        assertEquals(0.030, aggregato.getRendimentoMinimo(), 1e-9);
+        assertEquals(0.040, aggregato.getRendimentoMassimo(), 1e-9);
+
+        assertTrue(trendSerieStore.aggregaPerBucket(GIORNO, GIORNO, List.of(TrendBucket.SEI_MESI)).isEmpty(),
+                "Il filtro dovrebbe escludere i bucket non richiesti");
+    }
+
+    @Test
+    @DisplayName("Le statistiche mobili aggiornate punto per punto coincidono con il calcolo sulla finestra")
+    public void testStatisticheMobili() {
+        LocalDate scadenza = GIORNO.plusYears(3);
+        int finestra = SerieTrend.FINESTRA_PREDEFINITA;
+        double[] rendimenti = new double[finestra + 10];
+        for (int i = 0; i < rendimenti.length; i++) {
+            rendimenti[i] = 0.030 + (i % 7) * 0.0005;
+            trendSerieStore.aggiorna("IT0000000ST6", GIORNO.plusDays(i), scadenza,
+                    BigDecimal.valueOf(rendimenti[i]), new BigDecimal("99.0000"));
+        }
+        // Secondo aggiornamento dello stesso ultimo giorno: sostituisce il valore
+        rendimenti[rendimenti.length - 1] = 0.036;
+        trendSerieStore.aggiorna("IT0000000ST6", GIORNO.plusDays(rendimenti.length - 1), scadenza,
+                new BigDecimal("0.036"), new BigDecimal("99.0000"));
+
+        double somma = 0;
+        for (int i = rendimenti.length - finestra; i < rendimenti.length; i++) {
+            somma += rendimenti[i];
+        }
+        double media = somma / finestra;
+        double scarti = 0;
+        for (int i = rendimenti.length - finestra; i < rendimenti.length; i++) {
+            scarti += (rendimenti[i] - media) * (rendimenti[i] - media);
+        }
+        double deviazione = Math.sqrt(scarti / (finestra - 1));
+
+        TrendStatisticheDTO statistiche = trendSerieStore.getStatistiche("IT0000000ST6");
+        assertEquals(finestra, statistiche.getNumeroPunti());
+        assertEquals(GIORNO.plusDays(rendimenti.length - 1), statistiche.getDataUltimo());
+        assertEquals(media, statistiche.getMediaMobile(), 1e-6);
+        assertEquals(deviazione, statistiche.getDeviazioneStandard(), 1e-6);
+        assertEquals((0.036 - media) / deviazione, statistiche.getZScore(), 1e-2);
+
+        // Un punto inserito nel passato ricalcola le statistiche senza cambiare l'ultimo giorno
+        trendSerieStore.aggiorna("IT0000000ST6", GIORNO.minusDays(1), scadenza,
+                new BigDecimal("0.050"), new BigDecimal("99.0000"));
+        TrendStatisticheDTO ricalcolate = trendSerieStore.getStatistiche("IT0000000ST6");
+        assertEquals(statistiche.getMediaMobile(), ricalcolate.getMediaMobile(), 1e-9);
+        assertEquals(statistiche.getDataUltimo(), ricalcolate.getDataUltimo());
+
+        assertEquals(1, trendSerieStore.getStatistiche(GIORNO).size());
+        assertTrue(trendSerieStore.getStatistiche(scadenza.plusDays(1)).isEmpty(),
+                "I titoli scaduti non dovrebbero essere inclusi");
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.rendimento.util;
 
 import com.example.rendimento.enums.TipoTitolo;
+import com.example.rendimento.model.Simulazione;
 import com.example.rendimento.model.Titolo;
 import com.example.rendimento.model.Utente;
 import com.example.rendimento.repository.TitoloRepository;
@@ -103,6 +104,29 @@ public class TestDataBuilder {
         );
     }
 
+    /**
+     * Crea una simulazione di test con i campi obbligatori valorizzati.
+     *
+     * @param titolo Titolo della simulazione
+     * @param dataAcquisto Data di acquisto
+     * @param prezzoAcquisto Prezzo di acquisto
+     * @return Simulazione creata
+     */
+    public static Simulazione createSimulazione(Titolo titolo, LocalDate dataAcquisto, BigDecimal prezzoAcquisto) {
+        Simulazione simulazione = new Simulazione();
+        simulazione.setTitolo(titolo);
+        simulazione.setDataAcquisto(dataAcquisto);
+        simulazione.setPrezzoAcquisto(prezzoAcquisto);
+        simulazione.setRendimentoLordo(new BigDecimal("0.0350"));
+        simulazione.setRendimentoTassato(new BigDecimal("0.0306"));
+        simulazione.setCommissioniAcquisto(new BigDecimal("0.000900"));
+        simulazione.setRendimentoNettoCedole(new BigDecimal("0.0300"));
+        simulazione.setImpostaBollo(new BigDecimal("0.002000"));
+        simulazione.setRendimentoNettoBollo(new BigDecimal("0.0280"));
+        simulazione.setPlusMinusValenza(BigDecimal.ZERO);
+        return simulazione;
+    }
+
     /**
      * Crea un insieme di dati di test e li salva nel database.
      *
@@ -0,0 +1,40 @@
+package com.example.rendimento.utility;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per l'adattamento della curva dei rendimenti di Nelson-Siegel.
+ */
+public class CurvaNelsonSiegelTest {
+
+    @Test
+    @DisplayName("L'adattamento ricostruisce una curva nota entro mezzo punto base")
+    public void testAdattamentoCurvaNota() {
+        CurvaNelsonSiegel attesa = new CurvaNelsonSiegel(0.04, -0.02, 0.01, 1.5, 0, 0);
+        double[] anni = {0.25, 0.5, 1, 1.5, 2, 3, 4, 5, 7, 10, 15, 20, 30};
+        double[] rendimenti = new double[anni.length];
+        for (int i = 0; i < anni.length; i++) {
+            rendimenti[i] = attesa.rendimento(anni[i]);
+        }
+
+        CurvaNelsonSiegel curva = CurvaNelsonSiegel.adatta(anni, rendimenti, anni.length);
+
+        assertNotNull(curva);
+        assertEquals(anni.length, curva.getNumeroPunti());
+        assertTrue(curva.getErroreQuadraticoMedio() < 0.00005, "Errore troppo alto: " + curva);
+        for (double t : new double[] {0.1, 1, 6, 12, 25}) {
+            assertEquals(attesa.rendimento(t), curva.rendimento(t), 0.00005, "Scadenza " + t);
+        }
+        // A scadenza nulla la curva vale b0 + b1
+        assertEquals(curva.getBeta0() + curva.getBeta1(), curva.rendimento(0), 1e-12);
+    }
+
+    @Test
+    @DisplayName("Con meno di quattro punti la curva non è adattata")
+    public void testPuntiInsufficienti() {
+        assertNull(CurvaNelsonSiegel.adatta(new double[] {1, 2, 3}, new double[] {0.02, 0.025, 0.03}, 3));
+    }
+}
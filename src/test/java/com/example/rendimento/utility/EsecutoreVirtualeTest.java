@@ -0,0 +1,70 @@
+package com.example.rendimento.utility;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test per l'esecutore su thread virtuali: limite dei compiti contemporanei e rifiuto oltre la coda.
+ */
+public class EsecutoreVirtualeTest {
+
+    @Test
+    @DisplayName("Non più compiti contemporanei del limite, tutti su thread virtuali")
+    public void testLimiteConcorrenti() throws Exception {
+        AtomicInteger inCorso = new AtomicInteger();
+        AtomicInteger massimo = new AtomicInteger();
+        AtomicInteger virtuali = new AtomicInteger();
+        CountDownLatch terminati = new CountDownLatch(200);
+
+        try (EsecutoreVirtuale esecutore = new EsecutoreVirtuale("test-", 3)) {
+            for (int i = 0; i < 200; i++) {
+                esecutore.execute(() -> {
+                    massimo.accumulateAndGet(inCorso.incrementAndGet(), Math::max);
+                    if (Thread.currentThread().isVirtual()) {
+                        virtuali.incrementAndGet();
+                    }
+                    try {
+                        Thread.sleep(1);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    inCorso.decrementAndGet();
+                    terminati.countDown();
+                });
+            }
+            assertTrue(terminati.await(10, TimeUnit.SECONDS));
+        }
+
+        assertTrue(massimo.get() <= 3, "Compiti contemporanei: " + massimo.get());
+        assertEquals(200, virtuali.get());
+    }
+
+    @Test
+    @DisplayName("Con i compiti in esecuzione e la coda pieni l'invio è rifiutato")
+    public void testRifiutoOltreLaCoda() throws Exception {
+        CountDownLatch sblocca = new CountDownLatch(1);
+        Runnable bloccato = () -> {
+            try {
+                sblocca.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        try (EsecutoreVirtuale esecutore = new EsecutoreVirtuale("test-", 1, 1)) {
+            esecutore.execute(bloccato);
+            esecutore.execute(bloccato);
+            assertThrows(RejectedExecutionException.class, () -> esecutore.execute(bloccato));
+            sblocca.countDown();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.rendimento.utility;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per l'istogramma sparso dei rendimenti usato per i percentili dei trend aggregati.
+ */
+public class IstogrammaRendimentiTest {
+
+    @Test
+    @DisplayName("I percentili usano il rango più vicino sulle classi di un punto base")
+    public void testPercentili() {
+        IstogrammaRendimenti istogramma = new IstogrammaRendimenti();
+        for (int i = 1; i <= 10; i++) {
+            istogramma.aggiungi(0.03 + i * 0.001);
+        }
+
+        assertEquals(10, istogramma.getTotale());
+        assertEquals(0.031, istogramma.percentile(0.10), 1e-9);
+        assertEquals(0.035, istogramma.percentile(0.50), 1e-9);
+        assertEquals(0.039, istogramma.percentile(0.90), 1e-9);
+        assertNull(new IstogrammaRendimenti().percentile(0.5), "Un istogramma vuoto non ha percentili");
+        assertThrows(IllegalArgumentException.class, () -> istogramma.percentile(1.5));
+    }
+
+    @Test
+    @DisplayName("L'unione somma i conteggi e la serializzazione è reversibile")
+    public void testUnioneESerializzazione() {
+        IstogrammaRendimenti lunedi = new IstogrammaRendimenti();
+        lunedi.aggiungi(0.0300);
+        lunedi.aggiungi(0.0300);
+        IstogrammaRendimenti martedi = new IstogrammaRendimenti();
+        martedi.aggiungi(0.0500);
+        martedi.aggiungi(0.03004); // stessa classe di 0.0300
+
+        IstogrammaRendimenti settimana = new IstogrammaRendimenti();
+        settimana.unisci(lunedi);
+        settimana.unisci(martedi);
+
+        assertEquals(4, settimana.getTotale());
+        assertEquals("300:3,500:1", settimana.serializza());
+        assertEquals(0.03, settimana.percentile(0.75), 1e-9);
+        assertEquals(0.05, settimana.percentile(1.0), 1e-9);
+
+        IstogrammaRendimenti copia = IstogrammaRendimenti.deserializza(settimana.serializza());
+        assertEquals(settimana.serializza(), copia.serializza());
+        assertTrue(IstogrammaRendimenti.deserializza(null).isVuoto());
+        assertThrows(IllegalArgumentException.class, () -> IstogrammaRendimenti.deserializza("300;3"));
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.rendimento.utility;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test per il limitatore di richieste: prenotazione dei gettoni e attesa fuori dal lock.
+ */
+public class LimitatoreRichiesteTest {
+
+    @Test
+    @DisplayName("Le richieste oltre la raffica attendono in ordine il proprio gettone")
+    public void testAttesaOltreRaffica() throws Exception {
+        LimitatoreRichieste limitatore = new LimitatoreRichieste(20, 1, 1);
+
+        long inizio = System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            limitatore.attendiPermesso();
+        }
+        long trascorsiMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inizio);
+
+        // Un gettone subito, poi due a 50 ms di distanza
+        assertTrue(trascorsiMs >= 90, "Attesa troppo breve: " + trascorsiMs + " ms");
+    }
+
+    @Test
+    @DisplayName("Esiti e velocità corrente non attendono i gettoni prenotati da altri thread")
+    public void testSegnalazioniSenzaAttesa() throws Exception {
+        LimitatoreRichieste limitatore = new LimitatoreRichieste(1, 0.2, 1);
+        limitatore.attendiPermesso();
+        limitatore.segnalaRallentamento();
+
+        // Con 0,5 richieste al secondo il prossimo gettone arriva tra circa 2 secondi
+        CompletableFuture<Void> inAttesa = CompletableFuture.runAsync(() -> {
+            try {
+                limitatore.attendiPermesso();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Thread.sleep(100);
+
+        long inizio = System.nanoTime();
+        limitatore.segnalaSuccesso();
+        double alSecondo = limitatore.getRichiesteAlSecondo();
+        long trascorsiMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inizio);
+
+        assertTrue(trascorsiMs < 500, "Segnalazione bloccata per " + trascorsiMs + " ms");
+        assertEquals(0.525, alSecondo, 1e-9);
+        inAttesa.get(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.rendimento.utility;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test per le pagine scaricate di recente: riuso entro la durata, un solo scaricamento
+ * per richieste contemporanee ed errori non conservati.
+ */
+public class PagineRecentiTest {
+
+    private static final String URL = "https://www.borsaitaliana.it/scheda/IT0001-MOTX.html";
+
+    @Test
+    @DisplayName("Una pagina recente viene riusata, una scaduta viene scaricata di nuovo")
+    public void testRiuso() throws Exception {
+        AtomicInteger scaricamenti = new AtomicInteger();
+        PagineRecenti.Scaricamento scaricamento = () -> "pagina " + scaricamenti.incrementAndGet();
+
+        PagineRecenti recenti = new PagineRecenti(Duration.ofMinutes(1), 10);
+        assertEquals("pagina 1", recenti.scarica(URL, scaricamento));
+        assertEquals("pagina 1", recenti.scarica(URL, scaricamento));
+        assertEquals("pagina 2", recenti.scarica(URL + "?lang=en", scaricamento));
+
+        PagineRecenti senzaConservazione = new PagineRecenti(Duration.ZERO, 10);
+        assertEquals("pagina 3", senzaConservazione.scarica(URL, scaricamento));
+        assertEquals("pagina 4", senzaConservazione.scarica(URL, scaricamento));
+    }
+
+    @Test
+    @DisplayName("Le richieste contemporanee della stessa pagina attendono un solo scaricamento")
+    public void testScaricamentoCondiviso() throws Exception {
+        PagineRecenti recenti = new PagineRecenti(Duration.ofMinutes(1), 10);
+        AtomicInteger scaricamenti = new AtomicInteger();
+        CountDownLatch avviato = new CountDownLatch(1);
+        CountDownLatch sblocca = new CountDownLatch(1);
+
+        List<Future<String>> risultati = new ArrayList<>();
+        try (EsecutoreVirtuale esecutore = new EsecutoreVirtuale("test-", 10)) {
+            for (int i = 0; i < 10; i++) {
+                risultati.add(esecutore.submit(() -> recenti.scarica(URL, () -> {
+                    scaricamenti.incrementAndGet();
+                    avviato.countDown();
+                    try {
+                        sblocca.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return "pagina";
+                })));
+            }
+            assertTrue(avviato.await(5, TimeUnit.SECONDS));
+            sblocca.countDown();
+            for (Future<String> risultato : risultati) {
+                assertEquals("pagina", risultato.get(5, TimeUnit.SECONDS));
+            }
+        }
+        assertEquals(1, scaricamenti.get());
+    }
+
+    @Test
+    @DisplayName("Uno scaricamento fallito non viene conservato")
+    public void testErroreNonConservato() throws Exception {
+        PagineRecenti recenti = new PagineRecenti(Duration.ofMinutes(1), 10);
+
+        assertThrows(IOException.class, () -> recenti.scarica(URL, () -> {
+            throw new IOException("Timeout");
+        }));
+        assertEquals("pagina", recenti.scarica(URL, () -> "pagina"));
+    }
+}